@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/10
+ */
+package com.bytedance.volc.voddemo.data.local;
+
+import android.database.Cursor;
+import androidx.room.Room;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the migrations against databases created from the schemas exported to app/schemas.
+ */
+@RunWith(AndroidJUnit4.class)
+public class VodDataBaseMigrationTest {
+    private static final String TEST_DB = "migration-test";
+
+    @Rule
+    public MigrationTestHelper mHelper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(), VodDataBase.class.getCanonicalName(),
+            new FrameworkSQLiteOpenHelperFactory());
+
+    @Test
+    public void migrate1To2_keepsInsertionOrder() throws IOException {
+        SupportSQLiteDatabase db = mHelper.createDatabase(TEST_DB, 1);
+        insertV1(db, "item2");
+        insertV1(db, "item1");
+        db.close();
+
+        db = mHelper.runMigrationsAndValidate(TEST_DB, 2, true, VodDataBase.MIGRATION_1_2);
+
+        try (Cursor cursor = db.query("SELECT `itemId`, `fetchTime` FROM `video_item`"
+                                      + " ORDER BY `type`, `ordinal`")) {
+            assertEquals(2, cursor.getCount());
+            cursor.moveToFirst();
+            assertEquals("item2", cursor.getString(0));
+            assertEquals(0, cursor.getLong(1));
+            cursor.moveToNext();
+            assertEquals("item1", cursor.getString(0));
+        }
+    }
+
+    @Test
+    public void migrate2To3_rowsHaveNoKnownExpiry() throws IOException {
+        SupportSQLiteDatabase db = mHelper.createDatabase(TEST_DB, 2);
+        insertV1(db, "item1");
+        db.close();
+
+        db = mHelper.runMigrationsAndValidate(TEST_DB, 3, true, VodDataBase.MIGRATION_2_3);
+
+        try (Cursor cursor = db.query(
+                "SELECT `tokenExpireTime`, `lastShownTime` FROM `video_item`")) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(0, cursor.getLong(0));
+            assertEquals(0, cursor.getLong(1));
+        }
+    }
+
+    @Test
+    public void migrate3To4_rowsHaveNoVideoModel() throws IOException {
+        SupportSQLiteDatabase db = mHelper.createDatabase(TEST_DB, 3);
+        insertV1(db, "item1");
+        db.close();
+
+        db = mHelper.runMigrationsAndValidate(TEST_DB, 4, true, VodDataBase.MIGRATION_3_4);
+
+        try (Cursor cursor = db.query("SELECT `videoModel` FROM `video_item`")) {
+            assertTrue(cursor.moveToFirst());
+            assertNull(cursor.getString(0));
+        }
+    }
+
+    @Test
+    public void migrate1To4_opensWithRoom() throws IOException {
+        SupportSQLiteDatabase db = mHelper.createDatabase(TEST_DB, 1);
+        insertV1(db, "item1");
+        insertV1(db, "item2");
+        db.close();
+
+        mHelper.runMigrationsAndValidate(TEST_DB, 4, true, VodDataBase.MIGRATION_1_2,
+                VodDataBase.MIGRATION_2_3, VodDataBase.MIGRATION_3_4);
+
+        VodDataBase dataBase = Room.databaseBuilder(
+                InstrumentationRegistry.getInstrumentation().getTargetContext(),
+                VodDataBase.class, TEST_DB)
+                .addMigrations(VodDataBase.MIGRATION_1_2, VodDataBase.MIGRATION_2_3,
+                        VodDataBase.MIGRATION_3_4)
+                .allowMainThreadQueries()
+                .build();
+        mHelper.closeWhenFinished(dataBase);
+        assertEquals(2, dataBase.videoItemDao().getCount(VIDEO_TYPE_SMALL));
+    }
+
+    // the columns every version has
+    private static void insertV1(SupportSQLiteDatabase db, String itemId) {
+        db.execSQL("INSERT INTO `video_item` (`itemId`, `vid`, `duration`, `title`, `cover`,"
+                   + " `authToken`, `type`) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                new Object[] { itemId, "vid_" + itemId, 1000, null, null, "token",
+                        VIDEO_TYPE_SMALL });
+    }
+}
@@ -18,18 +18,30 @@
 package com.bytedance.volc.voddemo;
 
 import android.annotation.SuppressLint;
+import android.app.ActivityManager;
 import android.app.Application;
+import android.content.Context;
+import android.os.Build;
+import com.bytedance.volc.voddemo.data.remote.AppServerManager;
+import com.bytedance.volc.voddemo.data.remote.HttpClientManager;
+import com.bytedance.volc.voddemo.preload.CacheBudgetManager;
+import com.bytedance.volc.voddemo.preload.PreloadManager;
 import com.bytedance.volc.voddemo.settings.ClientSettings;
+import com.bytedance.volc.voddemo.utils.ThreadUtils;
+import com.bytedance.volc.voddemo.videoview.VOLCVideoController;
 import com.pandora.common.env.Env;
 import com.pandora.common.env.config.Config;
 import com.pandora.ttlicense2.LicenseManager;
 import com.ss.mediakit.medialoader.AVMDLLog;
 import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.io.File;
 
 public class VodApp extends Application {
     private static final String APP_ID = "229234";
     private static final String APP_NAME = "VOLCVodDemo";
     private static final String APP_CHANNEL = "VOLCVodDemoAndroid";
+    private static final String CACHED_BYTES_INDEX_FILE = "cached_bytes_index.bin";
+    private static final String CACHE_BUDGET_FILE = "cache_budget.bin";
 
     @SuppressLint("StaticFieldLeak")
     private static ClientSettings sClientSettings;
@@ -42,7 +54,36 @@ public class VodApp extends Application {
     public void onCreate() {
         super.onCreate();
         sClientSettings = new ClientSettings(this);
+        HttpClientManager.init(this);
+        AppServerManager.getInstance().prewarm();
+        // the cache cap only applies if set before the data loader starts
+        PreloadManager.getInstance().getCacheBudget().setQuota(CacheBudgetManager.DEFAULT_QUOTA);
+        PreloadManager.getInstance().getResolutionSelector().setLowEndDevice(isLowEndDevice());
         initVodSDK();
+
+        final File cachedBytesIndexFile = new File(getFilesDir(), CACHED_BYTES_INDEX_FILE);
+        final File cacheBudgetFile = new File(getFilesDir(), CACHE_BUDGET_FILE);
+        ThreadUtils.runOnIoThread(() -> {
+            final PreloadManager preloadManager = PreloadManager.getInstance();
+            preloadManager.getCachedBytesIndex().load(cachedBytesIndexFile,
+                    System.currentTimeMillis());
+            preloadManager.getCacheBudget().load(cacheBudgetFile);
+        });
+    }
+
+    @Override
+    public void onTrimMemory(final int level) {
+        super.onTrimMemory(level);
+        VOLCVideoController.trimEnginePool(level);
+    }
+
+    private boolean isLowEndDevice() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            return true;
+        }
+        final ActivityManager activityManager =
+                (ActivityManager) getSystemService(Context.ACTIVITY_SERVICE);
+        return activityManager != null && activityManager.isLowRamDevice();
     }
 
     private void initVodSDK() {
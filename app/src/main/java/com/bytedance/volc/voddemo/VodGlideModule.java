@@ -0,0 +1,48 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/23
+ */
+package com.bytedance.volc.voddemo;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.module.AppGlideModule;
+import com.bytedance.volc.voddemo.data.remote.HttpClientManager;
+import java.io.InputStream;
+
+/**
+ * Loads the covers through the shared OkHttp stack instead of Glide's HttpURLConnection.
+ */
+@GlideModule
+public class VodGlideModule extends AppGlideModule {
+
+    @Override
+    public void registerComponents(@NonNull final Context context, @NonNull final Glide glide,
+            @NonNull final Registry registry) {
+        registry.replace(GlideUrl.class, InputStream.class,
+                new OkHttpUrlLoader.Factory(HttpClientManager.getClient()));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
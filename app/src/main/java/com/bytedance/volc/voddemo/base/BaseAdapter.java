@@ -23,19 +23,35 @@ import android.view.View;
 import android.view.ViewGroup;
 import androidx.annotation.IdRes;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Two modes: the list mode notifies the changes itself, the diff mode created with a
+ * {@link DiffUtil.ItemCallback} hands every change to an {@link AsyncListDiffer}, which diffs on
+ * a background thread and dispatches only the ranges that were inserted, removed, moved or
+ * changed. In diff mode the items read through {@link #getItem} lag behind a change until its
+ * diff is dispatched.
+ */
 public abstract class BaseAdapter<T> extends RecyclerView.Adapter<BaseAdapter.ViewHolder> {
+    // in diff mode the latest list handed to the differ
     private final List<T> mDatas = new ArrayList();
+    private final AsyncListDiffer<T> mDiffer;
 
     public BaseAdapter(List<T> datas) {
+        mDiffer = null;
         if (datas != null) {
             mDatas.addAll(datas);
         }
     }
 
+    public BaseAdapter(@NonNull DiffUtil.ItemCallback<T> diffCallback) {
+        mDiffer = new AsyncListDiffer<>(this, diffCallback);
+    }
+
     public abstract int getLayoutId(int viewType);
 
     public abstract void onBindViewHolder(ViewHolder holder, T data, int position);
@@ -45,45 +61,94 @@ public abstract class BaseAdapter<T> extends RecyclerView.Adapter<BaseAdapter.Vi
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(getLayoutId(viewType), parent, false);
-        return new ViewHolder(view);
+        ViewHolder holder = new ViewHolder(view);
+        onViewHolderCreated(holder, viewType);
+        return holder;
+    }
+
+    /**
+     * Called once per holder, the place for view setup that does not depend on the item.
+     */
+    protected void onViewHolderCreated(@NonNull ViewHolder holder, int viewType) {
     }
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        onBindViewHolder(holder, mDatas.get(position), position);
+        onBindViewHolder(holder, getAll().get(position), position);
     }
 
     @Override
     public int getItemCount() {
-        return mDatas.size();
+        return getAll().size();
     }
 
     public T getItem(int position) {
-        return mDatas.get(position);
+        return getAll().get(position);
     }
 
+    /**
+     * In list mode replaces the items without notifying, in diff mode submits them.
+     */
     public void setData(List<T> datas) {
         mDatas.clear();
         mDatas.addAll(datas);
+        submit();
     }
 
     public void replaceItem(int index, T item) {
         mDatas.set(index, item);
+        submit();
+    }
+
+    public void insertItem(int index, T item) {
+        mDatas.add(index, item);
+        if (mDiffer == null) {
+            notifyItemInserted(index);
+        } else {
+            submit();
+        }
+    }
+
+    public void removeItem(int index) {
+        mDatas.remove(index);
+        if (mDiffer == null) {
+            notifyItemRemoved(index);
+        } else {
+            submit();
+        }
     }
 
     public void replaceAll(List<T> datas) {
         mDatas.clear();
         mDatas.addAll(datas);
-        notifyDataSetChanged();
+        if (mDiffer == null) {
+            notifyDataSetChanged();
+        } else {
+            submit();
+        }
     }
 
     public void addAll(List<T> datas) {
+        final int start = mDatas.size();
         mDatas.addAll(datas);
-        notifyDataSetChanged();
+        if (mDiffer == null) {
+            notifyItemRangeInserted(start, datas.size());
+        } else {
+            submit();
+        }
     }
 
+    /**
+     * @return the items the adapter currently shows
+     */
     public List<T> getAll() {
-        return mDatas;
+        return mDiffer == null ? mDatas : mDiffer.getCurrentList();
+    }
+
+    private void submit() {
+        if (mDiffer != null) {
+            mDiffer.submitList(new ArrayList<>(mDatas));
+        }
     }
 
     public static class ViewHolder extends RecyclerView.ViewHolder {
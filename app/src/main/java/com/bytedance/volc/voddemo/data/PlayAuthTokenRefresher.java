@@ -0,0 +1,175 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/26
+ */
+package com.bytedance.volc.voddemo.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.bytedance.volc.voddemo.data.remote.ServerResultCallback;
+import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the play auth tokens of the upcoming items valid. Whenever the pager moves, the items
+ * from the current one to {@code lookAhead} after it whose token expires within
+ * {@code refreshMargin} are refreshed in batches of at most {@code maxBatch} window positions,
+ * and the new token is written into the item in place, so the play source built when it starts
+ * and the preload task already carry it. Batches are fetched by window position, which is the
+ * feed offset the server pages by, whatever ordinal the items carry.
+ *
+ * An item whose refresh failed or did not come back is retried after {@link #RETRY_INTERVAL}.
+ * Use it from the main thread.
+ */
+public class PlayAuthTokenRefresher {
+    private static final String TAG = "PlayAuthTokenRefresher";
+
+    public static final int DEFAULT_LOOK_AHEAD = 10;
+    public static final int DEFAULT_MAX_BATCH = 10;
+    public static final long DEFAULT_REFRESH_MARGIN = 5 * 60 * 1000;
+    public static final long RETRY_INTERVAL = 30 * 1000;
+    private static final int MAX_TRACKED_ITEMS = 64;
+
+    public interface Fetcher {
+        /**
+         * Fetches the items at feed positions [offset, offset + count) with fresh tokens. The
+         * callback runs on the main thread, with null if the request failed.
+         */
+        void fetch(int offset, int count, @NonNull ServerResultCallback callback);
+    }
+
+    public interface Listener {
+        /**
+         * @param videoItems the items whose token was just replaced
+         */
+        void onTokensRefreshed(@NonNull List<VideoItem> videoItems);
+    }
+
+    private final VideoItemWindow mWindow;
+    private final Fetcher mFetcher;
+    private final int mLookAhead;
+    private final int mMaxBatch;
+    private final long mRefreshMargin;
+    // itemId of the items being refreshed
+    private final Set<String> mInFlight = new HashSet<>();
+    // itemId to the time of the last refresh attempt, the most recent ones only
+    private final LinkedHashMap<String, Long> mAttempts =
+            new LinkedHashMap<String, Long>(MAX_TRACKED_ITEMS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+                    return size() > MAX_TRACKED_ITEMS;
+                }
+            };
+
+    private Listener mListener;
+
+    public PlayAuthTokenRefresher(@NonNull VideoItemWindow window, @NonNull Fetcher fetcher) {
+        this(window, fetcher, DEFAULT_LOOK_AHEAD, DEFAULT_MAX_BATCH, DEFAULT_REFRESH_MARGIN);
+    }
+
+    public PlayAuthTokenRefresher(@NonNull VideoItemWindow window, @NonNull Fetcher fetcher,
+            int lookAhead, int maxBatch, long refreshMargin) {
+        mWindow = window;
+        mFetcher = fetcher;
+        mLookAhead = lookAhead;
+        mMaxBatch = maxBatch;
+        mRefreshMargin = refreshMargin;
+    }
+
+    public void setListener(@Nullable Listener listener) {
+        mListener = listener;
+    }
+
+    public boolean needsRefresh(@NonNull VideoItem videoItem, long now) {
+        return videoItem.getTokenExpireTime() - now < mRefreshMargin;
+    }
+
+    /**
+     * Starts the refresh of the tokens about to be needed from {@code position} on.
+     */
+    public void refreshAhead(int position, long now) {
+        final List<VideoItem> stale = new ArrayList<>();
+        final List<Integer> positions = new ArrayList<>();
+        for (int i = position; i <= position + mLookAhead; i++) {
+            final VideoItem videoItem = mWindow.get(i);
+            if (videoItem == null || !needsRefresh(videoItem, now)
+                || mInFlight.contains(videoItem.getItemId())) {
+                continue;
+            }
+            final Long lastAttempt = mAttempts.get(videoItem.getItemId());
+            if (lastAttempt != null && now - lastAttempt < RETRY_INTERVAL) {
+                continue;
+            }
+            stale.add(videoItem);
+            positions.add(i);
+        }
+
+        int start = 0;
+        while (start < stale.size()) {
+            final int from = positions.get(start);
+            int end = start + 1;
+            while (end < stale.size() && positions.get(end) - from < mMaxBatch) {
+                end++;
+            }
+            refresh(new ArrayList<>(stale.subList(start, end)), from,
+                    positions.get(end - 1) - from + 1, now);
+            start = end;
+        }
+    }
+
+    private void refresh(final List<VideoItem> batch, int from, int count, long now) {
+        final Map<String, VideoItem> pending = new HashMap<>();
+        for (VideoItem videoItem : batch) {
+            pending.put(videoItem.getItemId(), videoItem);
+            mInFlight.add(videoItem.getItemId());
+            mAttempts.put(videoItem.getItemId(), now);
+        }
+        TTVideoEngineLog.d(TAG, "refresh offset " + from + ", count " + count + ", stale "
+                                + batch.size());
+
+        mFetcher.fetch(from, count, videoItems -> {
+            mInFlight.removeAll(pending.keySet());
+            if (videoItems == null) {
+                return;
+            }
+
+            final List<VideoItem> refreshed = new ArrayList<>();
+            for (VideoItem fetched : videoItems) {
+                final VideoItem videoItem = pending.get(fetched.getItemId());
+                if (videoItem == null
+                    || fetched.getTokenExpireTime() <= videoItem.getTokenExpireTime()) {
+                    continue;
+                }
+                videoItem.setAuthToken(fetched.getAuthToken());
+                videoItem.setVideoModel(fetched.getVideoModel());
+                videoItem.setFetchTime(fetched.getFetchTime());
+                videoItem.setTokenExpireTime(fetched.getTokenExpireTime());
+                mAttempts.remove(videoItem.getItemId());
+                refreshed.add(videoItem);
+            }
+            TTVideoEngineLog.d(TAG, "refreshed " + refreshed.size() + " of " + pending.size());
+            if (!refreshed.isEmpty() && mListener != null) {
+                mListener.onTokensRefreshed(refreshed);
+            }
+        });
+    }
+}
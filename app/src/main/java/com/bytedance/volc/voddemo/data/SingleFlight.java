@@ -0,0 +1,89 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/20
+ */
+package com.bytedance.volc.voddemo.data;
+
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coalesces concurrent asynchronous calls with the same key: only the first caller starts the
+ * call, callers arriving while it is in flight wait for it and every waiter receives the same
+ * result. Once the result is delivered the key is free again. A call that throws while starting
+ * delivers null.
+ */
+public class SingleFlight<K, V> {
+
+    public interface Callback<V> {
+        void onResult(V value);
+    }
+
+    public interface Call<K, V> {
+        /**
+         * Starts the work for {@code key}, {@code done} must be invoked exactly once.
+         */
+        void start(K key, Callback<V> done);
+    }
+
+    private final Map<K, List<Callback<V>>> mInFlight = new HashMap<>();
+
+    /**
+     * @return true if this caller started the call, false if it joined one already in flight
+     */
+    public boolean execute(@NonNull final K key, @NonNull Call<K, V> call,
+            @NonNull Callback<V> callback) {
+        synchronized (mInFlight) {
+            List<Callback<V>> waiters = mInFlight.get(key);
+            if (waiters != null) {
+                waiters.add(callback);
+                return false;
+            }
+            waiters = new ArrayList<>();
+            waiters.add(callback);
+            mInFlight.put(key, waiters);
+        }
+
+        final Callback<V> done = value -> {
+            final List<Callback<V>> waiters;
+            synchronized (mInFlight) {
+                waiters = mInFlight.remove(key);
+            }
+            if (waiters == null) {
+                return;
+            }
+            for (Callback<V> waiter : waiters) {
+                waiter.onResult(value);
+            }
+        };
+        try {
+            call.start(key, done);
+        } catch (RuntimeException e) {
+            // the call will never finish, free the key and fail whoever joined it
+            done.onResult(null);
+        }
+        return true;
+    }
+
+    public boolean isInFlight(@NonNull K key) {
+        synchronized (mInFlight) {
+            return mInFlight.containsKey(key);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/8
+ */
+package com.bytedance.volc.voddemo.data;
+
+import androidx.annotation.Nullable;
+import java.util.List;
+
+/**
+ * One emission of a cache-first feed load: first the cached rows, then the network result
+ * together with its diff against what was emitted from cache. With nothing cached, the first
+ * items parsed from the response are emitted as the cache emission.
+ */
+public class VideoFeed {
+    public static final int SOURCE_CACHE = 0;
+    public static final int SOURCE_NETWORK = 1;
+
+    private final int mSource;
+    private final List<VideoItem> mItems;
+    private final VideoItemDiff mDiff;
+
+    private VideoFeed(int source, List<VideoItem> items, VideoItemDiff diff) {
+        mSource = source;
+        mItems = items;
+        mDiff = diff;
+    }
+
+    public static VideoFeed fromCache(List<VideoItem> items) {
+        return new VideoFeed(SOURCE_CACHE, items, null);
+    }
+
+    public static VideoFeed fromNetwork(@Nullable List<VideoItem> items,
+            @Nullable VideoItemDiff diff) {
+        return new VideoFeed(SOURCE_NETWORK, items, diff);
+    }
+
+    public int getSource() {
+        return mSource;
+    }
+
+    /**
+     * @return the items, null when the network refresh failed
+     */
+    @Nullable
+    public List<VideoItem> getItems() {
+        return mItems;
+    }
+
+    /**
+     * @return the diff against the cached emission, null if nothing was emitted from cache
+     */
+    @Nullable
+    public VideoItemDiff getDiff() {
+        return mDiff;
+    }
+
+    public boolean isFromCache() {
+        return mSource == SOURCE_CACHE;
+    }
+}
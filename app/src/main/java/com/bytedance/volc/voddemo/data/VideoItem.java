@@ -18,14 +18,24 @@
 package com.bytedance.volc.voddemo.data;
 
 import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import com.bytedance.volc.voddemo.data.remote.Response;
 
-@Entity(tableName = "video_item")
+@Entity(tableName = "video_item", indices = {
+        @Index(value = { "type", "ordinal" }),
+        @Index(value = { "tokenExpireTime" })
+})
 public class VideoItem {
     public static final int VIDEO_TYPE_SMALL = 0;
 
+    /**
+     * How long a play auth token handed out by the app server stays usable.
+     */
+    public static final long PLAY_AUTH_TOKEN_TTL = 30 * 60 * 1000;
+
     @NonNull
     @PrimaryKey
     private String itemId;
@@ -44,6 +54,36 @@ public class VideoItem {
 
     private int type;
 
+    /**
+     * Position of the item in the server feed.
+     */
+    @ColumnInfo(defaultValue = "0")
+    private int ordinal;
+
+    /**
+     * Time the item was fetched from the server, in milliseconds.
+     */
+    @ColumnInfo(defaultValue = "0")
+    private long fetchTime;
+
+    /**
+     * Time after which {@link #authToken} is no longer accepted, in milliseconds.
+     */
+    @ColumnInfo(defaultValue = "0")
+    private long tokenExpireTime;
+
+    /**
+     * Last time the item was shown in the pager, in milliseconds, 0 if never shown.
+     */
+    @ColumnInfo(defaultValue = "0")
+    private long lastShownTime;
+
+    /**
+     * VideoModel json handed out by the app server together with the feed, lets the player and
+     * the preloader skip the play info fetch while {@link #authToken} is valid.
+     */
+    private String videoModel;
+
     public VideoItem(@NonNull final String vid, final int duration, final String title,
             final String cover, @NonNull final String authToken, final int type) {
         this.vid = vid;
@@ -114,13 +154,55 @@ public class VideoItem {
         this.type = type;
     }
 
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    public void setOrdinal(final int ordinal) {
+        this.ordinal = ordinal;
+    }
+
+    public long getFetchTime() {
+        return fetchTime;
+    }
+
+    public void setFetchTime(final long fetchTime) {
+        this.fetchTime = fetchTime;
+    }
+
+    public long getTokenExpireTime() {
+        return tokenExpireTime;
+    }
+
+    public void setTokenExpireTime(final long tokenExpireTime) {
+        this.tokenExpireTime = tokenExpireTime;
+    }
+
+    public long getLastShownTime() {
+        return lastShownTime;
+    }
+
+    public void setLastShownTime(final long lastShownTime) {
+        this.lastShownTime = lastShownTime;
+    }
+
+    public String getVideoModel() {
+        return videoModel;
+    }
+
+    public void setVideoModel(final String videoModel) {
+        this.videoModel = videoModel;
+    }
+
     public static VideoItem toVideoItem(Response.VideoDetail videoDetail) {
         if (videoDetail == null) {
             return null;
         }
-        return new VideoItem(videoDetail.getVid(), (int) (videoDetail.getDuration() * 1000),
-                videoDetail.getCaption(), videoDetail.getCoverUrl(), videoDetail.getPlayAuthToken()
-                , VIDEO_TYPE_SMALL);
+        VideoItem videoItem = new VideoItem(videoDetail.getVid(),
+                (int) (videoDetail.getDuration() * 1000), videoDetail.getCaption(),
+                videoDetail.getCoverUrl(), videoDetail.getPlayAuthToken(), VIDEO_TYPE_SMALL);
+        videoItem.setVideoModel(videoDetail.getVideoModel());
+        return videoItem;
     }
 }
 
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/8
+ */
+package com.bytedance.volc.voddemo.data;
+
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal difference between two video lists keyed by {@link VideoItem#getItemId()}.
+ *
+ * Applying the operations in order (removals with descending old positions, insertions with
+ * ascending new positions, then changes at new positions) turns the old list into the new one.
+ * Items whose relative order changed are reported as a removal plus an insertion. Only what is
+ * shown counts as a change; a refreshed play auth token or VideoModel alone is not reported.
+ */
+public class VideoItemDiff {
+    private final List<Integer> mRemovedPositions;
+    private final List<Integer> mInsertedPositions;
+    private final List<Integer> mChangedPositions;
+    private final List<VideoItem> mNewItems;
+
+    private VideoItemDiff(List<Integer> removedPositions, List<Integer> insertedPositions,
+            List<Integer> changedPositions, List<VideoItem> newItems) {
+        mRemovedPositions = removedPositions;
+        mInsertedPositions = insertedPositions;
+        mChangedPositions = changedPositions;
+        mNewItems = newItems;
+    }
+
+    /**
+     * @return positions in the old list, descending
+     */
+    @NonNull
+    public List<Integer> getRemovedPositions() {
+        return mRemovedPositions;
+    }
+
+    /**
+     * @return positions in the new list, ascending
+     */
+    @NonNull
+    public List<Integer> getInsertedPositions() {
+        return mInsertedPositions;
+    }
+
+    /**
+     * @return positions in the new list, ascending
+     */
+    @NonNull
+    public List<Integer> getChangedPositions() {
+        return mChangedPositions;
+    }
+
+    @NonNull
+    public List<VideoItem> getNewItems() {
+        return mNewItems;
+    }
+
+    public boolean isEmpty() {
+        return mRemovedPositions.isEmpty() && mInsertedPositions.isEmpty()
+               && mChangedPositions.isEmpty();
+    }
+
+    @NonNull
+    public static VideoItemDiff calculate(@NonNull List<VideoItem> oldItems,
+            @NonNull List<VideoItem> newItems) {
+        final Map<String, Integer> newPositions = new HashMap<>(newItems.size() * 2);
+        for (int i = 0; i < newItems.size(); i++) {
+            newPositions.put(newItems.get(i).getItemId(), i);
+        }
+
+        // new positions of the items present in both lists, in old order
+        final int[] oldToNew = new int[oldItems.size()];
+        for (int i = 0; i < oldItems.size(); i++) {
+            Integer newPosition = newPositions.get(oldItems.get(i).getItemId());
+            oldToNew[i] = newPosition == null ? -1 : newPosition;
+        }
+
+        // the longest increasing run of new positions stays in place, the rest has moved
+        final boolean[] keptOld = longestIncreasingSubsequence(oldToNew);
+        final boolean[] keptNew = new boolean[newItems.size()];
+        for (int i = 0; i < oldToNew.length; i++) {
+            if (keptOld[i]) {
+                keptNew[oldToNew[i]] = true;
+            }
+        }
+
+        final List<Integer> removed = new ArrayList<>();
+        for (int i = oldItems.size() - 1; i >= 0; i--) {
+            if (!keptOld[i]) {
+                removed.add(i);
+            }
+        }
+
+        final List<Integer> inserted = new ArrayList<>();
+        final List<Integer> changed = new ArrayList<>();
+        for (int i = 0; i < newItems.size(); i++) {
+            if (!keptNew[i]) {
+                inserted.add(i);
+            }
+        }
+        for (int i = 0; i < oldItems.size(); i++) {
+            if (keptOld[i] && !sameContent(oldItems.get(i), newItems.get(oldToNew[i]))) {
+                changed.add(oldToNew[i]);
+            }
+        }
+        Collections.sort(changed);
+
+        return new VideoItemDiff(removed, inserted, changed, newItems);
+    }
+
+    private static boolean[] longestIncreasingSubsequence(int[] values) {
+        final int n = values.length;
+        final int[] tails = new int[n];
+        final int[] predecessors = new int[n];
+        Arrays.fill(predecessors, -1);
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            if (values[i] < 0) {
+                continue;
+            }
+            int lo = 0;
+            int hi = length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            if (lo > 0) {
+                predecessors[i] = tails[lo - 1];
+            }
+            tails[lo] = i;
+            if (lo == length) {
+                length++;
+            }
+        }
+
+        final boolean[] result = new boolean[n];
+        for (int i = length == 0 ? -1 : tails[length - 1]; i >= 0; i = predecessors[i]) {
+            result[i] = true;
+        }
+        return result;
+    }
+
+    /**
+     * @return whether the visible fields are the same; a refreshed token or VideoModel alone is
+     * not a change worth rebinding for
+     */
+    public static boolean sameContent(VideoItem oldItem, VideoItem newItem) {
+        return oldItem.getDuration() == newItem.getDuration()
+               && textEquals(oldItem.getVid(), newItem.getVid())
+               && textEquals(oldItem.getTitle(), newItem.getTitle())
+               && textEquals(oldItem.getCover(), newItem.getCover());
+    }
+
+    private static boolean textEquals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -20,23 +20,83 @@ package com.bytedance.volc.voddemo.data;
 import android.app.Application;
 import android.os.Handler;
 import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.bytedance.volc.voddemo.data.local.FeedSnapshot;
 import com.bytedance.volc.voddemo.data.local.VideoItemDao;
 import com.bytedance.volc.voddemo.data.local.VodDataBaseManager;
 import com.bytedance.volc.voddemo.data.remote.AppServer;
 import com.bytedance.volc.voddemo.data.remote.AppServerApi;
 import com.bytedance.volc.voddemo.data.remote.ServerResultCallback;
+import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+/**
+ * Process wide access to the feed. Pages are fetched at most once at a time per
+ * (type, offset, pageSize): callers asking for a page that is already in flight join it and
+ * get the same result, and pages fetched in the last minute are served from memory.
+ */
 public class VideoItemRepository {
+    private static final String TAG = "VideoItemRepository";
+    private static final int FIRST_ITEM_COUNT = 3;
+
+    private volatile static VideoItemRepository sInstance;
 
+    private final Application mApplication;
     private final VideoItemDao mVideoItemDao;
     private final AppServerApi mAppServerApi;
     private final ExecutorService mExecutorService;
     private final Handler mMainHandler;
+    private final SingleFlight<PageKey, List<VideoItem>> mSingleFlight = new SingleFlight<>();
+    private final VideoPageCache<PageKey> mPageCache = new VideoPageCache<>();
+
+    private static final class PageKey {
+        final int mType;
+        final int mOffset;
+        final int mPageSize;
+
+        PageKey(int type, int offset, int pageSize) {
+            mType = type;
+            mOffset = offset;
+            mPageSize = pageSize;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PageKey)) {
+                return false;
+            }
+            PageKey pageKey = (PageKey) o;
+            return mType == pageKey.mType && mOffset == pageKey.mOffset
+                   && mPageSize == pageKey.mPageSize;
+        }
+
+        @Override
+        public int hashCode() {
+            return (mType * 31 + mOffset) * 31 + mPageSize;
+        }
+    }
+
+    public static VideoItemRepository getInstance(final Application application) {
+        if (sInstance == null) {
+            synchronized (VideoItemRepository.class) {
+                if (sInstance == null) {
+                    sInstance = new VideoItemRepository(application);
+                }
+            }
+        }
+        return sInstance;
+    }
 
-    public VideoItemRepository(final Application application) {
+    private VideoItemRepository(final Application application) {
+        mApplication = application;
         mVideoItemDao = VodDataBaseManager.getInstance(application)
                 .getVodDataBase()
                 .videoItemDao();
@@ -45,19 +105,177 @@ public class VideoItemRepository {
         mMainHandler = new Handler(Looper.getMainLooper());
     }
 
-    public void getVideoList(final int type, final int limit,
+    public void getVideoList(final int type, final int offset, final int pageSize,
             ServerResultCallback resultCallback) {
-        mAppServerApi.getFeedStreamWithPlayAuthToken(type, videoItems -> {
+        fetchPage(new PageKey(type, offset, pageSize), null, videoItems -> {
             if (videoItems == null) {
                 mExecutorService.execute(() -> {
-                    List<VideoItem> items = mVideoItemDao.getItems(type, limit);
+                    List<VideoItem> items = mVideoItemDao.getItems(type, offset, pageSize,
+                            System.currentTimeMillis());
                     mMainHandler.post(() -> resultCallback.onResult(items));
                 });
                 return;
             }
-
-            mExecutorService.execute(() -> mVideoItemDao.insertItems(videoItems));
             resultCallback.onResult(videoItems);
         });
     }
+
+    /**
+     * Reads back the items at ordinals [from, from + count) for the {@link VideoItemWindow},
+     * from Room when every row is there with a valid token, from the network page at the same
+     * offset otherwise. Delivered on the main thread.
+     */
+    public void getVideoRange(final int type, final int from, final int count,
+            ServerResultCallback resultCallback) {
+        mExecutorService.execute(() -> {
+            final List<VideoItem> items = mVideoItemDao.getItems(type, from, count,
+                    System.currentTimeMillis());
+            final List<VideoItem> inRange = new ArrayList<>(items.size());
+            for (VideoItem item : items) {
+                if (item.getOrdinal() < from + count) {
+                    inRange.add(item);
+                }
+            }
+            if (inRange.size() == count) {
+                mMainHandler.post(() -> resultCallback.onResult(inRange));
+                return;
+            }
+            mMainHandler.post(() -> getVideoList(type, from, count, resultCallback));
+        });
+    }
+
+    /**
+     * Stale-while-revalidate load of the first page: the cached rows are emitted as soon as
+     * they are read, the network refresh runs at the same time and is emitted with its diff
+     * against the cached rows. Both emissions are delivered on the main thread.
+     *
+     * @param shownItems items already bound from the {@link FeedSnapshot}; when not empty the
+     *                   Room read is skipped and the refresh is diffed against them instead
+     */
+    public void getVideoListCacheFirst(final int type, final int pageSize,
+            @NonNull final List<VideoItem> shownItems, VideoFeedCallback feedCallback) {
+        final PageKey key = new PageKey(type, 0, pageSize);
+        // only touched on the executor once the calling thread is done with it here
+        final List<VideoItem> cachedItems = new ArrayList<>(shownItems);
+        if (shownItems.isEmpty() && mPageCache.get(key, System.currentTimeMillis()) == null) {
+            mExecutorService.execute(() -> {
+                cachedItems.addAll(
+                        mVideoItemDao.getItems(type, 0, pageSize, System.currentTimeMillis()));
+                if (!cachedItems.isEmpty()) {
+                    final VideoFeed feed = VideoFeed.fromCache(new ArrayList<>(cachedItems));
+                    mMainHandler.post(() -> feedCallback.onFeed(feed));
+                }
+            });
+        }
+
+        // nothing shown yet, bind the first items of the response while the rest arrives unless
+        // the Room read got there first
+        final ServerResultCallback firstItemsCallback = !shownItems.isEmpty() ? null
+                : firstItems -> mExecutorService.execute(() -> {
+                    if (!cachedItems.isEmpty()) {
+                        return;
+                    }
+                    cachedItems.addAll(firstItems);
+                    final VideoFeed feed = VideoFeed.fromCache(new ArrayList<>(firstItems));
+                    mMainHandler.post(() -> feedCallback.onFeed(feed));
+                });
+
+        fetchPage(key, firstItemsCallback, videoItems -> {
+            if (videoItems == null) {
+                feedCallback.onFeed(VideoFeed.fromNetwork(null, null));
+                return;
+            }
+            // the executor is single threaded, so the cache read above has completed
+            mExecutorService.execute(() -> {
+                final VideoFeed feed = VideoFeed.fromNetwork(videoItems,
+                        cachedItems.isEmpty() ? null
+                                : VideoItemDiff.calculate(cachedItems, videoItems));
+                mMainHandler.post(() -> feedCallback.onFeed(feed));
+            });
+        });
+    }
+
+    /**
+     * Delivers the page on the main thread, from memory if it was fetched recently, otherwise
+     * from the network request for the same page, started here if none is in flight. Every
+     * caller gets its own list, null if the request failed.
+     *
+     * @param firstItemsCallback gets the first {@link #FIRST_ITEM_COUNT} items early, only if
+     *                           this call starts the request
+     */
+    private void fetchPage(final PageKey key,
+            @Nullable final ServerResultCallback firstItemsCallback,
+            final ServerResultCallback callback) {
+        final List<VideoItem> cached = mPageCache.get(key, System.currentTimeMillis());
+        if (cached != null) {
+            callback.onResult(cached);
+            return;
+        }
+
+        final boolean started = mSingleFlight.execute(key,
+                (pageKey, done) -> fetchFromNetwork(pageKey, firstItemsCallback, done),
+                videoItems -> callback.onResult(
+                        videoItems == null ? null : new ArrayList<>(videoItems)));
+        if (!started) {
+            TTVideoEngineLog.d(TAG, "join in flight request type " + key.mType + " offset "
+                                    + key.mOffset + " pageSize " + key.mPageSize);
+        }
+    }
+
+    private void fetchFromNetwork(final PageKey key,
+            @Nullable final ServerResultCallback firstItemsCallback,
+            final SingleFlight.Callback<List<VideoItem>> done) {
+        mAppServerApi.getFeedStreamWithPlayAuthToken(key.mType, key.mOffset, key.mPageSize,
+                FIRST_ITEM_COUNT, firstItemsCallback, videoItems -> {
+                    if (videoItems == null) {
+                        done.onResult(null);
+                        return;
+                    }
+                    mExecutorService.execute(() -> {
+                        mVideoItemDao.replacePage(key.mType, key.mOffset, videoItems);
+                        if (key.mOffset == 0) {
+                            writeSnapshot(key.mType, videoItems);
+                        }
+                        mPageCache.put(key, videoItems, System.currentTimeMillis());
+                        mMainHandler.post(() -> done.onResult(videoItems));
+                    });
+                });
+    }
+
+    private void writeSnapshot(final int type, final List<VideoItem> videoItems) {
+        try {
+            FeedSnapshot.forType(mApplication, type).write(videoItems);
+        } catch (IOException e) {
+            TTVideoEngineLog.d(TAG, "write snapshot failed " + e);
+        }
+    }
+
+    /**
+     * Fetches the page at {@code offset} again for its play auth tokens and writes them back to
+     * the rows already in Room, which are updated rather than replaced. Delivered on the main
+     * thread, null if the request failed.
+     */
+    public void refreshTokens(final int type, final int offset, final int count,
+            ServerResultCallback resultCallback) {
+        mAppServerApi.getFeedStreamWithPlayAuthToken(type, offset, count, videoItems -> {
+            if (videoItems == null) {
+                resultCallback.onResult(null);
+                return;
+            }
+            mExecutorService.execute(() -> {
+                for (VideoItem videoItem : videoItems) {
+                    mVideoItemDao.updateToken(videoItem.getItemId(), videoItem.getAuthToken(),
+                            videoItem.getVideoModel(), videoItem.getFetchTime(),
+                            videoItem.getTokenExpireTime());
+                }
+                mMainHandler.post(() -> resultCallback.onResult(videoItems));
+            });
+        });
+    }
+
+    public void markVideoShown(final VideoItem videoItem) {
+        final long now = System.currentTimeMillis();
+        videoItem.setLastShownTime(now);
+        mExecutorService.execute(() -> mVideoItemDao.markShown(videoItem.getItemId(), now));
+    }
 }
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/25
+ */
+package com.bytedance.volc.voddemo.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.bytedance.volc.voddemo.data.remote.ServerResultCallback;
+import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The feed as the pager sees it: {@link #size()} counts every item loaded so far, but only the
+ * items within {@code keepBehind} before and {@code keepAhead} after the current position are
+ * held in memory, the window rounded out to whole blocks of {@code blockSize}. Items that fall
+ * out of the window are dropped, items that come back into it are loaded again through the
+ * {@link Loader} one block at a time, so the heap stays flat however long the session gets.
+ *
+ * The position of an item is its place in append order, the pager row it is bound to. It is
+ * not its feed ordinal, a feed may skip ordinals; the window keeps the ordinal of every position
+ * to load the items back, and looks items up by item id through {@link #positionOf}.
+ *
+ * The feed is changed from the main thread, where the listeners are called too, and may be
+ * read from any thread: the preload strategies read it from player and engine callbacks. The
+ * listeners and the {@link Loader} are called without holding the window's lock.
+ */
+public class VideoItemWindow {
+    private static final String TAG = "VideoItemWindow";
+
+    public static final int DEFAULT_KEEP_BEHIND = 10;
+    public static final int DEFAULT_KEEP_AHEAD = 20;
+    public static final int DEFAULT_BLOCK_SIZE = 10;
+
+    public interface Loader {
+        /**
+         * Loads the items with feed ordinals [from, from + count). The callback runs on the main
+         * thread; it may get fewer items, or null, when some could not be loaded.
+         */
+        void load(int from, int count, @NonNull ServerResultCallback callback);
+    }
+
+    public interface Listener {
+        /**
+         * Items at [from, from + count) were loaded back into the window, some positions of the
+         * range may still be missing.
+         */
+        void onItemsLoaded(int from, int count);
+    }
+
+    public interface EvictionListener {
+        /**
+         * Items were dropped from memory, either left behind by {@link #moveTo} or appended
+         * outside the window and never kept. Not called for the items {@link #set} replaces.
+         */
+        void onItemsEvicted(@NonNull List<VideoItem> videoItems);
+    }
+
+    private final Loader mLoader;
+    private final int mKeepBehind;
+    private final int mKeepAhead;
+    private final int mBlockSize;
+    private final Map<Integer, VideoItem> mItems = new HashMap<>();
+    // item id to position of the items in mItems
+    private final Map<String, Integer> mPositions = new HashMap<>();
+    // position to feed ordinal of every item appended, ascending
+    private int[] mOrdinals = new int[DEFAULT_BLOCK_SIZE];
+    // first position of the blocks being loaded
+    private final Set<Integer> mLoadingBlocks = new HashSet<>();
+
+    private volatile Listener mListener;
+    private volatile EvictionListener mEvictionListener;
+    private int mSize;
+    private int mPosition;
+    // bumped by set, loads started before are dropped
+    private int mGeneration;
+
+    public VideoItemWindow(@NonNull Loader loader) {
+        this(loader, DEFAULT_KEEP_BEHIND, DEFAULT_KEEP_AHEAD, DEFAULT_BLOCK_SIZE);
+    }
+
+    public VideoItemWindow(@NonNull Loader loader, int keepBehind, int keepAhead,
+            int blockSize) {
+        mLoader = loader;
+        mKeepBehind = keepBehind;
+        mKeepAhead = keepAhead;
+        mBlockSize = blockSize;
+    }
+
+    public void setListener(@Nullable Listener listener) {
+        mListener = listener;
+    }
+
+    public void setEvictionListener(@Nullable EvictionListener evictionListener) {
+        mEvictionListener = evictionListener;
+    }
+
+    /**
+     * @return the number of items in the feed, held in memory or not
+     */
+    public synchronized int size() {
+        return mSize;
+    }
+
+    public synchronized int getPosition() {
+        return mPosition;
+    }
+
+    /**
+     * @return the item, null if it is outside the window or not loaded back yet
+     */
+    @Nullable
+    public synchronized VideoItem get(int position) {
+        return mItems.get(position);
+    }
+
+    /**
+     * @return the position of the item with the same item id, -1 if the window does not hold it
+     */
+    public synchronized int positionOf(@NonNull VideoItem videoItem) {
+        final Integer position = mPositions.get(videoItem.getItemId());
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * @return the number of items held in memory
+     */
+    public synchronized int getResidentCount() {
+        return mItems.size();
+    }
+
+    /**
+     * @return the items held in memory in position order, missing positions skipped
+     */
+    @NonNull
+    public synchronized List<VideoItem> getResidentItems() {
+        final List<VideoItem> videoItems = new ArrayList<>(mItems.size());
+        for (int position = windowStart(); position < windowEnd(); position++) {
+            final VideoItem videoItem = mItems.get(position);
+            if (videoItem != null) {
+                videoItems.add(videoItem);
+            }
+        }
+        return videoItems;
+    }
+
+    /**
+     * Replaces the whole feed, used for the first page.
+     */
+    public void set(@NonNull List<VideoItem> videoItems) {
+        final List<VideoItem> evicted = new ArrayList<>();
+        synchronized (this) {
+            mGeneration++;
+            mLoadingBlocks.clear();
+            mItems.clear();
+            mPositions.clear();
+            mSize = 0;
+            appendLocked(videoItems, evicted);
+        }
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * Appends a page at the end of the feed, its items outside the window are not kept.
+     */
+    public void append(@NonNull List<VideoItem> videoItems) {
+        final List<VideoItem> evicted = new ArrayList<>();
+        synchronized (this) {
+            appendLocked(videoItems, evicted);
+        }
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * Moves the window to the current pager position, drops the items left behind and loads
+     * the ones it now covers.
+     */
+    public void moveTo(int position) {
+        final List<VideoItem> evicted = new ArrayList<>();
+        final List<int[]> blocks;
+        final int generation;
+        synchronized (this) {
+            mPosition = position;
+            trimLocked(evicted);
+            blocks = missingBlocksLocked();
+            generation = mGeneration;
+        }
+        notifyEvicted(evicted);
+        for (int[] block : blocks) {
+            load(generation, block[0], block[1], block[2], block[3]);
+        }
+    }
+
+    private void appendLocked(@NonNull List<VideoItem> videoItems,
+            @NonNull List<VideoItem> evicted) {
+        final int from = mSize;
+        mSize += videoItems.size();
+        if (mOrdinals.length < mSize) {
+            mOrdinals = Arrays.copyOf(mOrdinals, Math.max(mSize, mOrdinals.length * 2));
+        }
+        for (int i = 0; i < videoItems.size(); i++) {
+            mOrdinals[from + i] = videoItems.get(i).getOrdinal();
+            if (inWindow(from + i)) {
+                put(from + i, videoItems.get(i));
+            } else {
+                evicted.add(videoItems.get(i));
+            }
+        }
+    }
+
+    private int windowStart() {
+        return Math.max(0, mPosition - mKeepBehind) / mBlockSize * mBlockSize;
+    }
+
+    private int windowEnd() {
+        final int end = mPosition + mKeepAhead + 1;
+        return Math.min(mSize, (end + mBlockSize - 1) / mBlockSize * mBlockSize);
+    }
+
+    private boolean inWindow(int position) {
+        return position >= windowStart() && position < windowEnd();
+    }
+
+    private void trimLocked(@NonNull List<VideoItem> evicted) {
+        final Iterator<Map.Entry<Integer, VideoItem>> iterator = mItems.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Integer, VideoItem> entry = iterator.next();
+            if (!inWindow(entry.getKey())) {
+                evicted.add(entry.getValue());
+                mPositions.remove(entry.getValue().getItemId());
+                iterator.remove();
+            }
+        }
+    }
+
+    private void put(int position, @NonNull VideoItem videoItem) {
+        mItems.put(position, videoItem);
+        mPositions.put(videoItem.getItemId(), position);
+    }
+
+    private void notifyEvicted(@NonNull List<VideoItem> evicted) {
+        final EvictionListener evictionListener = mEvictionListener;
+        if (!evicted.isEmpty() && evictionListener != null) {
+            evictionListener.onItemsEvicted(evicted);
+        }
+    }
+
+    /**
+     * Marks the blocks of the window with missing items as loading.
+     *
+     * @return from, count, first ordinal and ordinal count of each
+     */
+    private List<int[]> missingBlocksLocked() {
+        final List<int[]> blocks = new ArrayList<>();
+        final int start = windowStart();
+        final int end = windowEnd();
+        for (int block = start; block < end; block += mBlockSize) {
+            if (mLoadingBlocks.contains(block)) {
+                continue;
+            }
+            final int blockEnd = Math.min(block + mBlockSize, end);
+            for (int position = block; position < blockEnd; position++) {
+                if (!mItems.containsKey(position)) {
+                    final int count = Math.min(mBlockSize, mSize - block);
+                    final int firstOrdinal = mOrdinals[block];
+                    mLoadingBlocks.add(block);
+                    blocks.add(new int[]{block, count, firstOrdinal,
+                            mOrdinals[block + count - 1] - firstOrdinal + 1});
+                    break;
+                }
+            }
+        }
+        return blocks;
+    }
+
+    private void load(final int generation, final int from, final int count,
+            final int firstOrdinal, final int ordinalCount) {
+        TTVideoEngineLog.d(TAG, "load from " + from + ", count " + count + ", ordinals from "
+                                + firstOrdinal + ", count " + ordinalCount);
+        mLoader.load(firstOrdinal, ordinalCount, videoItems -> {
+            int first = Integer.MAX_VALUE;
+            int last = -1;
+            synchronized (this) {
+                if (generation != mGeneration) {
+                    return;
+                }
+                mLoadingBlocks.remove(from);
+                if (videoItems == null) {
+                    return;
+                }
+
+                for (VideoItem videoItem : videoItems) {
+                    final int position = Arrays.binarySearch(mOrdinals, 0, mSize,
+                            videoItem.getOrdinal());
+                    if (position < from || position >= from + count || !inWindow(position)
+                        || mItems.containsKey(position)) {
+                        continue;
+                    }
+                    put(position, videoItem);
+                    first = Math.min(first, position);
+                    last = Math.max(last, position);
+                }
+            }
+            final Listener listener = mListener;
+            if (last >= 0 && listener != null) {
+                listener.onItemsLoaded(first, last - first + 1);
+            }
+        });
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/20
+ */
+package com.bytedance.volc.voddemo.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Small in memory cache of feed pages fetched from the network, kept for a short time so a
+ * screen asking for a page that was just fetched does not hit the network or Room again.
+ *
+ * An entry expires after the ttl or when the first play auth token in it expires, whichever
+ * comes first. The least recently used page is dropped beyond {@code maxPages}.
+ */
+public class VideoPageCache<K> {
+    public static final long DEFAULT_TTL = 60 * 1000;
+    public static final int DEFAULT_MAX_PAGES = 8;
+
+    private static class Entry {
+        final List<VideoItem> mItems;
+        final long mExpireTime;
+
+        Entry(List<VideoItem> items, long expireTime) {
+            mItems = items;
+            mExpireTime = expireTime;
+        }
+    }
+
+    private final long mTtl;
+    private final int mMaxPages;
+    private final LinkedHashMap<K, Entry> mPages;
+
+    public VideoPageCache() {
+        this(DEFAULT_TTL, DEFAULT_MAX_PAGES);
+    }
+
+    public VideoPageCache(long ttl, final int maxPages) {
+        mTtl = ttl;
+        mMaxPages = maxPages;
+        mPages = new LinkedHashMap<K, Entry>(maxPages, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, Entry> eldest) {
+                return size() > mMaxPages;
+            }
+        };
+    }
+
+    /**
+     * @return a copy of the cached page, null on a miss
+     */
+    @Nullable
+    public synchronized List<VideoItem> get(@NonNull K key, long now) {
+        Entry entry = mPages.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.mExpireTime <= now) {
+            mPages.remove(key);
+            return null;
+        }
+        return new ArrayList<>(entry.mItems);
+    }
+
+    public synchronized void put(@NonNull K key, @NonNull List<VideoItem> videoItems, long now) {
+        if (videoItems.isEmpty()) {
+            return;
+        }
+        long expireTime = now + mTtl;
+        for (VideoItem videoItem : videoItems) {
+            expireTime = Math.min(expireTime, videoItem.getTokenExpireTime());
+        }
+        if (expireTime <= now) {
+            return;
+        }
+        mPages.put(key, new Entry(new ArrayList<>(videoItems), expireTime));
+    }
+
+    public synchronized void clear() {
+        mPages.clear();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/15
+ */
+package com.bytedance.volc.voddemo.data;
+
+import android.text.TextUtils;
+import android.util.LruCache;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.bytedance.volc.voddemo.VodApp;
+import com.ss.ttvideoengine.TTVideoEngine;
+import com.ss.ttvideoengine.model.VideoModel;
+import com.ss.ttvideoengine.model.VideoRef;
+import com.ss.ttvideoengine.source.VidPlayAuthTokenSource;
+import com.ss.ttvideoengine.source.VideoModelSource;
+import com.ss.ttvideoengine.strategy.source.StrategySource;
+import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Builds the play source of a {@link VideoItem}. When the feed carried a VideoModel that is
+ * still fresh the source is VideoModel based and the engine opens the stream directly,
+ * otherwise it falls back to vid + play auth token and the engine fetches play info first.
+ */
+public class VideoSources {
+    private static final String TAG = "VideoSources";
+
+    private static final int PARSED_CACHE_SIZE = 20;
+    private static final LruCache<String, VideoModel> sParsedVideoModels =
+            new LruCache<>(PARSED_CACHE_SIZE);
+
+    public static boolean hasFreshVideoModel(@NonNull VideoItem videoItem) {
+        // the urls inside the VideoModel are signed with the same lifetime as the token
+        return !TextUtils.isEmpty(videoItem.getVideoModel())
+               && System.currentTimeMillis() < videoItem.getTokenExpireTime();
+    }
+
+    /**
+     * @return the parsed VideoModel, null if the item has no fresh VideoModel
+     */
+    @Nullable
+    public static VideoModel getVideoModel(@NonNull VideoItem videoItem) {
+        if (!hasFreshVideoModel(videoItem)) {
+            return null;
+        }
+
+        final String json = videoItem.getVideoModel();
+        final String key = videoItem.getItemId() + "_" + json.hashCode();
+        VideoModel videoModel = sParsedVideoModels.get(key);
+        if (videoModel != null) {
+            return videoModel;
+        }
+
+        try {
+            VideoRef videoRef = new VideoRef();
+            videoRef.extractFields(new JSONObject(json));
+            videoModel = new VideoModel();
+            videoModel.setVideoRef(videoRef);
+        } catch (JSONException e) {
+            TTVideoEngineLog.d(TAG, "parse videoModel failed vid " + videoItem.getVid() + " " + e);
+            return null;
+        }
+        sParsedVideoModels.put(key, videoModel);
+        return videoModel;
+    }
+
+    @NonNull
+    public static StrategySource createStrategySource(@NonNull VideoItem videoItem) {
+        final String encodeType = VodApp.getClientSettings().videoEnableH265()
+                ? TTVideoEngine.CODEC_TYPE_h265 : TTVideoEngine.CODEC_TYPE_H264;
+        final VideoModel videoModel = getVideoModel(videoItem);
+        if (videoModel != null) {
+            return new VideoModelSource.Builder()
+                    .setVid(videoItem.getVid())
+                    .setVideoModel(videoModel)
+                    .setEncodeType(encodeType)
+                    .build();
+        }
+
+        return new VidPlayAuthTokenSource.Builder()
+                .setVid(videoItem.getVid())
+                .setPlayAuthToken(videoItem.getAuthToken())
+                .setEncodeType(encodeType)
+                .build();
+    }
+}
@@ -20,17 +20,47 @@ package com.bytedance.volc.voddemo.data;
 import android.app.Application;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
 import com.bytedance.volc.voddemo.data.remote.ServerResultCallback;
+import java.util.List;
 
 public class VideoViewModel extends AndroidViewModel {
     private final VideoItemRepository mRepository;
+    private final MutableLiveData<VideoFeed> mVideoFeed = new MutableLiveData<>();
 
     public VideoViewModel(@NonNull final Application application) {
         super(application);
-        mRepository = new VideoItemRepository(application);
+        mRepository = VideoItemRepository.getInstance(application);
     }
 
-    public void getVideoList(int type, int limit, ServerResultCallback resultCallback) {
-        mRepository.getVideoList(type, limit, resultCallback);
+    public void getVideoList(int type, int offset, int pageSize,
+            ServerResultCallback resultCallback) {
+        mRepository.getVideoList(type, offset, pageSize, resultCallback);
+    }
+
+    public void getVideoRange(int type, int from, int count,
+            ServerResultCallback resultCallback) {
+        mRepository.getVideoRange(type, from, count, resultCallback);
+    }
+
+    /**
+     * The first page, emitted from the local cache first and then from the network refresh.
+     */
+    public LiveData<VideoFeed> getVideoFeed() {
+        return mVideoFeed;
+    }
+
+    public void loadVideoFeed(int type, int pageSize, List<VideoItem> shownItems) {
+        mRepository.getVideoListCacheFirst(type, pageSize, shownItems, mVideoFeed::setValue);
+    }
+
+    public void refreshTokens(int type, int offset, int count,
+            ServerResultCallback resultCallback) {
+        mRepository.refreshTokens(type, offset, count, resultCallback);
+    }
+
+    public void markVideoShown(VideoItem videoItem) {
+        mRepository.markVideoShown(videoItem);
     }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/17
+ */
+package com.bytedance.volc.voddemo.data.local;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.utils.VersionedFileUtils;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary snapshot of the first feed items, read through a memory mapped file at cold start so
+ * the first page can be bound before Room or Retrofit are touched.
+ *
+ * Layout, big endian: magic, version, item count, then per item the strings vid, title, cover,
+ * authToken and videoModel (int byte length, -1 for null, then UTF-8 bytes) followed by
+ * duration, type and ordinal as int and fetchTime and tokenExpireTime as long.
+ */
+public class FeedSnapshot {
+    public static final int MAX_ITEMS = 10;
+
+    private static final int MAGIC = 0x56464653; // "VFFS"
+    private static final int VERSION = 1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File mFile;
+
+    public FeedSnapshot(@NonNull File file) {
+        mFile = file;
+    }
+
+    public static FeedSnapshot forType(@NonNull Context context, int type) {
+        return new FeedSnapshot(new File(context.getFilesDir(), "feed_snapshot_" + type + ".bin"));
+    }
+
+    /**
+     * Replaces the snapshot with the first {@link #MAX_ITEMS} items, what the next cold start
+     * binds before anything else is loaded. A cold start that races the write maps the previous
+     * snapshot.
+     */
+    @WorkerThread
+    public void write(@NonNull List<VideoItem> videoItems) throws IOException {
+        final int count = Math.min(videoItems.size(), MAX_ITEMS);
+        VersionedFileUtils.write(mFile, MAGIC, VERSION, out -> {
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                VideoItem videoItem = videoItems.get(i);
+                writeString(out, videoItem.getVid());
+                writeString(out, videoItem.getTitle());
+                writeString(out, videoItem.getCover());
+                writeString(out, videoItem.getAuthToken());
+                writeString(out, videoItem.getVideoModel());
+                out.writeInt(videoItem.getDuration());
+                out.writeInt(videoItem.getType());
+                out.writeInt(videoItem.getOrdinal());
+                out.writeLong(videoItem.getFetchTime());
+                out.writeLong(videoItem.getTokenExpireTime());
+            }
+        });
+    }
+
+    /**
+     * @return the items whose play auth token is still valid at {@code now}, empty if there is
+     * no snapshot or it cannot be decoded
+     */
+    @NonNull
+    public List<VideoItem> read(long now) {
+        if (!mFile.exists()) {
+            return Collections.emptyList();
+        }
+
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(mFile);
+            FileChannel channel = in.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            return decode(buffer, now);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            return Collections.emptyList();
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    public void delete() {
+        mFile.delete();
+    }
+
+    private static List<VideoItem> decode(ByteBuffer buffer, long now) {
+        if (!VersionedFileUtils.readHeader(buffer, MAGIC, VERSION)) {
+            return Collections.emptyList();
+        }
+
+        final int count = buffer.getInt();
+        if (count < 0 || count > MAX_ITEMS) {
+            return Collections.emptyList();
+        }
+
+        final List<VideoItem> videoItems = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String vid = readString(buffer);
+            String title = readString(buffer);
+            String cover = readString(buffer);
+            String authToken = readString(buffer);
+            String videoModel = readString(buffer);
+            int duration = buffer.getInt();
+            int type = buffer.getInt();
+            int ordinal = buffer.getInt();
+            long fetchTime = buffer.getLong();
+            long tokenExpireTime = buffer.getLong();
+            if (vid == null || authToken == null || tokenExpireTime <= now) {
+                continue;
+            }
+
+            VideoItem videoItem = new VideoItem(vid, duration, title, cover, authToken, type);
+            videoItem.setVideoModel(videoModel);
+            videoItem.setOrdinal(ordinal);
+            videoItem.setFetchTime(fetchTime);
+            videoItem.setTokenExpireTime(tokenExpireTime);
+            videoItems.add(videoItem);
+        }
+        return videoItems;
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String value)
+            throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Nullable
+    private static String readString(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
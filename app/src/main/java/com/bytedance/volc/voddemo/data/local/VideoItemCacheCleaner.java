@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/13
+ */
+package com.bytedance.volc.voddemo.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps video_item bounded: rows with an expired play auth token are deleted, then each type
+ * is trimmed to {@code maxRowsPerType} by dropping the least recently used rows. Deletes run
+ * on a background thread in transactions of at most {@code batchSize} rows so readers are
+ * never blocked for long.
+ */
+public class VideoItemCacheCleaner {
+    private static final String TAG = "VideoItemCacheCleaner";
+
+    public static final int DEFAULT_MAX_ROWS_PER_TYPE = 1000;
+    public static final int DEFAULT_BATCH_SIZE = 200;
+    private static final long INITIAL_DELAY_SECONDS = 10;
+    private static final long PERIOD_SECONDS = 30 * 60;
+
+    private final VodDataBase mVodDataBase;
+    private final VideoItemDao mVideoItemDao;
+    private final int mMaxRowsPerType;
+    private final int mBatchSize;
+    private ScheduledExecutorService mExecutorService;
+
+    public VideoItemCacheCleaner(@NonNull VodDataBase vodDataBase) {
+        this(vodDataBase, DEFAULT_MAX_ROWS_PER_TYPE, DEFAULT_BATCH_SIZE);
+    }
+
+    public VideoItemCacheCleaner(@NonNull VodDataBase vodDataBase, int maxRowsPerType,
+            int batchSize) {
+        mVodDataBase = vodDataBase;
+        mVideoItemDao = vodDataBase.videoItemDao();
+        mMaxRowsPerType = maxRowsPerType;
+        mBatchSize = batchSize;
+    }
+
+    public synchronized void start() {
+        if (mExecutorService != null) {
+            return;
+        }
+        mExecutorService = Executors.newSingleThreadScheduledExecutor();
+        mExecutorService.scheduleWithFixedDelay(this::compact, INITIAL_DELAY_SECONDS,
+                PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (mExecutorService == null) {
+            return;
+        }
+        mExecutorService.shutdownNow();
+        mExecutorService = null;
+    }
+
+    /**
+     * @return the number of rows deleted
+     */
+    @WorkerThread
+    public int compact() {
+        int deleted = 0;
+        try {
+            deleted += deleteExpired(System.currentTimeMillis());
+            for (int type : mVideoItemDao.getTypes()) {
+                deleted += trim(type);
+            }
+        } catch (Exception e) {
+            // the next run retries, a failed compaction must never take the app down
+            TTVideoEngineLog.d(TAG, "compact failed " + e);
+        }
+        TTVideoEngineLog.d(TAG, "compact deleted " + deleted);
+        return deleted;
+    }
+
+    private int deleteExpired(final long now) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = mVodDataBase.runInTransaction(
+                    () -> mVideoItemDao.deleteExpired(now, mBatchSize));
+            total += deleted;
+        } while (deleted == mBatchSize);
+        return total;
+    }
+
+    private int trim(final int type) {
+        int total = 0;
+        int excess = mVideoItemDao.getCount(type) - mMaxRowsPerType;
+        while (excess > 0) {
+            final int limit = Math.min(excess, mBatchSize);
+            final int deleted = mVodDataBase.runInTransaction(
+                    () -> mVideoItemDao.deleteLeastRecentlyUsed(type, limit));
+            if (deleted == 0) {
+                break;
+            }
+            total += deleted;
+            excess -= deleted;
+        }
+        return total;
+    }
+}
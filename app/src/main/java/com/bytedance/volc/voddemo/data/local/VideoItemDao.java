@@ -21,14 +21,86 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import com.bytedance.volc.voddemo.data.VideoItem;
 import java.util.List;
 
 @Dao
 public interface VideoItemDao {
-    @Query("SELECT * FROM video_item WHERE type = :type LIMIT :limit")
-    List<VideoItem> getItems(int type, int limit);
+    /**
+     * Reads never return rows whose play auth token expired before {@code now}.
+     */
+    @Query("SELECT * FROM video_item WHERE type = :type AND tokenExpireTime > :now"
+           + " ORDER BY ordinal LIMIT :limit")
+    List<VideoItem> getItems(int type, int limit, long now);
+
+    /**
+     * Range read on the (type, ordinal) index, {@code offset} is the feed ordinal of the first
+     * item.
+     */
+    @Query("SELECT * FROM video_item WHERE type = :type AND ordinal >= :offset"
+           + " AND tokenExpireTime > :now ORDER BY ordinal LIMIT :limit")
+    List<VideoItem> getItems(int type, int offset, int limit, long now);
+
+    /**
+     * Covered by the (type, ordinal) index, never touches the table rows.
+     */
+    @Query("SELECT ordinal FROM video_item WHERE type = :type AND ordinal >= :offset"
+           + " ORDER BY ordinal LIMIT :limit")
+    List<Integer> getOrdinals(int type, int offset, int limit);
+
+    @Query("SELECT COUNT(*) FROM video_item WHERE type = :type")
+    int getCount(int type);
+
+    @Query("SELECT DISTINCT type FROM video_item")
+    List<Integer> getTypes();
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertItems(List<VideoItem> items);
+
+    @Query("DELETE FROM video_item WHERE type = :type AND ordinal BETWEEN :from AND :to")
+    void deleteOrdinals(int type, int from, int to);
+
+    /**
+     * Writes a page fetched at {@code offset}. Rows of an earlier fetch still holding its
+     * ordinals are deleted first, so a range read never mixes two versions of the feed.
+     */
+    @Transaction
+    default void replacePage(int type, int offset, List<VideoItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        deleteOrdinals(type, offset, offset + items.size() - 1);
+        insertItems(items);
+    }
+
+    @Query("UPDATE video_item SET lastShownTime = :time WHERE itemId = :itemId")
+    void markShown(String itemId, long time);
+
+    /**
+     * Writes back a refreshed play auth token, the VideoModel is signed with it.
+     */
+    @Query("UPDATE video_item SET authToken = :authToken, videoModel = :videoModel,"
+           + " fetchTime = :fetchTime, tokenExpireTime = :tokenExpireTime WHERE itemId = :itemId")
+    void updateToken(String itemId, String authToken, String videoModel, long fetchTime,
+            long tokenExpireTime);
+
+    /**
+     * Deletes at most {@code limit} rows whose token expired before {@code now}.
+     *
+     * @return the number of rows deleted
+     */
+    @Query("DELETE FROM video_item WHERE itemId IN (SELECT itemId FROM video_item"
+           + " WHERE tokenExpireTime <= :now LIMIT :limit)")
+    int deleteExpired(long now, int limit);
+
+    /**
+     * Deletes the {@code limit} least recently used rows of {@code type}. Rows never shown
+     * count as used when they were fetched.
+     *
+     * @return the number of rows deleted
+     */
+    @Query("DELETE FROM video_item WHERE itemId IN (SELECT itemId FROM video_item"
+           + " WHERE type = :type ORDER BY MAX(lastShownTime, fetchTime) LIMIT :limit)")
+    int deleteLeastRecentlyUsed(int type, int limit);
 }
@@ -17,16 +17,57 @@
  */
 package com.bytedance.volc.voddemo.data.local;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 import com.bytedance.volc.voddemo.data.VideoItem;
 
-@Database(entities = { VideoItem.class }, version = 1)
+@Database(entities = { VideoItem.class }, version = 4)
 public abstract class VodDataBase extends RoomDatabase {
     public abstract VideoItemDao videoItemDao();
-}
-
-
 
+    /**
+     * Adds the feed ordinal and fetch time, and the (type, ordinal) index the pager reads from.
+     * Existing rows keep their insertion order.
+     */
+    public static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull final SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `video_item`"
+                             + " ADD COLUMN `ordinal` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `video_item`"
+                             + " ADD COLUMN `fetchTime` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("UPDATE `video_item` SET `ordinal` = `rowid`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_video_item_type_ordinal`"
+                             + " ON `video_item` (`type`, `ordinal`)");
+        }
+    };
 
+    /**
+     * Adds the token expiry and last shown time used by {@link VideoItemCacheCleaner}. Rows
+     * from older versions have no known expiry and are treated as expired.
+     */
+    public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull final SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `video_item`"
+                             + " ADD COLUMN `tokenExpireTime` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `video_item`"
+                             + " ADD COLUMN `lastShownTime` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_video_item_tokenExpireTime`"
+                             + " ON `video_item` (`tokenExpireTime`)");
+        }
+    };
 
+    /**
+     * Keeps the VideoModel json of the feed so playback can start without a play info fetch.
+     */
+    public static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull final SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `video_item` ADD COLUMN `videoModel` TEXT");
+        }
+    };
+}
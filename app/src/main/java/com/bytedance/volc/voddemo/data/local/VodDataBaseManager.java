@@ -19,21 +19,29 @@ package com.bytedance.volc.voddemo.data.local;
 
 import android.content.Context;
 import androidx.room.Room;
+import androidx.room.RoomDatabase;
 
 public class VodDataBaseManager {
     private static final String DATA_BASE_NAME = "volc_vod_item.db";
 
     private volatile static VodDataBaseManager sVodDataBaseManager;
     private final VodDataBase mVodDataBase;
+    private final VideoItemCacheCleaner mCacheCleaner;
 
     private VodDataBaseManager(final VodDataBase vodDataBase) {
         mVodDataBase = vodDataBase;
+        mCacheCleaner = new VideoItemCacheCleaner(vodDataBase);
+        mCacheCleaner.start();
     }
 
     public VodDataBase getVodDataBase() {
         return mVodDataBase;
     }
 
+    public VideoItemCacheCleaner getCacheCleaner() {
+        return mCacheCleaner;
+    }
+
     public static VodDataBaseManager getInstance(Context context) {
         if (context == null) {
             return null;
@@ -45,6 +53,9 @@ public class VodDataBaseManager {
                     VodDataBase vodDataBase = Room
                             .databaseBuilder(context.getApplicationContext(), VodDataBase.class,
                                     DATA_BASE_NAME)
+                            .addMigrations(VodDataBase.MIGRATION_1_2, VodDataBase.MIGRATION_2_3,
+                                    VodDataBase.MIGRATION_3_4)
+                            .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
                             .build();
                     sVodDataBaseManager = new VodDataBaseManager(vodDataBase);
                 }
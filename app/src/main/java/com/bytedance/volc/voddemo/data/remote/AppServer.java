@@ -18,48 +18,71 @@
 package com.bytedance.volc.voddemo.data.remote;
 
 import com.bytedance.volc.voddemo.data.VideoItem;
-import java.util.ArrayList;
-import java.util.Collections;
+import com.bytedance.volc.voddemo.utils.ThreadUtils;
+import com.ss.ttvideoengine.utils.TTVideoEngineLog;
 import java.util.List;
-import org.jetbrains.annotations.NotNull;
-import retrofit2.Call;
-import retrofit2.Callback;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AppServer implements AppServerApi {
     private static final String TAG = "AppServer";
     
     private static final String ACCOUNT = "small-video";
 
+    // requests in flight at once, more wait in the queue
+    private static final int MAX_CALLS = 4;
+    private static final long IDLE_SECONDS = 30;
+
+    // the body is parsed while it is read, so the call runs on a worker instead of enqueue().
+    // A request blocks on its attempts, they get their own pool so they never queue behind it;
+    // with hedging a request runs two attempts at once
+    private static final ExecutorService sCallExecutor = newPool("app_server_call", MAX_CALLS);
+    private static final ExecutorService sAttemptExecutor = newPool("app_server_attempt",
+            MAX_CALLS * 2);
+    private static final ResilientCaller sCaller = new ResilientCaller(sAttemptExecutor,
+            metrics -> TTVideoEngineLog.d(TAG, "getFeedStream " + metrics));
+
+    private static ExecutorService newPool(final String name, int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, name + "_" + count.incrementAndGet()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     @Override
-    public void getFeedStreamWithPlayAuthToken(final int VideoType, ServerResultCallback callback) {
-        Request.GetFeedStreamRequest request = new Request.GetFeedStreamRequest(
-                ACCOUNT, 0, 100);
+    public void getFeedStreamWithPlayAuthToken(final int videoType, final int offset,
+            final int pageSize, ServerResultCallback callback) {
+        getFeedStreamWithPlayAuthToken(videoType, offset, pageSize, 0, null, callback);
+    }
 
-        AppServerManager.getInstance().getFeedStreamWithPlayAuthToken(request).enqueue(
-                new Callback<Response.GetFeedStreamResponse>() {
-                    @Override
-                    public void onResponse(final Call<Response.GetFeedStreamResponse> call,
-                            @NotNull
-                            final retrofit2.Response<Response.GetFeedStreamResponse> response) {
-                        Response.GetFeedStreamResponse feedStreamResponse = response.body();
-                        if (feedStreamResponse == null) {
-                            callback.onResult(null);
-                            return;
-                        }
+    @Override
+    public void getFeedStreamWithPlayAuthToken(final int videoType, final int offset,
+            final int pageSize, final int firstItemCount,
+            final ServerResultCallback firstItemsCallback, ServerResultCallback callback) {
+        final Request.GetFeedStreamRequest request = new Request.GetFeedStreamRequest(
+                ACCOUNT, offset, pageSize);
 
-                        List<VideoItem> videoItems = new ArrayList<>();
-                        List<Response.VideoDetail> videoDetails = feedStreamResponse.getResult();
-                        for (Response.VideoDetail videoDetail : videoDetails) {
-                            videoItems.add(VideoItem.toVideoItem(videoDetail));
-                        }
-                        callback.onResult(videoItems);
+        // a retry or a hedged request parses the page again, hand out its first items once
+        final AtomicBoolean firstItemsDelivered = new AtomicBoolean();
+        final FeedStreamParser.FirstItemsListener firstItemsListener =
+                firstItemsCallback == null ? null : firstItems -> {
+                    if (!firstItemsDelivered.getAndSet(true)) {
+                        ThreadUtils.runOnUiThread(() -> firstItemsCallback.onResult(firstItems));
                     }
+                };
 
-                    @Override
-                    public void onFailure(final Call<Response.GetFeedStreamResponse> call,
-                            final Throwable t) {
-                        callback.onResult(null);
-                    }
-                });
+        sCallExecutor.execute(() -> {
+            final List<VideoItem> videoItems = sCaller.execute(
+                    () -> AppServerManager.getInstance().getFeedStream(request),
+                    body -> FeedStreamParser.parse(body.charStream(), offset,
+                            System.currentTimeMillis(), firstItemCount, firstItemsListener));
+            ThreadUtils.runOnUiThread(() -> callback.onResult(videoItems));
+        });
     }
 }
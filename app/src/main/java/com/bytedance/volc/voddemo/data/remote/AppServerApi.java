@@ -17,6 +17,19 @@
  */
 package com.bytedance.volc.voddemo.data.remote;
 
+import androidx.annotation.Nullable;
+
 public interface AppServerApi {
-    void getFeedStreamWithPlayAuthToken(int VideoType, ServerResultCallback serverResultCallback);
+    void getFeedStreamWithPlayAuthToken(int videoType, int offset, int pageSize,
+            ServerResultCallback serverResultCallback);
+
+    /**
+     * @param firstItemCount      number of items handed to {@code firstItemsCallback} as soon
+     *                            as they are parsed, before the rest of the page arrives
+     * @param firstItemsCallback  called on the main thread before {@code serverResultCallback},
+     *                            not called if the page holds fewer items
+     */
+    void getFeedStreamWithPlayAuthToken(int videoType, int offset, int pageSize,
+            int firstItemCount, @Nullable ServerResultCallback firstItemsCallback,
+            ServerResultCallback serverResultCallback);
 }
@@ -19,17 +19,21 @@ package com.bytedance.volc.voddemo.data.remote;
 
 import com.bytedance.volc.voddemo.BuildConfig;
 import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Call;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 import retrofit2.http.Body;
 import retrofit2.http.POST;
+import retrofit2.http.Streaming;
 
 public class AppServerManager {
 
     private static final String BASE_URL = "http://vod-app-server.snssdk.com";
     private final AppService mAppService;
+    private final OkHttpClient mClient;
+    private final String mBaseUrl;
 
     private static class StaticHolder {
         private static final AppServerManager instance = new AppServerManager();
@@ -40,18 +44,32 @@ public class AppServerManager {
     }
 
     private AppServerManager() {
+        this(BASE_URL, HttpClientManager.getClient());
+    }
+
+    AppServerManager(String baseUrl, OkHttpClient client) {
         HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
         logging.setLevel(BuildConfig.DEBUG ? HttpLoggingInterceptor.Level.BASIC
                 : HttpLoggingInterceptor.Level.NONE);
 
+        mClient = client;
+        mBaseUrl = baseUrl;
         mAppService = new Retrofit.Builder()
-                .baseUrl(BASE_URL)
-                .client(new OkHttpClient.Builder().addInterceptor(logging).build())
-                .addConverterFactory(GsonConverterFactory.create())
+                .baseUrl(baseUrl)
+                .client(client.newBuilder().addInterceptor(logging).build())
+                .addConverterFactory(
+                        GsonConverterFactory.create(RemoteTypeAdapters.createGson()))
                 .build()
                 .create(AppService.class);
     }
 
+    /**
+     * Opens the connection to the app server ahead of the first feed request.
+     */
+    public void prewarm() {
+        HttpClientManager.prewarm(mClient, mBaseUrl);
+    }
+
     public Call<Response.GetFeedStreamResponse> getFeedStreamWithPlayAuthToken(
             @Body Request.GetFeedStreamRequest request) {
         if (mAppService != null) {
@@ -61,10 +79,26 @@ public class AppServerManager {
         return null;
     }
 
+    /**
+     * Same request as {@link #getFeedStreamWithPlayAuthToken}, the body is left unread so it
+     * can be parsed while it arrives, see {@link FeedStreamParser}.
+     */
+    public Call<ResponseBody> getFeedStream(@Body Request.GetFeedStreamRequest request) {
+        if (mAppService != null) {
+            return mAppService.getFeedStream(request);
+        }
+
+        return null;
+    }
+
     public interface AppService {
 
         @POST("/api/general/v1/getFeedStreamWithPlayAuthToken")
         Call<Response.GetFeedStreamResponse> getFeedStreamWithPlayAuthToken(
                 @Body Request.GetFeedStreamRequest request);
+
+        @Streaming
+        @POST("/api/general/v1/getFeedStreamWithPlayAuthToken")
+        Call<ResponseBody> getFeedStream(@Body Request.GetFeedStreamRequest request);
     }
 }
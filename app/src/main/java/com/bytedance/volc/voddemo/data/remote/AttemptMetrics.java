@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/24
+ */
+package com.bytedance.volc.voddemo.data.remote;
+
+import androidx.annotation.NonNull;
+
+/**
+ * What happened to one attempt of a call made through {@link ResilientCaller}.
+ */
+public class AttemptMetrics {
+    public static final int OUTCOME_SUCCESS = 0;
+    /** the server answered with a status that is retried, 408, 429 or 5xx */
+    public static final int OUTCOME_HTTP_RETRYABLE = 1;
+    /** the server answered with a status that is not retried */
+    public static final int OUTCOME_HTTP_FATAL = 2;
+    /** connection or read failure */
+    public static final int OUTCOME_IO_ERROR = 3;
+    /** the attempt deadline passed */
+    public static final int OUTCOME_TIMEOUT = 4;
+    /** the response could not be parsed */
+    public static final int OUTCOME_PARSE_ERROR = 5;
+    /** canceled because the other attempt of a hedged pair won */
+    public static final int OUTCOME_CANCELED = 6;
+
+    public interface Listener {
+        /**
+         * Called on the attempt's worker thread once the attempt is over.
+         */
+        void onAttempt(@NonNull AttemptMetrics metrics);
+    }
+
+    private final int mAttempt;
+    private final boolean mHedged;
+    private final int mOutcome;
+    private final int mHttpCode;
+    private final long mLatencyMs;
+
+    public AttemptMetrics(int attempt, boolean hedged, int outcome, int httpCode,
+            long latencyMs) {
+        mAttempt = attempt;
+        mHedged = hedged;
+        mOutcome = outcome;
+        mHttpCode = httpCode;
+        mLatencyMs = latencyMs;
+    }
+
+    /**
+     * @return 0 for the first try, then 1, 2... for the retries; a hedged request shares the
+     * number of the attempt it races
+     */
+    public int getAttempt() {
+        return mAttempt;
+    }
+
+    public boolean isHedged() {
+        return mHedged;
+    }
+
+    public int getOutcome() {
+        return mOutcome;
+    }
+
+    /**
+     * @return the HTTP status, 0 if no response was received
+     */
+    public int getHttpCode() {
+        return mHttpCode;
+    }
+
+    public long getLatencyMs() {
+        return mLatencyMs;
+    }
+
+    public boolean isSuccess() {
+        return mOutcome == OUTCOME_SUCCESS;
+    }
+
+    public boolean isRetryable() {
+        return mOutcome == OUTCOME_HTTP_RETRYABLE || mOutcome == OUTCOME_IO_ERROR
+               || mOutcome == OUTCOME_TIMEOUT;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "attempt " + mAttempt + (mHedged ? " hedged" : "") + " outcome " + mOutcome
+               + " code " + mHttpCode + " latency " + mLatencyMs + "ms";
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/21
+ */
+package com.bytedance.volc.voddemo.data.remote;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+
+/**
+ * Parses a getFeedStreamWithPlayAuthToken response straight into {@link VideoItem}s while it
+ * is read from the network, without building {@link Response.GetFeedStreamResponse} first.
+ *
+ * The result is the same as binding the response with Gson and running
+ * {@link VideoItem#toVideoItem} over it: same field names, null details skipped, unknown
+ * fields ignored.
+ */
+public class FeedStreamParser {
+
+    public interface FirstItemsListener {
+        /**
+         * Called on the parsing thread as soon as the first items are parsed, the rest of the
+         * response may still be on the wire.
+         */
+        void onFirstItems(@NonNull List<VideoItem> videoItems);
+    }
+
+    /**
+     * @param offset         ordinal of the first item in the feed
+     * @param fetchTime      fetch time of every item, the token expire time derives from it
+     * @param firstItemCount number of items to hand to {@code listener} early, the listener is
+     *                       not called if the response holds fewer items
+     * @return the items, empty if the response has no result
+     */
+    @NonNull
+    public static List<VideoItem> parse(@NonNull Reader in, int offset, long fetchTime,
+            int firstItemCount, @Nullable FirstItemsListener listener) throws IOException {
+        final List<VideoItem> videoItems = new ArrayList<>();
+        final JsonReader reader = new JsonReader(in);
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return videoItems;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"result".equals(reader.nextName()) || reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                VideoItem videoItem = readVideoItem(reader);
+                if (videoItem == null) {
+                    continue;
+                }
+                videoItem.setOrdinal(offset + videoItems.size());
+                videoItem.setFetchTime(fetchTime);
+                videoItem.setTokenExpireTime(fetchTime + VideoItem.PLAY_AUTH_TOKEN_TTL);
+                videoItems.add(videoItem);
+                if (listener != null && videoItems.size() == firstItemCount) {
+                    listener.onFirstItems(new ArrayList<>(videoItems));
+                }
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        return videoItems;
+    }
+
+    @Nullable
+    private static VideoItem readVideoItem(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        String vid = null;
+        String caption = null;
+        double duration = 0;
+        String coverUrl = null;
+        String videoModel = null;
+        String playAuthToken = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "vid":
+                    vid = JsonValues.readString(reader);
+                    break;
+                case "caption":
+                    caption = JsonValues.readString(reader);
+                    break;
+                case "duration":
+                    duration = JsonValues.readDouble(reader, duration);
+                    break;
+                case "coverUrl":
+                    coverUrl = JsonValues.readString(reader);
+                    break;
+                case "videoModel":
+                    videoModel = JsonValues.readString(reader);
+                    break;
+                case "playAuthToken":
+                    playAuthToken = JsonValues.readString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        VideoItem videoItem = new VideoItem(vid, (int) (duration * 1000), caption, coverUrl,
+                playAuthToken, VIDEO_TYPE_SMALL);
+        videoItem.setVideoModel(videoModel);
+        return videoItem;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/23
+ */
+package com.bytedance.volc.voddemo.data.remote;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * The one OkHttp stack of the app: the app server calls and the cover images share its
+ * connection pool, DNS lookups and on-disk HTTP cache. Clients needing extra interceptors
+ * derive from it with {@link OkHttpClient#newBuilder()} which keeps all of that shared.
+ *
+ * gzip needs no setup, OkHttp asks for it and unzips transparently as long as callers do not
+ * set their own Accept-Encoding.
+ */
+public class HttpClientManager {
+    private static final String TAG = "HttpClientManager";
+
+    private static final String CACHE_DIR = "http_cache";
+    private static final long CACHE_SIZE = 20 * 1024 * 1024;
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private volatile static OkHttpClient sClient;
+
+    /**
+     * Builds the shared client with its disk cache, call once from Application#onCreate.
+     */
+    public static void init(@NonNull Context context) {
+        if (sClient != null) {
+            return;
+        }
+        synchronized (HttpClientManager.class) {
+            if (sClient == null) {
+                sClient = createClient(new File(context.getCacheDir(), CACHE_DIR));
+            }
+        }
+    }
+
+    /**
+     * @return the shared client, without disk cache if {@link #init} was not called
+     */
+    @NonNull
+    public static OkHttpClient getClient() {
+        if (sClient == null) {
+            synchronized (HttpClientManager.class) {
+                if (sClient == null) {
+                    sClient = createClient(null);
+                }
+            }
+        }
+        return sClient;
+    }
+
+    @NonNull
+    static OkHttpClient createClient(@Nullable File cacheDir) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES,
+                        TimeUnit.MINUTES));
+        if (cacheDir != null) {
+            builder.cache(new Cache(cacheDir, CACHE_SIZE));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Resolves {@code url}'s host and opens a connection to it in the background, so the first
+     * real request skips DNS, TCP and TLS setup. The connection stays in the pool for
+     * {@link #KEEP_ALIVE_MINUTES}.
+     */
+    public static void prewarm(@NonNull OkHttpClient client, @NonNull String url) {
+        client.newCall(new Request.Builder().url(url).head().build()).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull final Call call, @NonNull final IOException e) {
+                TTVideoEngineLog.d(TAG, "prewarm " + url + " failed " + e);
+            }
+
+            @Override
+            public void onResponse(@NonNull final Call call, @NonNull final Response response) {
+                response.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/22
+ */
+package com.bytedance.volc.voddemo.data.remote;
+
+import androidx.annotation.Nullable;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+
+/**
+ * Reads single values the way Gson's built-in adapters do, for the hand-written adapters of
+ * this package: null is accepted everywhere, strings take numbers and booleans, numbers and
+ * booleans take strings.
+ */
+final class JsonValues {
+
+    private JsonValues() {
+    }
+
+    @Nullable
+    static String readString(JsonReader in) throws IOException {
+        final JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    @Nullable
+    static Integer readInteger(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * @return the value, {@code fallback} for null so primitive fields keep their default
+     */
+    static double readDouble(JsonReader in, double fallback) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return fallback;
+        }
+        return in.nextDouble();
+    }
+
+    /**
+     * @return the value, {@code fallback} for null so primitive fields keep their default
+     */
+    static boolean readBoolean(JsonReader in, boolean fallback) throws IOException {
+        final JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return fallback;
+        }
+        if (token == JsonToken.STRING) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/24
+ */
+package com.bytedance.volc.voddemo.data.remote;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of the last successful calls, used to tell when a call has become slow.
+ */
+public class LatencyTracker {
+    public static final int DEFAULT_WINDOW = 50;
+    public static final int DEFAULT_MIN_SAMPLES = 10;
+
+    private final long[] mSamples;
+    private final int mMinSamples;
+    private int mCount;
+    private int mNext;
+
+    public LatencyTracker() {
+        this(DEFAULT_WINDOW, DEFAULT_MIN_SAMPLES);
+    }
+
+    public LatencyTracker(int window, int minSamples) {
+        mSamples = new long[window];
+        mMinSamples = minSamples;
+    }
+
+    public synchronized void record(long latencyMs) {
+        mSamples[mNext] = latencyMs;
+        mNext = (mNext + 1) % mSamples.length;
+        mCount = Math.min(mCount + 1, mSamples.length);
+    }
+
+    /**
+     * @param percentile in (0, 100]
+     * @return the latency in ms below which {@code percentile} percent of the recorded calls
+     * completed, -1 while fewer than the minimum number of samples are recorded
+     */
+    public synchronized long getPercentile(int percentile) {
+        if (mCount < mMinSamples) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(mSamples, mCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * mCount) - 1;
+        return sorted[Math.max(0, Math.min(index, mCount - 1))];
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/22
+ */
+package com.bytedance.volc.voddemo.data.remote;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.ReflectionAccessFilter;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Hand-written adapters for every {@link Request} and {@link Response} type, so binding the
+ * app server payloads never scans classes by reflection. The output is byte for byte the one
+ * of Gson's reflective adapters.
+ */
+public final class RemoteTypeAdapters implements TypeAdapterFactory {
+
+    /**
+     * @return a Gson using these adapters, with reflection blocked for every other type so a
+     * new payload class without an adapter fails loudly instead of silently using reflection
+     */
+    public static Gson createGson() {
+        return new GsonBuilder()
+                .registerTypeAdapterFactory(new RemoteTypeAdapters())
+                .addReflectionAccessFilter(
+                        rawClass -> ReflectionAccessFilter.FilterResult.BLOCK_ALL)
+                .create();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> TypeAdapter<T> create(final Gson gson, final TypeToken<T> type) {
+        final Class<? super T> rawType = type.getRawType();
+        if (rawType == Request.GetFeedStreamRequest.class) {
+            return (TypeAdapter<T>) new Request.GetFeedStreamRequestAdapter();
+        }
+        if (rawType == Response.GetFeedStreamResponse.class) {
+            return (TypeAdapter<T>) new Response.GetFeedStreamResponseAdapter();
+        }
+        if (rawType == Response.ResponseMetaData.class) {
+            return (TypeAdapter<T>) new Response.ResponseMetaDataAdapter();
+        }
+        if (rawType == Response.ResponseError.class) {
+            return (TypeAdapter<T>) new Response.ResponseErrorAdapter();
+        }
+        if (rawType == Response.VideoDetail.class) {
+            return (TypeAdapter<T>) new Response.VideoDetailAdapter();
+        }
+        return null;
+    }
+}
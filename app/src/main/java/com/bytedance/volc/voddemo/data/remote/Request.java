@@ -17,6 +17,12 @@
  */
 package com.bytedance.volc.voddemo.data.remote;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
 public class Request {
 
     public static class GetFeedStreamRequest {
@@ -132,4 +138,81 @@ public class Request {
             this.cdnType = cdnType;
         }
     }
+
+    /**
+     * Writes the fields in declaration order, the same output as Gson's reflective adapter.
+     */
+    static final class GetFeedStreamRequestAdapter extends TypeAdapter<GetFeedStreamRequest> {
+
+        @Override
+        public void write(final JsonWriter out, final GetFeedStreamRequest value)
+                throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("userID").value(value.userID);
+            out.name("offset").value(value.offset);
+            out.name("pageSize").value(value.pageSize);
+            out.name("format").value(value.format);
+            out.name("codec").value(value.codec);
+            out.name("definition").value(value.definition);
+            out.name("fileType").value(value.fileType);
+            out.name("needThumbs").value(value.needThumbs);
+            out.name("needBarrageMask").value(value.needBarrageMask);
+            out.name("cdnType").value(value.cdnType);
+            out.endObject();
+        }
+
+        @Override
+        public GetFeedStreamRequest read(final JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            GetFeedStreamRequest value = new GetFeedStreamRequest(null, null, null);
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "userID":
+                        value.userID = JsonValues.readString(in);
+                        break;
+                    case "offset":
+                        value.offset = JsonValues.readInteger(in);
+                        break;
+                    case "pageSize":
+                        value.pageSize = JsonValues.readInteger(in);
+                        break;
+                    case "format":
+                        value.format = JsonValues.readInteger(in);
+                        break;
+                    case "codec":
+                        value.codec = JsonValues.readInteger(in);
+                        break;
+                    case "definition":
+                        value.definition = JsonValues.readInteger(in);
+                        break;
+                    case "fileType":
+                        value.fileType = JsonValues.readString(in);
+                        break;
+                    case "needThumbs":
+                        value.needThumbs = JsonValues.readBoolean(in, value.needThumbs);
+                        break;
+                    case "needBarrageMask":
+                        value.needBarrageMask = JsonValues.readBoolean(in,
+                                value.needBarrageMask);
+                        break;
+                    case "cdnType":
+                        value.cdnType = JsonValues.readInteger(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return value;
+        }
+    }
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/24
+ */
+package com.bytedance.volc.voddemo.data.remote;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+
+import static com.bytedance.volc.voddemo.data.remote.AttemptMetrics.OUTCOME_CANCELED;
+import static com.bytedance.volc.voddemo.data.remote.AttemptMetrics.OUTCOME_HTTP_FATAL;
+import static com.bytedance.volc.voddemo.data.remote.AttemptMetrics.OUTCOME_HTTP_RETRYABLE;
+import static com.bytedance.volc.voddemo.data.remote.AttemptMetrics.OUTCOME_IO_ERROR;
+import static com.bytedance.volc.voddemo.data.remote.AttemptMetrics.OUTCOME_PARSE_ERROR;
+import static com.bytedance.volc.voddemo.data.remote.AttemptMetrics.OUTCOME_SUCCESS;
+import static com.bytedance.volc.voddemo.data.remote.AttemptMetrics.OUTCOME_TIMEOUT;
+
+/**
+ * Runs a call with a deadline per attempt and retries transient failures (I/O errors,
+ * timeouts, 408, 429 and 5xx) after a jittered exponential backoff. When an attempt takes
+ * longer than the p95 latency of recent calls a second, hedged, request is sent and the
+ * first one to succeed wins, the other is canceled.
+ *
+ * The deadline covers the whole attempt, including reading and parsing the body.
+ */
+public class ResilientCaller {
+
+    public interface CallFactory {
+        /**
+         * @return a new call for every attempt, a retrofit call can only be executed once
+         */
+        @NonNull
+        Call<ResponseBody> newCall();
+    }
+
+    public interface BodyParser<T> {
+        T parse(@NonNull ResponseBody body) throws IOException;
+    }
+
+    public static class Policy {
+        public static final Policy DEFAULT = new Policy(3, 5_000, 300, 3_000, true);
+
+        final int mMaxAttempts;
+        final long mAttemptTimeoutMs;
+        final long mBaseBackoffMs;
+        final long mMaxBackoffMs;
+        final boolean mHedge;
+
+        /**
+         * @param maxAttempts      tries in total, the first one included
+         * @param attemptTimeoutMs deadline of every attempt
+         * @param baseBackoffMs    backoff before the first retry, doubled for every next one
+         * @param maxBackoffMs     upper bound of the backoff
+         * @param hedge            whether to send a hedged request when an attempt is slow
+         */
+        public Policy(int maxAttempts, long attemptTimeoutMs, long baseBackoffMs,
+                long maxBackoffMs, boolean hedge) {
+            mMaxAttempts = maxAttempts;
+            mAttemptTimeoutMs = attemptTimeoutMs;
+            mBaseBackoffMs = baseBackoffMs;
+            mMaxBackoffMs = maxBackoffMs;
+            mHedge = hedge;
+        }
+    }
+
+    private static final int HEDGE_PERCENTILE = 95;
+
+    private static class Result<T> {
+        final T mValue;
+        final AttemptMetrics mMetrics;
+
+        Result(T value, AttemptMetrics metrics) {
+            mValue = value;
+            mMetrics = metrics;
+        }
+    }
+
+    private final Executor mExecutor;
+    private final Policy mPolicy;
+    private final LatencyTracker mLatencyTracker;
+    private final AttemptMetrics.Listener mListener;
+    private final Random mRandom;
+
+    public ResilientCaller(@NonNull Executor executor,
+            @Nullable AttemptMetrics.Listener listener) {
+        this(executor, Policy.DEFAULT, new LatencyTracker(), listener, new Random());
+    }
+
+    /**
+     * @param executor runs the attempts, needs a free thread for a hedged request while the
+     *                 first attempt is still running
+     */
+    public ResilientCaller(@NonNull Executor executor, @NonNull Policy policy,
+            @NonNull LatencyTracker latencyTracker, @Nullable AttemptMetrics.Listener listener,
+            @NonNull Random random) {
+        mExecutor = executor;
+        mPolicy = policy;
+        mLatencyTracker = latencyTracker;
+        mListener = listener;
+        mRandom = random;
+    }
+
+    /**
+     * Blocks until an attempt succeeds or the call is given up.
+     *
+     * @return the parsed body, null if every attempt failed or the failure is not transient
+     */
+    @Nullable
+    @WorkerThread
+    public <T> T execute(@NonNull CallFactory factory, @NonNull BodyParser<T> parser) {
+        for (int attempt = 0; attempt < mPolicy.mMaxAttempts; attempt++) {
+            if (attempt > 0) {
+                try {
+                    Thread.sleep(getBackoffMs(attempt));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+
+            Result<T> result = race(attempt, factory, parser);
+            if (result.mMetrics.isSuccess()) {
+                return result.mValue;
+            }
+            if (!result.mMetrics.isRetryable()) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Equal jitter: half of the exponential backoff is kept, the other half is random, so
+     * clients failing together do not retry together.
+     */
+    long getBackoffMs(int attempt) {
+        final long backoff = Math.min(mPolicy.mMaxBackoffMs,
+                mPolicy.mBaseBackoffMs << Math.min(attempt - 1, 20));
+        final long half = backoff / 2;
+        return half + (long) (mRandom.nextDouble() * (backoff - half));
+    }
+
+    private <T> Result<T> race(int attempt, CallFactory factory, BodyParser<T> parser) {
+        final BlockingQueue<Result<T>> results = new LinkedBlockingQueue<>();
+        final Call<ResponseBody> primary = start(attempt, false, factory, parser, results);
+        Call<ResponseBody> hedge = null;
+        Result<T> result;
+        try {
+            final long hedgeDelayMs = mPolicy.mHedge
+                    ? mLatencyTracker.getPercentile(HEDGE_PERCENTILE) : -1;
+            result = hedgeDelayMs < 0 ? results.take()
+                    : results.poll(hedgeDelayMs, TimeUnit.MILLISECONDS);
+            if (result == null) {
+                hedge = start(attempt, true, factory, parser, results);
+                result = results.take();
+                if (!result.mMetrics.isSuccess()) {
+                    // one of the pair failed, the other one may still make it
+                    result = results.take();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result = new Result<>(null,
+                    new AttemptMetrics(attempt, false, OUTCOME_CANCELED, 0, 0));
+        }
+
+        primary.cancel();
+        if (hedge != null) {
+            hedge.cancel();
+        }
+        return result;
+    }
+
+    private <T> Call<ResponseBody> start(final int attempt, final boolean hedged,
+            CallFactory factory, final BodyParser<T> parser,
+            final BlockingQueue<Result<T>> results) {
+        final Call<ResponseBody> call = factory.newCall();
+        call.timeout().timeout(mPolicy.mAttemptTimeoutMs, TimeUnit.MILLISECONDS);
+        mExecutor.execute(() -> {
+            Result<T> result = run(attempt, hedged, call, parser);
+            if (mListener != null) {
+                mListener.onAttempt(result.mMetrics);
+            }
+            results.add(result);
+        });
+        return call;
+    }
+
+    private <T> Result<T> run(int attempt, boolean hedged, Call<ResponseBody> call,
+            BodyParser<T> parser) {
+        final long start = System.nanoTime();
+        int code = 0;
+        int outcome;
+        T value = null;
+        try {
+            retrofit2.Response<ResponseBody> response = call.execute();
+            code = response.code();
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                outcome = isRetryable(code) ? OUTCOME_HTTP_RETRYABLE : OUTCOME_HTTP_FATAL;
+            } else {
+                try {
+                    value = parser.parse(body);
+                    outcome = OUTCOME_SUCCESS;
+                } catch (MalformedJsonException e) {
+                    // the body is not json, fetching it again would give the same body. Other
+                    // IOExceptions of the parse come from reading the body off the network
+                    outcome = OUTCOME_PARSE_ERROR;
+                } finally {
+                    body.close();
+                }
+            }
+        } catch (InterruptedIOException e) {
+            outcome = OUTCOME_TIMEOUT;
+        } catch (IOException e) {
+            outcome = call.isCanceled() ? OUTCOME_CANCELED : OUTCOME_IO_ERROR;
+        } catch (RuntimeException e) {
+            outcome = OUTCOME_PARSE_ERROR;
+        }
+
+        final long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (outcome == OUTCOME_SUCCESS) {
+            mLatencyTracker.record(latencyMs);
+        }
+        return new Result<>(value, new AttemptMetrics(attempt, hedged, outcome, code,
+                latencyMs));
+    }
+
+    private static boolean isRetryable(int code) {
+        return code == 408 || code == 429 || code >= 500;
+    }
+}
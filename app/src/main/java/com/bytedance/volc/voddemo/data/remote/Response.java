@@ -17,6 +17,12 @@
  */
 package com.bytedance.volc.voddemo.data.remote;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 public class Response {
@@ -177,4 +183,231 @@ public class Response {
             this.playAuthToken = playAuthToken;
         }
     }
+
+    /*
+     * Hand-written adapters, each writes the fields in declaration order and skips unknown
+     * names on read, the same as Gson's reflective adapter.
+     */
+
+    static final class GetFeedStreamResponseAdapter extends TypeAdapter<GetFeedStreamResponse> {
+        private final ResponseMetaDataAdapter mMetaDataAdapter = new ResponseMetaDataAdapter();
+        private final VideoDetailAdapter mVideoDetailAdapter = new VideoDetailAdapter();
+
+        @Override
+        public void write(final JsonWriter out, final GetFeedStreamResponse value)
+                throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("responseMetadata");
+            mMetaDataAdapter.write(out, value.responseMetadata);
+            out.name("result");
+            if (value.result == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (VideoDetail videoDetail : value.result) {
+                    mVideoDetailAdapter.write(out, videoDetail);
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public GetFeedStreamResponse read(final JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            GetFeedStreamResponse value = new GetFeedStreamResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "responseMetadata":
+                        value.responseMetadata = mMetaDataAdapter.read(in);
+                        break;
+                    case "result":
+                        value.result = readVideoDetails(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return value;
+        }
+
+        private List<VideoDetail> readVideoDetails(final JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            List<VideoDetail> videoDetails = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                videoDetails.add(mVideoDetailAdapter.read(in));
+            }
+            in.endArray();
+            return videoDetails;
+        }
+    }
+
+    static final class ResponseMetaDataAdapter extends TypeAdapter<ResponseMetaData> {
+        private final ResponseErrorAdapter mErrorAdapter = new ResponseErrorAdapter();
+
+        @Override
+        public void write(final JsonWriter out, final ResponseMetaData value)
+                throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("requestId").value(value.requestId);
+            out.name("action").value(value.action);
+            out.name("version").value(value.version);
+            out.name("service").value(value.service);
+            out.name("region").value(value.region);
+            out.name("error");
+            mErrorAdapter.write(out, value.error);
+            out.endObject();
+        }
+
+        @Override
+        public ResponseMetaData read(final JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ResponseMetaData value = new ResponseMetaData();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "requestId":
+                        value.requestId = JsonValues.readString(in);
+                        break;
+                    case "action":
+                        value.action = JsonValues.readString(in);
+                        break;
+                    case "version":
+                        value.version = JsonValues.readString(in);
+                        break;
+                    case "service":
+                        value.service = JsonValues.readString(in);
+                        break;
+                    case "region":
+                        value.region = JsonValues.readString(in);
+                        break;
+                    case "error":
+                        value.error = mErrorAdapter.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return value;
+        }
+    }
+
+    static final class ResponseErrorAdapter extends TypeAdapter<ResponseError> {
+
+        @Override
+        public void write(final JsonWriter out, final ResponseError value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("code").value(value.code);
+            out.name("message").value(value.message);
+            out.endObject();
+        }
+
+        @Override
+        public ResponseError read(final JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ResponseError value = new ResponseError();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "code":
+                        value.code = JsonValues.readString(in);
+                        break;
+                    case "message":
+                        value.message = JsonValues.readString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return value;
+        }
+    }
+
+    static final class VideoDetailAdapter extends TypeAdapter<VideoDetail> {
+
+        @Override
+        public void write(final JsonWriter out, final VideoDetail value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("vid").value(value.vid);
+            out.name("caption").value(value.caption);
+            out.name("duration").value(value.duration);
+            out.name("coverUrl").value(value.coverUrl);
+            out.name("videoModel").value(value.videoModel);
+            out.name("playAuthToken").value(value.playAuthToken);
+            out.endObject();
+        }
+
+        @Override
+        public VideoDetail read(final JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            VideoDetail value = new VideoDetail();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "vid":
+                        value.vid = JsonValues.readString(in);
+                        break;
+                    case "caption":
+                        value.caption = JsonValues.readString(in);
+                        break;
+                    case "duration":
+                        value.duration = JsonValues.readDouble(in, value.duration);
+                        break;
+                    case "coverUrl":
+                        value.coverUrl = JsonValues.readString(in);
+                        break;
+                    case "videoModel":
+                        value.videoModel = JsonValues.readString(in);
+                        break;
+                    case "playAuthToken":
+                        value.playAuthToken = JsonValues.readString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return value;
+        }
+    }
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/28
+ */
+package com.bytedance.volc.voddemo.preload;
+
+/**
+ * Estimates the download throughput from the transfers the app observes. Implementations are
+ * called from the preloader and player threads and must be thread safe.
+ */
+public interface BandwidthEstimator {
+    long NO_ESTIMATE = -1;
+
+    /**
+     * @param bytes     bytes downloaded by one transfer
+     * @param elapsedMs time the transfer took
+     */
+    void onTransferred(long bytes, long elapsedMs);
+
+    /**
+     * The player ran out of buffer after the first frame, the network is slower than the
+     * estimate suggests.
+     */
+    void onStall();
+
+    /**
+     * @return the estimated throughput in bits per second, {@link #NO_ESTIMATE} until enough
+     * was observed
+     */
+    long getEstimate();
+}
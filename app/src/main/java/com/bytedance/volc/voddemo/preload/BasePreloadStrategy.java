@@ -17,12 +17,18 @@
  */
 package com.bytedance.volc.voddemo.preload;
 
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import com.bytedance.volc.voddemo.VodApp;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.data.VideoSources;
+import com.bytedance.volc.voddemo.settings.ClientSettings;
 import com.ss.ttvideoengine.DataLoaderHelper;
 import com.ss.ttvideoengine.IPreLoaderItemCallBackListener;
 import com.ss.ttvideoengine.PreLoaderItemCallBackInfo;
 import com.ss.ttvideoengine.PreloaderVidItem;
+import com.ss.ttvideoengine.PreloaderVideoModelItem;
 import com.ss.ttvideoengine.Resolution;
 import com.ss.ttvideoengine.TTVideoEngine;
 import com.ss.ttvideoengine.model.VideoModel;
@@ -31,8 +37,69 @@ import java.util.Arrays;
 
 // VOD key step preload : https://www.volcengine.com/docs/4/65785
 public abstract class BasePreloadStrategy implements PreloadStrategy {
+
+    public interface PreloadListener {
+        /**
+         * Called on a preloader thread when the task of {@code videoId} ends.
+         *
+         * @param key one of {@link PreLoaderItemCallBackInfo#KEY_IS_PRELOAD_END_SUCCEED},
+         *            {@link PreLoaderItemCallBackInfo#KEY_IS_PRELOAD_END_FAIL} or
+         *            {@link PreLoaderItemCallBackInfo#KEY_IS_PRELOAD_END_CANCEL}
+         */
+        void onPreloadEnd(@NonNull String videoId, int key);
+    }
+
+    public static void startPreload(@NonNull VideoItem videoItem, @NonNull Resolution resolution,
+            long preloadSize) {
+        startPreload(videoItem, resolution, preloadSize, SystemClock.elapsedRealtime(), null);
+    }
+
+    /**
+     * Preloads by VideoModel when the feed provided a fresh one, which saves the play info
+     * fetch, and by vid + play auth token otherwise.
+     *
+     * @param startTime {@link SystemClock#elapsedRealtime} when the task is handed to the
+     *                  engine, the transfer time of the bandwidth sample runs from it
+     */
+    public static void startPreload(@NonNull VideoItem videoItem, @NonNull Resolution resolution,
+            long preloadSize, long startTime, @Nullable PreloadListener listener) {
+        final VideoModel videoModel = VideoSources.getVideoModel(videoItem);
+        if (videoModel != null) {
+            startPreloadByVideoModel(videoItem.getVid(), videoModel, resolution, preloadSize,
+                    startTime, listener);
+        } else {
+            startPreloadByVid(videoItem.getVid(), videoItem.getAuthToken(), resolution,
+                    preloadSize, startTime, listener);
+        }
+    }
+
+    public static void startPreloadByVideoModel(@NonNull String videoId,
+            @NonNull VideoModel videoModel, @NonNull Resolution resolution, long preloadSize,
+            long startTime, @Nullable PreloadListener listener) {
+        Resolution selected = select(videoModel, resolution);
+        TTVideoEngineLog.d(TAG, "[preload] startPreloadByVideoModel vid = " + videoId
+                                + " resolution = " + resolution
+                                + " selected = " + selected
+                                + " size = " + preloadSize);
+
+        PreloaderVideoModelItem preloadVideoModelItem = new PreloaderVideoModelItem(videoModel,
+                selected, preloadSize, VodApp.getClientSettings().videoEnableH265());
+        preloadVideoModelItem.setCallBackListener(new IPreLoaderItemCallBackListener() {
+            @Override
+            public void preloadItemInfo(PreLoaderItemCallBackInfo info) {
+                if (info == null) {
+                    return;
+                }
+                onPreloadResult(videoId, resolution, info, startTime, listener);
+            }
+        });
+
+        TTVideoEngine.addTask(preloadVideoModelItem);
+    }
+
     public static void startPreloadByVid(@NonNull String videoId, @NonNull String playAuthToken,
-            @NonNull Resolution resolution, long preloadSize) {
+            @NonNull Resolution resolution, long preloadSize, long startTime,
+            @Nullable PreloadListener listener) {
         TTVideoEngineLog.d(TAG, "[preload] startPreloadByVid vid = " + videoId
                                 + " resolution = " + resolution
                                 + " size = " + preloadSize);
@@ -41,64 +108,120 @@ public abstract class BasePreloadStrategy implements PreloadStrategy {
                 preloadSize, VodApp.getClientSettings().videoEnableH265());
 
         preloadVidItem.setCallBackListener(new IPreLoaderItemCallBackListener() {
+            private long mStartTime = startTime;
+
             @Override
             public void preloadItemInfo(PreLoaderItemCallBackInfo info) {
                 if (info == null) {
                     return;
                 }
 
-                int key = info.getKey();
-                switch (key) {
-                    case PreLoaderItemCallBackInfo.KEY_IS_FETCH_END_VIDEOMODEL:
-                        VideoModel videoModel = info.fetchVideoModel;
-                        if (videoModel == null) {
-                            return;
-                        }
-
-                        Resolution selected = select(videoModel, resolution);
-                        TTVideoEngineLog.d(TAG, "[preload] preloadItemInfo videoModel fetched."
-                                                + " vid = " + videoId
-                                                + " resolution = " + resolution
-                                                + " selected = " + selected
-                                                + " all = " + Arrays.toString(
-                                videoModel.getSupportResolutions()));
-
-                        preloadVidItem.mResolution = selected;
-                        break;
-                    case PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_SUCCEED:
-                        DataLoaderHelper.DataLoaderTaskProgressInfo cacheInfo
-                                = info.preloadDataInfo;
-                        if (cacheInfo != null) {
-                            String cacheKey = cacheInfo.mKey;
-                            String vid = cacheInfo.mVideoId;
-                            String cachePath = cacheInfo.mLocalFilePath;
-                            long mediaSize = cacheInfo.mMediaSize;
-                            long cachedSize = cacheInfo.mCacheSizeFromZero;
-                            TTVideoEngineLog.d(TAG, "[preload] preloadItemInfo result = success."
-                                                    + " vid = " + vid
-                                                    + " cachePath = " + cachePath
-                                                    + " cacheKey = " + cacheKey
-                                                    + " cachedSize = " + cachedSize
-                                                    + " mediaSize = " + mediaSize);
-
-                            break;
-                        }
-                    case PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_FAIL:
-                        TTVideoEngineLog.d(TAG, "[preload] preloadItemInfo result = failed.");
-                        break;
-                    case PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_CANCEL:
-                        TTVideoEngineLog.d(TAG, "[preload] preloadItemInfo result = canceled.");
-                        break;
-                    default:
-                        break;
+                if (info.getKey() != PreLoaderItemCallBackInfo.KEY_IS_FETCH_END_VIDEOMODEL) {
+                    onPreloadResult(videoId, resolution, info, mStartTime, listener);
+                    return;
+                }
+                // the play info fetch is not part of the media transfer
+                mStartTime = SystemClock.elapsedRealtime();
+
+                VideoModel videoModel = info.fetchVideoModel;
+                if (videoModel == null) {
+                    // the task will not transfer anything, end it so its slot is freed
+                    TTVideoEngineLog.d(TAG, "[preload] preloadItemInfo videoModel fetch failed."
+                                            + " vid = " + videoId);
+                    if (listener != null) {
+                        listener.onPreloadEnd(videoId,
+                                PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_FAIL);
+                    }
+                    return;
                 }
+
+                Resolution selected = select(videoModel, resolution);
+                TTVideoEngineLog.d(TAG, "[preload] preloadItemInfo videoModel fetched."
+                                        + " vid = " + videoId
+                                        + " resolution = " + resolution
+                                        + " selected = " + selected
+                                        + " all = " + Arrays.toString(
+                        videoModel.getSupportResolutions()));
+
+                preloadVidItem.mResolution = selected;
             }
         });
 
         TTVideoEngine.addTask(preloadVidItem);
     }
 
+    /**
+     * @param resolution the resolution asked for, the cached bytes index is keyed by it
+     */
+    private static void onPreloadResult(@NonNull String videoId, @NonNull Resolution resolution,
+            @NonNull PreLoaderItemCallBackInfo info, long startTime,
+            @Nullable PreloadListener listener) {
+        int key = info.getKey();
+        switch (key) {
+            case PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_SUCCEED:
+                DataLoaderHelper.DataLoaderTaskProgressInfo cacheInfo = info.preloadDataInfo;
+                if (cacheInfo != null) {
+                    String cacheKey = cacheInfo.mKey;
+                    String vid = cacheInfo.mVideoId;
+                    String cachePath = cacheInfo.mLocalFilePath;
+                    long mediaSize = cacheInfo.mMediaSize;
+                    long cachedSize = cacheInfo.mCacheSizeFromZero;
+                    TTVideoEngineLog.d(TAG, "[preload] preloadItemInfo result = success."
+                                            + " vid = " + vid
+                                            + " cachePath = " + cachePath
+                                            + " cacheKey = " + cacheKey
+                                            + " cachedSize = " + cachedSize
+                                            + " mediaSize = " + mediaSize);
+                    final PreloadManager preloadManager = PreloadManager.getInstance();
+                    final long now = SystemClock.elapsedRealtime();
+                    // the task did not transfer the bytes cached before it, its size over its
+                    // time would overstate the bandwidth
+                    final long knownSize = preloadManager.getCachedBytesIndex()
+                            .getCachedBytes(videoId, resolution);
+                    if (knownSize <= 0) {
+                        preloadManager.getBandwidthEstimator().onTransferred(cachedSize,
+                                now - startTime);
+                    }
+                    preloadManager.getMetrics().onPreloaded(videoId, cachedSize, mediaSize, now);
+                    preloadManager.getCachedBytesIndex().record(videoId, resolution, cachedSize,
+                            mediaSize, System.currentTimeMillis());
+                    if (cacheKey != null) {
+                        preloadManager.getCacheBudget().onCached(videoId, cacheKey, cachedSize);
+                    }
+                    break;
+                }
+            case PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_FAIL:
+                TTVideoEngineLog.d(TAG, "[preload] preloadItemInfo result = failed.");
+                break;
+            case PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_CANCEL:
+                TTVideoEngineLog.d(TAG, "[preload] preloadItemInfo result = canceled.");
+                break;
+            default:
+                return;
+        }
+
+        if (listener != null) {
+            listener.onPreloadEnd(videoId, key);
+        }
+    }
+
+    /**
+     * @return false when preload is turned off in the settings, true without settings as in a
+     * JVM test
+     */
+    protected boolean isPreloadEnabled() {
+        final ClientSettings clientSettings = VodApp.getClientSettings();
+        return clientSettings == null || clientSettings.enablePreload();
+    }
+
+    /**
+     * @return the resolution of {@code videoModel} to fetch for {@code resolution}, the player
+     * is configured with the same one
+     */
     public static Resolution select(VideoModel videoModel, Resolution resolution) {
-        return TTVideoEngine.findDefaultResolution(videoModel, resolution);
+        final Resolution selected = ResolutionSelector.select(
+                videoModel.getSupportResolutions(), resolution);
+        return selected != null ? selected
+                : TTVideoEngine.findDefaultResolution(videoModel, resolution);
     }
 }
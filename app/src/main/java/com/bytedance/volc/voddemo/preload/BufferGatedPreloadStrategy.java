@@ -0,0 +1,206 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/29
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import androidx.annotation.NonNull;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.data.VideoItemWindow;
+import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.util.List;
+
+/**
+ * Holds back the preload work of another strategy while the current video needs the
+ * bandwidth. After the current video changes, the change reaches the wrapped strategy only once
+ * a buffering update shows a buffer lead of {@code safeLeadMs}, or the rest of the video when
+ * that is shorter. If the lead later falls under {@code lowLeadMs} the running tasks are
+ * canceled and the gate waits for the safe lead again. The buffer lead is the buffered
+ * duration, {@code duration * buffer / 100}, minus the playback time.
+ *
+ * Events from any other player than the one of the current video are ignored, the page swiped
+ * away keeps reporting until it is released.
+ *
+ * A wait during which the current video played with less than {@code lowLeadMs} buffered, and
+ * that still ended with the safe lead and no stall, counts as an at risk deferral: the video
+ * was close to stalling while its bandwidth was not shared with preloads. Waits that only cover
+ * the start of a video are not counted, every video starts with an empty buffer.
+ */
+public class BufferGatedPreloadStrategy implements PreloadStrategy {
+    public static final int DEFAULT_SAFE_LEAD_MS = 4000;
+    public static final int DEFAULT_LOW_LEAD_MS = 1500;
+
+    private final VideoItemWindow mVideoWindow;
+    private final PreloadStrategy mDelegate;
+    private final int mSafeLeadMs;
+    private final int mLowLeadMs;
+
+    private VideoItem mCurrent;
+    private boolean mOpen;
+    // queued while closed, dropped if the pager settles away from its target and landing
+    private SwipePredictor.Prediction mPendingPrediction;
+    private boolean mStalledWhileClosed;
+    private boolean mLowLeadWhileClosed;
+    private int mDeferrals;
+    private int mAtRiskDeferrals;
+    private int mStalls;
+
+    /**
+     * @param videoWindow the feed the pager shows, where a queued prediction is checked against
+     *                    the page the pager settled on
+     */
+    public BufferGatedPreloadStrategy(@NonNull VideoItemWindow videoWindow,
+            @NonNull PreloadStrategy delegate) {
+        this(videoWindow, delegate, DEFAULT_SAFE_LEAD_MS, DEFAULT_LOW_LEAD_MS);
+    }
+
+    public BufferGatedPreloadStrategy(@NonNull VideoItemWindow videoWindow,
+            @NonNull PreloadStrategy delegate, int safeLeadMs, int lowLeadMs) {
+        mVideoWindow = videoWindow;
+        mDelegate = delegate;
+        mSafeLeadMs = safeLeadMs;
+        mLowLeadMs = lowLeadMs;
+    }
+
+    @Override
+    public void videoListUpdate(final List<VideoItem> videoItems) {
+        mDelegate.videoListUpdate(videoItems);
+    }
+
+    @Override
+    public void videoListAppend(final List<VideoItem> videoItems) {
+        mDelegate.videoListAppend(videoItems);
+    }
+
+    @Override
+    public synchronized void currentVideoChanged(final VideoItem videoItem) {
+        // running tasks are left alone, one of them may be feeding the new video
+        mCurrent = videoItem;
+        final SwipePredictor.Prediction pending = mPendingPrediction;
+        if (pending != null) {
+            final int position = mVideoWindow.positionOf(videoItem);
+            if (position != pending.getTarget() && position != pending.getLanding()) {
+                mPendingPrediction = null;
+            }
+        }
+        close();
+    }
+
+    @Override
+    public synchronized void bufferingUpdate(final VideoItem videoItem, final int duration,
+            final int buffer, final int playbackTime) {
+        if (!isCurrent(videoItem) || duration <= 0) {
+            return;
+        }
+
+        final int lead = (int) ((long) duration * buffer / 100) - playbackTime;
+        final int remaining = duration - playbackTime;
+        final boolean lowLead = buffer < 100 && lead < Math.min(mLowLeadMs, remaining);
+        if (!mOpen && (buffer >= 100 || lead >= Math.min(mSafeLeadMs, remaining))) {
+            mOpen = true;
+            if (mLowLeadWhileClosed && !mStalledWhileClosed) {
+                mAtRiskDeferrals++;
+            }
+            TTVideoEngineLog.d(TAG, "[preload] gate open, lead " + lead + "ms, deferrals "
+                                    + mDeferrals + ", at risk " + mAtRiskDeferrals
+                                    + ", stalls " + mStalls);
+            mDelegate.currentVideoChanged(mCurrent);
+            if (mPendingPrediction != null) {
+                mDelegate.swipePredicted(mPendingPrediction);
+                mPendingPrediction = null;
+            }
+        } else if (mOpen && lowLead) {
+            TTVideoEngineLog.d(TAG, "[preload] gate closed, lead " + lead + "ms");
+            mDelegate.cancelAll();
+            close();
+            mLowLeadWhileClosed = true;
+        } else if (!mOpen && lowLead && playbackTime > 0) {
+            mLowLeadWhileClosed = true;
+        }
+    }
+
+    /**
+     * Forwarded while open. While closed the landing boost is queued and forwarded when the
+     * gate opens, so it does not compete with the current video before it has a safe lead.
+     */
+    @Override
+    public void swipePredicted(final SwipePredictor.Prediction prediction) {
+        synchronized (this) {
+            if (!mOpen) {
+                mPendingPrediction = prediction;
+                return;
+            }
+        }
+        mDelegate.swipePredicted(prediction);
+    }
+
+    @Override
+    public synchronized void playbackStalled(final VideoItem videoItem) {
+        if (!isCurrent(videoItem)) {
+            return;
+        }
+        mStalls++;
+        if (!mOpen) {
+            mStalledWhileClosed = true;
+        }
+        mDelegate.playbackStalled(videoItem);
+    }
+
+    @Override
+    public boolean keepsPreload(final VideoItem videoItem) {
+        return mDelegate.keepsPreload(videoItem);
+    }
+
+    @Override
+    public void cancelAll() {
+        mDelegate.cancelAll();
+    }
+
+    private boolean isCurrent(final VideoItem videoItem) {
+        return mCurrent != null && videoItem != null && mCurrent.getVid() != null
+               && mCurrent.getVid().equals(videoItem.getVid());
+    }
+
+    private void close() {
+        mOpen = false;
+        mStalledWhileClosed = false;
+        mLowLeadWhileClosed = false;
+        mDeferrals++;
+    }
+
+    public synchronized boolean isOpen() {
+        return mOpen;
+    }
+
+    /**
+     * @return how many times preload work was held back
+     */
+    public synchronized int getDeferrals() {
+        return mDeferrals;
+    }
+
+    /**
+     * @return how many deferrals saw the current video play with a low lead and still ended
+     * with the safe lead and no stall
+     */
+    public synchronized int getAtRiskDeferrals() {
+        return mAtRiskDeferrals;
+    }
+
+    public synchronized int getStalls() {
+        return mStalls;
+    }
+}
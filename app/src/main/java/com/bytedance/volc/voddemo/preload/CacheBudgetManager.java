@@ -0,0 +1,455 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/7
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.data.VideoItemWindow;
+import com.bytedance.volc.voddemo.utils.ThreadUtils;
+import com.bytedance.volc.voddemo.utils.VersionedFileUtils;
+import com.ss.ttvideoengine.DataLoaderHelper;
+import com.ss.ttvideoengine.TTVideoEngine;
+import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static com.bytedance.volc.voddemo.preload.PreloadStrategy.TAG;
+
+/**
+ * Keeps the media cache within a quota, choosing what to evict from the feed and the watch
+ * history instead of leaving it to the cache's own least recently used order. Evicted first
+ * are the watched videos, least recently watched first, then the unwatched ones the user
+ * already passed, farthest behind first, and only then the upcoming ones, farthest ahead first.
+ * The current video is never evicted. A pass frees down to {@link #LOW_WATERMARK} of the quota
+ * and runs on the executor, the app's io thread by default.
+ *
+ * Cache files are learned from the preload results, the player's buffering raises their size.
+ * A file only ever written by the player has no known key and is left to the cache, which is
+ * capped at {@link #HARD_LIMIT_FACTOR} times the quota so it only evicts by itself when
+ * passes fall behind.
+ *
+ * The known files and their watch times are saved to a small file and loaded at the next
+ * launch, the files outlive the process and the usage must not start from zero again. Only the
+ * {@link #MAX_WATCHED} most recent watch times are kept.
+ *
+ * File layout, big endian: magic, version, entry count, then per entry vid (UTF), cache key
+ * (UTF), bytes and watch time as long, 0 if not watched.
+ */
+public class CacheBudgetManager {
+    public static final long DEFAULT_QUOTA = 300L * 1024 * 1024;
+    public static final double LOW_WATERMARK = 0.8;
+    public static final double HARD_LIMIT_FACTOR = 1.25;
+    private static final int NO_POSITION = -1;
+    private static final int MAX_POSITIONS = 512;
+    private static final int MAX_WATCHED = 512;
+
+    private static final int MAGIC = 0x5643424d; // "VCBM"
+    private static final int VERSION = 1;
+
+    public interface Cache {
+        void setMaxSize(long bytes);
+
+        void remove(@NonNull String cacheKey);
+    }
+
+    private static class Entry {
+        final String mVid;
+        final String mCacheKey;
+        long mBytes;
+
+        Entry(String vid, String cacheKey) {
+            mVid = vid;
+            mCacheKey = cacheKey;
+        }
+    }
+
+    private final Cache mCache;
+    private final Executor mExecutor;
+    private final CachedBytesIndex mCachedBytesIndex;
+    // cache key to entry
+    private final Map<String, Entry> mEntries = new HashMap<>();
+    // vid to last watch time, the most recently watched ones in watch order
+    private final LinkedHashMap<String, Long> mWatched =
+            new LinkedHashMap<String, Long>(MAX_WATCHED, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+                    return size() > MAX_WATCHED;
+                }
+            };
+    // vid to feed position, the most recently seen ones
+    private final LinkedHashMap<String, Integer> mPositions =
+            new LinkedHashMap<String, Integer>(MAX_POSITIONS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Integer> eldest) {
+                    return size() > MAX_POSITIONS;
+                }
+            };
+    private long mQuota = DEFAULT_QUOTA;
+    private long mUsedBytes;
+    private int mPosition = NO_POSITION;
+    private String mCurrentVid;
+    private boolean mPassPending;
+    private int mPasses;
+    private int mEvictions;
+    private long mEvictedBytes;
+    private File mFile;
+    private boolean mDirty;
+
+    public CacheBudgetManager(@Nullable CachedBytesIndex cachedBytesIndex) {
+        this(new TTCache(), ThreadUtils.getIoExecutor(), cachedBytesIndex);
+    }
+
+    /**
+     * @param cachedBytesIndex told about evicted vids, may be null
+     */
+    public CacheBudgetManager(@NonNull Cache cache, @NonNull Executor executor,
+            @Nullable CachedBytesIndex cachedBytesIndex) {
+        mCache = cache;
+        mExecutor = executor;
+        mCachedBytesIndex = cachedBytesIndex;
+    }
+
+    /**
+     * Sets the quota and caps the cache a bit above it, call it before the data loader starts
+     * for the cap to apply.
+     */
+    public void setQuota(long quota) {
+        synchronized (this) {
+            mQuota = quota;
+        }
+        mCache.setMaxSize((long) (quota * HARD_LIMIT_FACTOR));
+        scheduleIfOver();
+    }
+
+    /**
+     * The cache file {@code cacheKey} of {@code vid} holds {@code bytes}.
+     */
+    public void onCached(@NonNull String vid, @NonNull String cacheKey, long bytes) {
+        synchronized (this) {
+            Entry entry = mEntries.get(cacheKey);
+            if (entry == null) {
+                entry = new Entry(vid, cacheKey);
+                mEntries.put(cacheKey, entry);
+            }
+            if (bytes > entry.mBytes) {
+                mUsedBytes += bytes - entry.mBytes;
+                entry.mBytes = bytes;
+                mDirty = true;
+            }
+        }
+        scheduleIfOver();
+    }
+
+    /**
+     * The player buffered {@code bytes} of {@code vid}, its known cache files hold at least
+     * that much.
+     */
+    public void onBuffered(@NonNull String vid, long bytes) {
+        synchronized (this) {
+            for (Entry entry : mEntries.values()) {
+                if (entry.mVid.equals(vid) && bytes > entry.mBytes) {
+                    mUsedBytes += bytes - entry.mBytes;
+                    entry.mBytes = bytes;
+                    mDirty = true;
+                }
+            }
+        }
+        scheduleIfOver();
+    }
+
+    /**
+     * The first frame of {@code vid} showed.
+     */
+    public synchronized void onWatched(@NonNull String vid, long now) {
+        // moved to the end, the least recently watched is dropped first
+        mWatched.remove(vid);
+        mWatched.put(vid, now);
+        mDirty = true;
+    }
+
+    /**
+     * The feed window moved, the positions of the items it holds are recorded.
+     */
+    public void onWindowMoved(@NonNull VideoItemWindow videoWindow) {
+        final int position = videoWindow.getPosition();
+        final VideoItem current = videoWindow.get(position);
+        final List<VideoItem> videoItems = videoWindow.getResidentItems();
+        final int[] positions = new int[videoItems.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = videoWindow.positionOf(videoItems.get(i));
+        }
+        synchronized (this) {
+            mPosition = position;
+            mCurrentVid = current == null ? null : current.getVid();
+            for (int i = 0; i < positions.length; i++) {
+                mPositions.put(videoItems.get(i).getVid(), positions[i]);
+            }
+        }
+        scheduleIfOver();
+    }
+
+    public synchronized long getQuota() {
+        return mQuota;
+    }
+
+    public synchronized long getUsedBytes() {
+        return mUsedBytes;
+    }
+
+    public synchronized long getWatchedBytes() {
+        long bytes = 0;
+        for (Entry entry : mEntries.values()) {
+            if (mWatched.containsKey(entry.mVid)) {
+                bytes += entry.mBytes;
+            }
+        }
+        return bytes;
+    }
+
+    public synchronized int getPasses() {
+        return mPasses;
+    }
+
+    public synchronized int getEvictions() {
+        return mEvictions;
+    }
+
+    public synchronized long getEvictedBytes() {
+        return mEvictedBytes;
+    }
+
+    /**
+     * @return the text shown by the debug layer
+     */
+    @NonNull
+    public synchronized String getSummary() {
+        return "cache " + mUsedBytes / 1024 / 1024 + "/" + mQuota / 1024 / 1024 + "MB"
+               + ", watched " + getWatchedBytes() / 1024 / 1024 + "MB"
+               + ", evicted " + mEvictions + " (" + mEvictedBytes / 1024 / 1024 + "MB)";
+    }
+
+    /**
+     * Seeds the usage with the cache files a previous process saved to {@code file}, which is
+     * where {@link #save} writes from now on. A file recorded before the load keeps its size,
+     * and watch times recorded before it stay the most recent. A missing or broken file seeds
+     * nothing.
+     */
+    @WorkerThread
+    public void load(@NonNull File file) {
+        final List<Entry> loaded = new ArrayList<>();
+        final Map<String, Long> watched = new HashMap<>();
+        final boolean read = VersionedFileUtils.read(file, MAGIC, VERSION, in -> {
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final Entry entry = new Entry(in.readUTF(), in.readUTF());
+                entry.mBytes = in.readLong();
+                final long watchTime = in.readLong();
+                if (watchTime > 0) {
+                    watched.put(entry.mVid, watchTime);
+                }
+                loaded.add(entry);
+            }
+        });
+        if (!read) {
+            loaded.clear();
+            watched.clear();
+        }
+
+        synchronized (this) {
+            mFile = file;
+            for (Entry entry : loaded) {
+                if (!mEntries.containsKey(entry.mCacheKey)) {
+                    mEntries.put(entry.mCacheKey, entry);
+                    mUsedBytes += entry.mBytes;
+                }
+            }
+            // watched before the load is more recent, it stays at the end
+            final Map<String, Long> recent = new LinkedHashMap<>(mWatched);
+            final List<Map.Entry<String, Long>> older = new ArrayList<>(watched.entrySet());
+            Collections.sort(older, (a, b) -> Long.compare(a.getValue(), b.getValue()));
+            mWatched.clear();
+            for (Map.Entry<String, Long> entry : older) {
+                mWatched.put(entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<String, Long> entry : recent.entrySet()) {
+                mWatched.remove(entry.getKey());
+                mWatched.put(entry.getKey(), entry.getValue());
+            }
+        }
+        scheduleIfOver();
+    }
+
+    /**
+     * Writes the known cache files and their watch times to the file given to {@link #load},
+     * unless nothing was cached, grown, watched or evicted since the last save. A failed save
+     * is retried by the next one.
+     */
+    @WorkerThread
+    public void save() throws IOException {
+        final File file;
+        final List<Entry> entries = new ArrayList<>();
+        final List<Long> watchTimes = new ArrayList<>();
+        synchronized (this) {
+            if (mFile == null || !mDirty) {
+                return;
+            }
+            file = mFile;
+            for (Entry entry : mEntries.values()) {
+                final Entry copy = new Entry(entry.mVid, entry.mCacheKey);
+                copy.mBytes = entry.mBytes;
+                entries.add(copy);
+                final Long watchTime = mWatched.get(entry.mVid);
+                watchTimes.add(watchTime == null ? 0 : watchTime);
+            }
+            mDirty = false;
+        }
+
+        try {
+            write(file, entries, watchTimes);
+        } catch (IOException e) {
+            synchronized (this) {
+                mDirty = true;
+            }
+            throw e;
+        }
+    }
+
+    private static void write(File file, List<Entry> entries, List<Long> watchTimes)
+            throws IOException {
+        VersionedFileUtils.write(file, MAGIC, VERSION, out -> {
+            out.writeInt(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                final Entry entry = entries.get(i);
+                out.writeUTF(entry.mVid);
+                out.writeUTF(entry.mCacheKey);
+                out.writeLong(entry.mBytes);
+                out.writeLong(watchTimes.get(i));
+            }
+        });
+    }
+
+    private void scheduleIfOver() {
+        synchronized (this) {
+            if (mUsedBytes <= mQuota || mPassPending) {
+                return;
+            }
+            mPassPending = true;
+        }
+        mExecutor.execute(this::evict);
+    }
+
+    private void evict() {
+        final List<Entry> evicted = new ArrayList<>();
+        final Set<String> evictedVids = new HashSet<>();
+        synchronized (this) {
+            mPassPending = false;
+            mPasses++;
+            final List<Entry> candidates = new ArrayList<>();
+            for (Entry entry : mEntries.values()) {
+                if (!entry.mVid.equals(mCurrentVid)) {
+                    candidates.add(entry);
+                }
+            }
+            Collections.sort(candidates, (a, b) -> {
+                final int rankA = rank(a);
+                final int rankB = rank(b);
+                if (rankA != rankB) {
+                    return rankA - rankB;
+                }
+                if (rankA == 0) {
+                    return Long.compare(mWatched.get(a.mVid), mWatched.get(b.mVid));
+                } else if (rankA == 1) {
+                    return Integer.compare(position(a), position(b));
+                }
+                return Integer.compare(position(b), position(a));
+            });
+
+            final long target = (long) (mQuota * LOW_WATERMARK);
+            for (Entry entry : candidates) {
+                if (mUsedBytes <= target) {
+                    break;
+                }
+                mEntries.remove(entry.mCacheKey);
+                mUsedBytes -= entry.mBytes;
+                mEvictions++;
+                mEvictedBytes += entry.mBytes;
+                evicted.add(entry);
+                evictedVids.add(entry.mVid);
+            }
+            for (Entry entry : mEntries.values()) {
+                evictedVids.remove(entry.mVid);
+            }
+            for (String vid : evictedVids) {
+                mWatched.remove(vid);
+            }
+            mDirty |= !evicted.isEmpty();
+        }
+
+        for (Entry entry : evicted) {
+            TTVideoEngineLog.d(TAG, "[cache] evict vid = " + entry.mVid
+                                    + " key = " + entry.mCacheKey + " bytes = " + entry.mBytes);
+            mCache.remove(entry.mCacheKey);
+        }
+        if (mCachedBytesIndex != null) {
+            for (String vid : evictedVids) {
+                mCachedBytesIndex.remove(vid);
+            }
+        }
+    }
+
+    /**
+     * @return 0 for watched, 1 for unwatched and passed or of unknown position, 2 for upcoming
+     */
+    private int rank(Entry entry) {
+        if (mWatched.containsKey(entry.mVid)) {
+            return 0;
+        }
+        final int position = position(entry);
+        return position == NO_POSITION || position < mPosition ? 1 : 2;
+    }
+
+    private int position(Entry entry) {
+        final Integer position = mPositions.get(entry.mVid);
+        return position == null ? NO_POSITION : position;
+    }
+
+    private static class TTCache implements Cache {
+
+        @Override
+        public void setMaxSize(long bytes) {
+            TTVideoEngine.setIntValue(DataLoaderHelper.DATALOADER_KEY_INT_MAXCACHESIZE,
+                    (int) Math.min(Integer.MAX_VALUE, bytes));
+        }
+
+        @Override
+        public void remove(@NonNull String cacheKey) {
+            TTVideoEngine.removeCacheFile(cacheKey);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/6
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import com.bytedance.volc.voddemo.utils.VersionedFileUtils;
+import com.ss.ttvideoengine.Resolution;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What the media cache holds from the start of each vid, keyed by vid + resolution, so a
+ * preload of bytes that are cached already is never issued. Fed by the preload results and by
+ * the player's buffering, both count bytes from the start of the media.
+ *
+ * Only the {@code maxEntries} most recently used entries are kept. The index is saved to a
+ * small file and loaded at the next launch, entries older than {@link #MAX_AGE} are dropped
+ * then since the cache may have evicted them meanwhile. The media cache also evicts files on
+ * its own at any time, so what a player finds once it plays is checked against the index with
+ * {@link #verifyBuffered}. The resolution is the one asked for, not the one the SDK selected
+ * for it.
+ *
+ * File layout, big endian: magic, version, entry count, then per entry vid (UTF), resolution
+ * name (UTF), cached bytes, media size and update time as long.
+ */
+public class CachedBytesIndex {
+    public static final int DEFAULT_MAX_ENTRIES = 512;
+    public static final long MAX_AGE = 24 * 60 * 60 * 1000;
+
+    private static final int MAGIC = 0x56434249; // "VCBI"
+    private static final int VERSION = 1;
+
+    private static class Entry {
+        final String mVid;
+        final String mResolution;
+        long mCachedBytes;
+        long mMediaSize;
+        long mUpdateTime;
+
+        Entry(String vid, String resolution) {
+            mVid = vid;
+            mResolution = resolution;
+        }
+    }
+
+    private final int mMaxEntries;
+    private final LinkedHashMap<String, Entry> mEntries;
+    private File mFile;
+    private boolean mDirty;
+
+    public CachedBytesIndex() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public CachedBytesIndex(final int maxEntries) {
+        mMaxEntries = maxEntries;
+        mEntries = new LinkedHashMap<String, Entry>(maxEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return size() > mMaxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param cachedBytes bytes cached from the start of the media, less than already known is
+     *                    ignored
+     * @param mediaSize   size of the whole media, 0 if unknown
+     */
+    public synchronized void record(@NonNull String vid, @NonNull Resolution resolution,
+            long cachedBytes, long mediaSize, long now) {
+        final String key = key(vid, resolution.name());
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            entry = new Entry(vid, resolution.name());
+            mEntries.put(key, entry);
+        }
+        if (mediaSize > 0) {
+            entry.mMediaSize = mediaSize;
+        }
+        entry.mCachedBytes = Math.max(entry.mCachedBytes, cachedBytes);
+        entry.mUpdateTime = now;
+        mDirty = true;
+    }
+
+    /**
+     * Records playback buffering, converted to bytes with the media size known from a
+     * preload. Nothing is recorded before the media size is known.
+     */
+    public synchronized void recordBuffered(@NonNull String vid, @NonNull Resolution resolution,
+            int bufferPercent, long now) {
+        final Entry entry = mEntries.get(key(vid, resolution.name()));
+        if (entry == null || entry.mMediaSize <= 0) {
+            return;
+        }
+        final long cachedBytes = entry.mMediaSize * Math.min(100, bufferPercent) / 100;
+        if (cachedBytes > entry.mCachedBytes) {
+            entry.mCachedBytes = cachedBytes;
+            entry.mUpdateTime = now;
+            mDirty = true;
+        }
+    }
+
+    /**
+     * Checks the entry against what a player found in the cache: when it buffered less than the
+     * entry holds, the bytes are gone from the cache and the entry is lowered to what was
+     * buffered, later buffering raises it again.
+     *
+     * @return true if the entry held bytes the player did not find
+     */
+    public synchronized boolean verifyBuffered(@NonNull String vid,
+            @NonNull Resolution resolution, int bufferPercent, long now) {
+        final Entry entry = mEntries.get(key(vid, resolution.name()));
+        if (entry == null || entry.mMediaSize <= 0) {
+            return false;
+        }
+        final long bufferedBytes = entry.mMediaSize * Math.min(100, bufferPercent) / 100;
+        if (bufferedBytes >= entry.mCachedBytes) {
+            return false;
+        }
+        entry.mCachedBytes = bufferedBytes;
+        entry.mUpdateTime = now;
+        mDirty = true;
+        return true;
+    }
+
+    public synchronized long getCachedBytes(@NonNull String vid, @NonNull Resolution resolution) {
+        final Entry entry = mEntries.get(key(vid, resolution.name()));
+        return entry == null ? 0 : entry.mCachedBytes;
+    }
+
+    /**
+     * @return the resolution of {@code vid} with the most bytes cached, null if none is
+     */
+    @Nullable
+    public synchronized Resolution getCachedResolution(@NonNull String vid) {
+        Entry best = null;
+        for (Entry entry : mEntries.values()) {
+            if (entry.mVid.equals(vid) && entry.mCachedBytes > 0
+                && (best == null || entry.mCachedBytes > best.mCachedBytes)) {
+                best = entry;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        try {
+            return Resolution.valueOf(best.mResolution);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the first {@code bytes} of the media, or all of it if smaller, are cached
+     */
+    public synchronized boolean isCached(@NonNull String vid, @NonNull Resolution resolution,
+            long bytes) {
+        final Entry entry = mEntries.get(key(vid, resolution.name()));
+        if (entry == null) {
+            return false;
+        }
+        final long wanted = entry.mMediaSize > 0 ? Math.min(bytes, entry.mMediaSize) : bytes;
+        return entry.mCachedBytes >= wanted;
+    }
+
+    /**
+     * Forgets {@code vid} at every resolution, when its cache file is removed.
+     */
+    public synchronized void remove(@NonNull String vid) {
+        final List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : mEntries.entrySet()) {
+            if (entry.getValue().mVid.equals(vid)) {
+                keys.add(entry.getKey());
+            }
+        }
+        for (String key : keys) {
+            mEntries.remove(key);
+        }
+        mDirty |= !keys.isEmpty();
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+        mDirty = true;
+    }
+
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * Adds the entries a previous process saved to {@code file} that are younger than
+     * {@link #MAX_AGE} at {@code now}, and makes it the file {@link #save} writes. An entry
+     * recorded before the load beats its saved copy. A missing or broken file adds nothing.
+     */
+    @WorkerThread
+    public void load(@NonNull File file, long now) {
+        final List<Entry> loaded = new ArrayList<>();
+        final boolean read = VersionedFileUtils.read(file, MAGIC, VERSION, in -> {
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final Entry entry = new Entry(in.readUTF(), in.readUTF());
+                entry.mCachedBytes = in.readLong();
+                entry.mMediaSize = in.readLong();
+                entry.mUpdateTime = in.readLong();
+                if (now - entry.mUpdateTime < MAX_AGE) {
+                    loaded.add(entry);
+                }
+            }
+        });
+        if (!read) {
+            loaded.clear();
+        }
+
+        synchronized (this) {
+            mFile = file;
+            // saved least recently updated first, the recorded ones stay the most recent
+            final Map<String, Entry> recorded = new LinkedHashMap<>(mEntries);
+            mEntries.clear();
+            for (Entry entry : loaded) {
+                mEntries.put(key(entry.mVid, entry.mResolution), entry);
+            }
+            mEntries.putAll(recorded);
+        }
+    }
+
+    /**
+     * Writes the index, least recently updated entry first, to the file given to {@link #load}
+     * when an entry was recorded, verified or removed since the last save. A failed save leaves
+     * the index dirty for the next one.
+     */
+    @WorkerThread
+    public void save() throws IOException {
+        final File file;
+        final List<Entry> entries = new ArrayList<>();
+        synchronized (this) {
+            if (mFile == null || !mDirty) {
+                return;
+            }
+            file = mFile;
+            for (Entry entry : mEntries.values()) {
+                final Entry copy = new Entry(entry.mVid, entry.mResolution);
+                copy.mCachedBytes = entry.mCachedBytes;
+                copy.mMediaSize = entry.mMediaSize;
+                copy.mUpdateTime = entry.mUpdateTime;
+                entries.add(copy);
+            }
+            mDirty = false;
+        }
+
+        try {
+            write(file, entries);
+        } catch (IOException e) {
+            synchronized (this) {
+                mDirty = true;
+            }
+            throw e;
+        }
+    }
+
+    private static void write(File file, List<Entry> entries) throws IOException {
+        VersionedFileUtils.write(file, MAGIC, VERSION, out -> {
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeUTF(entry.mVid);
+                out.writeUTF(entry.mResolution);
+                out.writeLong(entry.mCachedBytes);
+                out.writeLong(entry.mMediaSize);
+                out.writeLong(entry.mUpdateTime);
+            }
+        });
+    }
+
+    private static String key(String vid, String resolution) {
+        return vid + "/" + resolution;
+    }
+}
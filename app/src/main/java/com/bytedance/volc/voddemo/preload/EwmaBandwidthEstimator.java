@@ -0,0 +1,92 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/28
+ */
+package com.bytedance.volc.voddemo.preload;
+
+/**
+ * Two exponentially weighted moving averages of the throughput, each sample weighted by how
+ * long its transfer took: a fast one that follows a drop within a couple of seconds of
+ * transfers and a slow one that ignores short bursts. The estimate is the lower of the two, so
+ * it falls quickly and rises slowly.
+ *
+ * Transfers smaller than {@link #MIN_SAMPLE_BYTES} say more about latency and cache hits than
+ * about throughput and are ignored, no estimate is given before {@link #MIN_TOTAL_BYTES} were
+ * observed. A stall scales the estimate down by {@link #STALL_FACTOR}.
+ */
+public class EwmaBandwidthEstimator implements BandwidthEstimator {
+    public static final long MIN_SAMPLE_BYTES = 32 * 1024;
+    public static final long MIN_TOTAL_BYTES = 128 * 1024;
+    public static final double STALL_FACTOR = 0.75;
+    private static final double FAST_HALF_LIFE_SECONDS = 2;
+    private static final double SLOW_HALF_LIFE_SECONDS = 5;
+
+    private static class Ewma {
+        private final double mAlpha;
+        private double mEstimate;
+        private double mTotalWeight;
+
+        Ewma(double halfLife) {
+            mAlpha = Math.exp(Math.log(0.5) / halfLife);
+        }
+
+        void sample(double weight, double value) {
+            final double adjAlpha = Math.pow(mAlpha, weight);
+            mEstimate = value * (1 - adjAlpha) + adjAlpha * mEstimate;
+            mTotalWeight += weight;
+        }
+
+        void scale(double factor) {
+            mEstimate *= factor;
+        }
+
+        double getEstimate() {
+            // the average starts from zero, correct for the weight it has not seen yet
+            final double zeroFactor = 1 - Math.pow(mAlpha, mTotalWeight);
+            return mEstimate / zeroFactor;
+        }
+    }
+
+    private final Ewma mFast = new Ewma(FAST_HALF_LIFE_SECONDS);
+    private final Ewma mSlow = new Ewma(SLOW_HALF_LIFE_SECONDS);
+    private long mTotalBytes;
+
+    @Override
+    public synchronized void onTransferred(long bytes, long elapsedMs) {
+        if (bytes < MIN_SAMPLE_BYTES || elapsedMs <= 0) {
+            return;
+        }
+        final double seconds = elapsedMs / 1000.0;
+        final double bitsPerSecond = bytes * 8 / seconds;
+        mFast.sample(seconds, bitsPerSecond);
+        mSlow.sample(seconds, bitsPerSecond);
+        mTotalBytes += bytes;
+    }
+
+    @Override
+    public synchronized void onStall() {
+        mFast.scale(STALL_FACTOR);
+        mSlow.scale(STALL_FACTOR);
+    }
+
+    @Override
+    public synchronized long getEstimate() {
+        if (mTotalBytes < MIN_TOTAL_BYTES) {
+            return NO_ESTIMATE;
+        }
+        return (long) Math.min(mFast.getEstimate(), mSlow.getEstimate());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/28
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import androidx.annotation.NonNull;
+import com.ss.ttvideoengine.Resolution;
+
+/**
+ * Turns the bandwidth estimate into what to preload and play. The byte budget of the nearest
+ * item is what the estimated throughput downloads in {@link #BUDGET_TIME_MS}. The start
+ * resolution steps up only once the estimate clears the next threshold by
+ * {@link #STEP_UP_MARGIN}, so the player and the preloader keep asking for the same stream
+ * while the estimate wobbles. Without an estimate the static defaults of
+ * {@link PreloadStrategy} apply.
+ */
+public class PreloadBudget {
+    public static final long BUDGET_TIME_MS = 1000;
+    public static final long MAX_PRELOAD_SIZE = 1024 * 1024;
+    public static final double STEP_UP_MARGIN = 1.25;
+
+    private static final Resolution[] RESOLUTIONS = {
+            Resolution.Standard, Resolution.High, Resolution.SuperHigh
+    };
+    // lowest throughput each resolution is picked at, in bits per second
+    private static final long[] THRESHOLDS = {0, 1_500_000, 4_000_000};
+
+    private final BandwidthEstimator mEstimator;
+    private int mTier;
+
+    public PreloadBudget(@NonNull BandwidthEstimator estimator) {
+        mEstimator = estimator;
+        mTier = indexOf(PreloadStrategy.START_PLAY_RESOLUTION);
+    }
+
+    /**
+     * @return the preload size of the item played next, in bytes
+     */
+    public long getPreloadSize() {
+        final long estimate = mEstimator.getEstimate();
+        if (estimate == BandwidthEstimator.NO_ESTIMATE) {
+            return PreloadStrategy.PRELOAD_SIZE;
+        }
+        final long budget = estimate / 8 * BUDGET_TIME_MS / 1000;
+        return Math.max(PreloadStrategy.MIN_PRELOAD_SIZE, Math.min(MAX_PRELOAD_SIZE, budget));
+    }
+
+    @NonNull
+    public synchronized Resolution getResolution() {
+        final long estimate = mEstimator.getEstimate();
+        if (estimate == BandwidthEstimator.NO_ESTIMATE) {
+            return RESOLUTIONS[mTier];
+        }
+        while (mTier + 1 < RESOLUTIONS.length
+               && estimate >= THRESHOLDS[mTier + 1] * STEP_UP_MARGIN) {
+            mTier++;
+        }
+        while (mTier > 0 && estimate < THRESHOLDS[mTier]) {
+            mTier--;
+        }
+        return RESOLUTIONS[mTier];
+    }
+
+    private static int indexOf(Resolution resolution) {
+        for (int i = 0; i < RESOLUTIONS.length; i++) {
+            if (RESOLUTIONS[i] == resolution) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
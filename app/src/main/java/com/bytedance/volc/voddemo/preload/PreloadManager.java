@@ -17,8 +17,16 @@
  */
 package com.bytedance.volc.voddemo.preload;
 
+import androidx.annotation.NonNull;
 import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.data.VideoItemWindow;
+import com.ss.ttvideoengine.Resolution;
+import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+
+import static com.bytedance.volc.voddemo.preload.PreloadStrategy.TAG;
 
 public class PreloadManager {
 
@@ -34,26 +42,237 @@ public class PreloadManager {
     }
 
     private PreloadStrategy mPreloadStrategy;
+    private volatile BandwidthEstimator mBandwidthEstimator = new EwmaBandwidthEstimator();
+    private volatile PreloadBudget mPreloadBudget = new PreloadBudget(mBandwidthEstimator);
+    private final CachedBytesIndex mCachedBytesIndex = new CachedBytesIndex();
+    private volatile PreloadScheduler mScheduler = new PreloadScheduler(mCachedBytesIndex);
+    private final PreloadMetrics mMetrics = new PreloadMetrics();
+    private final SwipePredictor mSwipePredictor = new SwipePredictor();
+    private final CacheBudgetManager mCacheBudget = new CacheBudgetManager(mCachedBytesIndex);
+    private final ResolutionSelector mResolutionSelector = new ResolutionSelector();
+    // players of pages swiped away keep reporting, only the current one is listened to
+    private volatile String mCurrentVid;
 
     public void setPreloadStrategy(PreloadStrategy preloadStrategy) {
         mPreloadStrategy = preloadStrategy;
     }
 
+    public void setBandwidthEstimator(@NonNull BandwidthEstimator bandwidthEstimator) {
+        mBandwidthEstimator = bandwidthEstimator;
+        mPreloadBudget = new PreloadBudget(bandwidthEstimator);
+    }
+
+    /**
+     * Fed by the preload results and the player stalls.
+     */
+    @NonNull
+    public BandwidthEstimator getBandwidthEstimator() {
+        return mBandwidthEstimator;
+    }
+
+    /**
+     * @return the preload size of the item played next, from the bandwidth estimate
+     */
+    public long getPreloadSize() {
+        return mPreloadBudget.getPreloadSize();
+    }
+
+    /**
+     * @param scene the feed type of the video, see {@link ResolutionSelector}
+     * @return the resolution to preload and start playing at, from the bandwidth estimate
+     * capped by the viewport of {@code scene} and the device
+     */
+    @NonNull
+    public Resolution getStartResolution(int scene) {
+        return mResolutionSelector.getResolution(scene, mPreloadBudget.getResolution());
+    }
+
+    /**
+     * @return the resolution {@code videoItem} has bytes cached at, the start resolution if it
+     * has none, so a preload is not thrown away because the estimate moved since
+     */
+    @NonNull
+    public Resolution getPlayResolution(@NonNull VideoItem videoItem) {
+        final Resolution cached = mCachedBytesIndex.getCachedResolution(videoItem.getVid());
+        return cached != null ? cached : getStartResolution(videoItem.getType());
+    }
+
+    /**
+     * Told the viewport of every scene and the device class.
+     */
+    @NonNull
+    public ResolutionSelector getResolutionSelector() {
+        return mResolutionSelector;
+    }
+
+    /**
+     * Tasks of the previous scheduler are not carried over, cancel them first.
+     */
+    public void setScheduler(@NonNull PreloadScheduler scheduler) {
+        mScheduler = scheduler;
+    }
+
+    /**
+     * Every preload task goes through it, strategies schedule and cancel there.
+     */
+    @NonNull
+    public PreloadScheduler getScheduler() {
+        return mScheduler;
+    }
+
+    /**
+     * Fed by the preload results and the first frame of every play.
+     */
+    @NonNull
+    public PreloadMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Fed by the preload results and the player buffering, consulted by the scheduler.
+     */
+    @NonNull
+    public CachedBytesIndex getCachedBytesIndex() {
+        return mCachedBytesIndex;
+    }
+
+    /**
+     * Fed by the preload results, the player buffering, the first frames and the feed window.
+     */
+    @NonNull
+    public CacheBudgetManager getCacheBudget() {
+        return mCacheBudget;
+    }
+
+    @NonNull
+    public SwipePredictor getSwipePredictor() {
+        return mSwipePredictor;
+    }
+
     public void videoListUpdate(final List<VideoItem> videoItems) {
         if (mPreloadStrategy != null) {
             mPreloadStrategy.videoListUpdate(videoItems);
         }
     }
 
+    public void videoListAppend(final List<VideoItem> videoItems) {
+        if (mPreloadStrategy != null) {
+            mPreloadStrategy.videoListAppend(videoItems);
+        }
+    }
+
     public void currentVideoChanged(VideoItem videoItem) {
+        mCurrentVid = videoItem.getVid();
+        mScheduler.promote(videoItem.getVid());
         if (mPreloadStrategy != null) {
             mPreloadStrategy.currentVideoChanged(videoItem);
         }
     }
 
-    public void bufferingUpdate(int duration, int bufferPercent, int playbackTime) {
+    /**
+     * The pager selected {@code position}.
+     */
+    public void pageSelected(int position, long now) {
+        mSwipePredictor.onSettled(position, now);
+    }
+
+    /**
+     * The feed window moved to the page the pager selected.
+     */
+    public void windowMoved(@NonNull VideoItemWindow videoWindow) {
+        mCacheBudget.onWindowMoved(videoWindow);
+        final Set<String> vids = new HashSet<>();
+        for (VideoItem videoItem : videoWindow.getResidentItems()) {
+            vids.add(videoItem.getVid());
+        }
+        mMetrics.onWindowMoved(vids);
+    }
+
+    /**
+     * A fling from {@code from} towards {@code target} started, the strategy may preload the
+     * page the user is expected to land on before the pager settles.
+     */
+    public void flingStarted(int from, int target, int velocity, long now) {
+        final SwipePredictor.Prediction prediction = mSwipePredictor.onFling(from, target,
+                velocity, now);
+        TTVideoEngineLog.d(TAG, "[preload] fling " + prediction
+                                + ", skim rate " + mSwipePredictor.getSkimRate());
         if (mPreloadStrategy != null) {
-            mPreloadStrategy.bufferingUpdate(duration, bufferPercent, playbackTime);
+            mPreloadStrategy.swipePredicted(prediction);
         }
     }
+
+    /**
+     * The first frame of {@code videoItem} showed {@code startLatencyMs} after the play started.
+     */
+    public void playStarted(VideoItem videoItem, long startLatencyMs, long now) {
+        mMetrics.onPlayStarted(videoItem.getVid(), startLatencyMs, now);
+        mCacheBudget.onWatched(videoItem.getVid(), System.currentTimeMillis());
+    }
+
+    /**
+     * The player of {@code videoItem} was released, its preload is canceled unless the strategy
+     * still keeps it.
+     */
+    public void videoReleased(VideoItem videoItem) {
+        final PreloadStrategy preloadStrategy = mPreloadStrategy;
+        if (preloadStrategy != null && preloadStrategy.keepsPreload(videoItem)) {
+            return;
+        }
+        mScheduler.cancel(videoItem.getVid());
+    }
+
+    /**
+     * The first buffering update of {@code videoItem} after its first frame, {@code bufferPercent}
+     * shows what the player found in the media cache. Entries of the cached bytes index the
+     * cache evicted meanwhile are corrected, so their preload is not skipped next time.
+     */
+    public void playbackCacheChecked(VideoItem videoItem, Resolution resolution,
+            int bufferPercent) {
+        if (mCachedBytesIndex.verifyBuffered(videoItem.getVid(), resolution, bufferPercent,
+                System.currentTimeMillis())) {
+            TTVideoEngineLog.d(TAG, "[preload] cache evicted " + videoItem.getVid() + "/"
+                                    + resolution + ", buffered " + bufferPercent + "%");
+        }
+    }
+
+    /**
+     * The player of {@code videoItem} buffered {@code bufferPercent} of it from the start.
+     */
+    public void playbackBuffered(VideoItem videoItem, Resolution resolution, int bufferPercent) {
+        mCachedBytesIndex.recordBuffered(videoItem.getVid(), resolution, bufferPercent,
+                System.currentTimeMillis());
+        mCacheBudget.onBuffered(videoItem.getVid(),
+                mCachedBytesIndex.getCachedBytes(videoItem.getVid(), resolution));
+    }
+
+    /**
+     * A buffering update from the player of {@code videoItem}, dropped unless it is the current
+     * video.
+     */
+    public void bufferingUpdate(VideoItem videoItem, int duration, int bufferPercent,
+            int playbackTime) {
+        if (isCurrent(videoItem) && mPreloadStrategy != null) {
+            mPreloadStrategy.bufferingUpdate(videoItem, duration, bufferPercent, playbackTime);
+        }
+    }
+
+    /**
+     * The player of {@code videoItem} ran out of buffer after its first frame. Dropped unless it
+     * is the current video, the stall of a page swiped away says nothing about the bandwidth.
+     */
+    public void playbackStalled(VideoItem videoItem) {
+        if (!isCurrent(videoItem)) {
+            return;
+        }
+        mBandwidthEstimator.onStall();
+        if (mPreloadStrategy != null) {
+            mPreloadStrategy.playbackStalled(videoItem);
+        }
+    }
+
+    private boolean isCurrent(VideoItem videoItem) {
+        final String currentVid = mCurrentVid;
+        return videoItem != null && currentVid != null && currentVid.equals(videoItem.getVid());
+    }
 }
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/31
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import androidx.annotation.NonNull;
+import com.google.gson.stream.JsonWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Links every preload to the play that follows it, per vid and in memory. It records the
+ * bytes preloaded, whether and when the vid was played, and its start-up latency. A play is
+ * a hit when the vid had preloaded bytes before it started, and a miss otherwise.
+ *
+ * The bytes of a vid that was preloaded and never played count as wasted once it leaves the
+ * feed window, see {@link #onWindowMoved}, and are counted back if it is played after all.
+ * Only the most recent {@code maxVids} vids are kept, one dropped unplayed is wasted too.
+ * Bytes of unplayed vids still in the window are reported as pending, they may still be used.
+ */
+public class PreloadMetrics {
+    public static final int DEFAULT_MAX_VIDS = 256;
+    public static final long NOT_SET = -1;
+
+    public static class Record {
+        final String mVid;
+        long mPreloadedBytes;
+        long mMediaSize;
+        int mPreloads;
+        long mPreloadTime = NOT_SET;
+        long mPlayTime = NOT_SET;
+        long mStartLatencyMs = NOT_SET;
+        boolean mHit;
+        boolean mWasted;
+
+        Record(String vid) {
+            mVid = vid;
+        }
+
+        Record(Record other) {
+            mVid = other.mVid;
+            mPreloadedBytes = other.mPreloadedBytes;
+            mMediaSize = other.mMediaSize;
+            mPreloads = other.mPreloads;
+            mPreloadTime = other.mPreloadTime;
+            mPlayTime = other.mPlayTime;
+            mStartLatencyMs = other.mStartLatencyMs;
+            mHit = other.mHit;
+            mWasted = other.mWasted;
+        }
+
+        @NonNull
+        public String getVid() {
+            return mVid;
+        }
+
+        public long getPreloadedBytes() {
+            return mPreloadedBytes;
+        }
+
+        public boolean isPlayed() {
+            return mPlayTime != NOT_SET;
+        }
+
+        /**
+         * @return the start-up latency of the first play, {@link #NOT_SET} if not played
+         */
+        public long getStartLatencyMs() {
+            return mStartLatencyMs;
+        }
+
+        public boolean isHit() {
+            return mHit;
+        }
+
+        /**
+         * @return true if the vid left the feed window unplayed with preloaded bytes
+         */
+        public boolean isWasted() {
+            return mWasted;
+        }
+    }
+
+    private final int mMaxVids;
+    private final LinkedHashMap<String, Record> mRecords;
+    private long mPreloadedBytes;
+    private long mWastedBytes;
+    private int mHits;
+    private int mMisses;
+    private long mHitLatencyMs;
+    private long mMissLatencyMs;
+
+    public PreloadMetrics() {
+        this(DEFAULT_MAX_VIDS);
+    }
+
+    public PreloadMetrics(final int maxVids) {
+        mMaxVids = maxVids;
+        mRecords = new LinkedHashMap<String, Record>(maxVids, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Record> eldest) {
+                if (size() <= mMaxVids) {
+                    return false;
+                }
+                final Record record = eldest.getValue();
+                if (!record.isPlayed() && !record.mWasted) {
+                    mWastedBytes += record.mPreloadedBytes;
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * A preload task of {@code vid} succeeded.
+     *
+     * @param cachedBytes bytes cached from the start of the media after the task, a later task
+     *                    of the same vid only adds what it cached beyond them
+     */
+    public synchronized void onPreloaded(@NonNull String vid, long cachedBytes, long mediaSize,
+            long now) {
+        final Record record = getOrCreate(vid);
+        // preloaded again, so back in the window
+        restore(record);
+        record.mPreloads++;
+        record.mMediaSize = mediaSize;
+        if (record.mPreloadTime == NOT_SET) {
+            record.mPreloadTime = now;
+        }
+        if (cachedBytes > record.mPreloadedBytes && !record.isPlayed()) {
+            mPreloadedBytes += cachedBytes - record.mPreloadedBytes;
+            record.mPreloadedBytes = cachedBytes;
+        }
+    }
+
+    /**
+     * The first frame of {@code vid} rendered {@code startLatencyMs} after play was called.
+     * Only the first play of a vid counts.
+     */
+    public synchronized void onPlayStarted(@NonNull String vid, long startLatencyMs, long now) {
+        final Record record = getOrCreate(vid);
+        if (record.isPlayed()) {
+            return;
+        }
+        restore(record);
+        record.mPlayTime = now;
+        record.mStartLatencyMs = startLatencyMs;
+        record.mHit = record.mPreloadedBytes > 0;
+        if (record.mHit) {
+            mHits++;
+            mHitLatencyMs += startLatencyMs;
+        } else {
+            mMisses++;
+            mMissLatencyMs += startLatencyMs;
+        }
+    }
+
+    /**
+     * The feed window moved and now holds {@code vids}, the preloaded bytes of the unplayed vids
+     * left out count as wasted.
+     */
+    public synchronized void onWindowMoved(@NonNull Collection<String> vids) {
+        for (Record record : mRecords.values()) {
+            if (!record.isPlayed() && !record.mWasted && record.mPreloadedBytes > 0
+                && !vids.contains(record.mVid)) {
+                record.mWasted = true;
+                mWastedBytes += record.mPreloadedBytes;
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the record of {@code vid}, null if it is not kept
+     */
+    public synchronized Record getRecord(@NonNull String vid) {
+        final Record record = mRecords.get(vid);
+        return record == null ? null : new Record(record);
+    }
+
+    public synchronized long getPreloadedBytes() {
+        return mPreloadedBytes;
+    }
+
+    public synchronized long getWastedBytes() {
+        return mWastedBytes;
+    }
+
+    public synchronized long getPendingBytes() {
+        long pending = 0;
+        for (Record record : mRecords.values()) {
+            if (!record.isPlayed() && !record.mWasted) {
+                pending += record.mPreloadedBytes;
+            }
+        }
+        return pending;
+    }
+
+    public synchronized int getHits() {
+        return mHits;
+    }
+
+    public synchronized int getMisses() {
+        return mMisses;
+    }
+
+    /**
+     * @return hits over plays, 0 before the first play
+     */
+    public synchronized float getHitRate() {
+        final int plays = mHits + mMisses;
+        return plays == 0 ? 0 : (float) mHits / plays;
+    }
+
+    /**
+     * @return the mean start-up latency of the hits, {@link #NOT_SET} without hits
+     */
+    public synchronized long getMeanHitLatencyMs() {
+        return mHits == 0 ? NOT_SET : mHitLatencyMs / mHits;
+    }
+
+    /**
+     * @return the mean start-up latency of the misses, {@link #NOT_SET} without misses
+     */
+    public synchronized long getMeanMissLatencyMs() {
+        return mMisses == 0 ? NOT_SET : mMissLatencyMs / mMisses;
+    }
+
+    public synchronized void clear() {
+        mRecords.clear();
+        mPreloadedBytes = 0;
+        mWastedBytes = 0;
+        mHits = 0;
+        mMisses = 0;
+        mHitLatencyMs = 0;
+        mMissLatencyMs = 0;
+    }
+
+    /**
+     * @return the text shown by the debug layer
+     */
+    @NonNull
+    public synchronized String getSummary() {
+        return "preload hit " + mHits + "/" + (mHits + mMisses)
+               + ", start " + getMeanHitLatencyMs() + "/" + getMeanMissLatencyMs() + "ms"
+               + "\npreloaded " + mPreloadedBytes / 1024 + "KB"
+               + ", pending " + getPendingBytes() / 1024 + "KB"
+               + ", wasted " + mWastedBytes / 1024 + "KB";
+    }
+
+    /**
+     * Writes the totals and the kept records, oldest first.
+     */
+    public void writeJson(@NonNull Writer writer) throws IOException {
+        final List<Record> records = new ArrayList<>();
+        final JsonWriter out = new JsonWriter(writer);
+        synchronized (this) {
+            for (Record record : mRecords.values()) {
+                records.add(new Record(record));
+            }
+            out.beginObject();
+            out.name("preloadedBytes").value(mPreloadedBytes);
+            out.name("pendingBytes").value(getPendingBytes());
+            out.name("wastedBytes").value(mWastedBytes);
+            out.name("hits").value(mHits);
+            out.name("misses").value(mMisses);
+            out.name("meanHitLatencyMs").value(getMeanHitLatencyMs());
+            out.name("meanMissLatencyMs").value(getMeanMissLatencyMs());
+        }
+        out.name("records").beginArray();
+        for (Record record : records) {
+            out.beginObject();
+            out.name("vid").value(record.mVid);
+            out.name("preloads").value(record.mPreloads);
+            out.name("preloadedBytes").value(record.mPreloadedBytes);
+            out.name("mediaSize").value(record.mMediaSize);
+            out.name("preloadTime").value(record.mPreloadTime);
+            out.name("playTime").value(record.mPlayTime);
+            out.name("startLatencyMs").value(record.mStartLatencyMs);
+            out.name("hit").value(record.mHit);
+            out.name("wasted").value(record.mWasted);
+            out.endObject();
+        }
+        out.endArray();
+        out.endObject();
+        out.flush();
+    }
+
+    @NonNull
+    public String toJson() {
+        final StringWriter writer = new StringWriter();
+        try {
+            writeJson(writer);
+        } catch (IOException e) {
+            // a StringWriter does not throw
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes the JSON to {@code file}, call it off the main thread.
+     */
+    public void dump(@NonNull File file) throws IOException {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writeJson(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void restore(Record record) {
+        if (record.mWasted) {
+            record.mWasted = false;
+            mWastedBytes -= record.mPreloadedBytes;
+        }
+    }
+
+    private Record getOrCreate(String vid) {
+        Record record = mRecords.get(vid);
+        if (record == null) {
+            record = new Record(vid);
+            mRecords.put(vid, record);
+        }
+        return record;
+    }
+}
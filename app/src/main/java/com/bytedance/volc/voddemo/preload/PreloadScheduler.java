@@ -0,0 +1,386 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/30
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.ss.ttvideoengine.PreLoaderItemCallBackInfo;
+import com.ss.ttvideoengine.Resolution;
+import com.ss.ttvideoengine.TTVideoEngine;
+import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.bytedance.volc.voddemo.preload.PreloadStrategy.TAG;
+
+/**
+ * Runs preload tasks with at most {@code maxRunning} of them in flight. Waiting tasks start by
+ * priority, lower values first and in scheduling order at the same priority. A task is keyed by
+ * vid + resolution: scheduling a key that is already waiting raises its priority and size
+ * instead of adding a second task.
+ *
+ * Tasks for bytes the {@link CachedBytesIndex} already holds are not scheduled at all.
+ * Every task ends exactly once for its listeners, with the engine result or with
+ * {@link PreLoaderItemCallBackInfo#KEY_IS_PRELOAD_END_CANCEL} when it is canceled here. A task
+ * the engine has not ended {@code taskTimeoutMs} after it started is canceled and ends with
+ * {@link PreLoaderItemCallBackInfo#KEY_IS_PRELOAD_END_FAIL}, so a lost callback cannot hold
+ * its slot for good.
+ */
+public class PreloadScheduler {
+    public static final int DEFAULT_MAX_RUNNING = 2;
+    public static final int PRIORITY_CURRENT = Integer.MIN_VALUE;
+    public static final long DEFAULT_TASK_TIMEOUT_MS = 30 * 1000;
+
+    public interface Engine {
+        /**
+         * Starts {@code task}, {@code listener} must be called once when it ends.
+         */
+        void start(@NonNull Task task, @NonNull BasePreloadStrategy.PreloadListener listener);
+
+        void cancel(@NonNull Task task);
+    }
+
+    public interface Timer {
+        /**
+         * Runs {@code runnable} once, {@code delayMs} from now, on any thread.
+         */
+        void schedule(@NonNull Runnable runnable, long delayMs);
+    }
+
+    public static class Task {
+        private final VideoItem mVideoItem;
+        private final Resolution mResolution;
+        private final String mKey;
+        private final List<BasePreloadStrategy.PreloadListener> mListeners = new ArrayList<>();
+        private long mPreloadSize;
+        private int mPriority;
+        private long mSequence;
+
+        Task(VideoItem videoItem, Resolution resolution, long preloadSize, int priority) {
+            mVideoItem = videoItem;
+            mResolution = resolution;
+            mKey = key(videoItem.getVid(), resolution);
+            mPreloadSize = preloadSize;
+            mPriority = priority;
+        }
+
+        @NonNull
+        public VideoItem getVideoItem() {
+            return mVideoItem;
+        }
+
+        @NonNull
+        public Resolution getResolution() {
+            return mResolution;
+        }
+
+        public long getPreloadSize() {
+            return mPreloadSize;
+        }
+
+        public int getPriority() {
+            return mPriority;
+        }
+
+        @Override
+        public String toString() {
+            return mKey + " size = " + mPreloadSize + " priority = " + mPriority;
+        }
+    }
+
+    private final Engine mEngine;
+    private final int mMaxRunning;
+    private final CachedBytesIndex mCachedBytesIndex;
+    private final Timer mTimer;
+    private final long mTaskTimeoutMs;
+    private final PriorityQueue<Task> mWaiting = new PriorityQueue<>(16, (a, b) -> {
+        if (a.mPriority != b.mPriority) {
+            return a.mPriority < b.mPriority ? -1 : 1;
+        }
+        return Long.compare(a.mSequence, b.mSequence);
+    });
+    // key to waiting or running task
+    private final Map<String, Task> mTasks = new HashMap<>();
+    private final List<Task> mRunning = new ArrayList<>();
+    private long mSequence;
+
+    public PreloadScheduler() {
+        this(null);
+    }
+
+    public PreloadScheduler(@Nullable CachedBytesIndex cachedBytesIndex) {
+        this(new TTEngine(), DEFAULT_MAX_RUNNING, cachedBytesIndex);
+    }
+
+    public PreloadScheduler(@NonNull Engine engine, int maxRunning) {
+        this(engine, maxRunning, null);
+    }
+
+    /**
+     * @param cachedBytesIndex consulted before scheduling, may be null
+     */
+    public PreloadScheduler(@NonNull Engine engine, int maxRunning,
+            @Nullable CachedBytesIndex cachedBytesIndex) {
+        this(engine, maxRunning, cachedBytesIndex, new WatchdogTimer(), DEFAULT_TASK_TIMEOUT_MS);
+    }
+
+    /**
+     * @param timer runs the watchdog of every started task
+     */
+    public PreloadScheduler(@NonNull Engine engine, int maxRunning,
+            @Nullable CachedBytesIndex cachedBytesIndex, @NonNull Timer timer,
+            long taskTimeoutMs) {
+        mEngine = engine;
+        mMaxRunning = maxRunning;
+        mCachedBytesIndex = cachedBytesIndex;
+        mTimer = timer;
+        mTaskTimeoutMs = taskTimeoutMs;
+    }
+
+    /**
+     * When the cached bytes index holds {@code preloadSize} of the vid at this resolution no
+     * task is scheduled, {@code listener} is told it succeeded before this returns.
+     *
+     * @param listener told when the task ends, may be null
+     * @return false if the task was cached already or merged into one waiting or running
+     */
+    public boolean schedule(@NonNull VideoItem videoItem, @NonNull Resolution resolution,
+            long preloadSize, int priority,
+            @Nullable BasePreloadStrategy.PreloadListener listener) {
+        if (mCachedBytesIndex != null
+            && mCachedBytesIndex.isCached(videoItem.getVid(), resolution, preloadSize)) {
+            TTVideoEngineLog.d(TAG, "[preload] scheduler skip cached " + videoItem.getVid()
+                                    + "/" + resolution + " size = " + preloadSize);
+            if (listener != null) {
+                listener.onPreloadEnd(videoItem.getVid(),
+                        PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_SUCCEED);
+            }
+            return false;
+        }
+
+        final boolean added;
+        synchronized (this) {
+            Task task = mTasks.get(key(videoItem.getVid(), resolution));
+            if (task == null) {
+                task = new Task(videoItem, resolution, preloadSize, priority);
+                task.mSequence = mSequence++;
+                mTasks.put(task.mKey, task);
+                mWaiting.add(task);
+                added = true;
+            } else {
+                if (!mRunning.contains(task)) {
+                    mWaiting.remove(task);
+                    task.mPreloadSize = Math.max(task.mPreloadSize, preloadSize);
+                    task.mPriority = Math.min(task.mPriority, priority);
+                    mWaiting.add(task);
+                }
+                added = false;
+            }
+            if (listener != null && !task.mListeners.contains(listener)) {
+                task.mListeners.add(listener);
+            }
+        }
+        dispatch();
+        return added;
+    }
+
+    /**
+     * Moves the waiting tasks of {@code vid} ahead of every other waiting task, for the item
+     * that just became current.
+     */
+    public void promote(@NonNull String vid) {
+        synchronized (this) {
+            for (Task task : new ArrayList<>(mWaiting)) {
+                if (task.mVideoItem.getVid().equals(vid)) {
+                    mWaiting.remove(task);
+                    task.mPriority = PRIORITY_CURRENT;
+                    mWaiting.add(task);
+                }
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Moves the waiting tasks of {@code vid} back to {@code priority}, unless they wait there or
+     * further back already, for a page the user is expected to fly past. Running tasks go on.
+     */
+    public synchronized void demote(@NonNull String vid, int priority) {
+        for (Task task : new ArrayList<>(mWaiting)) {
+            if (task.mVideoItem.getVid().equals(vid) && task.mPriority < priority) {
+                mWaiting.remove(task);
+                task.mPriority = priority;
+                mWaiting.add(task);
+            }
+        }
+    }
+
+    /**
+     * Cancels the waiting and running tasks of {@code vid} at any resolution.
+     */
+    public void cancel(@NonNull String vid) {
+        final List<Task> canceled = new ArrayList<>();
+        synchronized (this) {
+            for (Task task : mTasks.values()) {
+                if (task.mVideoItem.getVid().equals(vid)) {
+                    canceled.add(task);
+                }
+            }
+        }
+        cancel(canceled);
+    }
+
+    public void cancelAll() {
+        final List<Task> canceled;
+        synchronized (this) {
+            canceled = new ArrayList<>(mTasks.values());
+        }
+        cancel(canceled);
+    }
+
+    public synchronized int getRunningCount() {
+        return mRunning.size();
+    }
+
+    public synchronized int getWaitingCount() {
+        return mWaiting.size();
+    }
+
+    public synchronized boolean isScheduled(@NonNull String vid, @NonNull Resolution resolution) {
+        return mTasks.containsKey(key(vid, resolution));
+    }
+
+    private void cancel(List<Task> tasks) {
+        for (Task task : tasks) {
+            final boolean running;
+            synchronized (this) {
+                if (mTasks.get(task.mKey) != task) {
+                    continue;
+                }
+                mTasks.remove(task.mKey);
+                mWaiting.remove(task);
+                running = mRunning.remove(task);
+            }
+            TTVideoEngineLog.d(TAG, "[preload] scheduler cancel " + task);
+            if (running) {
+                mEngine.cancel(task);
+            }
+            notifyEnd(task, PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_CANCEL);
+        }
+        dispatch();
+    }
+
+    private void dispatch() {
+        final List<Task> started = new ArrayList<>();
+        synchronized (this) {
+            while (mRunning.size() < mMaxRunning && !mWaiting.isEmpty()) {
+                final Task task = mWaiting.poll();
+                mRunning.add(task);
+                started.add(task);
+            }
+        }
+        for (final Task task : started) {
+            TTVideoEngineLog.d(TAG, "[preload] scheduler start " + task);
+            mTimer.schedule(() -> onTaskTimeout(task), mTaskTimeoutMs);
+            mEngine.start(task, (videoId, key) -> onTaskEnd(task, key));
+        }
+    }
+
+    private void onTaskTimeout(Task task) {
+        synchronized (this) {
+            if (!mRunning.remove(task)) {
+                return;
+            }
+            mTasks.remove(task.mKey);
+        }
+        TTVideoEngineLog.d(TAG, "[preload] scheduler timeout " + task);
+        mEngine.cancel(task);
+        notifyEnd(task, PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_FAIL);
+        dispatch();
+    }
+
+    private void onTaskEnd(Task task, int key) {
+        synchronized (this) {
+            // a canceled task already ended for its listeners
+            if (!mRunning.remove(task)) {
+                return;
+            }
+            mTasks.remove(task.mKey);
+        }
+        notifyEnd(task, key);
+        dispatch();
+    }
+
+    private void notifyEnd(Task task, int key) {
+        final List<BasePreloadStrategy.PreloadListener> listeners;
+        synchronized (this) {
+            listeners = new ArrayList<>(task.mListeners);
+        }
+        for (BasePreloadStrategy.PreloadListener listener : listeners) {
+            listener.onPreloadEnd(task.mVideoItem.getVid(), key);
+        }
+    }
+
+    private static String key(String vid, Resolution resolution) {
+        return vid + "/" + resolution;
+    }
+
+    private static class WatchdogTimer implements Timer {
+        private static ScheduledExecutorService sExecutor;
+
+        private static synchronized ScheduledExecutorService getExecutor() {
+            if (sExecutor == null) {
+                sExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    final Thread thread = new Thread(runnable, "preload-watchdog");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            return sExecutor;
+        }
+
+        @Override
+        public void schedule(@NonNull Runnable runnable, long delayMs) {
+            getExecutor().schedule(runnable, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static class TTEngine implements Engine {
+
+        @Override
+        public void start(@NonNull Task task,
+                @NonNull BasePreloadStrategy.PreloadListener listener) {
+            // the transfer is timed from here, not from when the task was scheduled
+            BasePreloadStrategy.startPreload(task.getVideoItem(), task.getResolution(),
+                    task.getPreloadSize(), SystemClock.elapsedRealtime(), listener);
+        }
+
+        @Override
+        public void cancel(@NonNull Task task) {
+            TTVideoEngine.cancelPreloadTaskByVideoId(task.getVideoItem().getVid());
+        }
+    }
+}
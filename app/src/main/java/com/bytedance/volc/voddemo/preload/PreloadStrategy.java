@@ -24,12 +24,44 @@ import java.util.List;
 public interface PreloadStrategy {
     String TAG = "PreloadStrategy";
 
+    /**
+     * Used until {@link PreloadManager} has a bandwidth estimate.
+     */
     Resolution START_PLAY_RESOLUTION = Resolution.High;
     long PRELOAD_SIZE = 300 * 1024;
+    long MIN_PRELOAD_SIZE = 100 * 1024;
 
     void videoListUpdate(List<VideoItem> videoItems);
 
+    void videoListAppend(List<VideoItem> videoItems);
+
     void currentVideoChanged(VideoItem videoItem);
 
-    void bufferingUpdate(int duration, int buffer, int playbackTime);
+    /**
+     * A buffering update from the player of {@code videoItem}, which is not always the current
+     * video: the player of the page swiped away keeps reporting until it is released.
+     */
+    void bufferingUpdate(VideoItem videoItem, int duration, int buffer, int playbackTime);
+
+    /**
+     * A fling started, called before the pager selects its target.
+     */
+    void swipePredicted(SwipePredictor.Prediction prediction);
+
+    /**
+     * The player of {@code videoItem} ran out of buffer after its first frame, like
+     * {@link #bufferingUpdate} it may not be the current video anymore.
+     */
+    void playbackStalled(VideoItem videoItem);
+
+    /**
+     * @return whether the preload of {@code videoItem} is still wanted after its player was
+     * released, as for the item a window keeps behind the current one
+     */
+    boolean keepsPreload(VideoItem videoItem);
+
+    /**
+     * Cancels every preload task started and not ended yet.
+     */
+    void cancelAll();
 }
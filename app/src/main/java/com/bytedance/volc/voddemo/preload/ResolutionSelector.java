@@ -0,0 +1,199 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/7
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.bytedance.volc.voddemo.videoview.DisplayMode;
+import com.ss.ttvideoengine.Resolution;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Caps the resolution picked from the bandwidth estimate by what the video view can show and
+ * what the device handles. The view's size in pixels and its {@link DisplayMode} give how many
+ * lines the short side of the video takes on screen, the lowest resolution covering them with
+ * at most {@link #UPSCALE_TOLERANCE} of upscaling is enough. Low end devices stop at
+ * {@link #LOW_END_MAX_RESOLUTION}.
+ *
+ * Viewports are kept per scene, the feed type whose videos play in views of one size, so a
+ * view of another screen laid out last does not size the videos of this one.
+ *
+ * Preload and play both ask here, and both pick among the resolutions a video supports with
+ * {@link #select}, so they fetch the same stream.
+ */
+public class ResolutionSelector {
+    public static final double UPSCALE_TOLERANCE = 1.25;
+    public static final Resolution LOW_END_MAX_RESOLUTION = Resolution.High;
+    // width over height of the feed videos until a video tells its own
+    public static final float DEFAULT_VIDEO_RATIO = 9 / 16f;
+
+    private static final Resolution[] RESOLUTIONS = {
+            Resolution.Standard, Resolution.High, Resolution.SuperHigh, Resolution.ExtremelyHigh
+    };
+    // lines of the short side of each resolution
+    private static final int[] LINES = {360, 480, 720, 1080};
+
+    private static class Viewport {
+        final int mWidth;
+        final int mHeight;
+        final int mDisplayMode;
+
+        Viewport(int width, int height, int displayMode) {
+            mWidth = width;
+            mHeight = height;
+            mDisplayMode = displayMode;
+        }
+    }
+
+    private final Map<Integer, Viewport> mViewports = new HashMap<>();
+    private boolean mLowEndDevice;
+
+    /**
+     * Called when the size or display mode of a video view of {@code scene} changes, a zero
+     * size is ignored.
+     */
+    public synchronized void setViewport(int scene, int width, int height, int displayMode) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        mViewports.put(scene, new Viewport(width, height, displayMode));
+    }
+
+    public synchronized void setLowEndDevice(boolean lowEndDevice) {
+        mLowEndDevice = lowEndDevice;
+    }
+
+    /**
+     * @param scene               the feed type of the video
+     * @param bandwidthResolution the resolution the bandwidth estimate allows
+     * @return the resolution to preload and start playing at, not capped by a viewport if
+     * {@code scene} has none yet
+     */
+    @NonNull
+    public synchronized Resolution getResolution(int scene,
+            @NonNull Resolution bandwidthResolution) {
+        int tier = indexOf(bandwidthResolution);
+        if (tier < 0) {
+            return bandwidthResolution;
+        }
+        final Viewport viewport = mViewports.get(scene);
+        if (viewport != null) {
+            final int lines = getDisplayedLines(viewport.mWidth, viewport.mHeight,
+                    viewport.mDisplayMode, DEFAULT_VIDEO_RATIO);
+            tier = Math.min(tier, tierFor(lines));
+        }
+        if (mLowEndDevice) {
+            tier = Math.min(tier, indexOf(LOW_END_MAX_RESOLUTION));
+        }
+        return RESOLUTIONS[tier];
+    }
+
+    /**
+     * @return the highest of {@code supported} not above {@code resolution}, the lowest of them
+     * if all are above, null if none is known here
+     */
+    @Nullable
+    public static Resolution select(@Nullable Resolution[] supported,
+            @NonNull Resolution resolution) {
+        final int wanted = indexOf(resolution);
+        if (supported == null || wanted < 0) {
+            return null;
+        }
+        int below = -1;
+        int above = -1;
+        for (Resolution candidate : supported) {
+            final int index = indexOf(candidate);
+            if (index < 0) {
+                continue;
+            }
+            if (index <= wanted) {
+                below = Math.max(below, index);
+            } else if (above < 0 || index < above) {
+                above = index;
+            }
+        }
+        if (below >= 0) {
+            return RESOLUTIONS[below];
+        }
+        return above >= 0 ? RESOLUTIONS[above] : null;
+    }
+
+    /**
+     * @param videoRatio width over height of the video
+     * @return the on screen length of the short side of the video laid out as
+     * {@link DisplayMode} does
+     */
+    static int getDisplayedLines(int viewWidth, int viewHeight, int displayMode,
+            float videoRatio) {
+        final float viewRatio = viewWidth / (float) viewHeight;
+        final float displayWidth;
+        final float displayHeight;
+        switch (displayMode) {
+            case DisplayMode.DISPLAY_MODE_ASPECT_FILL_X:
+                displayWidth = viewWidth;
+                displayHeight = viewWidth / videoRatio;
+                break;
+            case DisplayMode.DISPLAY_MODE_ASPECT_FILL_Y:
+                displayWidth = viewHeight * videoRatio;
+                displayHeight = viewHeight;
+                break;
+            case DisplayMode.DISPLAY_MODE_ASPECT_FIT:
+                if (videoRatio >= viewRatio) {
+                    displayWidth = viewWidth;
+                    displayHeight = viewWidth / videoRatio;
+                } else {
+                    displayWidth = viewHeight * videoRatio;
+                    displayHeight = viewHeight;
+                }
+                break;
+            case DisplayMode.DISPLAY_MODE_ASPECT_FILL:
+                if (videoRatio >= viewRatio) {
+                    displayWidth = viewHeight * videoRatio;
+                    displayHeight = viewHeight;
+                } else {
+                    displayWidth = viewWidth;
+                    displayHeight = viewWidth / videoRatio;
+                }
+                break;
+            default:
+                displayWidth = viewWidth;
+                displayHeight = viewHeight;
+                break;
+        }
+        return Math.round(videoRatio < 1 ? displayWidth : displayHeight);
+    }
+
+    private static int tierFor(int lines) {
+        for (int i = 0; i < LINES.length; i++) {
+            if (LINES[i] * UPSCALE_TOLERANCE >= lines) {
+                return i;
+            }
+        }
+        return LINES.length - 1;
+    }
+
+    private static int indexOf(Resolution resolution) {
+        for (int i = 0; i < RESOLUTIONS.length; i++) {
+            if (RESOLUTIONS[i] == resolution) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -17,45 +17,72 @@
  */
 package com.bytedance.volc.voddemo.preload;
 
-import com.bytedance.volc.voddemo.VodApp;
+import androidx.annotation.NonNull;
 import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.data.VideoItemWindow;
+import com.ss.ttvideoengine.Resolution;
 import com.ss.ttvideoengine.utils.TTVideoEngineLog;
-import java.util.ArrayList;
 import java.util.List;
 
 public class SimplePreloadStrategy extends BasePreloadStrategy {
     private static final String SimplePreloadStrategy = "SimplePreloadStrategy";
 
-    private final List<VideoItem> mVideoItems = new ArrayList<>();
+    // shared with the pager adapter, this strategy keeps no copy of the feed
+    private final VideoItemWindow mVideoWindow;
+
+    public SimplePreloadStrategy(@NonNull VideoItemWindow videoWindow) {
+        mVideoWindow = videoWindow;
+    }
 
     @Override
     public void videoListUpdate(final List<VideoItem> videoItems) {
-        if (videoItems != null) {
-            mVideoItems.clear();
-            mVideoItems.addAll(videoItems);
-        }
+    }
+
+    @Override
+    public void videoListAppend(final List<VideoItem> videoItems) {
     }
 
     @Override
     public void currentVideoChanged(final VideoItem videoItem) {
-        final int position = mVideoItems.indexOf(videoItem);
-        if (position + 1 < mVideoItems.size()) {
-            final VideoItem next = mVideoItems.get(position + 1);
-            startVideoPreload(next.getVid(), next.getAuthToken());
+        final int position = mVideoWindow.positionOf(videoItem);
+        final VideoItem next = position < 0 ? null : mVideoWindow.get(position + 1);
+        if (next != null) {
+            startVideoPreload(next);
         }
     }
 
     @Override
-    public void bufferingUpdate(final int duration, final int buffer, final int playbackTime) {
+    public void bufferingUpdate(final VideoItem videoItem, final int duration, final int buffer,
+            final int playbackTime) {
+    }
+
+    @Override
+    public void swipePredicted(final SwipePredictor.Prediction prediction) {
+    }
+
+    @Override
+    public void playbackStalled(final VideoItem videoItem) {
+    }
+
+    @Override
+    public boolean keepsPreload(final VideoItem videoItem) {
+        return false;
+    }
+
+    @Override
+    public void cancelAll() {
     }
 
-    private void startVideoPreload(String vid, String auth) {
-        TTVideoEngineLog.d(TAG, "startVideoPreload vid " + vid + ", auth " + auth);
-        if (!VodApp.getClientSettings().enablePreload()) {
+    private void startVideoPreload(VideoItem videoItem) {
+        TTVideoEngineLog.d(TAG, "startVideoPreload vid " + videoItem.getVid()
+                                + ", auth " + videoItem.getAuthToken());
+        if (!isPreloadEnabled()) {
             return;
         }
 
-        BasePreloadStrategy.startPreloadByVid(vid, auth, PreloadStrategy.START_PLAY_RESOLUTION,
-                PreloadStrategy.PRELOAD_SIZE);
+        final PreloadManager preloadManager = PreloadManager.getInstance();
+        final Resolution resolution = preloadManager.getPlayResolution(videoItem);
+        preloadManager.getScheduler().schedule(videoItem, resolution,
+                preloadManager.getPreloadSize(), 1, null);
     }
 }
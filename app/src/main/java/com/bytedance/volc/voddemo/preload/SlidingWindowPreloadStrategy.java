@@ -0,0 +1,290 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/27
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import androidx.annotation.NonNull;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.data.VideoItemWindow;
+import com.ss.ttvideoengine.PreLoaderItemCallBackInfo;
+import com.ss.ttvideoengine.Resolution;
+import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the items around the current one preloaded: up to {@code ahead} items after it and
+ * {@code behind} items before it, read from the shared {@link VideoItemWindow}. The nearer an
+ * item is, the sooner its task starts and the more of it is preloaded, an item behind counts
+ * as twice as far as one ahead. The size of the next item comes from the bandwidth estimate of
+ * {@link PreloadManager}. When the current item changes, the tasks of the items that
+ * left the window are canceled; the current item itself is left to the player.
+ *
+ * Tasks run through the {@link PreloadScheduler} of {@link PreloadManager} with the distance
+ * as priority. The landing page of a fling projected by {@link SwipePredictor} starts before
+ * everything else and the pages on the way to it wait behind it. Tasks are tracked by vid from
+ * start until their KEY_IS_PRELOAD_END_* callback, a vid that already preloaded at least the
+ * size asked for is not preloaded again.
+ */
+public class SlidingWindowPreloadStrategy extends BasePreloadStrategy {
+    public static final int DEFAULT_AHEAD = 3;
+    public static final int DEFAULT_BEHIND = 1;
+    private static final int BEHIND_DISTANCE_FACTOR = 2;
+    private static final int MAX_PRELOADED_VIDS = 64;
+
+    private static class Target {
+        final VideoItem mVideoItem;
+        final int mDistance;
+
+        Target(VideoItem videoItem, int distance) {
+            mVideoItem = videoItem;
+            mDistance = distance;
+        }
+    }
+
+    private final VideoItemWindow mVideoWindow;
+    // one instance, so the scheduler sees the same listener when a task is scheduled again
+    private final PreloadListener mPreloadListener = this::onPreloadEnd;
+    private final int mAhead;
+    private final int mBehind;
+    // vid to preload size of the tasks started and not ended, also updated on preloader threads
+    private final Map<String, Long> mInFlight = new HashMap<>();
+    // vid to preload size of the tasks that succeeded, the most recent ones only
+    private final LinkedHashMap<String, Long> mPreloaded =
+            new LinkedHashMap<String, Long>(MAX_PRELOADED_VIDS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+                    return size() > MAX_PRELOADED_VIDS;
+                }
+            };
+
+    public SlidingWindowPreloadStrategy(@NonNull VideoItemWindow videoWindow) {
+        this(videoWindow, DEFAULT_AHEAD, DEFAULT_BEHIND);
+    }
+
+    public SlidingWindowPreloadStrategy(@NonNull VideoItemWindow videoWindow, int ahead,
+            int behind) {
+        mVideoWindow = videoWindow;
+        mAhead = ahead;
+        mBehind = behind;
+    }
+
+    @Override
+    public void videoListUpdate(final List<VideoItem> videoItems) {
+    }
+
+    @Override
+    public void videoListAppend(final List<VideoItem> videoItems) {
+    }
+
+    @Override
+    public void currentVideoChanged(final VideoItem videoItem) {
+        if (!isPreloadEnabled()) {
+            return;
+        }
+
+        final int position = mVideoWindow.positionOf(videoItem);
+        if (position < 0) {
+            TTVideoEngineLog.d(TAG, "[preload] not in the window vid = " + videoItem.getVid());
+            return;
+        }
+        final long baseSize = PreloadManager.getInstance().getPreloadSize();
+        final List<Target> targets = new ArrayList<>();
+        for (int step = 1; step <= mAhead; step++) {
+            addTarget(targets, position + step, step);
+        }
+        for (int step = 1; step <= mBehind; step++) {
+            addTarget(targets, position - step, step * BEHIND_DISTANCE_FACTOR);
+        }
+        // stable, so at the same distance the item ahead goes first
+        Collections.sort(targets, (a, b) -> a.mDistance - b.mDistance);
+
+        final Set<String> keep = new HashSet<>();
+        for (Target target : targets) {
+            keep.add(target.mVideoItem.getVid());
+        }
+        final List<String> canceled = new ArrayList<>();
+        final List<Target> started = new ArrayList<>();
+        synchronized (mInFlight) {
+            for (String vid : new ArrayList<>(mInFlight.keySet())) {
+                if (!keep.contains(vid)) {
+                    mInFlight.remove(vid);
+                    canceled.add(vid);
+                }
+            }
+            for (Target target : targets) {
+                final String vid = target.mVideoItem.getVid();
+                final long size = getPreloadSize(baseSize, target.mDistance);
+                final Long preloaded = mPreloaded.get(vid);
+                if (mInFlight.containsKey(vid) || preloaded != null && preloaded >= size) {
+                    continue;
+                }
+                mInFlight.put(vid, size);
+                started.add(target);
+            }
+        }
+
+        for (String vid : canceled) {
+            TTVideoEngineLog.d(TAG, "[preload] cancel vid = " + vid);
+            cancelTask(vid);
+        }
+        for (Target target : started) {
+            startTask(target.mVideoItem, getPreloadSize(baseSize, target.mDistance),
+                    target.mDistance);
+        }
+    }
+
+    @Override
+    public void bufferingUpdate(final VideoItem videoItem, final int duration, final int buffer,
+            final int playbackTime) {
+    }
+
+    /**
+     * Starts the landing page ahead of every other task, or raises the priority of its task if
+     * it is in flight, and moves the tasks of the pages the user is expected to fly past behind
+     * it, as far back as pages behind the landing. They are not canceled: the snap helper moves
+     * one page per fling, so the pager settles on each of them on the way, and the tasks of the
+     * pages that leave the window are canceled then. The snap target keeps its task.
+     */
+    @Override
+    public void swipePredicted(final SwipePredictor.Prediction prediction) {
+        if (!isPreloadEnabled() || prediction.getLanding() == prediction.getTarget()) {
+            return;
+        }
+
+        VideoItem landing = mVideoWindow.get(prediction.getLanding());
+        if (landing == null) {
+            landing = mVideoWindow.get(prediction.getTarget());
+        }
+        final long size = PreloadManager.getInstance().getPreloadSize();
+        final List<Target> demoted = new ArrayList<>();
+        boolean start = false;
+        synchronized (mInFlight) {
+            final int step = prediction.getDirection();
+            for (int position = prediction.getTarget() + step;
+                    prediction.isPassed(position); position += step) {
+                final VideoItem passed = mVideoWindow.get(position);
+                if (passed != null && passed != landing
+                    && mInFlight.containsKey(passed.getVid())) {
+                    demoted.add(new Target(passed, Math.abs(prediction.getLanding() - position)
+                                                   * BEHIND_DISTANCE_FACTOR));
+                }
+            }
+            if (landing != null) {
+                final Long preloaded = mPreloaded.get(landing.getVid());
+                if (preloaded == null || preloaded < size) {
+                    final Long inFlight = mInFlight.get(landing.getVid());
+                    mInFlight.put(landing.getVid(), inFlight == null ? size
+                            : Math.max(inFlight, size));
+                    start = true;
+                }
+            }
+        }
+
+        for (Target target : demoted) {
+            TTVideoEngineLog.d(TAG, "[preload] demote passed vid = "
+                                    + target.mVideoItem.getVid());
+            demoteTask(target.mVideoItem.getVid(), target.mDistance);
+        }
+        if (start) {
+            startTask(landing, size, 0);
+        }
+    }
+
+    @Override
+    public void playbackStalled(final VideoItem videoItem) {
+    }
+
+    /**
+     * @return true while the item is in the window and its task has not ended
+     */
+    @Override
+    public boolean keepsPreload(final VideoItem videoItem) {
+        synchronized (mInFlight) {
+            return mInFlight.containsKey(videoItem.getVid());
+        }
+    }
+
+    @Override
+    public void cancelAll() {
+        final List<String> canceled;
+        synchronized (mInFlight) {
+            canceled = new ArrayList<>(mInFlight.keySet());
+            mInFlight.clear();
+        }
+        for (String vid : canceled) {
+            TTVideoEngineLog.d(TAG, "[preload] cancel vid = " + vid);
+            cancelTask(vid);
+        }
+    }
+
+    /**
+     * @param baseSize preload size of the next item
+     * @return the preload size of an item {@code distance} away from the current one, halved
+     * with every step and never below {@link #MIN_PRELOAD_SIZE}
+     */
+    public static long getPreloadSize(long baseSize, int distance) {
+        return Math.max(MIN_PRELOAD_SIZE, baseSize >> Math.min(distance - 1, 31));
+    }
+
+    public boolean isInFlight(@NonNull String vid) {
+        synchronized (mInFlight) {
+            return mInFlight.containsKey(vid);
+        }
+    }
+
+    /**
+     * @param distance priority of the task, the nearest item starts first, 0 for a predicted
+     *                 landing page
+     */
+    protected void startTask(@NonNull VideoItem videoItem, long preloadSize, int distance) {
+        final PreloadManager preloadManager = PreloadManager.getInstance();
+        final Resolution resolution = preloadManager.getPlayResolution(videoItem);
+        preloadManager.getScheduler().schedule(videoItem, resolution, preloadSize, distance,
+                mPreloadListener);
+    }
+
+    protected void cancelTask(@NonNull String vid) {
+        PreloadManager.getInstance().getScheduler().cancel(vid);
+    }
+
+    protected void demoteTask(@NonNull String vid, int distance) {
+        PreloadManager.getInstance().getScheduler().demote(vid, distance);
+    }
+
+    protected void onPreloadEnd(@NonNull String vid, int key) {
+        synchronized (mInFlight) {
+            final Long size = mInFlight.remove(vid);
+            if (size != null && key == PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_SUCCEED) {
+                mPreloaded.put(vid, size);
+            }
+        }
+    }
+
+    private void addTarget(List<Target> targets, int position, int distance) {
+        final VideoItem videoItem = mVideoWindow.get(position);
+        if (videoItem != null) {
+            targets.add(new Target(videoItem, distance));
+        }
+    }
+}
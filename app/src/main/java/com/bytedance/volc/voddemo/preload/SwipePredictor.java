@@ -0,0 +1,177 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/5
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Predicts where a pager fling will leave the user before the pager settles. The snap helper
+ * moves one page per fling, but a user skimming the feed flings again right after landing, so
+ * the page worth preloading is further out. How far is learned from the dwell times: the
+ * share of recent pages left within {@code skimDwellMs} is the skim rate, and a fast fling
+ * projects the landing {@code skimRate / (1 - skimRate)} pages past the snap target, the
+ * expected number of skims in a row, at most {@link #MAX_EXTRA_PAGES}.
+ *
+ * Positions, velocities in px/s and times in ms come from the pager. Nothing is projected
+ * before {@link #MIN_DWELLS} dwells are known.
+ */
+public class SwipePredictor {
+    public static final long DEFAULT_SKIM_DWELL_MS = 1200;
+    public static final int DEFAULT_FAST_FLING_VELOCITY = 4000;
+    public static final int MAX_EXTRA_PAGES = 3;
+    // dwells seen before a fling is projected past its target
+    public static final int MIN_DWELLS = 3;
+    // weight of the latest dwell in the averages
+    private static final double DWELL_ALPHA = 0.3;
+
+    public static class Prediction {
+        private final int mFrom;
+        private final int mTarget;
+        private final int mLanding;
+        private final int mVelocity;
+
+        Prediction(int from, int target, int landing, int velocity) {
+            mFrom = from;
+            mTarget = target;
+            mLanding = landing;
+            mVelocity = velocity;
+        }
+
+        public int getFrom() {
+            return mFrom;
+        }
+
+        /**
+         * @return the page the snap helper settles on
+         */
+        public int getTarget() {
+            return mTarget;
+        }
+
+        /**
+         * @return the page the user is expected to stay on, the target or beyond it
+         */
+        public int getLanding() {
+            return mLanding;
+        }
+
+        public int getVelocity() {
+            return mVelocity;
+        }
+
+        /**
+         * @return +1 forward, -1 backward, 0 when the fling snaps back
+         */
+        public int getDirection() {
+            return Integer.signum(mTarget - mFrom);
+        }
+
+        /**
+         * @return true for the pages between the target and the landing one, the user is
+         * expected to fly past them. The target is never passed, the pager settles on it.
+         */
+        public boolean isPassed(int position) {
+            return position != mFrom && position != mTarget && position != mLanding
+                   && Math.min(mFrom, mLanding) < position
+                   && position < Math.max(mFrom, mLanding);
+        }
+
+        @Override
+        public String toString() {
+            return "from " + mFrom + " target " + mTarget + " landing " + mLanding
+                   + " velocity " + mVelocity;
+        }
+    }
+
+    private final long mSkimDwellMs;
+    private final int mFastFlingVelocity;
+    private int mPosition = -1;
+    private long mSettleTime;
+    private int mDwells;
+    private double mMeanDwellMs;
+    private double mSkimRate;
+
+    public SwipePredictor() {
+        this(DEFAULT_SKIM_DWELL_MS, DEFAULT_FAST_FLING_VELOCITY);
+    }
+
+    public SwipePredictor(long skimDwellMs, int fastFlingVelocity) {
+        mSkimDwellMs = skimDwellMs;
+        mFastFlingVelocity = fastFlingVelocity;
+    }
+
+    /**
+     * The pager selected {@code position}, its dwell starts.
+     */
+    public synchronized void onSettled(int position, long now) {
+        mPosition = position;
+        mSettleTime = now;
+    }
+
+    /**
+     * A fling from the settled page starts towards {@code target}, the dwell on the page ends.
+     */
+    @NonNull
+    public synchronized Prediction onFling(int from, int target, int velocity, long now) {
+        if (from == mPosition) {
+            addDwell(now - mSettleTime);
+        }
+        // the next dwell starts on landing, not counted until then
+        mPosition = -1;
+
+        final int direction = Integer.signum(target - from);
+        int landing = target;
+        if (direction != 0 && mDwells >= MIN_DWELLS && Math.abs(velocity) >= mFastFlingVelocity) {
+            final double expectedSkims = mSkimRate >= 1 ? MAX_EXTRA_PAGES
+                    : mSkimRate / (1 - mSkimRate);
+            final int extra = (int) Math.min(MAX_EXTRA_PAGES, Math.round(expectedSkims));
+            landing = Math.max(0, target + direction * extra);
+        }
+        return new Prediction(from, target, landing, velocity);
+    }
+
+    public synchronized int getDwellCount() {
+        return mDwells;
+    }
+
+    /**
+     * @return the recent dwells averaged, recent ones weigh more, 0 before the first
+     */
+    public synchronized long getMeanDwellMs() {
+        return (long) mMeanDwellMs;
+    }
+
+    /**
+     * @return the share of recent pages left within the skim dwell, recent ones weigh more
+     */
+    public synchronized double getSkimRate() {
+        return mSkimRate;
+    }
+
+    private void addDwell(long dwellMs) {
+        final double skim = dwellMs < mSkimDwellMs ? 1 : 0;
+        if (mDwells == 0) {
+            mMeanDwellMs = dwellMs;
+            mSkimRate = skim;
+        } else {
+            mMeanDwellMs += DWELL_ALPHA * (dwellMs - mMeanDwellMs);
+            mSkimRate += DWELL_ALPHA * (skim - mSkimRate);
+        }
+        mDwells++;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/6
+ */
+package com.bytedance.volc.voddemo.smallvideo;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LifecycleOwner;
+import com.bytedance.volc.voddemo.data.VideoFeed;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.data.VideoItemDiff;
+import com.bytedance.volc.voddemo.data.VideoViewModel;
+import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads the feed page by page. The first page is kept small so the first frame is reached
+ * sooner, the following pages are requested when the pager gets within {@code prefetchDistance}
+ * items of the end.
+ *
+ * The first page is loaded cache first: the snapshot or cached rows are shown right away and the
+ * network refresh is applied as a diff once it arrives. If it fails with nothing shown it is
+ * requested again by {@link #retryFirstPage}.
+ */
+public class FeedPageLoader {
+    private static final String TAG = "FeedPageLoader";
+
+    public static final int DEFAULT_FIRST_PAGE_SIZE = 10;
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int DEFAULT_PREFETCH_DISTANCE = 5;
+
+    private final VideoViewModel mVideoViewModel;
+    private final int mType;
+    private final int mFirstPageSize;
+    private final int mPageSize;
+    private final int mPrefetchDistance;
+    private final PageListener mPageListener;
+
+    private int mNextOffset;
+    private boolean mLoading;
+    private boolean mHasMore = true;
+    private boolean mObserving;
+
+    public FeedPageLoader(@NonNull VideoViewModel videoViewModel, int type,
+            @NonNull PageListener pageListener) {
+        this(videoViewModel, type, DEFAULT_FIRST_PAGE_SIZE, DEFAULT_PAGE_SIZE,
+                DEFAULT_PREFETCH_DISTANCE, pageListener);
+    }
+
+    public FeedPageLoader(@NonNull VideoViewModel videoViewModel, int type, int firstPageSize,
+            int pageSize, int prefetchDistance, @NonNull PageListener pageListener) {
+        mVideoViewModel = videoViewModel;
+        mType = type;
+        mFirstPageSize = firstPageSize;
+        mPageSize = pageSize;
+        mPrefetchDistance = prefetchDistance;
+        mPageListener = pageListener;
+    }
+
+    /**
+     * @param snapshotItems items read from the feed snapshot, bound right away when not empty
+     */
+    public void loadFirstPage(@NonNull LifecycleOwner owner,
+            @NonNull List<VideoItem> snapshotItems) {
+        if (mLoading || mNextOffset > 0) {
+            return;
+        }
+
+        mLoading = true;
+        // a failed refresh left behind by the previous screen is not a loaded page
+        final VideoFeed videoFeed = mVideoViewModel.getVideoFeed().getValue();
+        final boolean loaded = videoFeed != null && videoFeed.getItems() != null;
+        if (!loaded && !snapshotItems.isEmpty()) {
+            TTVideoEngineLog.d(TAG, "loadFirstPage snapshot size " + snapshotItems.size());
+            mNextOffset = snapshotItems.size();
+            mPageListener.onPageLoaded(snapshotItems, true);
+        }
+
+        mVideoViewModel.getVideoFeed().observe(owner, this::onVideoFeed);
+        mObserving = true;
+        if (!loaded) {
+            mVideoViewModel.loadVideoFeed(mType, mFirstPageSize, snapshotItems);
+        }
+    }
+
+    private void onVideoFeed(VideoFeed videoFeed) {
+        final List<VideoItem> videoItems = videoFeed.getItems();
+        if (videoFeed.isFromCache()) {
+            TTVideoEngineLog.d(TAG, "onVideoFeed cache size " + videoItems.size());
+            mNextOffset = videoItems.size();
+            mPageListener.onPageLoaded(videoItems, true);
+            return;
+        }
+
+        mLoading = false;
+        if (videoItems == null) {
+            // refresh failed, keep whatever was shown from cache
+            return;
+        }
+
+        TTVideoEngineLog.d(TAG, "onVideoFeed network size " + videoItems.size());
+        mHasMore = videoItems.size() >= mFirstPageSize;
+        final boolean shown = mNextOffset > 0;
+        mNextOffset = videoItems.size();
+        if (!shown) {
+            if (!videoItems.isEmpty()) {
+                mPageListener.onPageLoaded(videoItems, true);
+            }
+            return;
+        }
+
+        // an empty diff still carries the refreshed tokens and VideoModels
+        final VideoItemDiff diff = videoFeed.getDiff();
+        if (diff != null) {
+            mPageListener.onFirstPageRefreshed(diff);
+        }
+    }
+
+    /**
+     * Requests the first page again if it failed and nothing is shown, called when the screen
+     * comes back to the foreground. Does nothing before {@link #loadFirstPage}.
+     */
+    public void retryFirstPage() {
+        if (!mObserving || mLoading || mNextOffset > 0) {
+            return;
+        }
+
+        TTVideoEngineLog.d(TAG, "retryFirstPage");
+        mLoading = true;
+        mVideoViewModel.loadVideoFeed(mType, mFirstPageSize, Collections.emptyList());
+    }
+
+    /**
+     * Called whenever the current pager position changes; requests the next page if the
+     * position is close enough to the end of the loaded items, the first page if it is missing.
+     */
+    public void onPositionChanged(int position, int itemCount) {
+        if (mNextOffset == 0) {
+            retryFirstPage();
+            return;
+        }
+        if (mLoading || !mHasMore) {
+            return;
+        }
+
+        if (position + mPrefetchDistance >= itemCount) {
+            load(mNextOffset, mPageSize);
+        }
+    }
+
+    private void load(final int offset, final int pageSize) {
+        mLoading = true;
+        TTVideoEngineLog.d(TAG, "load offset " + offset + ", pageSize " + pageSize);
+        mVideoViewModel.getVideoList(mType, offset, pageSize, videoItems -> {
+            mLoading = false;
+            if (videoItems == null) {
+                // keep mHasMore, the next position change retries the same offset
+                return;
+            }
+
+            mHasMore = videoItems.size() >= pageSize;
+            if (videoItems.isEmpty()) {
+                return;
+            }
+
+            mNextOffset = offset + videoItems.size();
+            mPageListener.onPageLoaded(videoItems, false);
+        });
+    }
+
+    public interface PageListener {
+        /**
+         * @param videoItems items of the page just loaded, never the whole feed
+         * @param firstPage  true when this is the page at offset 0
+         */
+        void onPageLoaded(@NonNull List<VideoItem> videoItems, boolean firstPage);
+
+        /**
+         * The first page was shown from cache and the network refresh arrived. The new items
+         * replace the shown ones even when the diff is empty, their tokens may be newer.
+         */
+        void onFirstPageRefreshed(@NonNull VideoItemDiff diff);
+    }
+}
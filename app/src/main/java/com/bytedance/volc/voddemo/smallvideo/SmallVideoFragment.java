@@ -18,6 +18,7 @@
 package com.bytedance.volc.voddemo.smallvideo;
 
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -29,8 +30,11 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.bytedance.volc.voddemo.VodApp;
 import com.bytedance.volc.voddemo.base.BaseAdapter;
+import com.bytedance.volc.voddemo.preload.BufferGatedPreloadStrategy;
+import com.bytedance.volc.voddemo.preload.CacheBudgetManager;
+import com.bytedance.volc.voddemo.preload.CachedBytesIndex;
 import com.bytedance.volc.voddemo.preload.PreloadManager;
-import com.bytedance.volc.voddemo.preload.SimplePreloadStrategy;
+import com.bytedance.volc.voddemo.preload.SlidingWindowPreloadStrategy;
 import com.bytedance.volc.voddemo.settings.ClientSettings;
 import com.bytedance.volc.voddemo.videoview.layers.LoadFailLayer;
 import com.bytedance.volc.voddemo.videoview.layers.LoadingLayer;
@@ -39,19 +43,30 @@ import com.bytedance.volc.voddemo.videoview.layers.DebugLayer;
 import com.bytedance.volc.voddemo.videoview.layers.SmallToolbarLayer;
 import com.bytedance.volc.voddemo.videoview.VOLCVideoController;
 import com.bytedance.volc.voddemo.videoview.VOLCVideoView;
+import com.bytedance.volc.voddemo.videoview.VideoController;
 import com.bytedance.volc.voddemo.R;
+import com.bytedance.volc.voddemo.data.PlayAuthTokenRefresher;
 import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.data.VideoItemDiff;
+import com.bytedance.volc.voddemo.data.VideoItemWindow;
+import com.bytedance.volc.voddemo.data.VideoSources;
 import com.bytedance.volc.voddemo.data.VideoViewModel;
+import com.bytedance.volc.voddemo.data.local.FeedSnapshot;
 import com.bytedance.volc.voddemo.videoview.layers.CoverLayer;
 import com.bytedance.volc.voddemo.smallvideo.pager.PagerLayoutManager;
 import com.bytedance.volc.voddemo.smallvideo.pager.RecyclerViewPagerListener;
+import com.bytedance.volc.voddemo.utils.ThreadUtils;
 import com.ss.ttvideoengine.TTVideoEngine;
-import com.ss.ttvideoengine.source.VidPlayAuthTokenSource;
 import com.ss.ttvideoengine.strategy.EngineStrategyListener;
 import com.ss.ttvideoengine.strategy.source.StrategySource;
 import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
 import static com.ss.ttvideoengine.strategy.StrategyManager.STRATEGY_SCENE_SMALL_VIDEO;
@@ -59,12 +74,13 @@ import static com.ss.ttvideoengine.strategy.StrategyManager.STRATEGY_TYPE_COMMON
 import static com.ss.ttvideoengine.strategy.StrategyManager.STRATEGY_TYPE_PRELOAD;
 import static com.ss.ttvideoengine.strategy.StrategyManager.STRATEGY_TYPE_PRE_RENDER;
 
-public class SmallVideoFragment extends Fragment implements RecyclerViewPagerListener {
+public class SmallVideoFragment extends Fragment implements RecyclerViewPagerListener,
+        FeedPageLoader.PageListener {
     private static final String TAG = "SmallFragment";
 
-    private static final int ITEMS_LIMIT = 100;
-
-    private BaseAdapter<VideoItem> mAdapter;
+    private VideoItemWindow mVideoWindow;
+    private PlayAuthTokenRefresher mTokenRefresher;
+    private VideoWindowAdapter mAdapter;
     private VOLCVideoView mCurrentVideoView;
 
     private int mLastPosition = -1;
@@ -72,17 +88,37 @@ public class SmallVideoFragment extends Fragment implements RecyclerViewPagerLis
     private RecyclerView mRecyclerView;
     private PagerLayoutManager mLayoutManager;
     private VideoViewModel mVideoViewModel;
+    private FeedPageLoader mFeedPageLoader;
+    private List<VideoItem> mSnapshotItems;
+    // what the engine strategy was given for the items the window holds, in feed order
+    private final List<StrategySource> mStrategySources = new ArrayList<>();
+    // itemId to index in mStrategySources
+    private final Map<String, Integer> mStrategySourceIndexes = new HashMap<>();
 
     @Override
     public void onCreate(@Nullable final Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         ClientSettings settings = VodApp.getClientSettings();
+        // read before the ViewModel so the first page binds without waiting for Room or Retrofit
+        mSnapshotItems = FeedSnapshot.forType(requireContext(), VIDEO_TYPE_SMALL)
+                .read(System.currentTimeMillis());
+        mVideoViewModel = new ViewModelProvider(this).get(VideoViewModel.class);
+        // the adapter and the preload strategy read the same window, far items are not kept
+        mVideoWindow = new VideoItemWindow((from, count, callback) ->
+                mVideoViewModel.getVideoRange(VIDEO_TYPE_SMALL, from, count, callback));
+        mTokenRefresher = new PlayAuthTokenRefresher(mVideoWindow, (offset, count, callback) ->
+                mVideoViewModel.refreshTokens(VIDEO_TYPE_SMALL, offset, count, callback));
+        // the items are updated in place, only the sources handed to the engine hold a copy
+        mTokenRefresher.setListener(this::updateStrategySources);
+        mVideoWindow.setEvictionListener(this::removeStrategySources);
 
         if (settings.enableStrategyPreload()) {
             // VOD key step Strategy Preload 1: enable
             TTVideoEngine.enableEngineStrategy(STRATEGY_TYPE_PRELOAD, STRATEGY_SCENE_SMALL_VIDEO);
         } else {
-            PreloadManager.getInstance().setPreloadStrategy(new SimplePreloadStrategy());
+            PreloadManager.getInstance()
+                    .setPreloadStrategy(new BufferGatedPreloadStrategy(mVideoWindow,
+                            new SlidingWindowPreloadStrategy(mVideoWindow)));
         }
 
         if (settings.enableStrategyPreRender()) {
@@ -94,25 +130,23 @@ public class SmallVideoFragment extends Fragment implements RecyclerViewPagerLis
                 @Override
                 public void onPreRenderEngineCreated(final TTVideoEngine engine) {
                     // VOD key step Strategy PreRender 4: config preRender engine
-                    VOLCVideoController.configEngine(engine);
+                    VOLCVideoController.configEngine(engine, VIDEO_TYPE_SMALL);
                 }
             });
         }
 
-        mVideoViewModel = new ViewModelProvider(this).get(VideoViewModel.class);
-        mAdapter = new BaseAdapter<VideoItem>(new ArrayList<>()) {
+        mFeedPageLoader = new FeedPageLoader(mVideoViewModel, VIDEO_TYPE_SMALL, this);
+        mAdapter = new VideoWindowAdapter(mVideoWindow) {
             @Override
             public int getLayoutId(final int viewType) {
                 return R.layout.list_item_small_video;
             }
 
             @Override
-            public void onBindViewHolder(final ViewHolder holder, final VideoItem data,
-                    final int position) {
+            protected void onViewHolderCreated(@NonNull final BaseAdapter.ViewHolder holder,
+                    final int viewType) {
                 VOLCVideoView videoView = holder.getView(R.id.video_view);
-                videoView.setVideoController(new VOLCVideoController(videoView.getContext(), data,
-                        videoView));
-
+                videoView.setScene(VIDEO_TYPE_SMALL);
                 // DisplayMode is not required when using PLAYER_OPTION_USE_TEXTURE_RENDER
                 if (!settings.enableStrategyPreRender()) {
                     videoView.setDisplayMode(DisplayMode.DISPLAY_MODE_ASPECT_FIT);
@@ -123,11 +157,40 @@ public class SmallVideoFragment extends Fragment implements RecyclerViewPagerLis
                 videoView.addLayer(new SmallToolbarLayer());
                 videoView.addLayer(new LoadFailLayer());
                 videoView.addLayer(new LoadingLayer());
+            }
+
+            @Override
+            public void onBindViewHolder(final BaseAdapter.ViewHolder holder,
+                    @Nullable final VideoItem data, final int position) {
+                VOLCVideoView videoView = holder.getView(R.id.video_view);
+                VideoController controller = videoView.getVideoController();
+                if (data == null) {
+                    // placeholder until the window loads the item back
+                    if (controller != null) {
+                        controller.release();
+                        videoView.setVideoController(null);
+                    }
+                    return;
+                }
+                if (!(controller instanceof VOLCVideoController)
+                    || !data.getItemId().equals(
+                        ((VOLCVideoController) controller).getVideoItem().getItemId())) {
+                    if (controller != null) {
+                        controller.release();
+                    }
+                    videoView.setVideoController(new VOLCVideoController(videoView.getContext(),
+                            data, videoView));
+                }
+                // else the same video rebound after a content change, keep its engine playing
                 videoView.refreshLayers();
 
                 if (!mSelectFirst) {
                     mSelectFirst = true;
                     onPageSelected(position, holder.itemView);
+                } else if (position == mLastPosition && videoView == mCurrentVideoView
+                           && controller == null) {
+                    // the page was selected while it was a placeholder
+                    videoView.play();
                 }
             }
         };
@@ -151,30 +214,125 @@ public class SmallVideoFragment extends Fragment implements RecyclerViewPagerLis
         mRecyclerView.setLayoutManager(mLayoutManager);
         mRecyclerView.setAdapter(mAdapter);
 
-        mVideoViewModel.getVideoList(VIDEO_TYPE_SMALL, ITEMS_LIMIT, videoItems -> {
-            if (videoItems != null && videoItems.size() > 0) {
-                mAdapter.addAll(videoItems);
-                PreloadManager.getInstance().videoListUpdate(videoItems);
-                setStrategySources(videoItems);
-            }
-        });
+        mFeedPageLoader.loadFirstPage(getViewLifecycleOwner(), mSnapshotItems);
     }
 
-    private void setStrategySources(final List<VideoItem> videoItems) {
-        String encodeType = VodApp.getClientSettings().videoEnableH265()
-                ? TTVideoEngine.CODEC_TYPE_h265 : TTVideoEngine.CODEC_TYPE_H264;
+    @Override
+    public void onPageLoaded(@NonNull final List<VideoItem> videoItems, final boolean firstPage) {
+        // before the window takes the page, so the sources of the items it does not keep go
+        setStrategySources(videoItems, firstPage);
+        if (firstPage) {
+            mAdapter.setFirstPage(videoItems);
+        } else {
+            mAdapter.append(videoItems);
+        }
+        if (firstPage) {
+            PreloadManager.getInstance().videoListUpdate(videoItems);
+        } else {
+            PreloadManager.getInstance().videoListAppend(videoItems);
+        }
+    }
+
+    @Override
+    public void onFirstPageRefreshed(@NonNull final VideoItemDiff diff) {
+        final List<VideoItem> newItems = diff.getNewItems();
+        setStrategySources(newItems, true);
+        // only the rows that moved or whose visible fields changed are rebound, none if the
+        // refresh only brought new tokens
+        mAdapter.applyDiff(diff);
+
+        PreloadManager.getInstance().videoListUpdate(newItems);
+    }
+
+    private void setStrategySources(final List<VideoItem> videoItems, final boolean firstPage) {
         List<StrategySource> sources = new ArrayList<>();
         for (VideoItem videoItem : videoItems) {
-            StrategySource vidSource = new VidPlayAuthTokenSource.Builder()
-                    .setVid(videoItem.getVid())
-                    .setPlayAuthToken(videoItem.getAuthToken())
-                    .setEncodeType(encodeType)
-                    .build();
-            sources.add(vidSource);
+            sources.add(VideoSources.createStrategySource(videoItem));
+        }
+        if (firstPage) {
+            mStrategySources.clear();
+            mStrategySourceIndexes.clear();
+        }
+        for (VideoItem videoItem : videoItems) {
+            mStrategySourceIndexes.put(videoItem.getItemId(), mStrategySourceIndexes.size());
         }
+        mStrategySources.addAll(sources);
         // VOD key step Strategy PreRender 2: set sources
         // VOD key step Strategy Preload 2: set sources
-        TTVideoEngine.setStrategySources(sources);
+        if (firstPage) {
+            TTVideoEngine.setStrategySources(sources);
+        } else {
+            TTVideoEngine.addStrategySources(sources);
+        }
+    }
+
+    /**
+     * Forgets the sources of the items the window dropped, the engine keeps its own copy.
+     */
+    private void removeStrategySources(final List<VideoItem> videoItems) {
+        boolean removed = false;
+        for (VideoItem videoItem : videoItems) {
+            final Integer index = mStrategySourceIndexes.remove(videoItem.getItemId());
+            if (index != null) {
+                mStrategySources.set(index, null);
+                removed = true;
+            }
+        }
+        if (!removed) {
+            return;
+        }
+        // close the gaps, the sources after a removed one move down
+        final String[] itemIds = new String[mStrategySources.size()];
+        for (Map.Entry<String, Integer> entry : mStrategySourceIndexes.entrySet()) {
+            itemIds[entry.getValue()] = entry.getKey();
+        }
+        final List<StrategySource> sources = new ArrayList<>(mStrategySourceIndexes.size());
+        mStrategySourceIndexes.clear();
+        for (int i = 0; i < itemIds.length; i++) {
+            if (itemIds[i] != null) {
+                mStrategySourceIndexes.put(itemIds[i], sources.size());
+                sources.add(mStrategySources.get(i));
+            }
+        }
+        mStrategySources.clear();
+        mStrategySources.addAll(sources);
+    }
+
+    /**
+     * Hands the engine the sources of the items the window holds, new ones for the items whose
+     * token was refreshed, so a refresh costs the window rather than every page seen. Nothing is
+     * sent when none of the refreshed items is still in the window.
+     */
+    private void updateStrategySources(final List<VideoItem> videoItems) {
+        final Set<String> refreshed = new HashSet<>(videoItems.size() * 2);
+        for (VideoItem videoItem : videoItems) {
+            refreshed.add(videoItem.getItemId());
+        }
+        final List<VideoItem> residentItems = mVideoWindow.getResidentItems();
+        final List<StrategySource> sources = new ArrayList<>(residentItems.size());
+        boolean updated = false;
+        for (VideoItem videoItem : residentItems) {
+            final Integer index = mStrategySourceIndexes.get(videoItem.getItemId());
+            if (refreshed.contains(videoItem.getItemId())) {
+                sources.add(VideoSources.createStrategySource(videoItem));
+                updated = true;
+            } else if (index != null) {
+                sources.add(mStrategySources.get(index));
+            } else {
+                // loaded back into the window after it was dropped
+                sources.add(VideoSources.createStrategySource(videoItem));
+            }
+        }
+        if (!updated) {
+            return;
+        }
+        mStrategySources.clear();
+        mStrategySources.addAll(sources);
+        mStrategySourceIndexes.clear();
+        for (int i = 0; i < residentItems.size(); i++) {
+            mStrategySourceIndexes.put(residentItems.get(i).getItemId(), i);
+        }
+        TTVideoEngine.setStrategySources(new ArrayList<>(sources));
     }
 
     @Override
@@ -183,6 +341,8 @@ public class SmallVideoFragment extends Fragment implements RecyclerViewPagerLis
         if (mCurrentVideoView != null) {
             mCurrentVideoView.onResume();
         }
+        // the first page may have failed while the app was away or offline
+        mFeedPageLoader.retryFirstPage();
     }
 
     @Override
@@ -191,6 +351,21 @@ public class SmallVideoFragment extends Fragment implements RecyclerViewPagerLis
         if (mCurrentVideoView != null) {
             mCurrentVideoView.onPause();
         }
+        final CachedBytesIndex cachedBytesIndex =
+                PreloadManager.getInstance().getCachedBytesIndex();
+        final CacheBudgetManager cacheBudget = PreloadManager.getInstance().getCacheBudget();
+        ThreadUtils.runOnIoThread(() -> {
+            try {
+                cachedBytesIndex.save();
+            } catch (IOException e) {
+                TTVideoEngineLog.d(TAG, "save cached bytes index failed " + e);
+            }
+            try {
+                cacheBudget.save();
+            } catch (IOException e) {
+                TTVideoEngineLog.d(TAG, "save cache budget failed " + e);
+            }
+        });
     }
 
     @Override
@@ -213,6 +388,12 @@ public class SmallVideoFragment extends Fragment implements RecyclerViewPagerLis
         videoView.release();
     }
 
+    @Override
+    public void onFling(final int fromPosition, final int targetPosition, final int velocity) {
+        PreloadManager.getInstance().flingStarted(fromPosition, targetPosition, velocity,
+                SystemClock.uptimeMillis());
+    }
+
     @Override
     public void onPageSelected(final int position, final View view) {
         TTVideoEngineLog.d(TAG, "onPageSelected position " + position);
@@ -221,6 +402,15 @@ public class SmallVideoFragment extends Fragment implements RecyclerViewPagerLis
             return;
         }
         mLastPosition = position;
+        PreloadManager.getInstance().pageSelected(position, SystemClock.uptimeMillis());
+        mVideoWindow.moveTo(position);
+        PreloadManager.getInstance().windowMoved(mVideoWindow);
+        mTokenRefresher.refreshAhead(position, System.currentTimeMillis());
+        mFeedPageLoader.onPositionChanged(position, mAdapter.getItemCount());
+        final VideoItem videoItem = mAdapter.getItem(position);
+        if (videoItem != null) {
+            mVideoViewModel.markVideoShown(videoItem);
+        }
 
         View ItemView = view;
         final View tempView = mLayoutManager.findViewByPosition(position);
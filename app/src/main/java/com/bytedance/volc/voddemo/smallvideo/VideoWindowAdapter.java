@@ -0,0 +1,190 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/25
+ */
+package com.bytedance.volc.voddemo.smallvideo;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+import com.bytedance.volc.voddemo.base.BaseAdapter;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.data.VideoItemDiff;
+import com.bytedance.volc.voddemo.data.VideoItemWindow;
+import com.bytedance.volc.voddemo.utils.ThreadUtils;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Adapter over a {@link VideoItemWindow}: counts every item of the feed but only binds what the
+ * window holds. Positions outside of it are bound as placeholders and rebound once their items
+ * are loaded back.
+ */
+public abstract class VideoWindowAdapter extends RecyclerView.Adapter<BaseAdapter.ViewHolder>
+        implements VideoItemWindow.Listener {
+    private final VideoItemWindow mWindow;
+    private final Executor mDiffExecutor;
+    private final Executor mMainExecutor;
+    // bumped by every change of the items, a diff computed against older ones is not applied
+    private int mGeneration;
+    // bumped by every setFirstPage, only the diff of the latest one is applied
+    private int mFirstPageRequest;
+
+    public VideoWindowAdapter(@NonNull VideoItemWindow window) {
+        this(window, ThreadUtils.getIoExecutor(), ThreadUtils::runOnUiThread);
+    }
+
+    /**
+     * @param diffExecutor computes the diff of {@link #setFirstPage}
+     * @param mainExecutor runs on the main thread, applies the diff
+     */
+    public VideoWindowAdapter(@NonNull VideoItemWindow window, @NonNull Executor diffExecutor,
+            @NonNull Executor mainExecutor) {
+        mWindow = window;
+        mDiffExecutor = diffExecutor;
+        mMainExecutor = mainExecutor;
+        mWindow.setListener(this);
+        setHasStableIds(true);
+    }
+
+    public abstract int getLayoutId(int viewType);
+
+    /**
+     * @param data null for a placeholder
+     */
+    public abstract void onBindViewHolder(BaseAdapter.ViewHolder holder, @Nullable VideoItem data,
+            int position);
+
+    /**
+     * Called once per holder, the place for view setup that does not depend on the item.
+     */
+    protected void onViewHolderCreated(@NonNull BaseAdapter.ViewHolder holder, int viewType) {
+    }
+
+    @NonNull
+    @Override
+    public BaseAdapter.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(getLayoutId(viewType), parent, false);
+        BaseAdapter.ViewHolder holder = new BaseAdapter.ViewHolder(view);
+        onViewHolderCreated(holder, viewType);
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull BaseAdapter.ViewHolder holder, int position) {
+        onBindViewHolder(holder, mWindow.get(position), position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mWindow.size();
+    }
+
+    @Override
+    public long getItemId(final int position) {
+        final VideoItem videoItem = mWindow.get(position);
+        // placeholders get an id of their own so they never match a loaded item
+        return videoItem == null ? Long.MIN_VALUE + position : getStableId(videoItem);
+    }
+
+    /**
+     * @return the 64 bit FNV-1a hash of the itemId
+     */
+    private static long getStableId(@NonNull VideoItem videoItem) {
+        final String itemId = videoItem.getItemId();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < itemId.length(); i++) {
+            hash ^= itemId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    @Nullable
+    public VideoItem getItem(int position) {
+        return mWindow.get(position);
+    }
+
+    /**
+     * Replaces the whole feed with its first page. While the window holds every item of the
+     * feed its {@link VideoItemDiff} with the page is computed on the diff executor, and only the
+     * rows it touched are notified once it is back; the adapter shows the old items until then.
+     * Otherwise the old rows are removed and the page inserted right away.
+     */
+    public void setFirstPage(@NonNull List<VideoItem> videoItems) {
+        final int oldSize = mWindow.size();
+        final int request = ++mFirstPageRequest;
+        if (oldSize > 0 && mWindow.getResidentCount() == oldSize) {
+            final int generation = mGeneration;
+            final List<VideoItem> oldItems = mWindow.getResidentItems();
+            mDiffExecutor.execute(() -> {
+                final VideoItemDiff diff = VideoItemDiff.calculate(oldItems, videoItems);
+                mMainExecutor.execute(() -> {
+                    if (request != mFirstPageRequest) {
+                        return;
+                    }
+                    if (generation != mGeneration) {
+                        // the items changed while diffing, diff against what is shown now
+                        setFirstPage(videoItems);
+                        return;
+                    }
+                    applyDiff(diff);
+                });
+            });
+            return;
+        }
+        mGeneration++;
+        mWindow.set(videoItems);
+        if (oldSize > 0) {
+            notifyItemRangeRemoved(0, oldSize);
+        }
+        notifyItemRangeInserted(0, videoItems.size());
+    }
+
+    public void append(@NonNull List<VideoItem> videoItems) {
+        mGeneration++;
+        final int start = mWindow.size();
+        mWindow.append(videoItems);
+        notifyItemRangeInserted(start, videoItems.size());
+    }
+
+    /**
+     * Applies the refresh of the first page while it is the only page loaded, notifying only
+     * the rows the diff touched.
+     */
+    public void applyDiff(@NonNull VideoItemDiff diff) {
+        mGeneration++;
+        mWindow.set(diff.getNewItems());
+        for (int position : diff.getRemovedPositions()) {
+            notifyItemRemoved(position);
+        }
+        for (int position : diff.getInsertedPositions()) {
+            notifyItemInserted(position);
+        }
+        for (int position : diff.getChangedPositions()) {
+            notifyItemChanged(position);
+        }
+    }
+
+    @Override
+    public void onItemsLoaded(final int from, final int count) {
+        notifyItemRangeChanged(from, count);
+    }
+}
@@ -95,6 +95,13 @@ public class PagerLayoutManager extends LinearLayoutManager implements PagerSele
         }
     }
 
+    @Override
+    public void onFling(final int targetPosition, final int velocity) {
+        if (mRecyclerViewPagerListener != null) {
+            mRecyclerViewPagerListener.onFling(mCurrentPosition, targetPosition, velocity);
+        }
+    }
+
     @Override
     public void onPageSelected(final int position, final View view) {
         if (mCurrentPosition == position) {
@@ -21,4 +21,9 @@ import android.view.View;
 
 interface PagerSelectListener {
     void onPageSelected(int position, View view);
+
+    /**
+     * @param velocity fling velocity along the pager in px/s
+     */
+    void onFling(int targetPosition, int velocity);
 }
@@ -25,4 +25,12 @@ public interface RecyclerViewPagerListener {
     void onPageRelease(int position, View view);
 
     void onPageSelected(int position, View view);
+
+    /**
+     * A fling from {@code fromPosition} starts, {@link #onPageSelected} follows with
+     * {@code targetPosition} before the pager settles.
+     *
+     * @param velocity fling velocity along the pager in px/s
+     */
+    void onFling(int fromPosition, int targetPosition, int velocity);
 }
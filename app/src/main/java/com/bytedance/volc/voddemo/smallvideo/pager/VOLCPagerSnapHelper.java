@@ -33,6 +33,10 @@ public class VOLCPagerSnapHelper extends PagerSnapHelper {
         int targetSnapPosition = super.findTargetSnapPosition(layoutManager, velocityX,
                 velocityY);
         TTVideoEngineLog.d(TAG, "findTargetSnapPosition " + targetSnapPosition);
+        if (mPagerSelectListener != null && targetSnapPosition != RecyclerView.NO_POSITION) {
+            mPagerSelectListener.onFling(targetSnapPosition,
+                    layoutManager.canScrollVertically() ? velocityY : velocityX);
+        }
         if (mPagerSelectListener != null) {
             mPagerSelectListener.onPageSelected(targetSnapPosition, null);
         }
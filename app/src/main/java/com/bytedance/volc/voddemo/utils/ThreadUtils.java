@@ -21,11 +21,13 @@ import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
 import com.ss.ttvideoengine.TTVideoEngineLooperThread;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class ThreadUtils {
     private static Handler sEngineWorkHandler;
+    private static ExecutorService sIoExecutor;
 
     public static void runOnUiThread(Runnable task) {
         if (Looper.myLooper() == Looper.getMainLooper()) {
@@ -44,4 +46,21 @@ public class ThreadUtils {
 
         sEngineWorkHandler.post(task);
     }
+
+    /**
+     * @return the app's background thread for file work and other short jobs that must stay off
+     * the main thread, tasks run one at a time in the order they were posted
+     */
+    public static synchronized Executor getIoExecutor() {
+        if (sIoExecutor == null) {
+            sIoExecutor = Executors.newSingleThreadExecutor(
+                    runnable -> new Thread(runnable, "io_work"));
+        }
+
+        return sIoExecutor;
+    }
+
+    public static void runOnIoThread(Runnable task) {
+        getIoExecutor().execute(task);
+    }
 }
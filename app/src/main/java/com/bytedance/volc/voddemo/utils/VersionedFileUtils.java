@@ -0,0 +1,115 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/11
+ */
+package com.bytedance.volc.voddemo.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Small binary files that start with a magic and a version, both big endian ints. A file is
+ * replaced as a whole: written next to the old one, synced and renamed over it, so a reader
+ * finds either the old or the new content. A file of another magic or version reads as absent.
+ */
+public class VersionedFileUtils {
+
+    public interface Writer {
+        /**
+         * Writes what follows the header.
+         */
+        void write(@NonNull DataOutputStream out) throws IOException;
+    }
+
+    public interface Reader {
+        /**
+         * Reads what follows the header, throws if it is broken.
+         */
+        void read(@NonNull DataInputStream in) throws IOException;
+    }
+
+    @WorkerThread
+    public static void write(@NonNull File file, int magic, int version, @NonNull Writer writer)
+            throws IOException {
+        final File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream fileOutputStream = new FileOutputStream(tmp);
+        boolean written = false;
+        try {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(fileOutputStream));
+            out.writeInt(magic);
+            out.writeInt(version);
+            writer.write(out);
+            out.flush();
+            fileOutputStream.getFD().sync();
+            written = true;
+        } finally {
+            fileOutputStream.close();
+            if (!written) {
+                tmp.delete();
+            }
+        }
+
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("rename " + tmp + " failed");
+        }
+    }
+
+    /**
+     * @return false if the file is missing, of another magic or version, or the reader threw;
+     * the reader may have read part of it then
+     */
+    @WorkerThread
+    public static boolean read(@NonNull File file, int magic, int version,
+            @NonNull Reader reader) {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != magic || in.readInt() != version) {
+                return false;
+            }
+            reader.read(in);
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the header of a file mapped or read into {@code buffer}, the buffer is left at the
+     * content.
+     */
+    public static boolean readHeader(@NonNull ByteBuffer buffer, int magic, int version) {
+        return buffer.remaining() >= 8 && buffer.getInt() == magic && buffer.getInt() == version;
+    }
+}
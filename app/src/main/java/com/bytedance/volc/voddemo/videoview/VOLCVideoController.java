@@ -18,26 +18,32 @@
 package com.bytedance.volc.voddemo.videoview;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.view.Surface;
 import androidx.annotation.NonNull;
 import com.bytedance.volc.voddemo.BuildConfig;
 import com.bytedance.volc.voddemo.VodApp;
 import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.data.VideoSources;
+import com.bytedance.volc.voddemo.preload.BasePreloadStrategy;
 import com.bytedance.volc.voddemo.preload.PreloadManager;
 import com.bytedance.volc.voddemo.preload.PreloadStrategy;
 import com.bytedance.volc.voddemo.settings.ClientSettings;
 import com.ss.ttvideoengine.DataLoaderHelper;
+import com.ss.ttvideoengine.Resolution;
 import com.ss.ttvideoengine.SeekCompletionListener;
 import com.ss.ttvideoengine.TTVideoEngine;
 import com.ss.ttvideoengine.VideoEngineSimpleCallback;
 import com.ss.ttvideoengine.VideoInfoListener;
 import com.ss.ttvideoengine.model.VideoInfo;
 import com.ss.ttvideoengine.model.VideoModel;
-import com.ss.ttvideoengine.source.VidPlayAuthTokenSource;
 import com.ss.ttvideoengine.strategy.source.StrategySource;
 import com.ss.ttvideoengine.utils.Error;
 import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import static com.bytedance.volc.voddemo.utils.ThreadUtils.runOnWorkThread;
 import static com.ss.ttvideoengine.TTVideoEngine.PLAYER_OPTION_ENABLE_DATALOADER;
@@ -48,17 +54,27 @@ import static com.ss.ttvideoengine.TTVideoEngine.PLAYER_OPTION_USE_VIDEOMODEL_CA
 public class VOLCVideoController implements VideoController, VideoInfoListener {
     private static final String TAG = "VOLCVideoController";
 
+    private static VideoEnginePool<TTVideoEngine> sEnginePool;
+
     private final ClientSettings mSettings = VodApp.getClientSettings();
     private final Context mContext;
     private final VideoItem mVideoItem;
-    private final StrategySource mStrategySource;
+    private StrategySource mStrategySource;
 
     private final VideoPlayListener mVideoPlayListener;
     private TTVideoEngine mVideoEngine;
     private Surface mSurface;
 
+    // false for a pre-render engine, which belongs to the engine strategy
+    private boolean mPooledEngine;
     private boolean mPrepared;
     private boolean mPlayAfterSurfaceValid;
+    // elapsed realtime of the play call that created the engine, 0 once the first frame showed
+    private volatile long mPlayStartTime;
+    // asked for when the engine was configured, keys the buffered bytes in the cache index
+    private volatile Resolution mStartResolution = PreloadStrategy.START_PLAY_RESOLUTION;
+    // set by the first frame, the next buffering update is checked against the cache index
+    private volatile boolean mCheckCache;
 
     private final SeekCompletionListener mSeekCompletionListener = new SeekCompletionListener() {
         @Override
@@ -71,6 +87,13 @@ public class VOLCVideoController implements VideoController, VideoInfoListener {
         @Override
         public void onRenderStart(final TTVideoEngine engine) {
             TTVideoEngineLog.d(TAG, "onRenderStart");
+            final long playStartTime = mPlayStartTime;
+            if (playStartTime != 0) {
+                mPlayStartTime = 0;
+                final long now = SystemClock.elapsedRealtime();
+                PreloadManager.getInstance().playStarted(mVideoItem, now - playStartTime, now);
+                mCheckCache = true;
+            }
             if (mVideoPlayListener != null) {
                 mVideoPlayListener.onRenderStart();
             }
@@ -81,6 +104,9 @@ public class VOLCVideoController implements VideoController, VideoInfoListener {
             TTVideoEngineLog.d(TAG, "onBufferStart reason " + reason
                                     + ", afterFirstFrame " + afterFirstFrame
                                     + ", action " + action);
+            if (afterFirstFrame == 1) {
+                PreloadManager.getInstance().playbackStalled(mVideoItem);
+            }
             if (mVideoPlayListener != null) {
                 mVideoPlayListener.onBufferStart();
             }
@@ -129,8 +155,14 @@ public class VOLCVideoController implements VideoController, VideoInfoListener {
 
             if (mVideoEngine != null) {
                 final int currentPlaybackTime = mVideoEngine.getCurrentPlaybackTime();
-                PreloadManager.getInstance()
-                        .bufferingUpdate(mVideoEngine.getDuration(), percent, currentPlaybackTime);
+                final PreloadManager preloadManager = PreloadManager.getInstance();
+                if (mCheckCache) {
+                    mCheckCache = false;
+                    preloadManager.playbackCacheChecked(mVideoItem, mStartResolution, percent);
+                }
+                preloadManager.playbackBuffered(mVideoItem, mStartResolution, percent);
+                preloadManager.bufferingUpdate(mVideoItem, mVideoEngine.getDuration(), percent,
+                        currentPlaybackTime);
             }
         }
 
@@ -180,13 +212,8 @@ public class VOLCVideoController implements VideoController, VideoInfoListener {
             VideoPlayListener listener) {
         this.mContext = context;
         this.mVideoItem = mVideoItem;
-        String encodeType = VodApp.getClientSettings().videoEnableH265()
-                ? TTVideoEngine.CODEC_TYPE_h265 : TTVideoEngine.CODEC_TYPE_H264;
-        this.mStrategySource = new VidPlayAuthTokenSource.Builder()
-                .setVid(mVideoItem.getVid())
-                .setPlayAuthToken(mVideoItem.getAuthToken())
-                .setEncodeType(encodeType)
-                .build();
+        // a fresh VideoModel from the feed skips the play info fetch before the stream opens
+        this.mStrategySource = VideoSources.createStrategySource(mVideoItem);
         this.mVideoPlayListener = new UiThreadVideoPlayListener(listener);
     }
 
@@ -195,15 +222,19 @@ public class VOLCVideoController implements VideoController, VideoInfoListener {
             return;
         }
 
+        // built again at play time, the token may have been refreshed since the item was bound
+        mStrategySource = VideoSources.createStrategySource(mVideoItem);
+        mStartResolution = PreloadManager.getInstance().getPlayResolution(mVideoItem);
         // VOD key step Strategy PreRender 5: use preRender engine
         mVideoEngine = TTVideoEngine.getPreRenderEngine(mStrategySource);
+        mPooledEngine = mVideoEngine == null;
         if (mVideoEngine != null) {
             mVideoEngineCallback.onPrepared(mVideoEngine);
         } else {
-            // VOD key step play 1: init TTVideoEngine with ApplicationContext
-            mVideoEngine = new TTVideoEngine(mContext.getApplicationContext(),
-                    TTVideoEngine.PLAYER_TYPE_OWN);
-            configEngine(mVideoEngine);
+            // VOD key step play 1: init TTVideoEngine with ApplicationContext, configured once
+            // by the pool and reused across plays while the settings stay the same
+            mVideoEngine = getEnginePool(mContext).acquire();
+            mVideoEngine.configResolution(getConfigResolution());
             // VOD key step play 4: set source
             // VOD key step Strategy Preload 3: set source
             mVideoEngine.setStrategySource(mStrategySource);
@@ -232,6 +263,9 @@ public class VOLCVideoController implements VideoController, VideoInfoListener {
     }
 
     private void doPlay() {
+        if (mVideoEngine == null) {
+            mPlayStartTime = SystemClock.elapsedRealtime();
+        }
         initEngine();
 
         if (mSurface != null && mSurface.isValid()) {
@@ -268,9 +302,16 @@ public class VOLCVideoController implements VideoController, VideoInfoListener {
 
         mPlayAfterSurfaceValid = false;
         mPrepared = false;
+        mPlayStartTime = 0;
+        mCheckCache = false;
         // VOD key step play 7: release
-        mVideoEngine.releaseAsync();
+        if (mPooledEngine) {
+            getEnginePool(mContext).recycle(mVideoEngine);
+        } else {
+            mVideoEngine.releaseAsync();
+        }
         mVideoEngine = null;
+        PreloadManager.getInstance().videoReleased(mVideoItem);
         if (mVideoPlayListener != null) {
             mVideoPlayListener.onVideoReleased();
         }
@@ -305,6 +346,10 @@ public class VOLCVideoController implements VideoController, VideoInfoListener {
         return mVideoEngine.isLooping();
     }
 
+    public VideoItem getVideoItem() {
+        return mVideoItem;
+    }
+
     @Override
     public String getCover() {
 
@@ -417,7 +462,49 @@ public class VOLCVideoController implements VideoController, VideoInfoListener {
         }
     }
 
-    public static void configEngine(TTVideoEngine engine) {
+    @NonNull
+    public static synchronized VideoEnginePool<TTVideoEngine> getEnginePool(
+            @NonNull Context context) {
+        if (sEnginePool == null) {
+            sEnginePool = new VideoEnginePool<>(
+                    new TTVideoEngineFactory(context.getApplicationContext()));
+        }
+        return sEnginePool;
+    }
+
+    /**
+     * Shrinks the engine pool, if there is one, on the engine work thread.
+     */
+    public static void trimEnginePool(final int level) {
+        final VideoEnginePool<TTVideoEngine> enginePool;
+        synchronized (VOLCVideoController.class) {
+            enginePool = sEnginePool;
+        }
+        if (enginePool != null) {
+            runOnWorkThread(() -> enginePool.onTrimMemory(level));
+        }
+    }
+
+    /**
+     * @return the resolution the preloader fetched for the start resolution, the start
+     * resolution itself when the feed gave no VideoModel and the engine picks the same way
+     */
+    private Resolution getConfigResolution() {
+        final VideoModel videoModel = VideoSources.getVideoModel(mVideoItem);
+        if (videoModel == null) {
+            return mStartResolution;
+        }
+        return BasePreloadStrategy.select(videoModel, mStartResolution);
+    }
+
+    /**
+     * @param scene the feed type the engine plays, its viewport caps the resolution
+     */
+    public static void configEngine(TTVideoEngine engine, int scene) {
+        configEngine(engine, PreloadManager.getInstance().getStartResolution(scene));
+    }
+
+    public static void configEngine(TTVideoEngine engine, Resolution resolution) {
         ClientSettings settings = VodApp.getClientSettings();
         // VOD key step play 3: use mdl
         engine.setIntOption(PLAYER_OPTION_ENABLE_DATALOADER, 1);
@@ -440,7 +527,61 @@ public class VOLCVideoController implements VideoController, VideoInfoListener {
             // open debug log
             engine.setIntOption(PLAYER_OPTION_OUTPUT_LOG, 1);
         }
-        // set resolution
-        engine.configResolution(PreloadStrategy.START_PLAY_RESOLUTION);
+        // set resolution, the same one the preloader picks so the preloaded data is played
+        engine.configResolution(resolution);
+    }
+
+    /**
+     * @return the settings {@link #configEngine} reads, an engine configured under other ones
+     * is not reused
+     */
+    private static String getConfigKey(ClientSettings settings) {
+        return settings.enableManualVideoHW() + "/" + settings.enableVideoHW() + "/"
+               + settings.enableStrategyPreRender();
+    }
+
+    private static class TTVideoEngineFactory implements VideoEnginePool.Factory<TTVideoEngine> {
+        private final Context mContext;
+        // engine to the settings it was configured under
+        private final Map<TTVideoEngine, String> mConfigKeys =
+                Collections.synchronizedMap(new WeakHashMap<>());
+
+        TTVideoEngineFactory(Context context) {
+            mContext = context;
+        }
+
+        @NonNull
+        @Override
+        public TTVideoEngine create() {
+            final TTVideoEngine engine = new TTVideoEngine(mContext,
+                    TTVideoEngine.PLAYER_TYPE_OWN);
+            // the resolution is configured again for the item of every play
+            configEngine(engine, VideoItem.VIDEO_TYPE_SMALL);
+            mConfigKeys.put(engine, getConfigKey(VodApp.getClientSettings()));
+            return engine;
+        }
+
+        @Override
+        public boolean reset(@NonNull TTVideoEngine engine) {
+            engine.setVideoEngineSimpleCallback(null);
+            engine.setVideoInfoListener(null);
+            engine.stop();
+            engine.setSurface(null);
+            engine.setIsMute(false);
+            return isHealthy(engine);
+        }
+
+        @Override
+        public boolean isHealthy(@NonNull TTVideoEngine engine) {
+            // changed settings retire the engine, the options are only set when it is created
+            return engine.getPlaybackState() != TTVideoEngine.PLAYBACK_STATE_ERROR
+                   && getConfigKey(VodApp.getClientSettings()).equals(mConfigKeys.get(engine));
+        }
+
+        @Override
+        public void release(@NonNull TTVideoEngine engine) {
+            mConfigKeys.remove(engine);
+            engine.releaseAsync();
+        }
     }
 }
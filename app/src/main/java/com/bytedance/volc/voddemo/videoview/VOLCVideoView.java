@@ -48,6 +48,7 @@ import com.ss.ttvideoengine.utils.TTVideoEngineLog;
 public class VOLCVideoView extends FrameLayout
         implements VideoPlayListener, TimerTaskManager.TaskListener {
     private static final String TAG = "ByteVideoView";
+    public static final int NO_SCENE = -1;
 
     private TextureView mTextureView;
     private VideoController mVideoController;
@@ -55,6 +56,8 @@ public class VOLCVideoView extends FrameLayout
     private final LayerRoot mLayerRoot;
     private final DisplayMode mDisplayMode = new DisplayMode();
     private TimerTaskManager mProgressManager;
+    // the feed type played here, its viewport is told to the ResolutionSelector
+    private int mScene = NO_SCENE;
 
     public VOLCVideoView(@NonNull Context context) {
         this(context, null);
@@ -131,6 +134,10 @@ public class VOLCVideoView extends FrameLayout
         }
     }
 
+    public VideoController getVideoController() {
+        return mVideoController;
+    }
+
     public void play() {
         TTVideoEngineLog.d(TAG, "play");
         if (mVideoController == null) {
@@ -180,12 +187,31 @@ public class VOLCVideoView extends FrameLayout
 
     public void setDisplayMode(int displayMode) {
         this.mDisplayMode.setDisplayMode(displayMode);
+        updateViewport(getWidth(), getHeight());
     }
 
     @Override
     protected void onSizeChanged(final int w, final int h, final int oldw, final int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
         mDisplayMode.apply();
+        updateViewport(w, h);
+    }
+
+    /**
+     * @param scene the feed type of the videos played in this view, the preloads of that feed
+     *              are sized for it. A view without one does not report its size.
+     */
+    public void setScene(int scene) {
+        mScene = scene;
+        updateViewport(getWidth(), getHeight());
+    }
+
+    private void updateViewport(int width, int height) {
+        if (mScene == NO_SCENE) {
+            return;
+        }
+        PreloadManager.getInstance().getResolutionSelector().setViewport(mScene, width, height,
+                mDisplayMode.getDisplayMode());
     }
 
     public void addLayer(final ILayer layer) {
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/8
+ */
+package com.bytedance.volc.voddemo.videoview;
+
+import android.content.ComponentCallbacks2;
+import androidx.annotation.NonNull;
+import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps engines given back by released controllers so the next play borrows a configured one
+ * instead of constructing it on the swipe path. At most {@code maxIdle} engines wait in the
+ * pool, extra ones are released. An engine is reset when given back and checked again when
+ * borrowed, one that fails either or served {@link #MAX_USES} plays is released instead.
+ *
+ * Meant to be used from the engine work thread, {@link #onTrimMemory} may come from any thread.
+ */
+public class VideoEnginePool<E> {
+    private static final String TAG = "VideoEnginePool";
+    public static final int DEFAULT_MAX_IDLE = 2;
+    public static final int MAX_USES = 100;
+
+    public interface Factory<E> {
+        @NonNull
+        E create();
+
+        /**
+         * Stops {@code engine} and clears what the last play set on it.
+         *
+         * @return false if it cannot play again
+         */
+        boolean reset(@NonNull E engine);
+
+        /**
+         * @return false if {@code engine} cannot play again, or was configured differently from
+         * what {@link #create} would configure now
+         */
+        boolean isHealthy(@NonNull E engine);
+
+        void release(@NonNull E engine);
+    }
+
+    private final Factory<E> mFactory;
+    private final int mMaxIdle;
+    private final ArrayDeque<E> mIdle = new ArrayDeque<>();
+    // plays served by every engine created here and not released yet
+    private final Map<E, Integer> mUses = new IdentityHashMap<>();
+    private int mCreated;
+    private int mReused;
+    private int mRetired;
+
+    public VideoEnginePool(@NonNull Factory<E> factory) {
+        this(factory, DEFAULT_MAX_IDLE);
+    }
+
+    public VideoEnginePool(@NonNull Factory<E> factory, int maxIdle) {
+        mFactory = factory;
+        mMaxIdle = maxIdle;
+    }
+
+    /**
+     * @return an idle engine that passed the health check, a new one if there is none
+     */
+    @NonNull
+    public E acquire() {
+        while (true) {
+            final E engine;
+            synchronized (this) {
+                engine = mIdle.pollFirst();
+            }
+            if (engine == null) {
+                break;
+            }
+            if (mFactory.isHealthy(engine)) {
+                synchronized (this) {
+                    mUses.put(engine, mUses.get(engine) + 1);
+                    mReused++;
+                }
+                return engine;
+            }
+            TTVideoEngineLog.d(TAG, "acquire unhealthy engine " + engine);
+            retire(engine);
+        }
+
+        final E engine = mFactory.create();
+        synchronized (this) {
+            mUses.put(engine, 1);
+            mCreated++;
+        }
+        return engine;
+    }
+
+    /**
+     * Gives back an engine from {@link #acquire}, it is reset and kept for the next play or
+     * released.
+     */
+    public void recycle(@NonNull E engine) {
+        final boolean reusable = mFactory.reset(engine);
+        synchronized (this) {
+            final Integer uses = mUses.get(engine);
+            if (reusable && uses != null && uses < MAX_USES && mIdle.size() < mMaxIdle) {
+                mIdle.addFirst(engine);
+                return;
+            }
+        }
+        retire(engine);
+    }
+
+    /**
+     * Releases idle engines until at most {@code maxIdle} are left.
+     */
+    public void trim(int maxIdle) {
+        final List<E> trimmed = new ArrayList<>();
+        synchronized (this) {
+            while (mIdle.size() > maxIdle) {
+                trimmed.add(mIdle.pollLast());
+            }
+        }
+        for (E engine : trimmed) {
+            retire(engine);
+        }
+    }
+
+    /**
+     * Keeps one idle engine while the app runs short of memory and none once it is in the
+     * background or memory is low.
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+            || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+            || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            trim(0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            trim(1);
+        }
+    }
+
+    public synchronized int getIdleCount() {
+        return mIdle.size();
+    }
+
+    public synchronized int getCreatedCount() {
+        return mCreated;
+    }
+
+    public synchronized int getReusedCount() {
+        return mReused;
+    }
+
+    /**
+     * @return engines released instead of kept, the pool being full included
+     */
+    public synchronized int getRetiredCount() {
+        return mRetired;
+    }
+
+    private void retire(E engine) {
+        synchronized (this) {
+            mUses.remove(engine);
+            mRetired++;
+        }
+        mFactory.release(engine);
+    }
+}
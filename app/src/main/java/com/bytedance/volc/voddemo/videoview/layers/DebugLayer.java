@@ -22,8 +22,12 @@ import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.LinearLayout;
+import android.widget.TextView;
 import androidx.annotation.NonNull;
 import com.bytedance.volc.voddemo.R;
+import com.bytedance.volc.voddemo.preload.PreloadManager;
+import com.bytedance.volc.voddemo.preload.PreloadMetrics;
+import com.bytedance.volc.voddemo.utils.ThreadUtils;
 import com.bytedance.volc.voddemo.utils.UIUtils;
 import com.bytedance.volc.voddemo.videoview.layer.BaseVideoLayer;
 import com.bytedance.volc.voddemo.videoview.layer.CommonLayerEvent;
@@ -33,12 +37,19 @@ import com.bytedance.volc.voddemo.videoview.VOLCVideoController;
 import com.bytedance.volc.voddemo.videoview.VideoController;
 import com.ss.ttvideoengine.TTVideoEngine;
 import com.ss.ttvideoengine.debug.DebugTools;
+import com.ss.ttvideoengine.utils.TTVideoEngineLog;
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
 public class DebugLayer extends BaseVideoLayer {
+    private static final String TAG = "DebugLayer";
+    private static final String PRELOAD_METRICS_FILE = "preload_metrics.json";
+
     private boolean mShow;
     private final DebugTools mTools = new DebugTools();
+    private TextView mPreloadMetricsView;
 
     @Override
     public int getZIndex() {
@@ -72,6 +83,7 @@ public class DebugLayer extends BaseVideoLayer {
         DebugTools.DEBUG = true;
         LinearLayout debugHub = mLayerView.findViewById(R.id.debug_hub);
         mTools.setInfoHudView(debugHub);
+        mPreloadMetricsView = mLayerView.findViewById(R.id.preload_metrics);
 
         mLayerView.setOnLongClickListener(v -> mHost.notifyEvent(
                 new CommonLayerEvent(IVideoLayerEvent.VIDEO_LAYER_EVENT_TOGGLE_DEBUG_TOOL)));
@@ -102,6 +114,9 @@ public class DebugLayer extends BaseVideoLayer {
         }
 
         UIUtils.setViewVisibility(mLayerView, View.VISIBLE);
+        final PreloadManager preloadManager = PreloadManager.getInstance();
+        mPreloadMetricsView.setText(preloadManager.getMetrics().getSummary() + "\n"
+                                    + preloadManager.getCacheBudget().getSummary());
         final VideoController videoController = mHost.getVideoController();
         if (videoController instanceof VOLCVideoController) {
             TTVideoEngine engine = ((VOLCVideoController) videoController).getTTVideoEngine();
@@ -115,5 +130,26 @@ public class DebugLayer extends BaseVideoLayer {
     private void hideDebugView() {
         UIUtils.setViewVisibility(mLayerView, View.GONE);
         mTools.stop();
+        dumpPreloadMetrics();
+    }
+
+    /**
+     * Leaves the metrics in the app files dir for offline analysis, pull them with adb.
+     */
+    private void dumpPreloadMetrics() {
+        final File dir = mContext.getExternalFilesDir(null);
+        if (dir == null) {
+            return;
+        }
+        final File file = new File(dir, PRELOAD_METRICS_FILE);
+        final PreloadMetrics metrics = PreloadManager.getInstance().getMetrics();
+        ThreadUtils.runOnIoThread(() -> {
+            try {
+                metrics.dump(file);
+                TTVideoEngineLog.d(TAG, "preload metrics dumped to " + file);
+            } catch (IOException e) {
+                TTVideoEngineLog.d(TAG, "preload metrics dump failed " + e);
+            }
+        });
     }
 }
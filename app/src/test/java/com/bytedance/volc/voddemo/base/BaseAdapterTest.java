@@ -0,0 +1,128 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/27
+ */
+package com.bytedance.volc.voddemo.base;
+
+import android.app.Application;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class BaseAdapterTest {
+    private BaseAdapter<String> mAdapter;
+    private final List<String> mEvents = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mAdapter = new BaseAdapter<String>(new DiffUtil.ItemCallback<String>() {
+            @Override
+            public boolean areItemsTheSame(@NonNull String oldItem, @NonNull String newItem) {
+                return oldItem.charAt(0) == newItem.charAt(0);
+            }
+
+            @Override
+            public boolean areContentsTheSame(@NonNull String oldItem,
+                    @NonNull String newItem) {
+                return oldItem.equals(newItem);
+            }
+        }) {
+            @Override
+            public int getLayoutId(final int viewType) {
+                return 0;
+            }
+
+            @Override
+            public void onBindViewHolder(final ViewHolder holder, final String data,
+                    final int position) {
+            }
+        };
+        mAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                mEvents.add("changed all");
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                mEvents.add("changed " + positionStart + "+" + itemCount);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                mEvents.add("inserted " + positionStart + "+" + itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                mEvents.add("removed " + positionStart + "+" + itemCount);
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                mEvents.add("moved " + fromPosition + ">" + toPosition);
+            }
+        });
+    }
+
+    @Test
+    public void appendPage_onlyRangeInsert() throws InterruptedException {
+        mAdapter.addAll(Arrays.asList("a", "b", "c"));
+        awaitItemCount(3);
+        mAdapter.addAll(Arrays.asList("d", "e"));
+        awaitItemCount(5);
+
+        assertEquals(Arrays.asList("inserted 0+3", "inserted 3+2"), mEvents);
+    }
+
+    @Test
+    public void refresh_onlyChangedRowsDispatched() throws InterruptedException {
+        mAdapter.setData(Arrays.asList("a1", "b1", "c1"));
+        awaitItemCount(3);
+        mEvents.clear();
+
+        mAdapter.setData(Arrays.asList("a1", "b2", "c1", "d1"));
+        awaitItemCount(4);
+
+        assertEquals(2, mEvents.size());
+        assertTrue(mEvents.contains("inserted 3+1"));
+        assertTrue(mEvents.contains("changed 1+1"));
+        assertEquals("b2", mAdapter.getItem(1));
+    }
+
+    private void awaitItemCount(int count) throws InterruptedException {
+        for (int i = 0; i < 200 && mAdapter.getItemCount() != count; i++) {
+            Thread.sleep(5);
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+        assertEquals(count, mAdapter.getItemCount());
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/26
+ */
+package com.bytedance.volc.voddemo.data;
+
+import com.bytedance.volc.voddemo.data.remote.ServerResultCallback;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PlayAuthTokenRefresherTest {
+    private static final long NOW = 10_000_000L;
+    private static final long MARGIN = 60_000L;
+
+    private final List<int[]> mFetches = new ArrayList<>();
+    private final List<ServerResultCallback> mCallbacks = new ArrayList<>();
+    private final List<VideoItem> mRefreshed = new ArrayList<>();
+    private VideoItemWindow mWindow;
+    private PlayAuthTokenRefresher mRefresher;
+
+    @Before
+    public void setUp() {
+        mWindow = new VideoItemWindow((from, count, callback) -> {
+        }, 2, 8, 4);
+        mRefresher = new PlayAuthTokenRefresher(mWindow, (offset, count, callback) -> {
+            mFetches.add(new int[]{offset, count});
+            mCallbacks.add(callback);
+        }, 6, 3, MARGIN);
+        mRefresher.setListener(mRefreshed::addAll);
+    }
+
+    @Test
+    public void freshTokens_areNotRefreshed() {
+        mWindow.append(items(0, 10, NOW + MARGIN * 2));
+
+        mRefresher.refreshAhead(0, NOW);
+
+        assertTrue(mFetches.isEmpty());
+    }
+
+    @Test
+    public void staleTokens_areRefreshedInBatches() {
+        List<VideoItem> items = items(0, 10, NOW + MARGIN * 2);
+        for (int i : new int[]{1, 2, 3, 5, 6}) {
+            items.get(i).setTokenExpireTime(NOW + MARGIN / 2);
+        }
+        mWindow.append(items);
+
+        mRefresher.refreshAhead(0, NOW);
+
+        // at most 3 positions per batch: [1, 3] then [5, 6]
+        assertEquals(2, mFetches.size());
+        assertEquals(1, mFetches.get(0)[0]);
+        assertEquals(3, mFetches.get(0)[1]);
+        assertEquals(5, mFetches.get(1)[0]);
+        assertEquals(2, mFetches.get(1)[1]);
+    }
+
+    @Test
+    public void itemsBeyondLookAhead_areLeftAlone() {
+        mWindow.append(items(0, 10, NOW));
+
+        mRefresher.refreshAhead(0, NOW);
+
+        int last = 0;
+        for (int[] fetch : mFetches) {
+            last = Math.max(last, fetch[0] + fetch[1] - 1);
+        }
+        assertEquals(6, last);
+    }
+
+    @Test
+    public void refreshedToken_isWrittenIntoTheItem() {
+        List<VideoItem> items = items(0, 4, NOW);
+        mWindow.append(items);
+        mRefresher.refreshAhead(0, NOW);
+
+        List<VideoItem> fetched = items(0, 3, NOW + VideoItem.PLAY_AUTH_TOKEN_TTL);
+        for (VideoItem videoItem : fetched) {
+            videoItem.setAuthToken("fresh " + videoItem.getOrdinal());
+            videoItem.setVideoModel("model " + videoItem.getOrdinal());
+        }
+        mCallbacks.get(0).onResult(fetched);
+
+        assertEquals("fresh 1", items.get(1).getAuthToken());
+        assertEquals("model 1", items.get(1).getVideoModel());
+        assertEquals(NOW + VideoItem.PLAY_AUTH_TOKEN_TTL, items.get(1).getTokenExpireTime());
+        assertEquals(3, mRefreshed.size());
+        assertTrue(mRefresher.needsRefresh(items.get(3), NOW));
+    }
+
+    @Test
+    public void itemsInFlight_areNotRequestedTwice() {
+        mWindow.append(items(0, 3, NOW));
+
+        mRefresher.refreshAhead(0, NOW);
+        mRefresher.refreshAhead(1, NOW + 1);
+
+        assertEquals(1, mFetches.size());
+    }
+
+    @Test
+    public void failedRefresh_isRetriedAfterTheInterval() {
+        mWindow.append(items(0, 3, NOW));
+        mRefresher.refreshAhead(0, NOW);
+        mCallbacks.get(0).onResult(null);
+
+        mRefresher.refreshAhead(0, NOW + 1);
+        assertEquals(1, mFetches.size());
+
+        mRefresher.refreshAhead(0, NOW + PlayAuthTokenRefresher.RETRY_INTERVAL);
+        assertEquals(2, mFetches.size());
+    }
+
+    @Test
+    public void otherVideosAtTheOffset_areIgnored() {
+        List<VideoItem> items = items(0, 3, NOW);
+        mWindow.append(items);
+        mRefresher.refreshAhead(0, NOW);
+
+        List<VideoItem> fetched = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            VideoItem other = VideoItemWindowTest.items(100 + i, 1).get(0);
+            other.setTokenExpireTime(NOW + VideoItem.PLAY_AUTH_TOKEN_TTL);
+            fetched.add(other);
+        }
+        mCallbacks.get(0).onResult(fetched);
+
+        assertEquals("token0", items.get(0).getAuthToken());
+        assertTrue(mRefreshed.isEmpty());
+    }
+
+    @Test
+    public void batches_followWindowPositions_notOrdinals() {
+        // ordinals of an older fetch, the window holds the items at positions 0 to 3
+        List<VideoItem> items = items(40, 4, NOW);
+        mWindow.append(items);
+
+        mRefresher.refreshAhead(1, NOW);
+
+        assertEquals(1, mFetches.get(0)[0]);
+        assertEquals(3, mFetches.get(0)[1]);
+    }
+
+    private static List<VideoItem> items(int from, int count, long tokenExpireTime) {
+        List<VideoItem> items = VideoItemWindowTest.items(from, count);
+        for (VideoItem videoItem : items) {
+            videoItem.setTokenExpireTime(tokenExpireTime);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/20
+ */
+package com.bytedance.volc.voddemo.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SingleFlightTest {
+
+    private static class PendingCall implements SingleFlight.Call<String, String> {
+        final List<SingleFlight.Callback<String>> mStarted = new ArrayList<>();
+
+        @Override
+        public void start(final String key, final SingleFlight.Callback<String> done) {
+            mStarted.add(done);
+        }
+    }
+
+    @Test
+    public void sameKey_startsOnceAndFansOut() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        PendingCall call = new PendingCall();
+        List<String> results = new ArrayList<>();
+
+        assertTrue(singleFlight.execute("page0", call, results::add));
+        assertFalse(singleFlight.execute("page0", call, results::add));
+        assertFalse(singleFlight.execute("page0", call, results::add));
+        assertEquals(1, call.mStarted.size());
+
+        call.mStarted.get(0).onResult("items");
+
+        assertEquals(Arrays.asList("items", "items", "items"), results);
+        assertFalse(singleFlight.isInFlight("page0"));
+    }
+
+    @Test
+    public void differentKeys_startIndependently() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        PendingCall call = new PendingCall();
+        List<String> results = new ArrayList<>();
+
+        singleFlight.execute("page0", call, value -> results.add("0:" + value));
+        singleFlight.execute("page1", call, value -> results.add("1:" + value));
+        assertEquals(2, call.mStarted.size());
+
+        call.mStarted.get(1).onResult("b");
+        call.mStarted.get(0).onResult("a");
+
+        assertEquals(Arrays.asList("1:b", "0:a"), results);
+    }
+
+    @Test
+    public void completedKey_startsAgain() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        PendingCall call = new PendingCall();
+
+        singleFlight.execute("page0", call, value -> { });
+        call.mStarted.get(0).onResult(null);
+
+        assertTrue(singleFlight.execute("page0", call, value -> { }));
+        assertEquals(2, call.mStarted.size());
+    }
+
+    @Test
+    public void synchronousCall_deliversToCaller() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        List<String> results = new ArrayList<>();
+
+        singleFlight.execute("page0", (key, done) -> done.onResult(key), results::add);
+
+        assertEquals(Arrays.asList("page0"), results);
+        assertFalse(singleFlight.isInFlight("page0"));
+    }
+
+    @Test
+    public void callThrowingOnStart_failsTheCallerAndFreesTheKey() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        List<String> results = new ArrayList<>();
+
+        assertTrue(singleFlight.execute("page0", (key, done) -> {
+            throw new IllegalStateException("no network");
+        }, results::add));
+
+        assertEquals(Arrays.asList((String) null), results);
+        assertFalse(singleFlight.isInFlight("page0"));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/8
+ */
+package com.bytedance.volc.voddemo.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VideoItemDiffTest {
+
+    @Test
+    public void identicalLists_emptyDiff() {
+        List<VideoItem> items = items("a", "b", "c");
+        assertTrue(VideoItemDiff.calculate(items, items("a", "b", "c")).isEmpty());
+    }
+
+    @Test
+    public void insertedRemovedAndChanged() {
+        List<VideoItem> oldItems = items("a", "b", "c", "d");
+        List<VideoItem> newItems = items("a", "c", "e", "d");
+        newItems.get(3).setTitle("edited");
+        newItems.get(0).setAuthToken("refreshed");
+
+        VideoItemDiff diff = VideoItemDiff.calculate(oldItems, newItems);
+
+        assertEquals(Collections.singletonList(1), diff.getRemovedPositions());
+        assertEquals(Collections.singletonList(2), diff.getInsertedPositions());
+        assertEquals(Collections.singletonList(3), diff.getChangedPositions());
+        assertEquals(ids(newItems), ids(apply(oldItems, diff)));
+    }
+
+    @Test
+    public void movedItem_isRemovedAndInserted() {
+        List<VideoItem> oldItems = items("a", "b", "c", "d");
+        List<VideoItem> newItems = items("d", "a", "b", "c");
+
+        VideoItemDiff diff = VideoItemDiff.calculate(oldItems, newItems);
+
+        assertEquals(Collections.singletonList(3), diff.getRemovedPositions());
+        assertEquals(Collections.singletonList(0), diff.getInsertedPositions());
+        assertEquals(ids(newItems), ids(apply(oldItems, diff)));
+    }
+
+    @Test
+    public void shuffledLists_applyToNewList() {
+        List<VideoItem> oldItems = items("a", "b", "c", "d", "e", "f", "g");
+        List<VideoItem> newItems = items("x", "f", "a", "c", "y", "b", "g");
+
+        VideoItemDiff diff = VideoItemDiff.calculate(oldItems, newItems);
+
+        assertEquals(ids(newItems), ids(apply(oldItems, diff)));
+    }
+
+    private static List<VideoItem> apply(List<VideoItem> oldItems, VideoItemDiff diff) {
+        List<VideoItem> result = new ArrayList<>(oldItems);
+        for (int position : diff.getRemovedPositions()) {
+            result.remove(position);
+        }
+        for (int position : diff.getInsertedPositions()) {
+            result.add(position, diff.getNewItems().get(position));
+        }
+        for (int position : diff.getChangedPositions()) {
+            result.set(position, diff.getNewItems().get(position));
+        }
+        return result;
+    }
+
+    private static List<VideoItem> items(String... vids) {
+        List<VideoItem> items = new ArrayList<>();
+        for (String vid : vids) {
+            items.add(new VideoItem(vid, 1000, vid, null, "token", VIDEO_TYPE_SMALL));
+        }
+        return items;
+    }
+
+    private static List<String> ids(List<VideoItem> items) {
+        String[] ids = new String[items.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = items.get(i).getVid();
+        }
+        return Arrays.asList(ids);
+    }
+}
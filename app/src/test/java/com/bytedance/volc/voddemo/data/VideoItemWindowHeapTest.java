@@ -0,0 +1,77 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/25
+ */
+package com.bytedance.volc.voddemo.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A simulated endless session: the pager walks 50k items, pages of 20 are appended as it nears
+ * the end and every thousand items it goes back a hundred, so far items are loaded again, fresh
+ * from the loader the way a Room read returns them. The window must hold no more than its
+ * capacity at any step, and hand back through the eviction listener every item it dropped.
+ */
+public class VideoItemWindowHeapTest {
+    private static final int SESSION_ITEMS = 50_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int PREFETCH_DISTANCE = 5;
+    private static final int BACK_EVERY = 1_000;
+    private static final int BACK_DISTANCE = 100;
+    // keepBehind and keepAhead, each end rounded out to a whole block
+    private static final int CAPACITY = VideoItemWindow.DEFAULT_KEEP_BEHIND
+                                        + VideoItemWindow.DEFAULT_KEEP_AHEAD
+                                        + 2 * VideoItemWindow.DEFAULT_BLOCK_SIZE;
+
+    private int mTaken;
+    private int mEvicted;
+
+    @Test
+    public void longSession_residentItemsNeverExceedTheCapacity() {
+        final VideoItemWindow window = new VideoItemWindow((from, count, callback) -> {
+            mTaken += count;
+            callback.onResult(VideoItemWindowTest.items(from, count));
+        });
+        window.setEvictionListener(videoItems -> mEvicted += videoItems.size());
+
+        for (int position = 0; position < SESSION_ITEMS; position++) {
+            if (position + PREFETCH_DISTANCE >= window.size()) {
+                window.append(VideoItemWindowTest.items(window.size(), PAGE_SIZE));
+                mTaken += PAGE_SIZE;
+            }
+            if (position % BACK_EVERY == BACK_EVERY - 1) {
+                moveTo(window, position - BACK_DISTANCE);
+            }
+            moveTo(window, position);
+            assertNotNull(window.get(position + 1));
+        }
+
+        assertTrue(window.size() >= SESSION_ITEMS);
+        assertTrue(mTaken > SESSION_ITEMS);
+    }
+
+    private void moveTo(VideoItemWindow window, int position) {
+        window.moveTo(position);
+        assertNotNull(window.get(position));
+        assertTrue(window.getResidentCount() <= CAPACITY);
+        // every item taken in is either held or was handed back
+        assertEquals(mTaken - mEvicted, window.getResidentCount());
+    }
+}
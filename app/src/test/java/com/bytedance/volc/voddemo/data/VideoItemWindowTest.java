@@ -0,0 +1,204 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/25
+ */
+package com.bytedance.volc.voddemo.data;
+
+import com.bytedance.volc.voddemo.data.remote.ServerResultCallback;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VideoItemWindowTest {
+    private final List<int[]> mLoads = new ArrayList<>();
+    private final List<ServerResultCallback> mCallbacks = new ArrayList<>();
+    private final List<int[]> mLoaded = new ArrayList<>();
+    private VideoItemWindow mWindow;
+
+    @Before
+    public void setUp() {
+        mWindow = new VideoItemWindow((from, count, callback) -> {
+            mLoads.add(new int[]{from, count});
+            mCallbacks.add(callback);
+        }, 2, 4, 4);
+        mWindow.setListener((from, count) -> mLoaded.add(new int[]{from, count}));
+    }
+
+    @Test
+    public void append_keepsOnlyTheWindow() {
+        mWindow.append(items(0, 20));
+
+        // window [0, 4] rounded out to the block [0, 8)
+        assertEquals(20, mWindow.size());
+        assertEquals(8, mWindow.getResidentCount());
+        assertNotNull(mWindow.get(7));
+        assertNull(mWindow.get(8));
+        assertTrue(mLoads.isEmpty());
+    }
+
+    @Test
+    public void moveTo_dropsFarItemsAndLoadsNewOnes() {
+        mWindow.append(items(0, 20));
+
+        mWindow.moveTo(9);
+
+        // window [7, 13] rounded out to [4, 16)
+        assertNull(mWindow.get(3));
+        assertEquals(2, mLoads.size());
+        assertEquals(8, mLoads.get(0)[0]);
+        assertEquals(4, mLoads.get(0)[1]);
+        assertEquals(12, mLoads.get(1)[0]);
+
+        mCallbacks.get(0).onResult(items(8, 4));
+        mCallbacks.get(1).onResult(items(12, 4));
+
+        for (int position = 4; position < 16; position++) {
+            assertEquals(position, mWindow.get(position).getOrdinal());
+        }
+        assertEquals(12, mWindow.getResidentCount());
+        assertEquals(2, mLoaded.size());
+        assertEquals(8, mLoaded.get(0)[0]);
+        assertEquals(4, mLoaded.get(0)[1]);
+    }
+
+    @Test
+    public void evictionListener_getsTheItemsNotKept() {
+        final List<Integer> evicted = new ArrayList<>();
+        mWindow.setEvictionListener(videoItems -> {
+            for (VideoItem videoItem : videoItems) {
+                evicted.add(videoItem.getOrdinal());
+            }
+        });
+
+        mWindow.append(items(0, 10));
+        assertEquals(2, evicted.size());
+        assertTrue(evicted.contains(8) && evicted.contains(9));
+
+        evicted.clear();
+        mWindow.moveTo(9);
+        // window [4, 16) drops [0, 4)
+        assertEquals(4, evicted.size());
+        for (int position = 0; position < 4; position++) {
+            assertTrue(evicted.contains(position));
+        }
+    }
+
+    @Test
+    public void loadBack_mapsOrdinalsToPositions_whenTheFeedSkipsOrdinals() {
+        // ordinals 0 to 9 then 20 to 29, a page came back short
+        List<VideoItem> items = items(0, 10);
+        items.addAll(items(20, 10));
+        mWindow.append(items);
+        mWindow.moveTo(9);
+
+        // positions [8, 12) are ordinals 8, 9, 20, 21
+        assertEquals(8, mLoads.get(0)[0]);
+        assertEquals(14, mLoads.get(0)[1]);
+        assertEquals(22, mLoads.get(1)[0]);
+        List<VideoItem> loaded = items(8, 2);
+        loaded.addAll(items(20, 2));
+        mCallbacks.get(0).onResult(loaded);
+
+        assertEquals(20, mWindow.get(10).getOrdinal());
+        assertEquals(11, mWindow.positionOf(items(21, 1).get(0)));
+        assertEquals(-1, mWindow.positionOf(items(0, 1).get(0)));
+    }
+
+    @Test
+    public void moveTo_doesNotLoadABlockTwice() {
+        mWindow.append(items(0, 20));
+
+        mWindow.moveTo(9);
+        mWindow.moveTo(10);
+
+        assertEquals(2, mLoads.size());
+    }
+
+    @Test
+    public void partialLoad_keepsWhatArrived() {
+        mWindow.append(items(0, 20));
+        mWindow.moveTo(9);
+
+        mCallbacks.get(0).onResult(items(9, 2));
+
+        assertNull(mWindow.get(8));
+        assertNotNull(mWindow.get(9));
+        assertNotNull(mWindow.get(10));
+        assertEquals(9, mLoaded.get(0)[0]);
+        assertEquals(2, mLoaded.get(0)[1]);
+    }
+
+    @Test
+    public void load_dropsItemsThatLeftTheWindow() {
+        mWindow.append(items(0, 40));
+        mWindow.moveTo(10);
+        final int loads = mLoads.size();
+
+        mWindow.moveTo(30);
+        for (int i = 0; i < loads; i++) {
+            mCallbacks.get(i).onResult(items(mLoads.get(i)[0], mLoads.get(i)[1]));
+        }
+
+        for (int position = 0; position < 28; position++) {
+            assertNull(mWindow.get(position));
+        }
+        assertTrue(mWindow.getResidentCount() <= 12);
+    }
+
+    @Test
+    public void set_dropsLoadsInFlight() {
+        mWindow.append(items(0, 20));
+        mWindow.moveTo(10);
+
+        mWindow.set(items(0, 5));
+        mCallbacks.get(0).onResult(items(mLoads.get(0)[0], mLoads.get(0)[1]));
+
+        assertEquals(5, mWindow.size());
+        assertTrue(mLoaded.isEmpty());
+    }
+
+    @Test
+    public void failedLoad_isRetriedOnTheNextMove() {
+        mWindow.append(items(0, 20));
+        mWindow.moveTo(10);
+        final int loads = mLoads.size();
+        for (int i = 0; i < loads; i++) {
+            mCallbacks.get(i).onResult(null);
+        }
+
+        mWindow.moveTo(10);
+
+        assertEquals(loads * 2, mLoads.size());
+    }
+
+    static List<VideoItem> items(int from, int count) {
+        List<VideoItem> items = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            VideoItem item = new VideoItem("vid" + i, 1000, "title " + i, "cover" + i,
+                    "token" + i, VIDEO_TYPE_SMALL);
+            item.setOrdinal(i);
+            items.add(item);
+        }
+        return items;
+    }
+}
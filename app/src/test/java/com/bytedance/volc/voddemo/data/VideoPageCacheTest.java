@@ -0,0 +1,77 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/20
+ */
+package com.bytedance.volc.voddemo.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class VideoPageCacheTest {
+
+    @Test
+    public void hit_returnsCopyUntilTtl() {
+        VideoPageCache<String> cache = new VideoPageCache<>(100, 4);
+        List<VideoItem> page = page(2, 10_000);
+        cache.put("page0", page, 0);
+
+        List<VideoItem> hit = cache.get("page0", 99);
+        assertEquals(2, hit.size());
+        assertNotSame(page, hit);
+        assertNull(cache.get("page0", 100));
+    }
+
+    @Test
+    public void expiringToken_shortensEntry() {
+        VideoPageCache<String> cache = new VideoPageCache<>(100, 4);
+        List<VideoItem> page = page(2, 100);
+        page.get(1).setTokenExpireTime(50);
+        cache.put("page0", page, 0);
+
+        assertEquals(2, cache.get("page0", 49).size());
+        assertNull(cache.get("page0", 50));
+    }
+
+    @Test
+    public void overCapacity_dropsLeastRecentlyUsed() {
+        VideoPageCache<String> cache = new VideoPageCache<>(100, 2);
+        cache.put("page0", page(1, 1000), 0);
+        cache.put("page1", page(1, 1000), 0);
+        cache.get("page0", 1);
+        cache.put("page2", page(1, 1000), 1);
+
+        assertNull(cache.get("page1", 2));
+        assertEquals(1, cache.get("page0", 2).size());
+        assertEquals(1, cache.get("page2", 2).size());
+    }
+
+    private static List<VideoItem> page(int count, long tokenExpireTime) {
+        List<VideoItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            VideoItem item = new VideoItem("vid" + i, 1000, "title", null, "token",
+                    VIDEO_TYPE_SMALL);
+            item.setTokenExpireTime(tokenExpireTime);
+            items.add(item);
+        }
+        return items;
+    }
+}
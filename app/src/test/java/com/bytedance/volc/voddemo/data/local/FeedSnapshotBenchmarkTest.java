@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/17
+ */
+package com.bytedance.volc.voddemo.data.local;
+
+import android.app.Application;
+import android.content.Context;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import java.io.File;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Cold read of the first page: mapped snapshot versus opening Room and running the DAO query.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class FeedSnapshotBenchmarkTest {
+    private static final int ROUNDS = 50;
+    private static final long NOW = 1_000_000L;
+
+    @Test
+    public void firstPage_snapshotVersusRoom() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        List<VideoItem> items = FeedSnapshotTest.items(FeedSnapshot.MAX_ITEMS, Long.MAX_VALUE);
+
+        FeedSnapshot snapshot = FeedSnapshot.forType(context, VIDEO_TYPE_SMALL);
+        snapshot.write(items);
+
+        File dbFile = context.getDatabasePath("snapshot_benchmark.db");
+        dbFile.getParentFile().mkdirs();
+        context.deleteDatabase(dbFile.getName());
+        VodDataBase seed = Room.databaseBuilder(context, VodDataBase.class, dbFile.getName())
+                .allowMainThreadQueries()
+                .build();
+        seed.videoItemDao().insertItems(items);
+        seed.close();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            assertEquals(FeedSnapshot.MAX_ITEMS,
+                    FeedSnapshot.forType(context, VIDEO_TYPE_SMALL).read(NOW).size());
+        }
+        long snapshotNs = (System.nanoTime() - start) / ROUNDS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            VodDataBase dataBase = Room.databaseBuilder(context, VodDataBase.class,
+                    dbFile.getName())
+                    .allowMainThreadQueries()
+                    .build();
+            assertEquals(FeedSnapshot.MAX_ITEMS, dataBase.videoItemDao()
+                    .getItems(VIDEO_TYPE_SMALL, 0, FeedSnapshot.MAX_ITEMS, NOW).size());
+            dataBase.close();
+        }
+        long roomNs = (System.nanoTime() - start) / ROUNDS;
+
+        System.out.println("first page cold read, snapshot = " + snapshotNs / 1000 + "us"
+                           + ", room open + query = " + roomNs / 1000 + "us");
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/17
+ */
+package com.bytedance.volc.voddemo.data.local;
+
+import com.bytedance.volc.voddemo.data.VideoItem;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FeedSnapshotTest {
+    private static final long NOW = 1_000_000L;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip_keepsAllFields() throws Exception {
+        FeedSnapshot snapshot = new FeedSnapshot(mFolder.newFile("snapshot.bin"));
+        List<VideoItem> items = items(3, NOW + 1);
+        items.get(1).setTitle(null);
+        items.get(2).setVideoModel("{\"VideoID\":\"v2\",\"title\":\"\u4e2d\u6587\"}");
+
+        snapshot.write(items);
+        List<VideoItem> read = snapshot.read(NOW);
+
+        assertEquals(3, read.size());
+        for (int i = 0; i < read.size(); i++) {
+            VideoItem expected = items.get(i);
+            VideoItem actual = read.get(i);
+            assertEquals(expected.getItemId(), actual.getItemId());
+            assertEquals(expected.getVid(), actual.getVid());
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getCover(), actual.getCover());
+            assertEquals(expected.getAuthToken(), actual.getAuthToken());
+            assertEquals(expected.getVideoModel(), actual.getVideoModel());
+            assertEquals(expected.getDuration(), actual.getDuration());
+            assertEquals(expected.getOrdinal(), actual.getOrdinal());
+            assertEquals(expected.getFetchTime(), actual.getFetchTime());
+            assertEquals(expected.getTokenExpireTime(), actual.getTokenExpireTime());
+        }
+        assertNull(read.get(1).getTitle());
+    }
+
+    @Test
+    public void write_keepsFirstItemsOnly() throws Exception {
+        FeedSnapshot snapshot = new FeedSnapshot(new File(mFolder.getRoot(), "snapshot.bin"));
+        snapshot.write(items(FeedSnapshot.MAX_ITEMS + 5, NOW + 1));
+        assertEquals(FeedSnapshot.MAX_ITEMS, snapshot.read(NOW).size());
+    }
+
+    @Test
+    public void read_skipsExpiredTokens() throws Exception {
+        FeedSnapshot snapshot = new FeedSnapshot(new File(mFolder.getRoot(), "snapshot.bin"));
+        List<VideoItem> items = items(4, NOW + 1);
+        items.get(0).setTokenExpireTime(NOW);
+        items.get(3).setTokenExpireTime(NOW - 1);
+        snapshot.write(items);
+
+        List<VideoItem> read = snapshot.read(NOW);
+        assertEquals(2, read.size());
+        assertEquals("vid1", read.get(0).getVid());
+        assertEquals("vid2", read.get(1).getVid());
+    }
+
+    @Test
+    public void read_missingOrCorrupt_isEmpty() throws Exception {
+        File file = new File(mFolder.getRoot(), "snapshot.bin");
+        FeedSnapshot snapshot = new FeedSnapshot(file);
+        assertTrue(snapshot.read(NOW).isEmpty());
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] { 1, 2, 3 });
+        }
+        assertTrue(snapshot.read(NOW).isEmpty());
+
+        snapshot.write(items(3, NOW + 1));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+        assertTrue(snapshot.read(NOW).isEmpty());
+    }
+
+    @Test
+    public void write_replacesAtomically() throws Exception {
+        File file = new File(mFolder.getRoot(), "snapshot.bin");
+        FeedSnapshot snapshot = new FeedSnapshot(file);
+        snapshot.write(items(5, NOW + 1));
+        snapshot.write(items(2, NOW + 1));
+
+        assertEquals(2, snapshot.read(NOW).size());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    static List<VideoItem> items(int count, long tokenExpireTime) {
+        List<VideoItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            VideoItem item = new VideoItem("vid" + i, 15_000 + i, "title " + i,
+                    "https://example.com/cover/" + i + ".jpg", "token" + i, VIDEO_TYPE_SMALL);
+            item.setOrdinal(i);
+            item.setFetchTime(NOW - 10);
+            item.setTokenExpireTime(tokenExpireTime);
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/13
+ */
+package com.bytedance.volc.voddemo.data.local;
+
+import android.app.Application;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class VideoItemCacheCleanerTest {
+    private VodDataBase mDataBase;
+    private VideoItemDao mDao;
+
+    @Before
+    public void setUp() {
+        mDataBase = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(),
+                VodDataBase.class)
+                .allowMainThreadQueries()
+                .build();
+        mDao = mDataBase.videoItemDao();
+    }
+
+    @After
+    public void tearDown() {
+        mDataBase.close();
+    }
+
+    @Test
+    public void compact_deletesExpiredTokensInBatches() {
+        final long now = System.currentTimeMillis();
+        List<VideoItem> items = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            items.add(item("expired" + i, i, now - 1, 0));
+        }
+        for (int i = 0; i < 5; i++) {
+            items.add(item("fresh" + i, 100 + i, now + VideoItem.PLAY_AUTH_TOKEN_TTL, 0));
+        }
+        mDao.insertItems(items);
+
+        int deleted = new VideoItemCacheCleaner(mDataBase, 100, 10).compact();
+
+        assertEquals(25, deleted);
+        assertEquals(5, mDao.getCount(VIDEO_TYPE_SMALL));
+        assertEquals(5, mDao.getItems(VIDEO_TYPE_SMALL, 100, now).size());
+    }
+
+    @Test
+    public void compact_trimsLeastRecentlyUsed() {
+        final long expire = System.currentTimeMillis() + VideoItem.PLAY_AUTH_TOKEN_TTL;
+        List<VideoItem> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            VideoItem item = item("vid" + i, i, expire, i);
+            items.add(item);
+        }
+        mDao.insertItems(items);
+        // the two oldest fetched rows were shown recently and must survive
+        mDao.markShown("vid0_" + VIDEO_TYPE_SMALL, 1_000);
+        mDao.markShown("vid1_" + VIDEO_TYPE_SMALL, 1_001);
+
+        int deleted = new VideoItemCacheCleaner(mDataBase, 4, 3).compact();
+
+        assertEquals(6, deleted);
+        List<VideoItem> left = mDao.getItems(VIDEO_TYPE_SMALL, 10, 0);
+        assertEquals(4, left.size());
+        assertEquals("vid0", left.get(0).getVid());
+        assertEquals("vid1", left.get(1).getVid());
+        assertEquals("vid8", left.get(2).getVid());
+        assertEquals("vid9", left.get(3).getVid());
+    }
+
+    private static VideoItem item(String vid, int ordinal, long tokenExpireTime, long fetchTime) {
+        VideoItem item = new VideoItem(vid, 1000, vid, null, "token", VIDEO_TYPE_SMALL);
+        item.setOrdinal(ordinal);
+        item.setTokenExpireTime(tokenExpireTime);
+        item.setFetchTime(fetchTime);
+        return item;
+    }
+}
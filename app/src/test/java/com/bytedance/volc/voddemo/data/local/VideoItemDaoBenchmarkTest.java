@@ -0,0 +1,208 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/10
+ */
+package com.bytedance.volc.voddemo.data.local;
+
+import android.app.Application;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class VideoItemDaoBenchmarkTest {
+    private static final int PAGE_SIZE = 20;
+    private static final int ROUNDS = 200;
+    private static final long NOW = 1_000L;
+
+    private VodDataBase mDataBase;
+    private VideoItemDao mDao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        mDataBase = Room.inMemoryDatabaseBuilder(context, VodDataBase.class)
+                .allowMainThreadQueries()
+                .build();
+        mDao = mDataBase.videoItemDao();
+    }
+
+    @After
+    public void tearDown() {
+        mDataBase.close();
+    }
+
+    @Test
+    public void pagerQueries_10k() {
+        benchmark(10_000);
+    }
+
+    @Test
+    public void pagerQueries_100k() {
+        benchmark(100_000);
+    }
+
+    @Test
+    public void pagerQueries_useTypeOrdinalIndex() {
+        insert(1_000);
+        String plan = queryPlan("SELECT * FROM video_item WHERE type = 0 AND ordinal >= 500"
+                                + " AND tokenExpireTime > 1000 ORDER BY ordinal LIMIT 20");
+        assertTrue(plan, plan.contains("index_video_item_type_ordinal"));
+        assertTrue(plan, !plan.contains("TEMP B-TREE"));
+
+        String coveringPlan = queryPlan("SELECT ordinal FROM video_item WHERE type = 0"
+                                        + " AND ordinal >= 500 ORDER BY ordinal LIMIT 20");
+        assertTrue(coveringPlan, coveringPlan.contains("COVERING INDEX"));
+    }
+
+    @Test
+    public void replacePage_dropsRowsOfAnEarlierFetch() {
+        insert(10);
+        List<VideoItem> page = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            // vid5 moved up from ordinal 5, the others are new
+            VideoItem item = new VideoItem(i == 0 ? "vid5" : "new" + i, 15_000, "title", null,
+                    "token", VIDEO_TYPE_SMALL);
+            item.setOrdinal(i);
+            item.setTokenExpireTime(Long.MAX_VALUE);
+            page.add(item);
+        }
+
+        mDao.replacePage(VIDEO_TYPE_SMALL, 0, page);
+
+        List<VideoItem> items = mDao.getItems(VIDEO_TYPE_SMALL, 0, 20, NOW);
+        assertEquals(9, items.size());
+        for (int i = 0; i < items.size(); i++) {
+            // ordinal 5 is left empty by vid5, every other ordinal is held once
+            assertEquals(i < 5 ? i : i + 1, items.get(i).getOrdinal());
+        }
+        assertEquals("vid5", items.get(0).getVid());
+        assertEquals("new1", items.get(1).getVid());
+    }
+
+    @Test
+    public void migrations_keepRowsInInsertOrder() {
+        Context context = ApplicationProvider.getApplicationContext();
+        File file = context.getDatabasePath("migration_test.db");
+        file.getParentFile().mkdirs();
+        file.delete();
+
+        SQLiteDatabase v1 = SQLiteDatabase.openOrCreateDatabase(file, null);
+        v1.execSQL("CREATE TABLE IF NOT EXISTS `video_item` (`itemId` TEXT NOT NULL,"
+                   + " `vid` TEXT NOT NULL, `duration` INTEGER NOT NULL, `title` TEXT,"
+                   + " `cover` TEXT, `authToken` TEXT NOT NULL, `type` INTEGER NOT NULL,"
+                   + " PRIMARY KEY(`itemId`))");
+        v1.execSQL("INSERT INTO video_item VALUES ('b_0', 'b', 1, 't', 'c', 'token', 0)");
+        v1.execSQL("INSERT INTO video_item VALUES ('a_0', 'a', 1, 't', 'c', 'token', 0)");
+        v1.setVersion(1);
+        v1.close();
+
+        VodDataBase migrated = Room.databaseBuilder(context, VodDataBase.class, file.getPath())
+                .addMigrations(VodDataBase.MIGRATION_1_2, VodDataBase.MIGRATION_2_3,
+                        VodDataBase.MIGRATION_3_4)
+                .allowMainThreadQueries()
+                .build();
+        List<String> vids = new ArrayList<>();
+        try (Cursor cursor = migrated.query("SELECT vid, tokenExpireTime FROM video_item"
+                                            + " ORDER BY ordinal", null)) {
+            while (cursor.moveToNext()) {
+                vids.add(cursor.getString(0));
+                assertEquals(0, cursor.getLong(1));
+            }
+        }
+        // no expiry is known for migrated rows, reads must not hand them out
+        assertEquals(0, migrated.videoItemDao().getItems(VIDEO_TYPE_SMALL, 10, NOW).size());
+        migrated.close();
+
+        assertEquals(2, vids.size());
+        assertEquals("b", vids.get(0));
+        assertEquals("a", vids.get(1));
+    }
+
+    private void benchmark(int rows) {
+        insert(rows);
+        assertEquals(rows, mDao.getCount(VIDEO_TYPE_SMALL));
+
+        // warm up statement caches
+        mDao.getItems(VIDEO_TYPE_SMALL, rows / 2, PAGE_SIZE, NOW);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            int offset = (int) ((long) i * (rows - PAGE_SIZE) / ROUNDS);
+            List<VideoItem> page = mDao.getItems(VIDEO_TYPE_SMALL, offset, PAGE_SIZE, NOW);
+            assertEquals(offset, page.get(0).getOrdinal());
+        }
+        long fullRowsNs = (System.nanoTime() - start) / ROUNDS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            int offset = (int) ((long) i * (rows - PAGE_SIZE) / ROUNDS);
+            assertEquals(PAGE_SIZE, mDao.getOrdinals(VIDEO_TYPE_SMALL, offset, PAGE_SIZE).size());
+        }
+        long ordinalsNs = (System.nanoTime() - start) / ROUNDS;
+
+        System.out.println("video_item rows = " + rows
+                           + ", getItems = " + fullRowsNs / 1000 + "us"
+                           + ", getOrdinals = " + ordinalsNs / 1000 + "us");
+    }
+
+    private void insert(int rows) {
+        final int batch = 1_000;
+        List<VideoItem> items = new ArrayList<>(batch);
+        for (int i = 0; i < rows; i++) {
+            VideoItem item = new VideoItem("vid" + i, 15_000, "title " + i,
+                    "https://example.com/cover/" + i + ".jpg", "token" + i, VIDEO_TYPE_SMALL);
+            item.setOrdinal(i);
+            item.setFetchTime(i);
+            item.setTokenExpireTime(Long.MAX_VALUE);
+            items.add(item);
+            if (items.size() == batch) {
+                mDao.insertItems(items);
+                items.clear();
+            }
+        }
+        if (!items.isEmpty()) {
+            mDao.insertItems(items);
+        }
+    }
+
+    private String queryPlan(String sql) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = mDataBase.query("EXPLAIN QUERY PLAN " + sql, null)) {
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(cursor.getColumnCount() - 1)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+}
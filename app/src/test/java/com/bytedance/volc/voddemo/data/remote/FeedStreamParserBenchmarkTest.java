@@ -0,0 +1,76 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/21
+ */
+package com.bytedance.volc.voddemo.data.remote;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Parse time and allocation of a large feed response, Gson binding + mapping versus
+ * {@link FeedStreamParser}. Numbers are printed, only the item counts are asserted.
+ */
+public class FeedStreamParserBenchmarkTest {
+    private static final int ITEMS = 2_000;
+    private static final int WARMUP = 5;
+    private static final int ROUNDS = 20;
+
+    private interface Parse {
+        int run(String json) throws IOException;
+    }
+
+    @Test
+    public void largePayload_gsonVersusStreaming() throws IOException {
+        final String json = FeedStreamParserTest.payload(ITEMS);
+        final Parse gson = payload -> FeedStreamParserTest.parseWithGson(payload, 0).size();
+        final Parse streaming = payload -> FeedStreamParser.parse(new StringReader(payload), 0,
+                0, 3, null).size();
+
+        report("gson", json, gson);
+        report("streaming", json, streaming);
+    }
+
+    private static void report(String name, String json, Parse parse) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            assertEquals(ITEMS, parse.run(json));
+        }
+
+        final long allocatedBefore = allocatedBytes();
+        final long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            parse.run(json);
+        }
+        final long elapsedUs = (System.nanoTime() - start) / ROUNDS / 1000;
+        final long allocatedKb = (allocatedBytes() - allocatedBefore) / ROUNDS / 1024;
+
+        System.out.println(name + ": " + ITEMS + " items, " + json.length() / 1024 + "KB, "
+                           + elapsedUs + "us, " + allocatedKb + "KB allocated per parse");
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/21
+ */
+package com.bytedance.volc.voddemo.data.remote;
+
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FeedStreamParserTest {
+    private static final long FETCH_TIME = 1_000L;
+
+    @Test
+    public void sameItemsAsGsonPath() throws IOException {
+        String json = "{\"responseMetadata\":{\"requestId\":\"r\",\"error\":null},"
+                      + "\"result\":["
+                      + "{\"vid\":\"v0\",\"caption\":\"c0\",\"duration\":12.5,"
+                      + "\"coverUrl\":\"http://cover/0\",\"videoModel\":\"{\\\"a\\\":1}\","
+                      + "\"playAuthToken\":\"t0\",\"extra\":{\"nested\":[1,2]}},"
+                      + "null,"
+                      + "{\"vid\":\"v1\",\"caption\":null,\"duration\":\"3\","
+                      + "\"playAuthToken\":\"t1\"}"
+                      + "],\"unknown\":true}";
+
+        List<VideoItem> expected = parseWithGson(json, 20);
+        List<VideoItem> actual = FeedStreamParser.parse(new StringReader(json), 20, FETCH_TIME,
+                0, null);
+
+        assertEquals(2, actual.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameItem(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void missingResult_isEmpty() throws IOException {
+        assertTrue(FeedStreamParser.parse(new StringReader("{\"result\":null}"), 0, FETCH_TIME,
+                0, null).isEmpty());
+        assertTrue(FeedStreamParser.parse(new StringReader("{}"), 0, FETCH_TIME, 0, null)
+                .isEmpty());
+    }
+
+    @Test
+    public void firstItems_deliveredBeforeTheRest() throws IOException {
+        final List<List<VideoItem>> early = new ArrayList<>();
+        List<VideoItem> items = FeedStreamParser.parse(new StringReader(payload(10)), 0,
+                FETCH_TIME, 3, early::add);
+
+        assertEquals(10, items.size());
+        assertEquals(1, early.size());
+        assertEquals(3, early.get(0).size());
+        assertEquals("vid0", early.get(0).get(0).getVid());
+        assertEquals("vid2", early.get(0).get(2).getVid());
+    }
+
+    @Test
+    public void shortPage_noEarlyCallback() throws IOException {
+        final List<List<VideoItem>> early = new ArrayList<>();
+        List<VideoItem> items = FeedStreamParser.parse(new StringReader(payload(2)), 0,
+                FETCH_TIME, 3, early::add);
+
+        assertEquals(2, items.size());
+        assertTrue(early.isEmpty());
+    }
+
+    /**
+     * What AppServer did before the streaming parser: bind the whole response, then map.
+     */
+    static List<VideoItem> parseWithGson(String json, int offset) {
+        Response.GetFeedStreamResponse response = new Gson().fromJson(json,
+                Response.GetFeedStreamResponse.class);
+        List<VideoItem> videoItems = new ArrayList<>();
+        int ordinal = offset;
+        for (Response.VideoDetail videoDetail : response.getResult()) {
+            VideoItem videoItem = VideoItem.toVideoItem(videoDetail);
+            if (videoItem == null) {
+                continue;
+            }
+            videoItem.setOrdinal(ordinal++);
+            videoItem.setFetchTime(FETCH_TIME);
+            videoItem.setTokenExpireTime(FETCH_TIME + VideoItem.PLAY_AUTH_TOKEN_TTL);
+            videoItems.add(videoItem);
+        }
+        return videoItems;
+    }
+
+    static String payload(int count) {
+        StringBuilder builder = new StringBuilder(
+                "{\"responseMetadata\":{\"requestId\":\"20211221\",\"action\":"
+                + "\"GetFeedStreamWithPlayAuthToken\",\"version\":\"2021-01-01\","
+                + "\"service\":\"vod\",\"region\":\"cn-north-1\"},\"result\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"vid\":\"vid").append(i)
+                    .append("\",\"caption\":\"caption ").append(i)
+                    .append("\",\"duration\":").append(10 + i % 50).append(".25")
+                    .append(",\"coverUrl\":\"https://p3.example.com/tos-cn-i/cover")
+                    .append(i).append(".jpg\",\"videoModel\":\"");
+            for (int j = 0; j < 8; j++) {
+                builder.append("{\\\"main_url\\\":\\\"https://v3.example.com/video/tos/")
+                        .append(i).append('/').append(j).append("\\\",\\\"bitrate\\\":")
+                        .append(500_000 + j * 100_000).append("}");
+            }
+            builder.append("\",\"playAuthToken\":\"");
+            for (int j = 0; j < 6; j++) {
+                builder.append("eyJHZXRQbGF5SW5mb1Rva2VuIjoiQWN0aW9uPUdldFBsYXlJbmZv");
+            }
+            builder.append("\"}");
+        }
+        return builder.append("]}").toString();
+    }
+
+    private static void assertSameItem(VideoItem expected, VideoItem actual) {
+        assertEquals(expected.getItemId(), actual.getItemId());
+        assertEquals(expected.getVid(), actual.getVid());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getCover(), actual.getCover());
+        assertEquals(expected.getDuration(), actual.getDuration());
+        assertEquals(expected.getAuthToken(), actual.getAuthToken());
+        assertEquals(expected.getVideoModel(), actual.getVideoModel());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getOrdinal(), actual.getOrdinal());
+        assertEquals(expected.getFetchTime(), actual.getFetchTime());
+        assertEquals(expected.getTokenExpireTime(), actual.getTokenExpireTime());
+    }
+}
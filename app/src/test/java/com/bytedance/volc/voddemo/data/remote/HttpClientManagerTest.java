@@ -0,0 +1,129 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/23
+ */
+package com.bytedance.volc.voddemo.data.remote;
+
+import java.io.IOException;
+import java.util.List;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.GzipSink;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HttpClientManagerTest {
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private MockWebServer mServer;
+    private OkHttpClient mClient;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mClient = HttpClientManager.createClient(mFolder.newFolder("http_cache"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void feed_gzipNegotiatedAndParsed() throws IOException, InterruptedException {
+        mServer.enqueue(new MockResponse()
+                .setHeader("Content-Encoding", "gzip")
+                .setBody(gzip(FeedStreamParserTest.payload(3))));
+        AppServerManager manager = new AppServerManager(mServer.url("/").toString(), mClient);
+
+        retrofit2.Response<ResponseBody> response = manager.getFeedStream(
+                new Request.GetFeedStreamRequest("small-video", 0, 3)).execute();
+        List<?> items;
+        try (ResponseBody body = response.body()) {
+            items = FeedStreamParser.parse(body.charStream(), 0, 0, 0, null);
+        }
+
+        assertEquals(3, items.size());
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals("/api/general/v1/getFeedStreamWithPlayAuthToken", request.getPath());
+        assertEquals("gzip", request.getHeader("Accept-Encoding"));
+        assertEquals("{\"userID\":\"small-video\",\"offset\":0,\"pageSize\":3,"
+                     + "\"needThumbs\":false,\"needBarrageMask\":false}",
+                request.getBody().readUtf8());
+    }
+
+    @Test
+    public void prewarm_connectionReusedByFirstRequest() throws Exception {
+        mServer.enqueue(new MockResponse());
+        mServer.enqueue(new MockResponse().setBody(FeedStreamParserTest.payload(1)));
+        AppServerManager manager = new AppServerManager(mServer.url("/").toString(), mClient);
+
+        HttpClientManager.prewarm(mClient, mServer.url("/").toString());
+        assertEquals("HEAD", mServer.takeRequest().getMethod());
+        // the HEAD call completes asynchronously, wait until its connection is back in the pool
+        for (int i = 0; i < 100 && mClient.connectionPool().idleConnectionCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        manager.getFeedStream(new Request.GetFeedStreamRequest("small-video", 0, 1))
+                .execute().body().close();
+
+        assertEquals(1, mServer.takeRequest().getSequenceNumber());
+        assertEquals(1, mClient.connectionPool().connectionCount());
+    }
+
+    @Test
+    public void cover_servedFromDiskCache() throws IOException {
+        mServer.enqueue(new MockResponse()
+                .setHeader("Cache-Control", "max-age=3600")
+                .setBody("cover bytes"));
+        String url = mServer.url("/cover/1.jpg").toString();
+
+        for (int i = 0; i < 2; i++) {
+            try (okhttp3.Response response = mClient.newCall(
+                    new okhttp3.Request.Builder().url(url).build()).execute()) {
+                assertEquals("cover bytes", response.body().string());
+            }
+        }
+
+        Cache cache = mClient.cache();
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(1, cache.hitCount());
+        assertTrue(cache.size() > 0);
+    }
+
+    private static Buffer gzip(String body) throws IOException {
+        Buffer buffer = new Buffer();
+        try (okio.BufferedSink sink = Okio.buffer(new GzipSink(buffer))) {
+            sink.writeUtf8(body);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/22
+ */
+package com.bytedance.volc.voddemo.data.remote;
+
+import com.google.gson.Gson;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * First call and steady state cost of binding the app server payloads, reflective Gson versus
+ * {@link RemoteTypeAdapters}. A first call is measured on a new Gson so its adapter cache is
+ * cold; the numbers are printed, nothing is asserted about them.
+ */
+public class RemoteTypeAdaptersBenchmarkTest {
+    private static final int ITEMS = 100;
+    private static final int COLD_ROUNDS = 50;
+    private static final int ROUNDS = 500;
+
+    private interface GsonFactory {
+        Gson create();
+    }
+
+    @Test
+    public void reflectiveVersusAdapters() {
+        final String json = FeedStreamParserTest.payload(ITEMS);
+        final Request.GetFeedStreamRequest request = new Request.GetFeedStreamRequest(
+                "small-video", 0, ITEMS);
+
+        // load the classes of both paths once so the first call numbers compare adapter setup
+        run(new Gson(), json, request);
+        run(RemoteTypeAdapters.createGson(), json, request);
+
+        report("reflective", Gson::new, json, request);
+        report("adapters", RemoteTypeAdapters::createGson, json, request);
+    }
+
+    private static void report(String name, GsonFactory factory, String json,
+            Request.GetFeedStreamRequest request) {
+        long start = System.nanoTime();
+        for (int i = 0; i < COLD_ROUNDS; i++) {
+            run(factory.create(), json, request);
+        }
+        final long firstCallUs = (System.nanoTime() - start) / COLD_ROUNDS / 1000;
+
+        final Gson gson = factory.create();
+        for (int i = 0; i < ROUNDS; i++) {
+            run(gson, json, request);
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            run(gson, json, request);
+        }
+        final long steadyUs = (System.nanoTime() - start) / ROUNDS / 1000;
+
+        System.out.println(name + ": first call " + firstCallUs + "us, steady state "
+                           + steadyUs + "us (request + " + ITEMS + " item response)");
+    }
+
+    private static void run(Gson gson, String json, Request.GetFeedStreamRequest request) {
+        gson.toJson(request);
+        Response.GetFeedStreamResponse response = gson.fromJson(json,
+                Response.GetFeedStreamResponse.class);
+        assertEquals(ITEMS, response.getResult().size());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/22
+ */
+package com.bytedance.volc.voddemo.data.remote;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RemoteTypeAdaptersTest {
+    private final Gson mReflective = new Gson();
+    private final Gson mAdapters = RemoteTypeAdapters.createGson();
+
+    @Test
+    public void request_sameBytesAsReflection() {
+        Request.GetFeedStreamRequest partial = new Request.GetFeedStreamRequest(
+                "small-video", 20, 10);
+        Request.GetFeedStreamRequest full = new Request.GetFeedStreamRequest(
+                "small-video", 0, 100, 1, 2, 3, "video", true, false, 4);
+        Request.GetFeedStreamRequest escaped = new Request.GetFeedStreamRequest(
+                "a\"b\\c <>&=", null, null);
+
+        for (Request.GetFeedStreamRequest request : new Request.GetFeedStreamRequest[]{
+                partial, full, escaped}) {
+            assertEquals(mReflective.toJson(request), mAdapters.toJson(request));
+        }
+        assertEquals("{\"userID\":\"small-video\",\"offset\":20,\"pageSize\":10,"
+                     + "\"needThumbs\":false,\"needBarrageMask\":false}",
+                mAdapters.toJson(partial));
+    }
+
+    @Test
+    public void request_sameBytesWithSerializeNulls() {
+        Gson reflective = new GsonBuilder().serializeNulls().create();
+        Gson adapters = new GsonBuilder().serializeNulls()
+                .registerTypeAdapterFactory(new RemoteTypeAdapters()).create();
+        Request.GetFeedStreamRequest request = new Request.GetFeedStreamRequest(
+                "small-video", 20, 10);
+
+        assertEquals(reflective.toJson(request), adapters.toJson(request));
+    }
+
+    @Test
+    public void request_readBack() {
+        Request.GetFeedStreamRequest request = new Request.GetFeedStreamRequest(
+                "small-video", 0, 100, 1, 2, 3, "video", true, true, 4);
+        String json = mAdapters.toJson(request);
+
+        assertEquals(json, mAdapters.toJson(
+                mAdapters.fromJson(json, Request.GetFeedStreamRequest.class)));
+    }
+
+    @Test
+    public void response_sameAsReflection() {
+        String json = FeedStreamParserTest.payload(3)
+                .replace("\"result\":[", "\"unknown\":{\"a\":[1]},\"result\":[null,");
+
+        Response.GetFeedStreamResponse reflective = mReflective.fromJson(json,
+                Response.GetFeedStreamResponse.class);
+        Response.GetFeedStreamResponse adapters = mAdapters.fromJson(json,
+                Response.GetFeedStreamResponse.class);
+
+        assertEquals(4, adapters.getResult().size());
+        assertNull(adapters.getResult().get(0));
+        assertEquals(mReflective.toJson(reflective), mAdapters.toJson(adapters));
+        assertEquals(mReflective.toJson(reflective), mReflective.toJson(adapters));
+    }
+
+    @Test
+    public void response_errorAndNulls() {
+        String json = "{\"responseMetadata\":{\"requestId\":\"r\",\"error\":"
+                      + "{\"code\":\"InvalidParameter\",\"message\":\"bad\"}},"
+                      + "\"result\":[{\"vid\":null,\"duration\":null,\"caption\":true}]}";
+
+        Response.GetFeedStreamResponse reflective = mReflective.fromJson(json,
+                Response.GetFeedStreamResponse.class);
+        Response.GetFeedStreamResponse adapters = mAdapters.fromJson(json,
+                Response.GetFeedStreamResponse.class);
+
+        assertEquals("InvalidParameter",
+                adapters.getResponseMetadata().getError().getCode());
+        assertEquals("true", adapters.getResult().get(0).getCaption());
+        assertEquals(mReflective.toJson(reflective), mAdapters.toJson(adapters));
+    }
+
+    private static class Unregistered {
+        final String mField = "value";
+    }
+
+    @Test(expected = JsonIOException.class)
+    public void reflection_blocked() {
+        mAdapters.toJson(new Unregistered());
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/24
+ */
+package com.bytedance.volc.voddemo.data.remote;
+
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.bytedance.volc.voddemo.data.remote.AttemptMetrics.OUTCOME_CANCELED;
+import static com.bytedance.volc.voddemo.data.remote.AttemptMetrics.OUTCOME_HTTP_FATAL;
+import static com.bytedance.volc.voddemo.data.remote.AttemptMetrics.OUTCOME_HTTP_RETRYABLE;
+import static com.bytedance.volc.voddemo.data.remote.AttemptMetrics.OUTCOME_IO_ERROR;
+import static com.bytedance.volc.voddemo.data.remote.AttemptMetrics.OUTCOME_PARSE_ERROR;
+import static com.bytedance.volc.voddemo.data.remote.AttemptMetrics.OUTCOME_SUCCESS;
+import static com.bytedance.volc.voddemo.data.remote.AttemptMetrics.OUTCOME_TIMEOUT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResilientCallerTest {
+    private static final ResilientCaller.Policy POLICY = new ResilientCaller.Policy(3, 500, 10,
+            40, true);
+
+    private MockWebServer mServer;
+    private AppServerManager mManager;
+    private ExecutorService mExecutor;
+    private LatencyTracker mLatencyTracker;
+    private final List<AttemptMetrics> mAttempts = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mManager = new AppServerManager(mServer.url("/").toString(),
+                HttpClientManager.createClient(null));
+        mExecutor = Executors.newCachedThreadPool();
+        mLatencyTracker = new LatencyTracker(20, 5);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mExecutor.shutdownNow();
+        mServer.shutdown();
+    }
+
+    @Test
+    public void serverError_retriedUntilSuccess() {
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse().setBody(FeedStreamParserTest.payload(10))
+                .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        mServer.enqueue(new MockResponse().setBody("ok"));
+
+        assertEquals("ok", execute(caller(false)));
+
+        assertEquals(3, mServer.getRequestCount());
+        assertOutcomes(OUTCOME_HTTP_RETRYABLE, OUTCOME_IO_ERROR, OUTCOME_SUCCESS);
+        assertEquals(503, mAttempts.get(0).getHttpCode());
+        assertEquals(2, mAttempts.get(2).getAttempt());
+    }
+
+    @Test
+    public void slowAttempt_hitsDeadlineThenRetried() {
+        mServer.enqueue(new MockResponse().setBody("slow")
+                .setBodyDelay(2, TimeUnit.SECONDS));
+        mServer.enqueue(new MockResponse().setBody("ok"));
+
+        assertEquals("ok", execute(caller(false)));
+
+        assertOutcomes(OUTCOME_TIMEOUT, OUTCOME_SUCCESS);
+        assertTrue(mAttempts.get(0).getLatencyMs() < 1_500);
+    }
+
+    @Test
+    public void clientError_notRetried() {
+        mServer.enqueue(new MockResponse().setResponseCode(400));
+        mServer.enqueue(new MockResponse().setBody("ok"));
+
+        assertNull(execute(caller(false)));
+
+        assertEquals(1, mServer.getRequestCount());
+        assertOutcomes(OUTCOME_HTTP_FATAL);
+    }
+
+    @Test
+    public void malformedBody_notRetried() {
+        mServer.enqueue(new MockResponse().setBody("{]"));
+        mServer.enqueue(new MockResponse().setBody("{}"));
+
+        assertNull(caller(false).execute(() -> mManager.getFeedStream(
+                new Request.GetFeedStreamRequest("small-video", 0, 10)), body -> {
+                    JsonReader reader = new JsonReader(body.charStream());
+                    reader.beginObject();
+                    reader.endObject();
+                    return "ok";
+                }));
+
+        assertEquals(1, mServer.getRequestCount());
+        assertOutcomes(OUTCOME_PARSE_ERROR);
+    }
+
+    @Test
+    public void persistentFailure_givesUpAfterMaxAttempts() {
+        for (int i = 0; i < 5; i++) {
+            mServer.enqueue(new MockResponse().setResponseCode(500));
+        }
+
+        assertNull(execute(caller(false)));
+
+        assertEquals(3, mServer.getRequestCount());
+        assertOutcomes(OUTCOME_HTTP_RETRYABLE, OUTCOME_HTTP_RETRYABLE, OUTCOME_HTTP_RETRYABLE);
+    }
+
+    @Test
+    public void slowerThanP95_hedgedRequestWins() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            mLatencyTracker.record(50);
+        }
+        mServer.enqueue(new MockResponse().setBody("primary")
+                .setHeadersDelay(400, TimeUnit.MILLISECONDS));
+        mServer.enqueue(new MockResponse().setBody("hedge"));
+
+        long start = System.nanoTime();
+        assertEquals("hedge", execute(caller(true)));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("took " + elapsedMs + "ms", elapsedMs < 400);
+        assertEquals(2, mServer.getRequestCount());
+        // the canceled primary reports once it notices the cancel
+        for (int i = 0; i < 100 && mAttempts.size() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, mAttempts.size());
+        assertTrue(mAttempts.get(0).isHedged());
+        assertEquals(OUTCOME_SUCCESS, mAttempts.get(0).getOutcome());
+        assertEquals(OUTCOME_CANCELED, mAttempts.get(1).getOutcome());
+    }
+
+    @Test
+    public void backoff_exponentialWithJitterAndCapped() {
+        ResilientCaller caller = new ResilientCaller(mExecutor,
+                new ResilientCaller.Policy(10, 500, 100, 1_000, false), mLatencyTracker, null,
+                new Random(7));
+        for (int i = 0; i < 20; i++) {
+            long first = caller.getBackoffMs(1);
+            long third = caller.getBackoffMs(3);
+            long capped = caller.getBackoffMs(9);
+            assertTrue(first >= 50 && first <= 100);
+            assertTrue(third >= 200 && third <= 400);
+            assertTrue(capped >= 500 && capped <= 1_000);
+        }
+    }
+
+    private ResilientCaller caller(boolean hedge) {
+        ResilientCaller.Policy policy = new ResilientCaller.Policy(POLICY.mMaxAttempts,
+                POLICY.mAttemptTimeoutMs, POLICY.mBaseBackoffMs, POLICY.mMaxBackoffMs, hedge);
+        return new ResilientCaller(mExecutor, policy, mLatencyTracker, mAttempts::add,
+                new Random(1));
+    }
+
+    private String execute(ResilientCaller caller) {
+        return caller.execute(() -> mManager.getFeedStream(
+                new Request.GetFeedStreamRequest("small-video", 0, 10)),
+                body -> body.string());
+    }
+
+    private void assertOutcomes(int... outcomes) {
+        assertEquals(outcomes.length, mAttempts.size());
+        for (int i = 0; i < outcomes.length; i++) {
+            assertEquals("attempt " + i, outcomes[i], mAttempts.get(i).getOutcome());
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/29
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.data.VideoItemWindow;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BufferGatedPreloadStrategyTest {
+    private static final int DURATION = 20_000;
+
+    private final List<String> mCalls = new ArrayList<>();
+    private VideoItemWindow mWindow;
+    private BufferGatedPreloadStrategy mStrategy;
+
+    @Before
+    public void setUp() {
+        mWindow = new VideoItemWindow((from, count, callback) -> {
+        });
+        List<VideoItem> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // the feed skips ordinals 3 to 9, v3 is at position 3
+            items.add(item("v" + i, i < 3 ? i : i + 7));
+        }
+        mWindow.append(items);
+        mStrategy = new BufferGatedPreloadStrategy(mWindow, new PreloadStrategy() {
+            @Override
+            public void videoListUpdate(final List<VideoItem> videoItems) {
+                mCalls.add("update");
+            }
+
+            @Override
+            public void videoListAppend(final List<VideoItem> videoItems) {
+                mCalls.add("append");
+            }
+
+            @Override
+            public void currentVideoChanged(final VideoItem videoItem) {
+                mCalls.add("current " + videoItem.getVid());
+            }
+
+            @Override
+            public void bufferingUpdate(final VideoItem videoItem, final int duration,
+                    final int buffer, final int playbackTime) {
+            }
+
+            @Override
+            public void swipePredicted(final SwipePredictor.Prediction prediction) {
+                mCalls.add("predicted " + prediction.getLanding());
+            }
+
+            @Override
+            public void playbackStalled(final VideoItem videoItem) {
+                mCalls.add("stalled");
+            }
+
+            @Override
+            public boolean keepsPreload(final VideoItem videoItem) {
+                return false;
+            }
+
+            @Override
+            public void cancelAll() {
+                mCalls.add("cancel");
+            }
+        }, 4000, 1500);
+    }
+
+    @Test
+    public void currentVideo_isForwardedOnceTheLeadIsSafe() {
+        mStrategy.currentVideoChanged(item("v1"));
+        // 2s buffered
+        mStrategy.bufferingUpdate(item("v1"), DURATION, 10, 0);
+        assertTrue(mCalls.isEmpty());
+        assertFalse(mStrategy.isOpen());
+
+        // 4s buffered
+        mStrategy.bufferingUpdate(item("v1"), DURATION, 20, 0);
+
+        assertEquals(Collections.singletonList("current v1"), mCalls);
+        assertTrue(mStrategy.isOpen());
+        // only the start of the video was waited for
+        assertEquals(0, mStrategy.getAtRiskDeferrals());
+    }
+
+    @Test
+    public void bufferedToTheEnd_isASafeLead() {
+        mStrategy.currentVideoChanged(item("v1"));
+
+        // 2s lead, all that is left to play
+        mStrategy.bufferingUpdate(item("v1"), DURATION, 100, 18_000);
+
+        assertEquals(Collections.singletonList("current v1"), mCalls);
+    }
+
+    @Test
+    public void lowLead_cancelsAndWaitsForTheSafeLeadAgain() {
+        mStrategy.currentVideoChanged(item("v1"));
+        mStrategy.bufferingUpdate(item("v1"), DURATION, 30, 0);
+        mCalls.clear();
+
+        // 6s buffered, 4s played, 2s lead
+        mStrategy.bufferingUpdate(item("v1"), DURATION, 30, 4_000);
+        assertTrue(mCalls.isEmpty());
+
+        // 1s lead
+        mStrategy.bufferingUpdate(item("v1"), DURATION, 30, 5_000);
+        assertEquals(Collections.singletonList("cancel"), mCalls);
+        assertFalse(mStrategy.isOpen());
+
+        // 5s lead
+        mStrategy.bufferingUpdate(item("v1"), DURATION, 50, 5_000);
+        assertEquals(Arrays.asList("cancel", "current v1"), mCalls);
+        assertEquals(2, mStrategy.getDeferrals());
+        assertEquals(1, mStrategy.getAtRiskDeferrals());
+    }
+
+    @Test
+    public void stallWhileDeferred_isNotCountedAsAtRisk() {
+        mStrategy.currentVideoChanged(item("v1"));
+        mStrategy.playbackStalled(item("v1"));
+        mStrategy.bufferingUpdate(item("v1"), DURATION, 100, 0);
+
+        mStrategy.currentVideoChanged(item("v2"));
+        mStrategy.bufferingUpdate(item("v2"), DURATION, 100, 0);
+
+        assertEquals(Arrays.asList("stalled", "current v1", "current v2"), mCalls);
+        assertEquals(2, mStrategy.getDeferrals());
+        assertEquals(1, mStrategy.getStalls());
+        assertEquals(0, mStrategy.getAtRiskDeferrals());
+    }
+
+    @Test
+    public void lowLeadWhilePlaying_thenStall_isNotCountedAsAtRisk() {
+        mStrategy.currentVideoChanged(item("v1"));
+        mStrategy.bufferingUpdate(item("v1"), DURATION, 30, 0);
+        // 1s lead
+        mStrategy.bufferingUpdate(item("v1"), DURATION, 30, 5_000);
+        mStrategy.playbackStalled(item("v1"));
+        mStrategy.bufferingUpdate(item("v1"), DURATION, 50, 5_000);
+
+        assertEquals(2, mStrategy.getDeferrals());
+        assertEquals(0, mStrategy.getAtRiskDeferrals());
+    }
+
+    @Test
+    public void eventsOfAnotherPlayer_areIgnored() {
+        mStrategy.currentVideoChanged(item("v1"));
+        mStrategy.bufferingUpdate(item("v1"), DURATION, 30, 0);
+        mStrategy.currentVideoChanged(item("v2"));
+        mCalls.clear();
+
+        // the muted player of v1 is still buffering and stalls
+        mStrategy.bufferingUpdate(item("v1"), DURATION, 100, 0);
+        mStrategy.playbackStalled(item("v1"));
+
+        assertTrue(mCalls.isEmpty());
+        assertFalse(mStrategy.isOpen());
+        assertEquals(0, mStrategy.getStalls());
+
+        mStrategy.bufferingUpdate(item("v2"), DURATION, 30, 0);
+        assertEquals(Collections.singletonList("current v2"), mCalls);
+    }
+
+    @Test
+    public void prediction_isQueuedWhileClosed_andForwardedOnOpen() {
+        mStrategy.currentVideoChanged(item("v1"));
+
+        mStrategy.swipePredicted(new SwipePredictor.Prediction(1, 2, 4, 8000));
+        mStrategy.currentVideoChanged(item("v2"));
+        assertTrue(mCalls.isEmpty());
+
+        mStrategy.bufferingUpdate(item("v2"), DURATION, 30, 0);
+
+        assertEquals(Arrays.asList("current v2", "predicted 4"), mCalls);
+    }
+
+    @Test
+    public void prediction_isForwardedWhileOpen() {
+        mStrategy.currentVideoChanged(item("v1"));
+        mStrategy.bufferingUpdate(item("v1"), DURATION, 30, 0);
+        mCalls.clear();
+
+        mStrategy.swipePredicted(new SwipePredictor.Prediction(1, 2, 4, 8000));
+
+        assertEquals(Collections.singletonList("predicted 4"), mCalls);
+    }
+
+    @Test
+    public void queuedPrediction_isKeptWhenThePagerSettlesOnTheLanding() {
+        mStrategy.currentVideoChanged(item("v1"));
+        mStrategy.swipePredicted(new SwipePredictor.Prediction(1, 2, 4, 8000));
+
+        // position 4, ordinal 11
+        mStrategy.currentVideoChanged(item("v4"));
+        mStrategy.bufferingUpdate(item("v4"), DURATION, 30, 0);
+
+        assertEquals(Arrays.asList("current v4", "predicted 4"), mCalls);
+    }
+
+    @Test
+    public void queuedPrediction_isDroppedWhenThePagerSettlesElsewhere() {
+        mStrategy.currentVideoChanged(item("v1"));
+        mStrategy.swipePredicted(new SwipePredictor.Prediction(1, 2, 4, 8000));
+
+        mStrategy.currentVideoChanged(item("v0"));
+        mStrategy.bufferingUpdate(item("v0"), DURATION, 30, 0);
+
+        assertEquals(Collections.singletonList("current v0"), mCalls);
+    }
+
+    private static VideoItem item(String vid) {
+        return new VideoItem(vid, DURATION, null, null, "token", VIDEO_TYPE_SMALL);
+    }
+
+    private static VideoItem item(String vid, int ordinal) {
+        VideoItem videoItem = item(vid);
+        videoItem.setOrdinal(ordinal);
+        return videoItem;
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/7
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import androidx.annotation.NonNull;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.data.VideoItemWindow;
+import com.ss.ttvideoengine.Resolution;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CacheBudgetManagerTest {
+    private static final long MB = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final List<String> mRemoved = new ArrayList<>();
+    private final List<Runnable> mPasses = new ArrayList<>();
+    private long mMaxSize;
+    private CachedBytesIndex mIndex;
+    private CacheBudgetManager mBudget;
+    private List<VideoItem> mItems;
+
+    @Before
+    public void setUp() {
+        mIndex = new CachedBytesIndex();
+        mBudget = new CacheBudgetManager(new CacheBudgetManager.Cache() {
+            @Override
+            public void setMaxSize(long bytes) {
+                mMaxSize = bytes;
+            }
+
+            @Override
+            public void remove(@NonNull String cacheKey) {
+                mRemoved.add(cacheKey);
+            }
+        }, mPasses::add, mIndex);
+        mBudget.setQuota(10 * MB);
+
+        mItems = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            VideoItem item = new VideoItem("v" + i, 1000, null, null, "token", VIDEO_TYPE_SMALL);
+            item.setOrdinal(i);
+            mItems.add(item);
+        }
+    }
+
+    private CacheBudgetManager newBudget() {
+        return new CacheBudgetManager(new CacheBudgetManager.Cache() {
+            @Override
+            public void setMaxSize(long bytes) {
+            }
+
+            @Override
+            public void remove(@NonNull String cacheKey) {
+                mRemoved.add(cacheKey);
+            }
+        }, mPasses::add, mIndex);
+    }
+
+    private void moveWindow(int position, List<VideoItem> items) {
+        VideoItemWindow window = new VideoItemWindow((from, count, callback) -> {
+        });
+        window.append(items);
+        window.moveTo(position);
+        mBudget.onWindowMoved(window);
+    }
+
+    private void runPasses() {
+        List<Runnable> passes = new ArrayList<>(mPasses);
+        mPasses.clear();
+        for (Runnable pass : passes) {
+            pass.run();
+        }
+    }
+
+    @Test
+    public void quota_capsTheCacheWithHeadroom() {
+        assertEquals((long) (10 * MB * CacheBudgetManager.HARD_LIMIT_FACTOR), mMaxSize);
+    }
+
+    @Test
+    public void withinQuota_noPass() {
+        moveWindow(0, mItems);
+        for (int i = 0; i < 5; i++) {
+            mBudget.onCached("v" + i, "k" + i, 2 * MB);
+        }
+
+        assertTrue(mPasses.isEmpty());
+        assertEquals(10 * MB, mBudget.getUsedBytes());
+    }
+
+    @Test
+    public void overQuota_evictsWatchedThenPassedThenFarthestAhead() {
+        moveWindow(5, mItems);
+        for (int i = 0; i < 10; i++) {
+            mBudget.onCached("v" + i, "k" + i, 2 * MB);
+        }
+        mBudget.onWatched("v3", 200);
+        mBudget.onWatched("v1", 100);
+
+        // one pass however often the quota was crossed before it ran
+        assertEquals(1, mPasses.size());
+        runPasses();
+
+        // 20MB down to 8MB: watched by age, unwatched passed from the farthest, then from the
+        // farthest ahead, current v5 is kept
+        assertEquals(Arrays.asList("k1", "k3", "k0", "k2", "k4", "k9"), mRemoved);
+        assertEquals(8 * MB, mBudget.getUsedBytes());
+        assertEquals(6, mBudget.getEvictions());
+        assertEquals(12 * MB, mBudget.getEvictedBytes());
+        assertEquals(1, mBudget.getPasses());
+    }
+
+    @Test
+    public void orderedByWindowPosition_whenTheFeedSkipsOrdinals() {
+        // ordinals 0, 1, 2, 10, 11...: v5 at position 5 has ordinal 12
+        for (int i = 3; i < 10; i++) {
+            mItems.get(i).setOrdinal(i + 7);
+        }
+        moveWindow(5, mItems);
+        for (int i = 0; i < 10; i++) {
+            mBudget.onCached("v" + i, "k" + i, 2 * MB);
+        }
+        mBudget.onWatched("v3", 200);
+        mBudget.onWatched("v1", 100);
+        runPasses();
+
+        assertEquals(Arrays.asList("k1", "k3", "k0", "k2", "k4", "k9"), mRemoved);
+    }
+
+    @Test
+    public void currentVideo_isNeverEvicted() {
+        moveWindow(0, mItems);
+        mBudget.onCached("v0", "k0", 20 * MB);
+        runPasses();
+
+        assertTrue(mRemoved.isEmpty());
+        assertEquals(20 * MB, mBudget.getUsedBytes());
+    }
+
+    @Test
+    public void unknownPosition_goesBeforeUpcoming() {
+        moveWindow(0, mItems.subList(0, 3));
+        mBudget.onCached("v1", "k1", 4 * MB);
+        mBudget.onCached("x", "kx", 4 * MB);
+        mBudget.onCached("v2", "k2", 4 * MB);
+        runPasses();
+
+        assertEquals(Arrays.asList("kx"), mRemoved);
+    }
+
+    @Test
+    public void buffering_growsKnownFiles_andEvictionForgetsTheIndex() {
+        moveWindow(1, mItems);
+        mIndex.record("v0", Resolution.High, 2 * MB, 20 * MB, 0);
+        mBudget.onCached("v0", "k0", 2 * MB);
+        mBudget.onWatched("v0", 0);
+        assertEquals(2 * MB, mBudget.getWatchedBytes());
+
+        mBudget.onBuffered("v0", 12 * MB);
+        assertEquals(12 * MB, mBudget.getUsedBytes());
+        runPasses();
+
+        assertEquals(Arrays.asList("k0"), mRemoved);
+        assertEquals(0, mBudget.getUsedBytes());
+        assertFalse(mIndex.isCached("v0", Resolution.High, 1));
+    }
+
+    @Test
+    public void savedEntries_seedTheUsageAtTheNextLaunch() throws Exception {
+        File file = new File(mFolder.getRoot(), "budget.bin");
+        mBudget.load(file);
+        moveWindow(0, mItems);
+        mBudget.onCached("v1", "k1", 4 * MB);
+        mBudget.onCached("v2", "k2", 4 * MB);
+        mBudget.onWatched("v2", 100);
+        mBudget.save();
+
+        CacheBudgetManager next = newBudget();
+        next.setQuota(10 * MB);
+        next.onCached("v3", "k3", 4 * MB);
+        next.load(file);
+
+        assertEquals(12 * MB, next.getUsedBytes());
+        assertEquals(4 * MB, next.getWatchedBytes());
+        runPasses();
+        // the watched file of the last launch goes first
+        assertEquals(Arrays.asList("k2"), mRemoved);
+    }
+
+    @Test
+    public void watchTimes_areCapped() {
+        mBudget.onCached("v0", "k0", MB);
+        mBudget.onWatched("v0", 0);
+        for (int i = 1; i <= 512; i++) {
+            mBudget.onWatched("w" + i, i);
+        }
+
+        assertEquals(0, mBudget.getWatchedBytes());
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/6
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import com.ss.ttvideoengine.Resolution;
+import java.io.File;
+import java.io.FileOutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CachedBytesIndexTest {
+    private static final long NOW = 1_000_000_000L;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private CachedBytesIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = new CachedBytesIndex(3);
+    }
+
+    @Test
+    public void cachedBytes_areKeyedByVidAndResolution() {
+        mIndex.record("v1", Resolution.High, 300, 1000, NOW);
+
+        assertTrue(mIndex.isCached("v1", Resolution.High, 300));
+        assertFalse(mIndex.isCached("v1", Resolution.High, 301));
+        assertFalse(mIndex.isCached("v1", Resolution.Standard, 100));
+        assertFalse(mIndex.isCached("v2", Resolution.High, 100));
+    }
+
+    @Test
+    public void fullyCachedMedia_coversAnySize() {
+        mIndex.record("v1", Resolution.High, 1000, 1000, NOW);
+
+        assertTrue(mIndex.isCached("v1", Resolution.High, 5000));
+    }
+
+    @Test
+    public void verifyBuffered_lowersAnEntryTheCacheEvicted() {
+        mIndex.record("v1", Resolution.High, 500, 1000, NOW);
+
+        assertTrue(mIndex.verifyBuffered("v1", Resolution.High, 10, NOW));
+
+        assertEquals(100, mIndex.getCachedBytes("v1", Resolution.High));
+        assertFalse(mIndex.isCached("v1", Resolution.High, 300));
+        mIndex.recordBuffered("v1", Resolution.High, 40, NOW);
+        assertEquals(400, mIndex.getCachedBytes("v1", Resolution.High));
+    }
+
+    @Test
+    public void verifyBuffered_keepsAnEntryThePlayerFound() {
+        mIndex.record("v1", Resolution.High, 500, 1000, NOW);
+
+        assertFalse(mIndex.verifyBuffered("v1", Resolution.High, 60, NOW));
+        assertFalse(mIndex.verifyBuffered("v2", Resolution.High, 0, NOW));
+
+        assertEquals(500, mIndex.getCachedBytes("v1", Resolution.High));
+    }
+
+    @Test
+    public void cachedBytes_neverShrink() {
+        mIndex.record("v1", Resolution.High, 500, 1000, NOW);
+        mIndex.record("v1", Resolution.High, 200, 1000, NOW);
+
+        assertEquals(500, mIndex.getCachedBytes("v1", Resolution.High));
+    }
+
+    @Test
+    public void cachedResolution_isTheOneWithMostBytes() {
+        mIndex.record("v1", Resolution.High, 300, 1000, NOW);
+        mIndex.record("v1", Resolution.SuperHigh, 200, 1000, NOW);
+
+        assertEquals(Resolution.High, mIndex.getCachedResolution("v1"));
+        assertNull(mIndex.getCachedResolution("v2"));
+    }
+
+    @Test
+    public void buffering_needsTheMediaSize() {
+        mIndex.record("v1", Resolution.High, 100, 1000, NOW);
+
+        mIndex.recordBuffered("v1", Resolution.High, 60, NOW);
+        mIndex.recordBuffered("v2", Resolution.High, 60, NOW);
+
+        assertEquals(600, mIndex.getCachedBytes("v1", Resolution.High));
+        assertEquals(0, mIndex.getCachedBytes("v2", Resolution.High));
+    }
+
+    @Test
+    public void leastRecentlyUsed_isDropped_andRemoveForgetsEveryResolution() {
+        mIndex.record("v1", Resolution.High, 100, 1000, NOW);
+        mIndex.record("v1", Resolution.Standard, 100, 1000, NOW);
+        mIndex.record("v2", Resolution.High, 100, 1000, NOW);
+        mIndex.record("v3", Resolution.High, 100, 1000, NOW);
+
+        assertEquals(3, mIndex.size());
+        assertEquals(0, mIndex.getCachedBytes("v1", Resolution.High));
+
+        mIndex.remove("v1");
+        assertEquals(2, mIndex.size());
+    }
+
+    @Test
+    public void savedIndex_isLoadedAtTheNextLaunch_withoutOldEntries() throws Exception {
+        File file = new File(mFolder.getRoot(), "index.bin");
+        mIndex.load(file, NOW);
+        mIndex.record("v1", Resolution.High, 300, 1000, NOW - CachedBytesIndex.MAX_AGE);
+        mIndex.record("v2", Resolution.High, 400, 1000, NOW);
+        mIndex.save();
+
+        CachedBytesIndex next = new CachedBytesIndex(3);
+        next.record("v2", Resolution.High, 500, 1000, NOW + 1);
+        next.load(file, NOW + 1);
+
+        assertEquals(0, next.getCachedBytes("v1", Resolution.High));
+        // recorded before the load wins
+        assertEquals(500, next.getCachedBytes("v2", Resolution.High));
+        assertEquals(1, next.size());
+    }
+
+    @Test
+    public void brokenFile_loadsNothing() throws Exception {
+        File file = mFolder.newFile("index.bin");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[]{1, 2, 3});
+        out.close();
+
+        mIndex.load(file, NOW);
+
+        assertEquals(0, mIndex.size());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/28
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Synthetic throughput traces: {@code feed(estimator, bitsPerSecond, transfers)} replays
+ * transfers of 200KB at the given rate.
+ */
+public class EwmaBandwidthEstimatorTest {
+    private static final long TRANSFER_BYTES = 200 * 1024;
+
+    @Test
+    public void noEstimate_untilEnoughBytes() {
+        EwmaBandwidthEstimator estimator = new EwmaBandwidthEstimator();
+        assertEquals(BandwidthEstimator.NO_ESTIMATE, estimator.getEstimate());
+
+        estimator.onTransferred(64 * 1024, 100);
+        assertEquals(BandwidthEstimator.NO_ESTIMATE, estimator.getEstimate());
+
+        estimator.onTransferred(64 * 1024, 100);
+        assertTrue(estimator.getEstimate() > 0);
+    }
+
+    @Test
+    public void steadyTrace_converges() {
+        EwmaBandwidthEstimator estimator = new EwmaBandwidthEstimator();
+
+        feed(estimator, 2_000_000, 10);
+
+        assertNear(2_000_000, estimator.getEstimate());
+    }
+
+    @Test
+    public void smallTransfers_areIgnored() {
+        EwmaBandwidthEstimator estimator = new EwmaBandwidthEstimator();
+        feed(estimator, 2_000_000, 10);
+
+        // cache hits and tiny ranges finish almost at once
+        for (int i = 0; i < 50; i++) {
+            estimator.onTransferred(8 * 1024, 1);
+        }
+
+        assertNear(2_000_000, estimator.getEstimate());
+    }
+
+    @Test
+    public void drop_isFollowedFast() {
+        EwmaBandwidthEstimator estimator = new EwmaBandwidthEstimator();
+        feed(estimator, 8_000_000, 20);
+
+        // 200KB at 1Mbps takes 1.6s, three of them are more than two fast half lives
+        feed(estimator, 1_000_000, 3);
+
+        assertTrue(estimator.getEstimate() < 2_500_000);
+    }
+
+    @Test
+    public void burst_isFollowedSlowly() {
+        EwmaBandwidthEstimator estimator = new EwmaBandwidthEstimator();
+        feed(estimator, 1_000_000, 10);
+
+        feed(estimator, 20_000_000, 1);
+
+        assertTrue(estimator.getEstimate() < 2_000_000);
+    }
+
+    @Test
+    public void oscillatingTrace_staysNearTheLowerRate() {
+        EwmaBandwidthEstimator estimator = new EwmaBandwidthEstimator();
+        for (int i = 0; i < 20; i++) {
+            feed(estimator, i % 2 == 0 ? 1_000_000 : 4_000_000, 1);
+        }
+
+        long estimate = estimator.getEstimate();
+        assertTrue(estimate > 1_000_000 && estimate < 2_500_000);
+    }
+
+    @Test
+    public void stall_scalesTheEstimateDown() {
+        EwmaBandwidthEstimator estimator = new EwmaBandwidthEstimator();
+        feed(estimator, 4_000_000, 10);
+        long before = estimator.getEstimate();
+
+        estimator.onStall();
+
+        assertEquals(before * EwmaBandwidthEstimator.STALL_FACTOR, estimator.getEstimate(),
+                before * 0.01);
+    }
+
+    static void feed(BandwidthEstimator estimator, long bitsPerSecond, int transfers) {
+        for (int i = 0; i < transfers; i++) {
+            estimator.onTransferred(TRANSFER_BYTES, TRANSFER_BYTES * 8 * 1000 / bitsPerSecond);
+        }
+    }
+
+    private static void assertNear(long expected, long actual) {
+        assertEquals(expected, actual, expected * 0.02);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/28
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import com.ss.ttvideoengine.Resolution;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PreloadBudgetTest {
+
+    @Test
+    public void noEstimate_staticDefaults() {
+        PreloadBudget budget = new PreloadBudget(new EwmaBandwidthEstimator());
+
+        assertEquals(PreloadStrategy.PRELOAD_SIZE, budget.getPreloadSize());
+        assertEquals(PreloadStrategy.START_PLAY_RESOLUTION, budget.getResolution());
+    }
+
+    @Test
+    public void preloadSize_followsThroughputWithinBounds() {
+        EwmaBandwidthEstimator estimator = new EwmaBandwidthEstimator();
+        PreloadBudget budget = new PreloadBudget(estimator);
+
+        EwmaBandwidthEstimatorTest.feed(estimator, 4_000_000, 10);
+        assertEquals(500_000, budget.getPreloadSize(), 10_000);
+
+        EwmaBandwidthEstimatorTest.feed(estimator, 50_000_000, 40);
+        assertEquals(PreloadBudget.MAX_PRELOAD_SIZE, budget.getPreloadSize());
+
+        EwmaBandwidthEstimatorTest.feed(estimator, 300_000, 10);
+        assertEquals(PreloadStrategy.MIN_PRELOAD_SIZE, budget.getPreloadSize());
+    }
+
+    @Test
+    public void resolution_stepsWithThroughput() {
+        EwmaBandwidthEstimator estimator = new EwmaBandwidthEstimator();
+        PreloadBudget budget = new PreloadBudget(estimator);
+
+        EwmaBandwidthEstimatorTest.feed(estimator, 800_000, 10);
+        assertEquals(Resolution.Standard, budget.getResolution());
+
+        EwmaBandwidthEstimatorTest.feed(estimator, 2_500_000, 20);
+        assertEquals(Resolution.High, budget.getResolution());
+
+        EwmaBandwidthEstimatorTest.feed(estimator, 8_000_000, 40);
+        assertEquals(Resolution.SuperHigh, budget.getResolution());
+    }
+
+    @Test
+    public void resolution_doesNotFlapAroundAThreshold() {
+        FixedEstimator estimator = new FixedEstimator();
+        PreloadBudget budget = new PreloadBudget(estimator);
+
+        // just above the SuperHigh threshold but within the step up margin
+        estimator.mEstimate = 4_200_000;
+        assertEquals(Resolution.High, budget.getResolution());
+
+        estimator.mEstimate = 5_100_000;
+        assertEquals(Resolution.SuperHigh, budget.getResolution());
+
+        // back within the margin keeps it
+        estimator.mEstimate = 4_200_000;
+        assertEquals(Resolution.SuperHigh, budget.getResolution());
+
+        estimator.mEstimate = 3_900_000;
+        assertEquals(Resolution.High, budget.getResolution());
+    }
+
+    private static class FixedEstimator implements BandwidthEstimator {
+        long mEstimate = NO_ESTIMATE;
+
+        @Override
+        public void onTransferred(final long bytes, final long elapsedMs) {
+        }
+
+        @Override
+        public void onStall() {
+        }
+
+        @Override
+        public long getEstimate() {
+            return mEstimate;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/31
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PreloadMetricsTest {
+    private PreloadMetrics mMetrics;
+
+    @Before
+    public void setUp() {
+        mMetrics = new PreloadMetrics(3);
+    }
+
+    @Test
+    public void playAfterPreload_isAHit() {
+        mMetrics.onPreloaded("v1", 300, 1000, 10);
+        mMetrics.onPlayStarted("v1", 80, 20);
+        mMetrics.onPlayStarted("v2", 400, 30);
+
+        assertEquals(1, mMetrics.getHits());
+        assertEquals(1, mMetrics.getMisses());
+        assertEquals(0.5f, mMetrics.getHitRate(), 0);
+        assertEquals(80, mMetrics.getMeanHitLatencyMs());
+        assertEquals(400, mMetrics.getMeanMissLatencyMs());
+        assertTrue(mMetrics.getRecord("v1").isHit());
+        assertFalse(mMetrics.getRecord("v2").isHit());
+    }
+
+    @Test
+    public void onlyTheFirstPlay_counts() {
+        mMetrics.onPlayStarted("v1", 400, 10);
+        mMetrics.onPreloaded("v1", 300, 1000, 20);
+        mMetrics.onPlayStarted("v1", 50, 30);
+
+        assertEquals(0, mMetrics.getHits());
+        assertEquals(1, mMetrics.getMisses());
+        // cached while playing, not by a preload
+        assertEquals(0, mMetrics.getPreloadedBytes());
+    }
+
+    @Test
+    public void laterPreload_addsOnlyTheNewBytes() {
+        mMetrics.onPreloaded("v1", 300, 1000, 10);
+        mMetrics.onPreloaded("v1", 500, 1000, 20);
+        mMetrics.onPreloaded("v1", 200, 1000, 30);
+
+        assertEquals(500, mMetrics.getPreloadedBytes());
+        assertEquals(500, mMetrics.getRecord("v1").getPreloadedBytes());
+    }
+
+    @Test
+    public void droppedUnplayedVid_isWasted() {
+        mMetrics.onPreloaded("v1", 100, 1000, 10);
+        mMetrics.onPreloaded("v2", 200, 1000, 10);
+        mMetrics.onPlayStarted("v2", 50, 20);
+        mMetrics.onPreloaded("v3", 300, 1000, 30);
+        assertEquals(400, mMetrics.getPendingBytes());
+        assertEquals(0, mMetrics.getWastedBytes());
+
+        mMetrics.onPreloaded("v4", 400, 1000, 40);
+        mMetrics.onPreloaded("v5", 500, 1000, 50);
+
+        // v1 never played, v2 did
+        assertEquals(100, mMetrics.getWastedBytes());
+        assertNull(mMetrics.getRecord("v1"));
+        assertEquals(1200, mMetrics.getPendingBytes());
+    }
+
+    @Test
+    public void unplayedVidLeavingTheWindow_isWasted() {
+        mMetrics.onPreloaded("v1", 100, 1000, 10);
+        mMetrics.onPreloaded("v2", 200, 1000, 10);
+        mMetrics.onPlayStarted("v2", 50, 20);
+
+        mMetrics.onWindowMoved(Arrays.asList("v3", "v4"));
+        mMetrics.onWindowMoved(Arrays.asList("v4", "v5"));
+
+        // counted once, v2 was played
+        assertEquals(100, mMetrics.getWastedBytes());
+        assertEquals(0, mMetrics.getPendingBytes());
+        assertTrue(mMetrics.getRecord("v1").isWasted());
+
+        // swiped back and played after all
+        mMetrics.onPlayStarted("v1", 60, 30);
+        assertEquals(0, mMetrics.getWastedBytes());
+        assertTrue(mMetrics.getRecord("v1").isHit());
+    }
+
+    @Test
+    public void json_holdsTotalsAndRecords() {
+        mMetrics.onPreloaded("v1", 300, 1000, 10);
+        mMetrics.onPlayStarted("v1", 80, 20);
+
+        JsonObject json = JsonParser.parseString(mMetrics.toJson()).getAsJsonObject();
+
+        assertEquals(300, json.get("preloadedBytes").getAsLong());
+        assertEquals(1, json.get("hits").getAsInt());
+        JsonArray records = json.getAsJsonArray("records");
+        assertEquals(1, records.size());
+        JsonObject record = records.get(0).getAsJsonObject();
+        assertEquals("v1", record.get("vid").getAsString());
+        assertEquals(80, record.get("startLatencyMs").getAsLong());
+        assertTrue(record.get("hit").getAsBoolean());
+    }
+}
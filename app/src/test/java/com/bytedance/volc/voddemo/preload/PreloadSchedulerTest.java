@@ -0,0 +1,218 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/30
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import androidx.annotation.NonNull;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.ss.ttvideoengine.PreLoaderItemCallBackInfo;
+import com.ss.ttvideoengine.Resolution;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PreloadSchedulerTest {
+
+    /**
+     * Stands in for the SDK preloader, tasks run until the test ends them.
+     */
+    static class FakeEngine implements PreloadScheduler.Engine {
+        final Map<String, BasePreloadStrategy.PreloadListener> mRunning = new LinkedHashMap<>();
+        final List<String> mStarted = new ArrayList<>();
+        final List<String> mCanceled = new ArrayList<>();
+
+        @Override
+        public void start(@NonNull PreloadScheduler.Task task,
+                @NonNull BasePreloadStrategy.PreloadListener listener) {
+            final String vid = task.getVideoItem().getVid();
+            mStarted.add(vid);
+            mRunning.put(vid, listener);
+        }
+
+        @Override
+        public void cancel(@NonNull PreloadScheduler.Task task) {
+            final String vid = task.getVideoItem().getVid();
+            mCanceled.add(vid);
+            mRunning.remove(vid);
+        }
+
+        void finish(String vid) {
+            mRunning.remove(vid).onPreloadEnd(vid,
+                    PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_SUCCEED);
+        }
+    }
+
+    private final List<String> mEnded = new ArrayList<>();
+    private final BasePreloadStrategy.PreloadListener mListener =
+            (videoId, key) -> mEnded.add(videoId + ":" + key);
+    private FakeEngine mEngine;
+    private PreloadScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mEngine = new FakeEngine();
+        mScheduler = new PreloadScheduler(mEngine, 2);
+    }
+
+    @Test
+    public void runningTasks_areBounded_andStartByPriority() {
+        schedule("v3", 3);
+        schedule("v1", 1);
+        schedule("v4", 4);
+        schedule("v2", 2);
+
+        // v3 and v1 took the free slots before the others arrived
+        assertEquals(Arrays.asList("v3", "v1"), mEngine.mStarted);
+        assertEquals(2, mScheduler.getRunningCount());
+        assertEquals(2, mScheduler.getWaitingCount());
+
+        mEngine.finish("v3");
+
+        assertEquals(Arrays.asList("v3", "v1", "v2"), mEngine.mStarted);
+        assertEquals(Arrays.asList("v3:" + PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_SUCCEED),
+                mEnded);
+    }
+
+    @Test
+    public void sameVidAndResolution_isScheduledOnce() {
+        schedule("v1", 1);
+        schedule("v2", 2);
+        assertTrue(mScheduler.schedule(item("v3"), Resolution.High, 100, 5, mListener));
+
+        assertFalse(mScheduler.schedule(item("v3"), Resolution.High, 300, 3, mListener));
+        assertTrue(mScheduler.schedule(item("v3"), Resolution.Standard, 100, 5, mListener));
+
+        assertEquals(2, mScheduler.getWaitingCount());
+        mEngine.finish("v1");
+        // the merged task kept the higher priority
+        assertEquals(Arrays.asList("v1", "v2", "v3"), mEngine.mStarted);
+        assertTrue(mScheduler.isScheduled("v3", Resolution.Standard));
+    }
+
+    @Test
+    public void promotedTask_startsBeforeOthers() {
+        schedule("v1", 1);
+        schedule("v2", 2);
+        schedule("v3", 3);
+        schedule("v9", 9);
+
+        mScheduler.promote("v9");
+        mEngine.finish("v1");
+
+        assertEquals(Arrays.asList("v1", "v2", "v9"), mEngine.mStarted);
+    }
+
+    @Test
+    public void demotedTask_waitsBehindOthers_butIsNotMovedForward() {
+        schedule("v1", 1);
+        schedule("v2", 2);
+        schedule("v3", 3);
+        schedule("v4", 4);
+
+        mScheduler.demote("v3", 5);
+        mScheduler.demote("v4", 2);
+        mEngine.finish("v1");
+
+        assertEquals(Arrays.asList("v1", "v2", "v4"), mEngine.mStarted);
+        assertTrue(mScheduler.isScheduled("v3", Resolution.High));
+    }
+
+    @Test
+    public void canceledTasks_endOnce_andFreeTheirSlot() {
+        schedule("v1", 1);
+        schedule("v2", 2);
+        schedule("v3", 3);
+        schedule("v4", 4);
+
+        mScheduler.cancel("v4");
+        mScheduler.cancel("v1");
+
+        assertEquals(Arrays.asList("v1"), mEngine.mCanceled);
+        assertEquals(Arrays.asList("v1", "v2", "v3"), mEngine.mStarted);
+        final int cancel = PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_CANCEL;
+        assertEquals(Arrays.asList("v4:" + cancel, "v1:" + cancel), mEnded);
+        assertFalse(mScheduler.isScheduled("v1", Resolution.High));
+    }
+
+    @Test
+    public void cancelAll_emptiesTheScheduler() {
+        schedule("v1", 1);
+        schedule("v2", 2);
+        schedule("v3", 3);
+
+        mScheduler.cancelAll();
+
+        assertEquals(0, mScheduler.getRunningCount());
+        assertEquals(0, mScheduler.getWaitingCount());
+        assertEquals(3, mEnded.size());
+        assertEquals(Arrays.asList("v1", "v2"), mEngine.mStarted);
+    }
+
+    @Test
+    public void cachedBytes_areNotPreloadedAgain() {
+        CachedBytesIndex index = new CachedBytesIndex();
+        index.record("v1", Resolution.High, 300, 1000, 0);
+        mScheduler = new PreloadScheduler(mEngine, 2, index);
+
+        assertFalse(mScheduler.schedule(item("v1"), Resolution.High, 300, 1, mListener));
+        assertTrue(mScheduler.schedule(item("v1"), Resolution.High, 400, 1, mListener));
+
+        assertEquals(Arrays.asList("v1"), mEngine.mStarted);
+        assertEquals(Arrays.asList("v1:" + PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_SUCCEED),
+                mEnded);
+    }
+
+    @Test
+    public void taskTheEngineNeverEnds_isFailedByTheWatchdog() {
+        final List<Runnable> watchdogs = new ArrayList<>();
+        mScheduler = new PreloadScheduler(mEngine, 1, null,
+                (runnable, delayMs) -> watchdogs.add(runnable), 1000);
+        schedule("v1", 1);
+        schedule("v2", 2);
+        assertEquals(1, watchdogs.size());
+
+        watchdogs.get(0).run();
+
+        assertEquals(Arrays.asList("v1"), mEngine.mCanceled);
+        assertEquals(Arrays.asList("v1", "v2"), mEngine.mStarted);
+        assertEquals(Arrays.asList("v1:" + PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_FAIL),
+                mEnded);
+
+        // the watchdog of a task that ended is ignored
+        mEngine.finish("v2");
+        watchdogs.get(1).run();
+        assertEquals(2, mEnded.size());
+        assertEquals(0, mScheduler.getRunningCount());
+    }
+
+    private void schedule(String vid, int priority) {
+        mScheduler.schedule(item(vid), Resolution.High, 100, priority, mListener);
+    }
+
+    private static VideoItem item(String vid) {
+        return new VideoItem(vid, 1000, null, null, "token", VIDEO_TYPE_SMALL);
+    }
+}
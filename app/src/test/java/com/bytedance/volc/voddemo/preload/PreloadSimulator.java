@@ -0,0 +1,322 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/4
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import androidx.annotation.NonNull;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.data.VideoItemWindow;
+import com.ss.ttvideoengine.PreLoaderItemCallBackInfo;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+
+/**
+ * Replays a {@link SwipeTrace} against a {@link PreloadStrategy} on a simulated clock, with no
+ * SDK and no network. The strategy is installed in {@link PreloadManager} and driven the way
+ * the player drives it: videoListUpdate, currentVideoChanged, bufferingUpdate, playbackStalled
+ * and the release of the previous video.
+ *
+ * Preload tasks and the current video share one link of {@code bandwidthBps} equally. Every
+ * video has the same bitrate whatever resolution is asked for. A video shows its first frame
+ * once {@link #START_BUFFER_MS} of it is cached plus {@link #DECODE_MS}, and stalls when the
+ * playhead catches up with the cache until {@link #REBUFFER_MS} more are cached. Bytes cached by
+ * the player or by a preload stay cached for the whole run.
+ */
+final class PreloadSimulator {
+    static final long TICK_MS = 20;
+    static final long START_BUFFER_MS = 500;
+    static final long DECODE_MS = 40;
+    static final long REBUFFER_MS = 1000;
+    static final long MAX_BUFFER_MS = 30_000;
+    static final long BUFFERING_UPDATE_MS = 500;
+
+    interface StrategyFactory {
+        @NonNull
+        PreloadStrategy create(@NonNull VideoItemWindow videoWindow);
+    }
+
+    static final class Report {
+        final String mName;
+        // first frames shown, abandoned starts left before their first frame
+        int mStarts;
+        int mAbandoned;
+        float mHitRate;
+        long mTtffP50;
+        long mTtffP90;
+        long mTtffP99;
+        int mStalls;
+        long mStallMs;
+        long mPreloadedBytes;
+        // preloaded for videos never played
+        long mUnusedBytes;
+
+        Report(String name) {
+            mName = name;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%-22s hit %5.1f%%  ttff p50/p90/p99 %4d/%4d/%4dms  abandoned %3d"
+                    + "  stalls %3d (%6dms)  preloaded %6dKB  unused %6dKB",
+                    mName, mHitRate * 100, mTtffP50, mTtffP90, mTtffP99, mAbandoned, mStalls,
+                    mStallMs, mPreloadedBytes / 1024, mUnusedBytes / 1024);
+        }
+    }
+
+    private static final class Transfer {
+        final PreloadScheduler.Task mTask;
+        final BasePreloadStrategy.PreloadListener mListener;
+        final int mPosition;
+        final long mTarget;
+        final long mStartMs;
+        long mBytes;
+
+        Transfer(PreloadScheduler.Task task, BasePreloadStrategy.PreloadListener listener,
+                long target, long startMs) {
+            mTask = task;
+            mListener = listener;
+            mPosition = task.getVideoItem().getOrdinal();
+            mTarget = target;
+            mStartMs = startMs;
+        }
+    }
+
+    private final long mBandwidthBps;
+    private final long mBitrateBps;
+    private final int mDurationMs;
+    private final int mMaxRunning;
+
+    // per run
+    private final List<VideoItem> mItems = new ArrayList<>();
+    private final List<Transfer> mTransfers = new ArrayList<>();
+    private final List<Long> mTtffs = new ArrayList<>();
+    private long[] mCached;
+    private PreloadMetrics mMetrics;
+    private EwmaBandwidthEstimator mEstimator;
+    private Report mReport;
+    private long mNow;
+    private int mPosition;
+    private long mPlayStartMs;
+    private boolean mFirstFrame;
+    private long mPlayheadMs;
+    private boolean mStalled;
+    private long mStallStartMs;
+
+    /**
+     * @param bandwidthBps link throughput in bits per second
+     * @param bitrateBps   bitrate of every video in bits per second
+     */
+    PreloadSimulator(long bandwidthBps, long bitrateBps, int durationMs, int maxRunning) {
+        mBandwidthBps = bandwidthBps;
+        mBitrateBps = bitrateBps;
+        mDurationMs = durationMs;
+        mMaxRunning = maxRunning;
+    }
+
+    @NonNull
+    Report run(@NonNull String name, @NonNull StrategyFactory factory,
+            @NonNull SwipeTrace trace) {
+        final List<VideoItem> items = mItems;
+        items.clear();
+        final int count = trace.getSwipes().size() + 1;
+        for (int i = 0; i < count; i++) {
+            final VideoItem videoItem = new VideoItem("v" + i, mDurationMs, null, null, "token",
+                    VIDEO_TYPE_SMALL);
+            videoItem.setOrdinal(i);
+            items.add(videoItem);
+        }
+        final VideoItemWindow videoWindow = new VideoItemWindow((from, size, callback) ->
+                callback.onResult(new ArrayList<>(
+                        items.subList(from, Math.min(items.size(), from + size)))));
+        videoWindow.append(items);
+
+        mTransfers.clear();
+        mTtffs.clear();
+        mCached = new long[count];
+        mMetrics = new PreloadMetrics(count);
+        mEstimator = new EwmaBandwidthEstimator();
+        mReport = new Report(name);
+        mNow = 0;
+
+        final PreloadManager preloadManager = PreloadManager.getInstance();
+        preloadManager.setBandwidthEstimator(mEstimator);
+        preloadManager.setScheduler(new PreloadScheduler(new FakeEngine(), mMaxRunning));
+        preloadManager.setPreloadStrategy(factory.create(videoWindow));
+        try {
+            preloadManager.videoListUpdate(items);
+            startPlay(videoWindow, 0);
+            final List<SwipeTrace.Swipe> swipes = trace.getSwipes();
+            for (int i = 0; i < swipes.size(); i++) {
+                final SwipeTrace.Swipe swipe = swipes.get(i);
+                final long end = mNow + swipe.mDwellMs;
+                while (mNow < end) {
+                    tick(preloadManager);
+                    mNow += TICK_MS;
+                }
+                final int position = Math.max(0, Math.min(count - 1,
+                        mPosition + swipe.mDirection));
+                if (position == mPosition) {
+                    continue;
+                }
+                leave(preloadManager, items.get(mPosition));
+                // the trace ends with the last swipe, nothing is watched after it
+                if (i < swipes.size() - 1) {
+                    startPlay(videoWindow, position);
+                }
+            }
+        } finally {
+            preloadManager.setPreloadStrategy(null);
+            preloadManager.setScheduler(
+                    new PreloadScheduler(preloadManager.getCachedBytesIndex()));
+            preloadManager.setBandwidthEstimator(new EwmaBandwidthEstimator());
+        }
+
+        Collections.sort(mTtffs);
+        mReport.mStarts = mTtffs.size();
+        mReport.mHitRate = mMetrics.getHitRate();
+        mReport.mTtffP50 = percentile(mTtffs, 0.5);
+        mReport.mTtffP90 = percentile(mTtffs, 0.9);
+        mReport.mTtffP99 = percentile(mTtffs, 0.99);
+        mReport.mPreloadedBytes = mMetrics.getPreloadedBytes();
+        mReport.mUnusedBytes = mMetrics.getWastedBytes() + mMetrics.getPendingBytes();
+        return mReport;
+    }
+
+    private void startPlay(VideoItemWindow videoWindow, int position) {
+        mPosition = position;
+        mPlayStartMs = mNow;
+        mFirstFrame = false;
+        mPlayheadMs = 0;
+        mStalled = false;
+        videoWindow.moveTo(position);
+        PreloadManager.getInstance().currentVideoChanged(mItems.get(position));
+    }
+
+    private void leave(PreloadManager preloadManager, VideoItem videoItem) {
+        if (!mFirstFrame) {
+            mReport.mAbandoned++;
+        }
+        if (mStalled) {
+            mReport.mStallMs += mNow - mStallStartMs;
+        }
+        preloadManager.videoReleased(videoItem);
+    }
+
+    private void tick(PreloadManager preloadManager) {
+        final long mediaSize = bytesAt(mDurationMs);
+        final long cached = mCached[mPosition];
+        final boolean playerWants = cached < Math.min(mediaSize, bytesAt(mPlayheadMs
+                                                                         + MAX_BUFFER_MS));
+        final int flows = mTransfers.size() + (playerWants ? 1 : 0);
+        if (flows > 0) {
+            final long share = bytesAt(TICK_MS, mBandwidthBps) / flows;
+            final List<Transfer> ended = new ArrayList<>();
+            for (Transfer transfer : mTransfers) {
+                final long bytes = Math.min(share,
+                        Math.max(0, transfer.mTarget - mCached[transfer.mPosition]));
+                mCached[transfer.mPosition] += bytes;
+                transfer.mBytes += bytes;
+                if (mCached[transfer.mPosition] >= transfer.mTarget) {
+                    ended.add(transfer);
+                }
+            }
+            if (playerWants) {
+                mCached[mPosition] = Math.min(mediaSize, mCached[mPosition] + share);
+            }
+            mTransfers.removeAll(ended);
+            for (Transfer transfer : ended) {
+                final String vid = transfer.mTask.getVideoItem().getVid();
+                mEstimator.onTransferred(transfer.mBytes, mNow + TICK_MS - transfer.mStartMs);
+                mMetrics.onPreloaded(vid, mCached[transfer.mPosition], mediaSize, mNow);
+                transfer.mListener.onPreloadEnd(vid,
+                        PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_SUCCEED);
+            }
+        }
+
+        final VideoItem current = mItems.get(mPosition);
+        if (!mFirstFrame) {
+            if (mCached[mPosition] >= Math.min(mediaSize, bytesAt(START_BUFFER_MS))) {
+                mFirstFrame = true;
+                final long ttff = mNow + DECODE_MS - mPlayStartMs;
+                mTtffs.add(ttff);
+                mMetrics.onPlayStarted(current.getVid(), ttff, mNow);
+            }
+        } else if (mStalled) {
+            if (mCached[mPosition] >= Math.min(mediaSize, bytesAt(mPlayheadMs + REBUFFER_MS))) {
+                mStalled = false;
+                mReport.mStallMs += mNow - mStallStartMs;
+            }
+        } else {
+            mPlayheadMs = (mPlayheadMs + TICK_MS) % mDurationMs;
+            if (mCached[mPosition] < Math.min(mediaSize, bytesAt(mPlayheadMs))) {
+                mStalled = true;
+                mStallStartMs = mNow;
+                mReport.mStalls++;
+                preloadManager.playbackStalled(current);
+            }
+        }
+
+        if (mNow % BUFFERING_UPDATE_MS == 0) {
+            preloadManager.bufferingUpdate(current, mDurationMs,
+                    (int) (mCached[mPosition] * 100 / mediaSize), (int) mPlayheadMs);
+        }
+    }
+
+    private long bytesAt(long ms) {
+        return bytesAt(ms, mBitrateBps);
+    }
+
+    private static long bytesAt(long ms, long bps) {
+        return bps / 8 * ms / 1000;
+    }
+
+    private static long percentile(List<Long> sorted, double q) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        final int index = (int) Math.ceil(q * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+
+    /**
+     * Stands in for the SDK preloader on the simulated link.
+     */
+    private final class FakeEngine implements PreloadScheduler.Engine {
+
+        @Override
+        public void start(@NonNull PreloadScheduler.Task task,
+                @NonNull BasePreloadStrategy.PreloadListener listener) {
+            final long target = Math.min(bytesAt(mDurationMs), task.getPreloadSize());
+            mTransfers.add(new Transfer(task, listener, target, mNow));
+        }
+
+        @Override
+        public void cancel(@NonNull PreloadScheduler.Task task) {
+            for (int i = 0; i < mTransfers.size(); i++) {
+                if (mTransfers.get(i).mTask == task) {
+                    mTransfers.remove(i);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/4
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import androidx.annotation.NonNull;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the preload strategies on the same traces. Run it alone with
+ * {@code ./gradlew :app:preloadSimulation}, the reports go to the test output.
+ */
+public class PreloadSimulatorTest {
+    private static final int BITRATE_BPS = 1_500_000;
+    private static final int DURATION_MS = 20_000;
+
+    private static final PreloadSimulator.StrategyFactory NONE = videoWindow ->
+            new PreloadStrategy() {
+                @Override
+                public void videoListUpdate(final List<VideoItem> videoItems) {
+                }
+
+                @Override
+                public void videoListAppend(final List<VideoItem> videoItems) {
+                }
+
+                @Override
+                public void currentVideoChanged(final VideoItem videoItem) {
+                }
+
+                @Override
+                public void bufferingUpdate(final VideoItem videoItem, final int duration,
+                        final int buffer, final int playbackTime) {
+                }
+
+                @Override
+                public void swipePredicted(final SwipePredictor.Prediction prediction) {
+                }
+
+                @Override
+                public void playbackStalled(final VideoItem videoItem) {
+                }
+
+                @Override
+                public boolean keepsPreload(final VideoItem videoItem) {
+                    return false;
+                }
+
+                @Override
+                public void cancelAll() {
+                }
+            };
+    private static final PreloadSimulator.StrategyFactory SIMPLE = SimplePreloadStrategy::new;
+    private static final PreloadSimulator.StrategyFactory SLIDING =
+            SlidingWindowPreloadStrategy::new;
+    private static final PreloadSimulator.StrategyFactory GATED = videoWindow ->
+            new BufferGatedPreloadStrategy(videoWindow,
+                    new SlidingWindowPreloadStrategy(videoWindow));
+
+    @Test
+    public void fastNetwork_preloadCutsTheFirstFrameTime() {
+        SwipeTrace trace = SwipeTrace.synthetic(1, 300, 4000, 0.1);
+        PreloadSimulator simulator = new PreloadSimulator(8_000_000, BITRATE_BPS, DURATION_MS,
+                PreloadScheduler.DEFAULT_MAX_RUNNING);
+
+        PreloadSimulator.Report none = report(simulator, "none", NONE, trace);
+        PreloadSimulator.Report simple = report(simulator, "simple", SIMPLE, trace);
+        PreloadSimulator.Report sliding = report(simulator, "sliding window", SLIDING, trace);
+        report(simulator, "gated sliding window", GATED, trace);
+
+        assertEquals(0, none.mHitRate, 0);
+        assertEquals(0, none.mPreloadedBytes);
+        assertTrue(simple.mHitRate > 0.5f);
+        assertTrue(sliding.mHitRate >= simple.mHitRate);
+        assertTrue(sliding.mTtffP90 < none.mTtffP90);
+    }
+
+    @Test
+    public void slowNetwork() {
+        SwipeTrace trace = SwipeTrace.synthetic(2, 300, 6000, 0.1);
+        PreloadSimulator simulator = new PreloadSimulator(2_000_000, BITRATE_BPS, DURATION_MS,
+                PreloadScheduler.DEFAULT_MAX_RUNNING);
+
+        report(simulator, "none", NONE, trace);
+        report(simulator, "simple", SIMPLE, trace);
+        PreloadSimulator.Report sliding = report(simulator, "sliding window", SLIDING, trace);
+        PreloadSimulator.Report gated = report(simulator, "gated sliding window", GATED, trace);
+
+        assertTrue(gated.mStalls <= sliding.mStalls);
+    }
+
+    @Test
+    public void sameTrace_sameReport() {
+        SwipeTrace trace = SwipeTrace.synthetic(3, 100, 3000, 0.2);
+        PreloadSimulator simulator = new PreloadSimulator(4_000_000, BITRATE_BPS, DURATION_MS,
+                PreloadScheduler.DEFAULT_MAX_RUNNING);
+
+        assertEquals(simulator.run("a", SLIDING, trace).toString(),
+                simulator.run("a", SLIDING, trace).toString());
+    }
+
+    @Test
+    public void recordedTrace_isReplayed() throws IOException {
+        SwipeTrace trace = SwipeTrace.parse(new StringReader("# dwell direction\n"
+                                                             + "5000 +1\n"
+                                                             + "800 +1\n"
+                                                             + "\n"
+                                                             + "1200 -1\n"
+                                                             + "3000 +1\n"));
+        assertEquals(4, trace.getSwipes().size());
+        assertEquals(-1, trace.getSwipes().get(2).mDirection);
+
+        PreloadSimulator simulator = new PreloadSimulator(8_000_000, BITRATE_BPS, DURATION_MS,
+                PreloadScheduler.DEFAULT_MAX_RUNNING);
+        PreloadSimulator.Report report = report(simulator, "recorded", SLIDING, trace);
+
+        assertEquals(4, report.mStarts + report.mAbandoned);
+    }
+
+    @Test(expected = IOException.class)
+    public void badDirection_isRejected() throws IOException {
+        SwipeTrace.parse(new StringReader("500 2\n"));
+    }
+
+    private static PreloadSimulator.Report report(PreloadSimulator simulator, String name,
+            @NonNull PreloadSimulator.StrategyFactory factory, SwipeTrace trace) {
+        PreloadSimulator.Report report = simulator.run(name, factory, trace);
+        System.out.println(report);
+        return report;
+    }
+}
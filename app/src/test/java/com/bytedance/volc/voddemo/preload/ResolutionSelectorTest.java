@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/7
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import com.bytedance.volc.voddemo.videoview.DisplayMode;
+import com.ss.ttvideoengine.Resolution;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ResolutionSelectorTest {
+    private static final int SCENE = VIDEO_TYPE_SMALL;
+    private static final int OTHER_SCENE = 1;
+
+    private ResolutionSelector mSelector;
+
+    @Before
+    public void setUp() {
+        mSelector = new ResolutionSelector();
+    }
+
+    @Test
+    public void noViewport_keepsTheBandwidthResolution() {
+        assertEquals(Resolution.SuperHigh, mSelector.getResolution(SCENE, Resolution.SuperHigh));
+        assertEquals(Resolution.Auto, mSelector.getResolution(SCENE, Resolution.Auto));
+    }
+
+    @Test
+    public void fullScreenPortrait_isCappedByBandwidthOnly() {
+        mSelector.setViewport(SCENE, 1080, 2340, DisplayMode.DISPLAY_MODE_ASPECT_FIT);
+
+        assertEquals(Resolution.SuperHigh, mSelector.getResolution(SCENE, Resolution.SuperHigh));
+        assertEquals(Resolution.ExtremelyHigh,
+                mSelector.getResolution(SCENE, Resolution.ExtremelyHigh));
+    }
+
+    @Test
+    public void smallViewport_capsTheResolution() {
+        mSelector.setViewport(SCENE, 540, 960, DisplayMode.DISPLAY_MODE_ASPECT_FIT);
+
+        assertEquals(Resolution.High, mSelector.getResolution(SCENE, Resolution.SuperHigh));
+        assertEquals(Resolution.Standard, mSelector.getResolution(SCENE, Resolution.Standard));
+    }
+
+    @Test
+    public void displayMode_decidesTheShownLines() {
+        // a portrait video fit into a landscape view is 405 pixels wide, cropped it is 1280
+        mSelector.setViewport(SCENE, 1280, 720, DisplayMode.DISPLAY_MODE_ASPECT_FIT);
+        assertEquals(Resolution.Standard, mSelector.getResolution(SCENE, Resolution.SuperHigh));
+
+        mSelector.setViewport(SCENE, 1280, 720, DisplayMode.DISPLAY_MODE_ASPECT_FILL);
+        assertEquals(Resolution.SuperHigh, mSelector.getResolution(SCENE, Resolution.SuperHigh));
+    }
+
+    @Test
+    public void zeroSize_isIgnored() {
+        mSelector.setViewport(SCENE, 540, 960, DisplayMode.DISPLAY_MODE_ASPECT_FIT);
+        mSelector.setViewport(SCENE, 0, 0, DisplayMode.DISPLAY_MODE_ASPECT_FIT);
+
+        assertEquals(Resolution.High, mSelector.getResolution(SCENE, Resolution.SuperHigh));
+    }
+
+    @Test
+    public void viewportOfAnotherScene_isNotUsed() {
+        mSelector.setViewport(SCENE, 1080, 2340, DisplayMode.DISPLAY_MODE_ASPECT_FIT);
+        mSelector.setViewport(OTHER_SCENE, 540, 960, DisplayMode.DISPLAY_MODE_ASPECT_FIT);
+
+        assertEquals(Resolution.SuperHigh, mSelector.getResolution(SCENE, Resolution.SuperHigh));
+        assertEquals(Resolution.High,
+                mSelector.getResolution(OTHER_SCENE, Resolution.SuperHigh));
+    }
+
+    @Test
+    public void lowEndDevice_stopsAtHigh() {
+        mSelector.setViewport(SCENE, 720, 1280, DisplayMode.DISPLAY_MODE_ASPECT_FIT);
+        assertEquals(Resolution.SuperHigh, mSelector.getResolution(SCENE, Resolution.SuperHigh));
+
+        mSelector.setLowEndDevice(true);
+        assertEquals(ResolutionSelector.LOW_END_MAX_RESOLUTION,
+                mSelector.getResolution(SCENE, Resolution.SuperHigh));
+    }
+
+    @Test
+    public void select_prefersTheHighestNotAbove() {
+        assertEquals(Resolution.Standard, ResolutionSelector.select(
+                new Resolution[]{Resolution.SuperHigh, Resolution.Standard}, Resolution.High));
+        assertEquals(Resolution.SuperHigh, ResolutionSelector.select(
+                new Resolution[]{Resolution.ExtremelyHigh, Resolution.SuperHigh},
+                Resolution.High));
+        assertNull(ResolutionSelector.select(new Resolution[]{Resolution.FourK},
+                Resolution.High));
+        assertNull(ResolutionSelector.select(null, Resolution.High));
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2021/12/27
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import androidx.annotation.NonNull;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.data.VideoItemWindow;
+import com.ss.ttvideoengine.PreLoaderItemCallBackInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SlidingWindowPreloadStrategyTest {
+    private final List<String> mStarted = new ArrayList<>();
+    private final List<Long> mSizes = new ArrayList<>();
+    private final List<String> mCanceled = new ArrayList<>();
+    private final List<String> mDemoted = new ArrayList<>();
+    private VideoItemWindow mWindow;
+    private SlidingWindowPreloadStrategy mStrategy;
+
+    @Before
+    public void setUp() {
+        mWindow = new VideoItemWindow((from, count, callback) -> {
+        }, 10, 20, 10);
+        List<VideoItem> items = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            VideoItem item = new VideoItem("v" + i, 1000, null, null, "token", VIDEO_TYPE_SMALL);
+            item.setOrdinal(i);
+            items.add(item);
+        }
+        mWindow.append(items);
+        mStrategy = new SlidingWindowPreloadStrategy(mWindow, 3, 1) {
+            @Override
+            protected boolean isPreloadEnabled() {
+                return true;
+            }
+
+            @Override
+            protected void startTask(@NonNull VideoItem videoItem, long preloadSize,
+                    int distance) {
+                mStarted.add(videoItem.getVid());
+                mSizes.add(preloadSize);
+            }
+
+            @Override
+            protected void cancelTask(@NonNull String vid) {
+                mCanceled.add(vid);
+            }
+
+            @Override
+            protected void demoteTask(@NonNull String vid, int distance) {
+                mDemoted.add(vid + "@" + distance);
+            }
+        };
+    }
+
+    @Test
+    public void nearestItemsStartFirst_withLargerSizes() {
+        // no bandwidth estimate yet, the next item gets PRELOAD_SIZE
+        mStrategy.currentVideoChanged(mWindow.get(5));
+
+        // v4 is one behind, as far as two ahead, and goes after v7
+        assertEquals(Arrays.asList("v6", "v7", "v4", "v8"), mStarted);
+        assertEquals(PreloadStrategy.PRELOAD_SIZE, (long) mSizes.get(0));
+        assertEquals(PreloadStrategy.PRELOAD_SIZE / 2, (long) mSizes.get(1));
+        assertEquals(PreloadStrategy.PRELOAD_SIZE / 2, (long) mSizes.get(2));
+        assertEquals(PreloadStrategy.MIN_PRELOAD_SIZE, (long) mSizes.get(3));
+    }
+
+    @Test
+    public void targets_followWindowPositions_whenTheFeedSkipsOrdinals() {
+        List<VideoItem> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            VideoItem item = new VideoItem("g" + i, 1000, null, null, "token", VIDEO_TYPE_SMALL);
+            // ordinals 0, 1, 2, 10, 11...
+            item.setOrdinal(i < 3 ? i : i + 7);
+            items.add(item);
+        }
+        mWindow.set(items);
+
+        // position 5, ordinal 12
+        mStrategy.currentVideoChanged(mWindow.get(5));
+
+        assertEquals(Arrays.asList("g6", "g7", "g4", "g8"), mStarted);
+    }
+
+    @Test
+    public void firstItem_hasNothingBehind() {
+        mStrategy.currentVideoChanged(mWindow.get(0));
+
+        assertEquals(Arrays.asList("v1", "v2", "v3"), mStarted);
+    }
+
+    @Test
+    public void tasksInFlight_areNotStartedAgain() {
+        mStrategy.currentVideoChanged(mWindow.get(5));
+        mStarted.clear();
+
+        mStrategy.currentVideoChanged(mWindow.get(6));
+
+        // v7, v8 in flight, v6 is now current and v5 behind is nearer than v9
+        assertEquals(Arrays.asList("v5", "v9"), mStarted);
+    }
+
+    @Test
+    public void itemBehind_isKeptAfterItsPlayerIsReleased() {
+        mStrategy.currentVideoChanged(mWindow.get(5));
+        mStrategy.currentVideoChanged(mWindow.get(6));
+
+        assertTrue(mStrategy.keepsPreload(mWindow.get(5)));
+        assertFalse(mStrategy.keepsPreload(mWindow.get(6)));
+        assertFalse(mStrategy.keepsPreload(mWindow.get(20)));
+    }
+
+    @Test
+    public void tasksLeavingTheWindow_areCanceled() {
+        mStrategy.currentVideoChanged(mWindow.get(5));
+
+        mStrategy.currentVideoChanged(mWindow.get(20));
+
+        assertTrue(mCanceled.containsAll(Arrays.asList("v4", "v6", "v7", "v8")));
+        assertEquals(4, mCanceled.size());
+        assertFalse(mStrategy.isInFlight("v6"));
+        assertTrue(mStrategy.isInFlight("v21"));
+    }
+
+    @Test
+    public void preloadedItems_areNotPreloadedAgain() {
+        mStrategy.currentVideoChanged(mWindow.get(5));
+        for (String vid : new ArrayList<>(mStarted)) {
+            mStrategy.onPreloadEnd(vid, PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_SUCCEED);
+        }
+        mStarted.clear();
+
+        mStrategy.currentVideoChanged(mWindow.get(4));
+
+        // v6 and v7 already got as much as now asked, v5 was current and v3 is new
+        assertEquals(Arrays.asList("v5", "v3"), mStarted);
+        assertTrue(mCanceled.isEmpty());
+    }
+
+    @Test
+    public void failedTask_isRetriedOnTheNextChange() {
+        mStrategy.currentVideoChanged(mWindow.get(5));
+        mStrategy.onPreloadEnd("v6", PreLoaderItemCallBackInfo.KEY_IS_PRELOAD_END_FAIL);
+        mStarted.clear();
+
+        mStrategy.currentVideoChanged(mWindow.get(5));
+
+        assertEquals(Arrays.asList("v6"), mStarted);
+    }
+
+    @Test
+    public void cancelAll_cancelsEveryTaskInFlight() {
+        mStrategy.currentVideoChanged(mWindow.get(5));
+
+        mStrategy.cancelAll();
+
+        assertTrue(mCanceled.containsAll(Arrays.asList("v4", "v6", "v7", "v8")));
+        assertEquals(4, mCanceled.size());
+        assertFalse(mStrategy.isInFlight("v6"));
+    }
+
+    @Test
+    public void predictedLanding_startsFirst_andPassedPagesWaitBehindIt() {
+        mStrategy.currentVideoChanged(mWindow.get(5));
+        mStarted.clear();
+
+        mStrategy.swipePredicted(new SwipePredictor.Prediction(5, 6, 8, 8000));
+
+        // v6 is the snap target and keeps its task, v8 is in flight already and is scheduled
+        // again to raise its priority, v7 is passed on the way and waits like a page behind v8
+        assertTrue(mCanceled.isEmpty());
+        assertEquals(Arrays.asList("v7@2"), mDemoted);
+        assertEquals(Arrays.asList("v8"), mStarted);
+        assertTrue(mStrategy.isInFlight("v6"));
+        assertTrue(mStrategy.isInFlight("v7"));
+        assertTrue(mStrategy.isInFlight("v8"));
+    }
+
+    @Test
+    public void passedPages_areCanceledOnlyOnceTheyLeaveTheWindow() {
+        mStrategy.currentVideoChanged(mWindow.get(5));
+        mStrategy.swipePredicted(new SwipePredictor.Prediction(5, 6, 8, 8000));
+
+        // the pager settles on the snap target first, v7 is next and keeps its task
+        mStrategy.currentVideoChanged(mWindow.get(6));
+        assertFalse(mCanceled.contains("v7"));
+        assertTrue(mStrategy.isInFlight("v7"));
+
+        mStrategy.currentVideoChanged(mWindow.get(20));
+        assertTrue(mCanceled.contains("v7"));
+    }
+
+    @Test
+    public void predictionAtTheTarget_changesNothing() {
+        mStrategy.currentVideoChanged(mWindow.get(5));
+        mStarted.clear();
+
+        mStrategy.swipePredicted(new SwipePredictor.Prediction(5, 6, 6, 1000));
+
+        assertTrue(mStarted.isEmpty());
+        assertTrue(mCanceled.isEmpty());
+    }
+
+    @Test
+    public void preloadSize_halvesWithDistance() {
+        assertEquals(800_000, SlidingWindowPreloadStrategy.getPreloadSize(800_000, 1));
+        assertEquals(400_000, SlidingWindowPreloadStrategy.getPreloadSize(800_000, 2));
+        assertEquals(PreloadStrategy.MIN_PRELOAD_SIZE,
+                SlidingWindowPreloadStrategy.getPreloadSize(800_000, 40));
+    }
+}
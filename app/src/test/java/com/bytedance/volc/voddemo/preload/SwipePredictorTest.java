@@ -0,0 +1,136 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/5
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SwipePredictorTest {
+    private static final int FAST = 8000;
+    private static final int SLOW = 1500;
+    private static final long SETTLE_MS = 250;
+
+    private SwipePredictor mPredictor;
+    private long mNow;
+    private int mPosition;
+
+    @Before
+    public void setUp() {
+        mPredictor = new SwipePredictor(1200, 4000);
+        mNow = 0;
+        mPosition = 0;
+        mPredictor.onSettled(0, mNow);
+    }
+
+    @Test
+    public void watchingUser_landsOnTheTarget() {
+        SwipePredictor.Prediction prediction = gestures(new long[]{8000, 12000, 5000, 9000},
+                FAST);
+
+        assertEquals(prediction.getFrom() + 1, prediction.getTarget());
+        assertEquals(prediction.getTarget(), prediction.getLanding());
+        assertEquals(0, mPredictor.getSkimRate(), 0);
+    }
+
+    @Test
+    public void skimmingUser_isProjectedPastTheTarget() {
+        SwipePredictor.Prediction prediction = gestures(new long[]{400, 600, 500, 300, 450},
+                FAST);
+
+        assertEquals(prediction.getTarget() + SwipePredictor.MAX_EXTRA_PAGES,
+                prediction.getLanding());
+        // the pager settles on the target whatever the guess, it is never passed
+        assertFalse(prediction.isPassed(prediction.getTarget()));
+        assertTrue(prediction.isPassed(prediction.getTarget() + 1));
+        assertFalse(prediction.isPassed(prediction.getLanding()));
+        assertEquals(450, mPredictor.getMeanDwellMs(), 150);
+    }
+
+    @Test
+    public void slowFling_isNotProjected() {
+        SwipePredictor.Prediction prediction = gestures(new long[]{400, 600, 500, 300, 450},
+                SLOW);
+
+        assertEquals(prediction.getTarget(), prediction.getLanding());
+    }
+
+    @Test
+    public void mixedDwells_projectFewerPages() {
+        // skim, skim, watch, skim, watch, skim: skim rate near one half
+        SwipePredictor.Prediction prediction = gestures(
+                new long[]{400, 500, 6000, 400, 7000, 500}, FAST);
+
+        int extra = prediction.getLanding() - prediction.getTarget();
+        assertTrue(extra >= 1 && extra < SwipePredictor.MAX_EXTRA_PAGES);
+    }
+
+    @Test
+    public void fewDwells_areNotProjected() {
+        SwipePredictor.Prediction prediction = gestures(new long[]{300, 300}, FAST);
+
+        assertEquals(prediction.getTarget(), prediction.getLanding());
+    }
+
+    @Test
+    public void backwardFling_isProjectedBackward_notBelowZero() {
+        gestures(new long[]{400, 500, 300, 400}, FAST);
+        mNow += 400;
+
+        SwipePredictor.Prediction prediction = mPredictor.onFling(mPosition, mPosition - 1,
+                -FAST, mNow);
+
+        assertEquals(-1, prediction.getDirection());
+        assertEquals(0, prediction.getLanding());
+        assertTrue(prediction.isPassed(1));
+        assertFalse(prediction.isPassed(prediction.getTarget()));
+    }
+
+    @Test
+    public void snapBack_predictsNothing() {
+        gestures(new long[]{400, 500, 300, 400}, FAST);
+        mNow += 400;
+
+        SwipePredictor.Prediction prediction = mPredictor.onFling(mPosition, mPosition, FAST,
+                mNow);
+
+        assertEquals(0, prediction.getDirection());
+        assertEquals(mPosition, prediction.getLanding());
+    }
+
+    /**
+     * Dwells on the current page for each of {@code dwellsMs}, then flings to the next one and
+     * settles there.
+     *
+     * @return the prediction of the last fling
+     */
+    private SwipePredictor.Prediction gestures(long[] dwellsMs, int velocity) {
+        SwipePredictor.Prediction prediction = null;
+        for (long dwellMs : dwellsMs) {
+            mNow += dwellMs;
+            prediction = mPredictor.onFling(mPosition, mPosition + 1, velocity, mNow);
+            mNow += SETTLE_MS;
+            mPosition++;
+            mPredictor.onSettled(mPosition, mNow);
+        }
+        return prediction;
+    }
+}
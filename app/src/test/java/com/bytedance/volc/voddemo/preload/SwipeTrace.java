@@ -0,0 +1,105 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/4
+ */
+package com.bytedance.volc.voddemo.preload;
+
+import androidx.annotation.NonNull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * What a user does in the small video feed: watch the current video for a while, then swipe
+ * to the next or the previous one.
+ */
+final class SwipeTrace {
+    static final long MIN_DWELL_MS = 300;
+
+    static final class Swipe {
+        final long mDwellMs;
+        // +1 to the next video, -1 back to the previous one
+        final int mDirection;
+
+        Swipe(long dwellMs, int direction) {
+            mDwellMs = dwellMs;
+            mDirection = direction;
+        }
+    }
+
+    private final List<Swipe> mSwipes;
+
+    private SwipeTrace(List<Swipe> swipes) {
+        mSwipes = Collections.unmodifiableList(swipes);
+    }
+
+    @NonNull
+    List<Swipe> getSwipes() {
+        return mSwipes;
+    }
+
+    /**
+     * Reads a recorded trace, one swipe per line: the dwell in ms then {@code +1} or
+     * {@code -1}. Blank lines and lines starting with {@code #} are skipped.
+     */
+    @NonNull
+    static SwipeTrace parse(@NonNull Reader in) throws IOException {
+        final List<Swipe> swipes = new ArrayList<>();
+        final BufferedReader reader = new BufferedReader(in);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            final String[] fields = line.split("\\s+");
+            if (fields.length != 2) {
+                throw new IOException("bad swipe: " + line);
+            }
+            try {
+                final int direction = Integer.parseInt(fields[1].replace("+", ""));
+                if (direction != 1 && direction != -1) {
+                    throw new IOException("bad direction: " + line);
+                }
+                swipes.add(new Swipe(Long.parseLong(fields[0]), direction));
+            } catch (NumberFormatException e) {
+                throw new IOException("bad swipe: " + line);
+            }
+        }
+        return new SwipeTrace(swipes);
+    }
+
+    /**
+     * @param meanDwellMs     dwells are exponential around it, most swipes come quickly and a
+     *                        few videos are watched long, never below {@link #MIN_DWELL_MS}
+     * @param backProbability chance of a swipe back to the previous video
+     */
+    @NonNull
+    static SwipeTrace synthetic(long seed, int count, long meanDwellMs, double backProbability) {
+        final Random random = new Random(seed);
+        final List<Swipe> swipes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final long dwellMs = (long) (-meanDwellMs * Math.log(1 - random.nextDouble()));
+            final int direction = random.nextDouble() < backProbability ? -1 : 1;
+            swipes.add(new Swipe(Math.max(MIN_DWELL_MS, dwellMs), direction));
+        }
+        return new SwipeTrace(swipes);
+    }
+}
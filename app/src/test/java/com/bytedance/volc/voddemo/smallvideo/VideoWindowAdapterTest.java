@@ -0,0 +1,166 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/9
+ */
+package com.bytedance.volc.voddemo.smallvideo;
+
+import android.app.Application;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+import com.bytedance.volc.voddemo.base.BaseAdapter;
+import com.bytedance.volc.voddemo.data.VideoItem;
+import com.bytedance.volc.voddemo.data.VideoItemWindow;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.bytedance.volc.voddemo.data.VideoItem.VIDEO_TYPE_SMALL;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class VideoWindowAdapterTest {
+    private final List<String> mEvents = new ArrayList<>();
+    // diffs wait here until the test runs them
+    private final List<Runnable> mDiffs = new ArrayList<>();
+    private VideoWindowAdapter mAdapter;
+
+    @Before
+    public void setUp() {
+        VideoItemWindow window = new VideoItemWindow((from, count, callback) -> {
+        });
+        mAdapter = new VideoWindowAdapter(window, mDiffs::add, Runnable::run) {
+            @Override
+            public int getLayoutId(final int viewType) {
+                return 0;
+            }
+
+            @Override
+            public void onBindViewHolder(final BaseAdapter.ViewHolder holder,
+                    @Nullable final VideoItem data, final int position) {
+            }
+        };
+        mAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                mEvents.add("changed all");
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                mEvents.add("changed " + positionStart + "+" + itemCount);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                mEvents.add("inserted " + positionStart + "+" + itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                mEvents.add("removed " + positionStart + "+" + itemCount);
+            }
+        });
+    }
+
+    @Test
+    public void firstPageThenAppend_onlyRangeInserts() {
+        mAdapter.setFirstPage(items("a1", "b1", "c1"));
+        mAdapter.append(items("d1", "e1"));
+
+        assertEquals(Arrays.asList("inserted 0+3", "inserted 3+2"), mEvents);
+        assertEquals(5, mAdapter.getItemCount());
+    }
+
+    @Test
+    public void firstPageAgain_onlyNotifiesTheRowsTheDiffTouched() {
+        mAdapter.setFirstPage(items("a1", "b1", "c1"));
+        mEvents.clear();
+
+        mAdapter.setFirstPage(items("a1", "b2", "c1", "d1"));
+        // the old items are shown until the diff is back
+        assertEquals(0, mEvents.size());
+        assertEquals(3, mAdapter.getItemCount());
+        runDiffs();
+
+        assertEquals(Arrays.asList("inserted 3+1", "changed 1+1"), mEvents);
+        assertEquals("title b2", mAdapter.getItem(1).getTitle());
+    }
+
+    @Test
+    public void firstPageAgain_withTheSameItems_notifiesNothing() {
+        mAdapter.setFirstPage(items("a1", "b1"));
+        mEvents.clear();
+
+        mAdapter.setFirstPage(items("a1", "b1"));
+        runDiffs();
+
+        assertEquals(0, mEvents.size());
+    }
+
+    @Test
+    public void pageAppendedWhileDiffing_isDiffedAgain() {
+        mAdapter.setFirstPage(items("a1", "b1"));
+        mAdapter.setFirstPage(items("a1", "b2"));
+        mAdapter.append(items("c1"));
+        mEvents.clear();
+
+        runDiffs();
+
+        // diffed against a1 b1 c1, not against the a1 b1 it started from
+        assertEquals(Arrays.asList("removed 2+1", "changed 1+1"), mEvents);
+        assertEquals(2, mAdapter.getItemCount());
+    }
+
+    @Test
+    public void onlyTheLatestFirstPage_isApplied() {
+        mAdapter.setFirstPage(items("a1", "b1"));
+        mAdapter.setFirstPage(items("a1", "b2"));
+        mAdapter.setFirstPage(items("a1", "b3"));
+        mEvents.clear();
+
+        runDiffs();
+
+        assertEquals(Arrays.asList("changed 1+1"), mEvents);
+        assertEquals("title b3", mAdapter.getItem(1).getTitle());
+    }
+
+    private void runDiffs() {
+        while (!mDiffs.isEmpty()) {
+            mDiffs.remove(0).run();
+        }
+    }
+
+    /**
+     * @param keys item id then title suffix, "b2" is item b with title "title b2"
+     */
+    private static List<VideoItem> items(String... keys) {
+        List<VideoItem> items = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            VideoItem item = new VideoItem("vid" + keys[i].charAt(0), 1000, "title " + keys[i],
+                    null, "token", VIDEO_TYPE_SMALL);
+            item.setItemId(String.valueOf(keys[i].charAt(0)));
+            item.setOrdinal(i);
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/11
+ */
+package com.bytedance.volc.voddemo.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VersionedFileUtilsTest {
+    private static final int MAGIC = 0x54455354; // "TEST"
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void written_readsBack_andLeavesNoTmpFile() throws Exception {
+        File file = new File(mFolder.getRoot(), "f.bin");
+        VersionedFileUtils.write(file, MAGIC, 1, out -> out.writeUTF("hello"));
+
+        List<String> read = new ArrayList<>();
+        assertTrue(VersionedFileUtils.read(file, MAGIC, 1, in -> read.add(in.readUTF())));
+        assertEquals("hello", read.get(0));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void otherVersion_orMissingFile_readsAsAbsent() throws Exception {
+        File file = new File(mFolder.getRoot(), "f.bin");
+        assertFalse(VersionedFileUtils.read(file, MAGIC, 1, in -> {
+        }));
+
+        VersionedFileUtils.write(file, MAGIC, 2, out -> out.writeInt(1));
+        assertFalse(VersionedFileUtils.read(file, MAGIC, 1, in -> {
+        }));
+    }
+
+    @Test
+    public void truncatedContent_failsTheRead() throws Exception {
+        File file = new File(mFolder.getRoot(), "f.bin");
+        VersionedFileUtils.write(file, MAGIC, 1, out -> out.writeInt(1));
+
+        assertFalse(VersionedFileUtils.read(file, MAGIC, 1, in -> in.readLong()));
+    }
+
+    @Test(expected = IOException.class)
+    public void failedWrite_keepsTheOldFile_andDropsTheTmpFile() throws Exception {
+        File file = new File(mFolder.getRoot(), "f.bin");
+        VersionedFileUtils.write(file, MAGIC, 1, out -> out.writeUTF("old"));
+        try {
+            VersionedFileUtils.write(file, MAGIC, 1, out -> {
+                throw new IOException("disk full");
+            });
+        } finally {
+            List<String> read = new ArrayList<>();
+            VersionedFileUtils.read(file, MAGIC, 1, in -> read.add(in.readUTF()));
+            assertEquals("old", read.get(0));
+            assertFalse(new File(file.getPath() + ".tmp").exists());
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2021 bytedance
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Create Date : 2022/1/8
+ */
+package com.bytedance.volc.voddemo.videoview;
+
+import android.content.ComponentCallbacks2;
+import androidx.annotation.NonNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class VideoEnginePoolTest {
+    // assumed costs of a real engine, the fake advances a clock by them. They are not measured:
+    // the latencies printed by startUpLatency_enginePerBindVersusPool only echo these constants
+    // through the number of creates, resets and releases, they say nothing of a real device
+    private static final long CREATE_MS = 35;
+    private static final long RESET_MS = 3;
+    private static final long RELEASE_MS = 12;
+    private static final int SWIPES = 200;
+
+    private static class FakeEngine {
+        boolean mHealthy = true;
+        boolean mReleased;
+    }
+
+    private static class FakeFactory implements VideoEnginePool.Factory<FakeEngine> {
+        long mClock;
+        boolean mResettable = true;
+        int mCreated;
+        int mReleased;
+
+        @NonNull
+        @Override
+        public FakeEngine create() {
+            mClock += CREATE_MS;
+            mCreated++;
+            return new FakeEngine();
+        }
+
+        @Override
+        public boolean reset(@NonNull FakeEngine engine) {
+            mClock += RESET_MS;
+            return mResettable && engine.mHealthy;
+        }
+
+        @Override
+        public boolean isHealthy(@NonNull FakeEngine engine) {
+            return engine.mHealthy;
+        }
+
+        @Override
+        public void release(@NonNull FakeEngine engine) {
+            mClock += RELEASE_MS;
+            mReleased++;
+            engine.mReleased = true;
+        }
+    }
+
+    private FakeFactory mFactory;
+    private VideoEnginePool<FakeEngine> mPool;
+
+    @Before
+    public void setUp() {
+        mFactory = new FakeFactory();
+        mPool = new VideoEnginePool<>(mFactory);
+    }
+
+    @Test
+    public void recycledEngine_isReused() {
+        FakeEngine engine = mPool.acquire();
+        mPool.recycle(engine);
+
+        assertSame(engine, mPool.acquire());
+        assertEquals(1, mPool.getCreatedCount());
+        assertEquals(1, mPool.getReusedCount());
+        assertEquals(0, mPool.getIdleCount());
+    }
+
+    @Test
+    public void idleEngines_areBounded() {
+        FakeEngine[] engines = new FakeEngine[4];
+        for (int i = 0; i < engines.length; i++) {
+            engines[i] = mPool.acquire();
+        }
+        for (FakeEngine engine : engines) {
+            mPool.recycle(engine);
+        }
+
+        assertEquals(VideoEnginePool.DEFAULT_MAX_IDLE, mPool.getIdleCount());
+        assertEquals(2, mPool.getRetiredCount());
+        assertEquals(2, mFactory.mReleased);
+    }
+
+    @Test
+    public void unhealthyIdleEngine_isReleasedOnAcquire() {
+        FakeEngine engine = mPool.acquire();
+        mPool.recycle(engine);
+        engine.mHealthy = false;
+
+        FakeEngine next = mPool.acquire();
+
+        assertNotSame(engine, next);
+        assertTrue(engine.mReleased);
+        assertEquals(2, mPool.getCreatedCount());
+    }
+
+    @Test
+    public void engineFailingReset_isReleased() {
+        mFactory.mResettable = false;
+        FakeEngine engine = mPool.acquire();
+
+        mPool.recycle(engine);
+
+        assertTrue(engine.mReleased);
+        assertEquals(0, mPool.getIdleCount());
+    }
+
+    @Test
+    public void engine_isRetiredAfterMaxUses() {
+        FakeEngine engine = mPool.acquire();
+        for (int i = 1; i < VideoEnginePool.MAX_USES; i++) {
+            mPool.recycle(engine);
+            assertSame(engine, mPool.acquire());
+        }
+
+        mPool.recycle(engine);
+
+        assertTrue(engine.mReleased);
+        assertNotSame(engine, mPool.acquire());
+    }
+
+    @Test
+    public void memoryPressure_shrinksThePool() {
+        FakeEngine first = mPool.acquire();
+        FakeEngine second = mPool.acquire();
+        mPool.recycle(first);
+        mPool.recycle(second);
+
+        mPool.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(1, mPool.getIdleCount());
+        // the most recently returned engine is kept
+        assertTrue(first.mReleased);
+
+        mPool.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(0, mPool.getIdleCount());
+        assertTrue(second.mReleased);
+    }
+
+    @Test
+    public void startUpLatency_enginePerBindVersusPool() {
+        // before: every bind constructs an engine and every release tears it down
+        FakeFactory perBind = new FakeFactory();
+        long bindMs = 0;
+        long swipeMs = 0;
+        FakeEngine playing = null;
+        for (int i = 0; i < SWIPES; i++) {
+            long start = perBind.mClock;
+            if (playing != null) {
+                perBind.release(playing);
+            }
+            long bindStart = perBind.mClock;
+            playing = perBind.create();
+            bindMs += perBind.mClock - bindStart;
+            swipeMs += perBind.mClock - start;
+        }
+
+        // after: the same swipes borrowing from the pool
+        long pooledBindMs = 0;
+        long pooledSwipeMs = 0;
+        playing = null;
+        for (int i = 0; i < SWIPES; i++) {
+            long start = mFactory.mClock;
+            if (playing != null) {
+                mPool.recycle(playing);
+            }
+            long bindStart = mFactory.mClock;
+            playing = mPool.acquire();
+            pooledBindMs += mFactory.mClock - bindStart;
+            pooledSwipeMs += mFactory.mClock - start;
+        }
+
+        // simulated from the assumed CREATE_MS, RESET_MS and RELEASE_MS, not measured
+        System.out.println("assumed costs, engine per bind: bind " + bindMs / SWIPES + "ms, swipe "
+                           + swipeMs / SWIPES + "ms; pooled: bind "
+                           + (double) pooledBindMs / SWIPES + "ms, swipe "
+                           + (double) pooledSwipeMs / SWIPES + "ms, created "
+                           + mPool.getCreatedCount() + ", retired " + mPool.getRetiredCount());
+        assertEquals(SWIPES, perBind.mCreated);
+        assertTrue(pooledBindMs * 10 < bindMs);
+        assertTrue(pooledSwipeMs < swipeMs);
+    }
+}